@@ -68,19 +68,70 @@ public class Brein {
         getEngine().invoke(this.config, data, callback);
     }
 
+    /**
+     * Retrieves a lookup result from the engine. The function needs a valid API-key to be configured to succeed.
+     * <p>
+     * This request is asynchronous, the returned future can be used to wait for the result or to cancel the request.
+     *
+     * @param data a plain object specifying the lookup information.
+     * @return BreinFuture the pending result of the request
+     */
+    public BreinFuture<BreinResult> lookup(final BreinLookup data) {
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        lookup(data, future);
+        return future;
+    }
+
+    /**
+     * Sends a temporalData request to the engine utilizing the API.
+     * <p>
+     * This request is asynchronous, the returned future can be used to wait for the result or to cancel the request.
+     *
+     * @param data contains the brein temporal data object
+     * @return BreinFuture the pending result of the request
+     */
+    public BreinFuture<BreinResult> temporalData(final BreinTemporalData data) {
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        temporalData(data, future);
+        return future;
+    }
+
+    /**
+     * Sends a recommendation request to the engine utilizing the API.
+     * <p>
+     * This request is asynchronous, the returned future can be used to wait for the result or to cancel the request.
+     *
+     * @param data contains the brein recommendation object
+     * @return BreinFuture the pending result of the request
+     */
+    public BreinFuture<BreinResult> recommendation(final BreinRecommendation data) {
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        recommendation(data, future);
+        return future;
+    }
+
+    /**
+     * Sends the journaled activities, which were not accepted by the backend so far.
+     * This is only needed if activity journaling is enabled within the configuration.
+     */
+    public void replayActivities() {
+        getEngine().replayActivities(this.config);
+    }
+
     /**
      * Shutdown Breinify services
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
         if (this.engine != null) {
             this.engine.terminate();
             this.engine = null;
         }
     }
 
-    public BreinEngine getEngine() {
+    public synchronized BreinEngine getEngine() {
         if (this.engine == null) {
-            this.engine = new BreinEngine();
+            this.engine = new BreinEngine(this.config == null ? null : this.config.getRestEngineType());
+            this.engine.configure(this.config);
         }
 
         return engine;
@@ -3,6 +3,7 @@ package com.brein.api;
 import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinResult;
 import com.brein.domain.BreinUser;
+import com.brein.engine.BreinPriority;
 import com.brein.util.BreinMapUtil;
 import com.brein.util.BreinUtil;
 
@@ -21,14 +22,14 @@ public class BreinActivity extends BreinBase<BreinActivity> implements ISecretSt
     private static final String TAGS_FIELD = "tags";
 
     /**
-     * contains the tags
+     * contains the tags, the map is copied on write
      */
-    private Map<String, Object> tagsMap;
+    private volatile Map<String, Object> tagsMap;
 
     /**
-     * contains the fields that are part of the activity map
+     * contains the fields that are part of the activity map, the map is copied on write
      */
-    private Map<String, Object> activityMap;
+    private volatile Map<String, Object> activityMap;
 
     /**
      * returns activity type
@@ -109,16 +110,24 @@ public class BreinActivity extends BreinBase<BreinActivity> implements ISecretSt
         return config.getActivityEndpoint();
     }
 
+    /**
+     * activities are sent in the bulk lane, i.e., deferred in favor of interactive requests
+     *
+     * @return {@code BreinPriority.BULK}
+     */
+    @Override
+    public BreinPriority getPriority() {
+        return BreinPriority.BULK;
+    }
+
     // @Override
     public BreinActivity set(final String key, final Object value) {
         if (TAGS_FIELD.equalsIgnoreCase(key)) {
             throw new BreinException("The field '" + TAGS_FIELD + "' cannot be set, " +
                     "use the setTag method to do so.");
-        } else if (this.activityMap == null) {
-            this.activityMap = new HashMap<>();
         }
 
-        this.activityMap.put(key, value);
+        this.activityMap = BreinMapUtil.copyAndPut(this.activityMap, key, value);
         return this;
     }
 
@@ -168,9 +177,10 @@ public class BreinActivity extends BreinBase<BreinActivity> implements ISecretSt
         final Map<String, Object> activityRequestData = new HashMap<>();
 
         // add the user-data, if there is any
-        if (this.activityMap != null) {
+        final Map<String, Object> activityMap = this.activityMap;
+        if (activityMap != null) {
             // loop a Map
-            for (Map.Entry<String, Object> entry : this.activityMap.entrySet()) {
+            for (Map.Entry<String, Object> entry : activityMap.entrySet()) {
                 if (BreinUtil.containsValue(entry.getValue())) {
                     activityRequestData.put(entry.getKey(), entry.getValue());
                 }
@@ -183,8 +193,9 @@ public class BreinActivity extends BreinBase<BreinActivity> implements ISecretSt
         }
 
         // add tagsMap map if configured
-        if (this.tagsMap != null && !this.tagsMap.isEmpty()) {
-            activityRequestData.put(TAGS_FIELD, BreinMapUtil.copyMap(this.tagsMap));
+        final Map<String, Object> tagsMap = this.tagsMap;
+        if (tagsMap != null && !tagsMap.isEmpty()) {
+            activityRequestData.put(TAGS_FIELD, BreinMapUtil.copyMap(tagsMap));
         }
 
         requestData.put(ACTIVITY_FIELD, activityRequestData);
@@ -202,26 +213,37 @@ public class BreinActivity extends BreinBase<BreinActivity> implements ISecretSt
 
         final long unixTimestamp = BreinMapUtil.getNestedValue(requestData, UNIX_TIMESTAMP_FIELD);
 
-        final String message = String.format("%s%d%d", paraType, unixTimestamp, 1);
+        final String message = paraType + unixTimestamp + 1;
         return BreinUtil.generateSignature(message, config.getSecret());
     }
 
     public BreinActivity setTag(final String key, final Object value) {
-        if (this.tagsMap == null) {
-            this.tagsMap = new HashMap<>();
-        }
-
-        this.tagsMap.put(key, value);
+        this.tagsMap = BreinMapUtil.copyAndPut(this.tagsMap, key, value);
         return this;
     }
 
+    /**
+     * Creates a snapshot of the activity, i.e., a copy which is not affected by later changes of this activity or
+     * its user. The maps are copied on write, thus the snapshot shares them and is cheap to create.
+     *
+     * @return BreinActivity the snapshot
+     */
+    public BreinActivity snapshot() {
+        final BreinActivity snapshot = copyTo(new BreinActivity());
+        snapshot.activityMap = this.activityMap;
+        snapshot.tagsMap = this.tagsMap;
+
+        return snapshot;
+    }
+
     public Map<String, Object> getTagsMap() {
         return this.tagsMap;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T get(final String key) {
-        return this.activityMap == null ? null : (T) this.activityMap.get(key);
+        final Map<String, Object> activityMap = this.activityMap;
+        return activityMap == null ? null : (T) activityMap.get(key);
     }
 
     protected <T> T getActivityField(final ActivityField field) {
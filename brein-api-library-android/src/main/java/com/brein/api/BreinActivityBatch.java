@@ -0,0 +1,123 @@
+package com.brein.api;
+
+import com.brein.domain.BreinConfig;
+import com.brein.engine.BreinPriority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contains several already prepared (and signed) activities, which are sent
+ * as one JSON array to the bulk activity endpoint.
+ */
+public class BreinActivityBatch extends BreinBase<BreinActivityBatch> implements ISecretStrategy {
+
+    /**
+     * contains the request bodies of the activities
+     */
+    private final List<String> activities = new ArrayList<>();
+
+    /**
+     * adds the request body of an activity to the batch
+     *
+     * @param preparedActivity String the JSON of the activity, i.e., the result of
+     *                         {@link BreinActivity#prepareRequestData(BreinConfig)}
+     * @return {@code this}
+     */
+    public BreinActivityBatch add(final String preparedActivity) {
+        this.activities.add(preparedActivity);
+        return this;
+    }
+
+    /**
+     * retrieves the request bodies of the batched activities
+     *
+     * @return List of the JSON of each activity
+     */
+    public List<String> getActivities() {
+        return Collections.unmodifiableList(this.activities);
+    }
+
+    /**
+     * retrieves the number of batched activities
+     *
+     * @return int number of activities
+     */
+    public int size() {
+        return this.activities.size();
+    }
+
+    /**
+     * retrieves the configured bulk activity endpoint
+     *
+     * @return endpoint
+     */
+    @Override
+    public String getEndPoint(final BreinConfig config) {
+        return config.getActivityBulkEndpoint();
+    }
+
+    /**
+     * a batch is sent in the bulk lane like the activities it contains
+     *
+     * @return {@code BreinPriority.BULK}
+     */
+    @Override
+    public BreinPriority getPriority() {
+        return BreinPriority.BULK;
+    }
+
+    @Override
+    public void prepareRequestData(final BreinConfig config, final Map<String, Object> requestData) {
+        // nothing to be added, the activities are already prepared
+    }
+
+    /**
+     * creates the JSON array of the batched activities
+     *
+     * @param config the configuration used to create the request body
+     * @return String the JSON array
+     */
+    @Override
+    public String prepareRequestData(final BreinConfig config) {
+        int length = 2;
+        for (final String activity : this.activities) {
+            length += activity.length() + 1;
+        }
+
+        final StringBuilder sb = new StringBuilder(length);
+        sb.append('[');
+        for (int i = 0; i < this.activities.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(this.activities.get(i));
+        }
+        sb.append(']');
+
+        return sb.toString();
+    }
+
+    /**
+     * The body is not created from a map, see {@link #prepareRequestData(BreinConfig)}.
+     *
+     * @return null
+     */
+    @Override
+    public Map<String, Object> prepareRequestMap(final BreinConfig config) {
+        return null;
+    }
+
+    /**
+     * The batch itself is not signed, each of the contained activities
+     * carries its own signature.
+     *
+     * @return null
+     */
+    @Override
+    public String createSignature(final BreinConfig config, final Map<String, Object> requestData) {
+        return null;
+    }
+}
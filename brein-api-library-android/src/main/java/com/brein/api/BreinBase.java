@@ -2,11 +2,15 @@ package com.brein.api;
 
 import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinUser;
+import com.brein.engine.BreinPriority;
+import com.brein.util.BreinGson;
+import com.brein.util.BreinMapUtil;
 import com.brein.util.BreinUtil;
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,20 +27,18 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
     public static final String IP_ADDRESS = "ipAddress";
 
     /**
-     * Builder for JSON creation
+     * Builder for JSON creation, the instance is shared by the library (see {@link BreinGson})
      */
-    public static final Gson GSON = new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE)
-            .create();
+    public static final Gson GSON = BreinGson.GSON;
     /**
      * Contains user information for the request
      */
-    private BreinUser user;
+    private volatile BreinUser user;
 
     /**
-     * The base data for the request
+     * The base data for the request, the map is copied on write
      */
-    private Map<String, Object> baseMap;
+    private volatile Map<String, Object> baseMap;
 
     /**
      * Retrieves the current {@code BreinUser} for the request. This method never returns {@code null}, instead it
@@ -127,6 +129,18 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
      */
     public abstract String getEndPoint(final BreinConfig config);
 
+    /**
+     * Gets the priority of the request, i.e., the lane it is dispatched in.
+     * Requests are interactive by default, i.e., the user waits for them.
+     *
+     * @return the priority of the request
+     *
+     * @see BreinPriority
+     */
+    public BreinPriority getPriority() {
+        return BreinPriority.INTERACTIVE;
+    }
+
     /**
      * Retrieves the currently set {@code unixTimestamp}. If now should be used as timestamp, the method returns {@code
      * -1L}.
@@ -167,7 +181,8 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
     }
 
     /**
-     * Gets the GSON builder instance used to build the requests body
+     * Gets the GSON builder instance used to build the requests body, i.e., used by {@link
+     * #prepareRequestData(BreinConfig)} and {@link #writeRequestData(Map, Writer)}
      *
      * @return GSON instance
      */
@@ -190,11 +205,9 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
         if (BreinUser.USER_FIELD.equalsIgnoreCase(key)) {
             throw new BreinException("The field '" + BreinUser.USER_FIELD + "' cannot be set, " +
                     "use the setUser method to do so.");
-        } else if (this.baseMap == null) {
-            this.baseMap = new HashMap<>();
         }
 
-        this.baseMap.put(key, value);
+        this.baseMap = BreinMapUtil.copyAndPut(this.baseMap, key, value);
         return getThis();
     }
 
@@ -214,20 +227,33 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
      * @return the created request body (JSON)
      */
     public String prepareRequestData(final BreinConfig config) {
+        return getGson().toJson(prepareRequestMap(config));
+    }
+
+    /**
+     * Method to generate the data of the body part of the request, i.e., the data which is serialized by {@link
+     * #prepareRequestData(BreinConfig)}. The created map is not shared, i.e., it can be written by another thread.
+     *
+     * @param config the configuration used to create the request data
+     *
+     * @return the created request data, or {@code null} if the body is not created from a map
+     */
+    public Map<String, Object> prepareRequestMap(final BreinConfig config) {
         final Map<String, Object> requestData = new HashMap<>();
 
         requestData.put(API_KEY_FIELD, config.getApiKey());
 
         // add the base values
-        if (this.baseMap != null) {
-            for (Map.Entry<String, Object> entry : this.baseMap.entrySet()) {
+        final Map<String, Object> baseMap = this.baseMap;
+        if (baseMap != null) {
+            for (Map.Entry<String, Object> entry : baseMap.entrySet()) {
                 if (BreinUtil.containsValue(entry.getValue())) {
                     requestData.put(entry.getKey(), entry.getValue());
                 }
             }
         }
 
-        if (!requestData.containsValue(IP_ADDRESS)) {
+        if (!requestData.containsKey(IP_ADDRESS)) {
             final String ipDetected = BreinUtil.detectIpAddress();
             if (BreinUtil.containsValue(ipDetected)) {
                 requestData.put(IP_ADDRESS, ipDetected);
@@ -241,8 +267,9 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
         requestData.put(UNIX_TIMESTAMP_FIELD, timestamp);
 
         // check if we have user data
-        if (this.user != null) {
-            this.user.prepareRequestData(config, requestData);
+        final BreinUser user = this.user;
+        if (user != null) {
+            user.prepareRequestData(config, requestData);
         }
 
         // add the sub-type specific values
@@ -254,7 +281,22 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
             requestData.put(SIGNATURE_TYPE_FIELD, "HmacSHA256");
         }
 
-        return getGson().toJson(requestData);
+        return requestData;
+    }
+
+    /**
+     * Writes the request data as JSON to the writer, without creating the body as String. The written JSON is the
+     * same as the one created by {@link #prepareRequestData(BreinConfig)}.
+     *
+     * @param requestData the request data created by {@link #prepareRequestMap(BreinConfig)}
+     * @param writer      the writer to write the JSON to, it is flushed but not closed
+     *
+     * @throws IOException if the data cannot be written
+     */
+    public void writeRequestData(final Map<String, Object> requestData, final Writer writer) throws IOException {
+        final JsonWriter jsonWriter = getGson().newJsonWriter(writer);
+        getGson().toJson(requestData, Map.class, jsonWriter);
+        jsonWriter.flush();
     }
 
     @SuppressWarnings("unchecked")
@@ -263,6 +305,7 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
     }
 
     protected <F> F getBaseField(final BaseField field) {
+        final Map<String, Object> baseMap = this.baseMap;
         if (baseMap == null) {
             return null;
         }
@@ -271,6 +314,24 @@ public abstract class BreinBase<T extends BreinBase> implements ISecretStrategy
         return (F) baseMap.get(field.getName());
     }
 
+    /**
+     * Copies the base values and a snapshot of the user into the given request, used to create snapshots of a
+     * request. The maps are copied on write, i.e., they can be shared.
+     *
+     * @param target the request to copy the values into
+     *
+     * @return the {@code target}
+     */
+    protected T copyTo(final T target) {
+        final BreinBase<?> base = target;
+        final BreinUser user = this.user;
+
+        base.baseMap = this.baseMap;
+        base.user = user == null ? null : user.snapshot();
+
+        return target;
+    }
+
     @Override
     public String toString() {
         final BreinConfig config = new BreinConfig(null);
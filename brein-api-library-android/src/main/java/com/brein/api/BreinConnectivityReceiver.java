@@ -0,0 +1,40 @@
+package com.brein.api;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import com.brein.domain.BreinDeviceContext;
+import com.brein.domain.BreinIpInfo;
+
+/**
+ * Receives the changes of the connectivity, refreshes the cached network
+ * information (including the external ip-address) and informs the
+ * BreinifyManager whenever the device is connected again.
+ */
+public class BreinConnectivityReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "BreinConnectivityRec";
+
+    @Override
+    public void onReceive(final Context context, final Intent intent) {
+        final ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return;
+        }
+
+        // the network the device is connected to changed
+        BreinDeviceContext.getInstance().invalidateNetwork();
+
+        final NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo != null && networkInfo.isConnected()) {
+            Log.d(TAG, "connectivity regained");
+            BreinIpInfo.getInstance().invalidate();
+            BreinifyManager.getInstance().connectivityRegained();
+        }
+    }
+}
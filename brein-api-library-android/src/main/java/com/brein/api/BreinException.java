@@ -23,6 +23,8 @@ public class BreinException extends RuntimeException {
     public static final String USER_NOT_SET = "User not set.";
     public static final String ACTIVITY_TYPE_NOT_SET = "ActivityType not set.";
     public static final String CATEGORY_TYPE_NOT_SET = "CategoryType not set.";
+    public static final String REQUEST_REJECTED = "Request rejected, dispatch queue is full.";
+    public static final String RESPONSE_TOO_LARGE = "Response exceeds the maximum response size.";
 
     private static final String EXCEPTION_IS = "Exception is:";
 
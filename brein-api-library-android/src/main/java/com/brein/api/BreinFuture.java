@@ -0,0 +1,282 @@
+package com.brein.api;
+
+import android.util.Log;
+
+import com.brein.domain.BreinResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending result of a request. The future can be passed wherever an
+ * {@code ICallback} is expected, a {@code null} result is treated as failed
+ * request. Callbacks added to the future are informed as soon as the request
+ * is done, thus several requests can be sent in parallel and combined without
+ * nesting callbacks.
+ * <p>
+ * Cancelling the future aborts the request, i.e., a queued request is not sent
+ * and the connection of a running request is closed.
+ *
+ * @param <T> the type of the result
+ */
+public class BreinFuture<T extends BreinResult> implements Future<T>, ICallback<T> {
+
+    private static final String TAG = "BreinFuture";
+
+    private enum State {
+        PENDING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final List<ICallback<? super T>> callbacks = new ArrayList<>();
+
+    private State state = State.PENDING;
+    private T result = null;
+    private Throwable failure = null;
+    private Runnable cancellationHandler = null;
+
+    /**
+     * completes the future, used by the engine to pass the result of the request
+     *
+     * @param data T the result, {@code null} if the request failed
+     */
+    @Override
+    public void callback(final T data) {
+        if (data == null) {
+            fail(new BreinException("the request failed"));
+        } else {
+            complete(data);
+        }
+    }
+
+    /**
+     * completes the future with the result
+     *
+     * @param result T the result of the request
+     * @return boolean true if the future was completed, false if it was done already
+     */
+    public boolean complete(final T result) {
+        final List<ICallback<? super T>> toInform;
+        synchronized (this) {
+            if (state != State.PENDING) {
+                return false;
+            }
+
+            this.state = State.SUCCEEDED;
+            this.result = result;
+            toInform = done();
+        }
+
+        inform(toInform, result);
+        return true;
+    }
+
+    /**
+     * completes the future with a failure
+     *
+     * @param failure Throwable the reason of the failure
+     * @return boolean true if the future was completed, false if it was done already
+     */
+    public boolean fail(final Throwable failure) {
+        final List<ICallback<? super T>> toInform;
+        synchronized (this) {
+            if (state != State.PENDING) {
+                return false;
+            }
+
+            this.state = State.FAILED;
+            this.failure = failure;
+            toInform = done();
+        }
+
+        inform(toInform, null);
+        return true;
+    }
+
+    /**
+     * Cancels the request, the connection is closed if the request is already
+     * sent. The added callbacks are informed with a {@code null} result.
+     *
+     * @param mayInterruptIfRunning boolean ignored, a running request is always aborted
+     * @return boolean true if the request was cancelled, false if it was done already
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final List<ICallback<? super T>> toInform;
+        final Runnable handler;
+        synchronized (this) {
+            if (state != State.PENDING) {
+                return false;
+            }
+
+            this.state = State.CANCELLED;
+            handler = this.cancellationHandler;
+            toInform = done();
+        }
+
+        if (handler != null) {
+            handler.run();
+        }
+        inform(toInform, null);
+        return true;
+    }
+
+    /**
+     * Sets the handler aborting the request, it is run if the future is
+     * cancelled. The handler is run immediately if the future was cancelled
+     * already.
+     *
+     * @param handler Runnable the handler aborting the request, {@code null} to remove the current one
+     */
+    public void setCancellationHandler(final Runnable handler) {
+        final boolean cancelled;
+        synchronized (this) {
+            cancelled = state == State.CANCELLED;
+            this.cancellationHandler = cancelled ? null : handler;
+        }
+
+        if (cancelled && handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Adds a callback, which is informed when the request is done. The result
+     * passed is {@code null} if the request failed or was cancelled. If the
+     * future is done already, the callback is informed immediately.
+     *
+     * @param callback ICallback the callback to inform
+     * @return BreinFuture this future
+     */
+    public BreinFuture<T> addCallback(final ICallback<? super T> callback) {
+        synchronized (this) {
+            if (state == State.PENDING) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+
+        inform(callback, result);
+        return this;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == State.CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != State.PENDING;
+    }
+
+    /**
+     * waits until the request is done
+     *
+     * @return T the result of the request
+     * @throws InterruptedException  if the waiting thread is interrupted
+     * @throws ExecutionException    if the request failed
+     * @throws CancellationException if the request was cancelled
+     */
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == State.PENDING) {
+            wait();
+        }
+
+        return getResult();
+    }
+
+    /**
+     * waits until the request is done, but at most the specified time
+     *
+     * @param timeout long the maximum time to wait
+     * @param unit    TimeUnit the unit of the timeout
+     * @return T the result of the request
+     * @throws InterruptedException  if the waiting thread is interrupted
+     * @throws ExecutionException    if the request failed
+     * @throws TimeoutException      if the request is not done within the time
+     * @throws CancellationException if the request was cancelled
+     */
+    @Override
+    public synchronized T get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == State.PENDING) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                throw new TimeoutException("the request did not finish within " + timeout + " " + unit);
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        return getResult();
+    }
+
+    /**
+     * Waits until the request is done, but at most the specified time. In
+     * contrast to {@link #get(long, TimeUnit)}, the request is cancelled if it
+     * does not finish in time.
+     *
+     * @param timeout long the maximum time to wait
+     * @param unit    TimeUnit the unit of the timeout
+     * @return T the result of the request
+     * @throws InterruptedException  if the waiting thread is interrupted, the request is cancelled
+     * @throws ExecutionException    if the request failed
+     * @throws TimeoutException      if the request is not done within the time
+     * @throws CancellationException if the request was cancelled
+     */
+    public T getOrCancel(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return get(timeout, unit);
+        } catch (final TimeoutException | InterruptedException e) {
+            cancel(true);
+            throw e;
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        if (state == State.CANCELLED) {
+            throw new CancellationException("the request was cancelled");
+        } else if (state == State.FAILED) {
+            throw new ExecutionException(failure);
+        } else {
+            return result;
+        }
+    }
+
+    /**
+     * wakes up the waiting threads and removes the callbacks, must be called holding the lock
+     */
+    private List<ICallback<? super T>> done() {
+        this.cancellationHandler = null;
+        notifyAll();
+
+        final List<ICallback<? super T>> toInform = new ArrayList<>(callbacks);
+        callbacks.clear();
+        return toInform;
+    }
+
+    private void inform(final List<ICallback<? super T>> toInform, final T data) {
+        for (final ICallback<? super T> callback : toInform) {
+            inform(callback, data);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void inform(final ICallback<? super T> callback, final T data) {
+        try {
+            ((ICallback<T>) callback).callback(data);
+        } catch (final RuntimeException e) {
+            Log.d(TAG, "callback failed: " + e);
+        }
+    }
+}
@@ -4,9 +4,6 @@ import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinDimension;
 import com.brein.domain.BreinUser;
 import com.brein.util.BreinUtil;
-import com.google.gson.FieldNamingPolicy;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
@@ -66,7 +63,7 @@ public class BreinLookup extends BreinBase<BreinActivity> implements ISecretStra
     public String prepareRequestData(final BreinConfig config) {
 
         // call base class
-        super.prepareRequestData(config);
+        super.prepareRequestMap(config);
 
         final JsonObject requestData = new JsonObject();
         final BreinUser breinUser = getUser();
@@ -86,13 +83,17 @@ public class BreinLookup extends BreinBase<BreinActivity> implements ISecretStra
             requestData.add("lookup", lookupData);
         }
 
-        final Gson gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .serializeNulls()
-                .setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE)
-                .create();
+        return getGson().toJson(requestData);
+    }
 
-        return gson.toJson(requestData);
+    /**
+     * The body is not created from a map, see {@link #prepareRequestData(BreinConfig)}.
+     *
+     * @return null
+     */
+    @Override
+    public Map<String, Object> prepareRequestMap(final BreinConfig config) {
+        return null;
     }
 
     /**
@@ -119,10 +120,9 @@ public class BreinLookup extends BreinBase<BreinActivity> implements ISecretStra
         final String[] dimensions = getBreinDimension().getDimensionFields();
 
         // we need the first one
-        final String message = String.format("%s%d%d",
-                dimensions == null ? 0 : dimensions[0],
-                getUnixTimestamp(),
-                dimensions == null ? 0 : dimensions.length);
+        final String message = (dimensions == null ? "0" : dimensions[0])
+                + getUnixTimestamp()
+                + (dimensions == null ? 0 : dimensions.length);
 
         return BreinUtil.generateSignature(message, config.getSecret());
     }
@@ -0,0 +1,84 @@
+package com.brein.api;
+
+import com.brein.domain.BreinConfig;
+import com.brein.engine.BreinPriority;
+
+import java.util.Map;
+
+/**
+ * Contains an already prepared (and signed) activity, e.g., an activity read
+ * from the activity journal, which is sent as is to the activity endpoint.
+ */
+public class BreinPreparedActivity extends BreinBase<BreinPreparedActivity> implements ISecretStrategy {
+
+    /**
+     * the JSON of the activity
+     */
+    private final String preparedActivity;
+
+    /**
+     * creates the request for the given JSON
+     *
+     * @param preparedActivity String the JSON of the activity, i.e., the result of
+     *                         {@link BreinActivity#prepareRequestData(BreinConfig)}
+     */
+    public BreinPreparedActivity(final String preparedActivity) {
+        this.preparedActivity = preparedActivity;
+    }
+
+    /**
+     * retrieves the configured activity endpoint
+     *
+     * @return endpoint
+     */
+    @Override
+    public String getEndPoint(final BreinConfig config) {
+        return config.getActivityEndpoint();
+    }
+
+    /**
+     * prepared activities (e.g., replayed from the journal) are bulk requests as well
+     *
+     * @return {@code BreinPriority.BULK}
+     */
+    @Override
+    public BreinPriority getPriority() {
+        return BreinPriority.BULK;
+    }
+
+    @Override
+    public void prepareRequestData(final BreinConfig config, final Map<String, Object> requestData) {
+        // nothing to be added, the activity is already prepared
+    }
+
+    /**
+     * returns the JSON of the activity
+     *
+     * @param config the configuration used to create the request body
+     * @return String the prepared activity
+     */
+    @Override
+    public String prepareRequestData(final BreinConfig config) {
+        return preparedActivity;
+    }
+
+    /**
+     * The body is not created from a map, see {@link #prepareRequestData(BreinConfig)}.
+     *
+     * @return null
+     */
+    @Override
+    public Map<String, Object> prepareRequestMap(final BreinConfig config) {
+        return null;
+    }
+
+    /**
+     * The activity is already signed.
+     *
+     * @return null
+     */
+    @Override
+    public String createSignature(final BreinConfig config, final Map<String, Object> requestData) {
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package com.brein.api;
 
 import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
 import com.brein.util.BreinMapUtil;
 import com.brein.util.BreinUtil;
 
@@ -63,6 +64,25 @@ public class BreinRecommendation extends BreinBase<BreinRecommendation> implemen
         return this;
     }
 
+    /**
+     * Creates the key the result of this request can be cached for, i.e., the identity of the user (email, user-id
+     * and device-id), the category and the number of recommendations. The identity is hashed, so that the key can be
+     * persisted without revealing the user.
+     *
+     * @return String the key of the request
+     */
+    public String getCacheKey() {
+        final BreinUser user = getUser();
+        final String identity = nullToEmpty(user.getEmail()) + "|" + nullToEmpty(user.getUserId()) + "|" +
+                nullToEmpty(user.getDeviceId());
+
+        return BreinUtil.sha256(identity) + "|" + nullToEmpty(getCategory()) + "|" + getNumberOfRecommendations();
+    }
+
+    private static String nullToEmpty(final String value) {
+        return value == null ? "" : value;
+    }
+
     @Override
     public String getEndPoint(final BreinConfig config) {
         return config.getRecommendationEndpoint();
@@ -101,7 +121,7 @@ public class BreinRecommendation extends BreinBase<BreinRecommendation> implemen
     public String createSignature(final BreinConfig config, final Map<String, Object> requestData) {
         final long unixTimestamp = BreinMapUtil.getNestedValue(requestData, UNIX_TIMESTAMP_FIELD);
 
-        final String message = String.format("%d", unixTimestamp);
+        final String message = String.valueOf(unixTimestamp);
         return BreinUtil.generateSignature(message, config.getSecret());
     }
 
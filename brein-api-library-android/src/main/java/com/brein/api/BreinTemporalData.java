@@ -1,6 +1,7 @@
 package com.brein.api;
 
 import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinIpInfo;
 import com.brein.domain.BreinUser;
 import com.brein.util.BreinMapUtil;
 import com.brein.util.BreinUtil;
@@ -9,12 +10,13 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.TreeMap;
 
 
 /**
@@ -354,15 +356,67 @@ public class BreinTemporalData extends BreinBase<BreinTemporalData> implements I
      * @return
      */
     public BreinTemporalData setLocation(final String key, final Object value) {
-        Map<String, Object> location = getUser().getAdditional(LOCATION_FIELD);
-        if (location == null) {
-            location = new HashMap<>();
-            getUser().setAdditional(LOCATION_FIELD, location);
+        // the location is replaced, so that snapshots sharing the current one are not affected
+        final Map<String, Object> location = getUser().getAdditional(LOCATION_FIELD);
+        getUser().setAdditional(LOCATION_FIELD, BreinMapUtil.copyAndPut(location, key, value));
+
+        return this;
+    }
+
+    /**
+     * Creates the key the response of this request can be cached for. Requests with coordinates within the same
+     * geo-cell share a key, otherwise the location's text or the looked-up ip-address are used. Without an
+     * ip-address the detected one and the generation of the ip information are used, i.e., the key changes with
+     * the network. The requested shape-types are part of the key, the local date-time and timezone are not.
+     *
+     * @param cellSize double the size of the geo-cells in degrees, the exact coordinates are used if not positive
+     *
+     * @return String the key of the request
+     */
+    public String getCacheKey(final double cellSize) {
+        final Map<String, Object> location = getUser().getAdditional(LOCATION_FIELD);
+        final Map<String, Object> locationKey = location == null
+                ? new TreeMap<String, Object>()
+                : new TreeMap<>(location);
+        final Object shapeTypes = locationKey.remove(SHAPE_TYPES_FIELD);
+
+        final StringBuilder key = new StringBuilder();
+        final Object latitude = locationKey.get(LATITUDE_FIELD);
+        final Object longitude = locationKey.get(LONGITUDE_FIELD);
+        if (latitude instanceof Number && longitude instanceof Number) {
+            key.append("geo:")
+                    .append(toCell(((Number) latitude).doubleValue(), cellSize))
+                    .append(',')
+                    .append(toCell(((Number) longitude).doubleValue(), cellSize));
+        } else if (!locationKey.isEmpty()) {
+            key.append("location:").append(locationKey);
+        } else {
+            final String ipAddress = getUser().getAdditional(IP_ADDRESS_FIELD);
+            if (ipAddress == null) {
+
+                // the server resolves the ip-address of the request, which changes with the network
+                final String detectedIp = BreinUtil.detectIpAddress();
+                key.append("ip:").append(detectedIp == null ? "" : detectedIp)
+                        .append('#').append(BreinIpInfo.getInstance().getGeneration());
+            } else {
+                key.append("ip:").append(ipAddress);
+            }
         }
 
-        location.put(key, value);
+        if (shapeTypes instanceof List) {
+            final List<String> sortedShapeTypes = new ArrayList<>();
+            for (final Object shapeType : (List<?>) shapeTypes) {
+                sortedShapeTypes.add(String.valueOf(shapeType));
+            }
+            Collections.sort(sortedShapeTypes);
+            key.append('|').append(sortedShapeTypes);
+        }
 
-        return this;
+        return key.toString();
+    }
+
+    private static String toCell(final double coordinate, final double cellSize) {
+        return cellSize > 0 ? String.valueOf((long) Math.floor(coordinate / cellSize)) : String.valueOf(coordinate);
     }
 
     /**
@@ -383,7 +437,7 @@ public class BreinTemporalData extends BreinBase<BreinTemporalData> implements I
         final String paraTimezone = timeZone == null ? "" : timeZone;
 
         final long unixTimestamp = BreinMapUtil.getNestedValue(requestData, UNIX_TIMESTAMP_FIELD);
-        final String message = String.format("%d-%s-%s", unixTimestamp, paraLocalDateTime, paraTimezone);
+        final String message = unixTimestamp + "-" + paraLocalDateTime + "-" + paraTimezone;
 
         return BreinUtil.generateSignature(message, config.getSecret());
     }
@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.app.Application;
 
 import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinIpInfo;
 import com.brein.domain.BreinResult;
 import com.brein.domain.BreinUser;
 
@@ -49,7 +50,19 @@ public class Breinify {
      * @see BreinConfig
      */
     public static Brein setConfig(final BreinConfig config) {
-        lastConfig = config;
+        synchronized (Breinify.class) {
+            lastConfig = config;
+
+            // the engine of a previous configuration is not used anymore
+            if (lastBrein != null && lastBrein.getConfig() != config) {
+                lastBrein.shutdown();
+                lastBrein = null;
+            }
+        }
+
+        // the ip-address is resolved in the background, so that it is available with the first requests
+        BreinIpInfo.getInstance().configure(config);
+
         return new Brein().setConfig(config);
     }
 
@@ -306,10 +319,12 @@ public class Breinify {
      */
     public static void activity(final String activityType) {
 
-        breinActivity.setUser(breinUser);
-        breinActivity.setActivityType(activityType);
+        // the shared activity and user are not modified, instead a snapshot is sent
+        final BreinActivity activity = breinActivity.snapshot()
+                .setUser(breinUser.snapshot())
+                .setActivityType(activityType);
 
-        activity(breinActivity, null);
+        activity(activity, null);
     }
 
     /**
@@ -395,6 +410,17 @@ public class Breinify {
         getBrein().temporalData(data, callback);
     }
 
+    /**
+     * Method to retrieve temporal information based on temporal data, see
+     * {@link #temporalData(BreinTemporalData, ICallback)}.
+     *
+     * @param data BreinTemporalData contains the object
+     * @return BreinFuture the pending result, can be used to wait for the result or to cancel the request
+     */
+    public static BreinFuture<BreinResult> temporalData(final BreinTemporalData data) {
+        return getBrein().temporalData(data);
+    }
+
     /**
      * Invokes recommendation request
      *
@@ -405,6 +431,26 @@ public class Breinify {
         getBrein().recommendation(data, callback);
     }
 
+    /**
+     * Invokes recommendation request
+     *
+     * @param data BreinRecommendation instance
+     * @return BreinFuture the pending result, can be used to wait for the result or to cancel the request
+     */
+    public static BreinFuture<BreinResult> recommendation(final BreinRecommendation data) {
+        return getBrein().recommendation(data);
+    }
+
+    /**
+     * Retrieves a lookup result from the engine. The function needs a valid API-key to be configured to succeed.
+     *
+     * @param data BreinLookup a plain object specifying information about the brein lookup data.
+     * @return BreinFuture the pending result, can be used to wait for the result or to cancel the request
+     */
+    public static BreinFuture<BreinResult> lookUp(final BreinLookup data) {
+        return getBrein().lookup(data);
+    }
+
     /**
      * Retrieves a lookup result from the engine. The function needs a valid API-key to be configured to succeed.
      * <p>
@@ -417,12 +463,20 @@ public class Breinify {
         getBrein().lookup(data, callback);
     }
 
+    /**
+     * Sends the journaled activities, which were not accepted by the backend so far (e.g., because the device was
+     * offline). This is only needed if activity journaling is enabled within the configuration.
+     */
+    public static void replayActivities() {
+        getBrein().replayActivities();
+    }
+
     /**
      * Returns the last brein object
      *
      * @return Brein
      */
-    protected static Brein getBrein() {
+    protected static synchronized Brein getBrein() {
         if (lastBrein == null) {
             lastBrein = new Brein().setConfig(lastConfig);
         }
@@ -433,6 +487,12 @@ public class Breinify {
      * Shutdown Breinify services
      */
     public static void shutdown() {
+        synchronized (Breinify.class) {
+            if (lastBrein != null) {
+                lastBrein.shutdown();
+            }
+        }
+
         if (getConfig() != null) {
             getConfig().shutdownEngine();
         }
@@ -6,10 +6,13 @@ import android.app.Application;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
 import android.os.Handler;
 import android.support.v4.app.ActivityCompat;
 import android.util.Log;
 
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinDeviceContext;
 import com.brein.domain.BreinIpInfo;
 import com.brein.util.BreinUtil;
 
@@ -51,6 +54,9 @@ public class BreinifyManager {
     // instance of push notification service
     private final BreinPushNotificationReceiver breinPushNotificationReceiver = new BreinPushNotificationReceiver();
 
+    // receiver of connectivity changes
+    private final BreinConnectivityReceiver breinConnectivityReceiver = new BreinConnectivityReceiver();
+
     // Create the Handler object (on the main thread by default)
     private final Handler handler = new Handler();
 
@@ -224,12 +230,19 @@ public class BreinifyManager {
             this.application.registerActivityLifecycleCallbacks(new BreinifyLifecycle());
         }
 
-        // configure the API
-        Breinify.setConfig(this.apiKey, this.secret);
+        // configure the API, activities are kept within a journal until they are sent
+        Breinify.setConfig(new BreinConfig(this.apiKey, this.secret)
+                .setActivityJournaling(true));
 
         // configure the recipient of push notifications
         initNotificationReceiver();
 
+        // configure the recipient of connectivity changes
+        initConnectivityReceiver();
+
+        // keep the cached location of the device up to date
+        initDeviceContext();
+
         // read user defaults (email, userId, token)
         readAndInitUserDefaults();
 
@@ -242,8 +255,8 @@ public class BreinifyManager {
         // send the user identification to the backend
         sendIdentifyInfo();
 
-        // check if unsent message are there
-        // TODO: 15/06/17
+        // send the activities which could not be sent before
+        Breinify.replayActivities();
     }
 
     /**
@@ -265,6 +278,51 @@ public class BreinifyManager {
         }
     }
 
+    /**
+     * Initializes the connectivity receiver programmatically
+     */
+    public void initConnectivityReceiver() {
+        if (application != null) {
+            final IntentFilter filter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
+            application.registerReceiver(breinConnectivityReceiver, filter);
+        }
+    }
+
+    /**
+     * Stop receiving connectivity changes
+     */
+    public void destroyConnectivityReceiver() {
+        if (application != null) {
+            application.unregisterReceiver(breinConnectivityReceiver);
+        }
+    }
+
+    /**
+     * Registers for location updates, so that the cached location is refreshed
+     */
+    public void initDeviceContext() {
+        if (application != null && Breinify.getConfig() != null) {
+            BreinDeviceContext.getInstance().startListening(application, Breinify.getConfig().getDeviceContextTtl());
+        }
+    }
+
+    /**
+     * Stop receiving location updates
+     */
+    public void destroyDeviceContext() {
+        BreinDeviceContext.getInstance().stopListening();
+    }
+
+    /**
+     * Invoked whenever the device is connected (again), sends the activities
+     * which could not be sent so far
+     */
+    public void connectivityRegained() {
+        if (Breinify.getConfig() != null) {
+            Breinify.replayActivities();
+        }
+    }
+
     /**
      * Background Handler for sending messages
      *
@@ -300,6 +358,8 @@ public class BreinifyManager {
         Log.d(TAG, "shutdown invoked ");
 
         destroyNotificationReceiver();
+        destroyConnectivityReceiver();
+        destroyDeviceContext();
     }
 
     /**
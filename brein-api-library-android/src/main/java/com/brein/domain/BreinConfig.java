@@ -6,8 +6,13 @@ import com.brein.api.BreinInvalidConfigurationException;
 import com.brein.api.BreinifyManager;
 import com.brein.engine.BreinEngine;
 import com.brein.engine.BreinEngineType;
+import com.brein.engine.BreinOverflowPolicy;
+import com.brein.engine.BreinRejectionPolicy;
 import com.brein.util.BreinUtil;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Contains Breinify Endpoint configuration
  */
@@ -23,6 +28,11 @@ public class BreinConfig {
      */
     private static final String DEFAULT_ACTIVITY_ENDPOINT = "/activity";
 
+    /**
+     * default endpoint used to send several activities at once
+     */
+    private static final String DEFAULT_ACTIVITY_BULK_ENDPOINT = "/activity/bulk";
+
     /**
      * default endpoint for temporalData
      */
@@ -48,6 +58,161 @@ public class BreinConfig {
      */
     private static final long DEFAULT_SOCKET_TIMEOUT = 10000;
 
+    /**
+     * default number of threads kept alive to dispatch requests
+     */
+    private static final int DEFAULT_DISPATCH_CORE_POOL_SIZE = 2;
+
+    /**
+     * default maximum number of threads used to dispatch requests
+     */
+    private static final int DEFAULT_DISPATCH_MAX_POOL_SIZE = 4;
+
+    /**
+     * default number of requests waiting for a dispatch thread
+     */
+    private static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 500;
+
+    /**
+     * default time in ms to wait for queued requests on termination
+     */
+    private static final long DEFAULT_DISPATCH_TERMINATION_TIMEOUT = 5000;
+
+    /**
+     * default maximum number of bulk requests (i.e., activities) sent at the same time
+     */
+    private static final int DEFAULT_DISPATCH_BULK_CONCURRENCY = 2;
+
+    /**
+     * default maximum time in ms a bulk request is deferred in favor of interactive requests
+     */
+    private static final long DEFAULT_DISPATCH_BULK_MAX_DELAY = 10 * 1000;
+
+    /**
+     * default maximum number of activities sent within one bulk request
+     */
+    private static final int DEFAULT_ACTIVITY_BATCH_SIZE = 50;
+
+    /**
+     * default time in ms an activity waits for further activities to be batched
+     */
+    private static final long DEFAULT_ACTIVITY_BATCH_INTERVAL = 2000;
+
+    /**
+     * default maximum size (in bytes, UTF-8 encoded) of the not yet sent activities within the journal
+     */
+    private static final long DEFAULT_ACTIVITY_JOURNAL_MAX_SIZE = 1024 * 1024;
+
+    /**
+     * default minimum time in ms between two syncs of the journal to the disk
+     */
+    private static final long DEFAULT_ACTIVITY_JOURNAL_SYNC_INTERVAL = 1000;
+
+    /**
+     * default maximum number of activities kept within the activity buffer
+     */
+    private static final int DEFAULT_ACTIVITY_BUFFER_CAPACITY = 1000;
+
+    /**
+     * default time in ms a caller waits for room within the full activity buffer (BLOCK policy)
+     */
+    private static final long DEFAULT_ACTIVITY_BUFFER_BLOCK_TIMEOUT = 1000;
+
+    /**
+     * default maximum number of activities kept within the spill file of the activity buffer
+     */
+    private static final int DEFAULT_ACTIVITY_BUFFER_SPILL_CAPACITY = 10000;
+
+    /**
+     * default maximum number of idle connections kept alive
+     */
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 5;
+
+    /**
+     * default time in ms an idle connection is kept alive
+     */
+    private static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    /**
+     * default maximum number of connections opened at the same time by the non-blocking engine
+     */
+    private static final int DEFAULT_CONNECTION_MAX_ACTIVE = 16;
+
+    /**
+     * default maximum size in bytes of a response
+     */
+    private static final long DEFAULT_MAX_RESPONSE_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * default time in ms the detected information of the device (location, network) is cached
+     */
+    private static final long DEFAULT_DEVICE_CONTEXT_TTL = 60 * 1000;
+
+    /**
+     * default initial delay in ms before a failed request is retried
+     */
+    private static final long DEFAULT_RETRY_BASE_DELAY = 500;
+
+    /**
+     * default maximum delay in ms before a failed request is retried
+     */
+    private static final long DEFAULT_RETRY_MAX_DELAY = 30 * 1000;
+
+    /**
+     * default number of failed requests in a row, which opens the circuit breaker of an endpoint
+     */
+    private static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+
+    /**
+     * default time in ms the circuit breaker of an endpoint stays open
+     */
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30 * 1000;
+
+    /**
+     * default number of requests kept while the circuit breaker of an endpoint is open
+     */
+    private static final int DEFAULT_CIRCUIT_BREAKER_BUFFER_SIZE = 100;
+
+    /**
+     * default minimum size in bytes of a request body to be compressed
+     */
+    private static final int DEFAULT_REQUEST_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * default number of temporal data responses kept by the cache
+     */
+    private static final int DEFAULT_TEMPORALDATA_CACHE_SIZE = 64;
+
+    /**
+     * default size in degrees of the geo-cells temporal data responses are cached for (about 1 km)
+     */
+    private static final double DEFAULT_TEMPORALDATA_CACHE_CELL_SIZE = 0.01;
+
+    /**
+     * default time in ms a section of a temporal data response is cached, if no specific time is set
+     */
+    private static final long DEFAULT_TEMPORALDATA_CACHE_TTL = 10 * 60 * 1000;
+
+    /**
+     * default number of recommendation results kept by the cache
+     */
+    private static final int DEFAULT_RECOMMENDATION_CACHE_SIZE = 16;
+
+    /**
+     * default maximum age in ms of a cached recommendation result to be used
+     */
+    private static final long DEFAULT_RECOMMENDATION_CACHE_MAX_AGE = 24 * 60 * 60 * 1000;
+
+    /**
+     * default provider resolving the external ip-address of the device
+     */
+    static final String DEFAULT_IP_INFO_URL = "http://www.ip-api.com/json";
+
+    /**
+     * default time in ms the resolved ip-address is used
+     */
+    static final long DEFAULT_IP_INFO_TTL = 60 * 60 * 1000;
+
     /**
      * default breinify base url
      */
@@ -73,6 +238,66 @@ public class BreinConfig {
      */
     private String activityEndpoint = DEFAULT_ACTIVITY_ENDPOINT;
 
+    /**
+     * contains the bulk activity endpoint (default = DEFAULT_ACTIVITY_BULK_ENDPOINT)
+     */
+    private String activityBulkEndpoint = DEFAULT_ACTIVITY_BULK_ENDPOINT;
+
+    /**
+     * flag if activities are batched and sent to the bulk activity endpoint
+     */
+    private boolean activityBatching = false;
+
+    /**
+     * maximum number of activities sent within one bulk request
+     */
+    private int activityBatchSize = DEFAULT_ACTIVITY_BATCH_SIZE;
+
+    /**
+     * time in ms an activity waits for further activities to be batched
+     */
+    private long activityBatchInterval = DEFAULT_ACTIVITY_BATCH_INTERVAL;
+
+    /**
+     * flag if activities are written to a journal until they are sent
+     */
+    private boolean activityJournaling = false;
+
+    /**
+     * maximum size (in bytes, UTF-8 encoded) of the not yet sent activities within the journal
+     */
+    private long activityJournalMaxSize = DEFAULT_ACTIVITY_JOURNAL_MAX_SIZE;
+
+    /**
+     * minimum time in ms between two syncs of the journal to the disk
+     */
+    private long activityJournalSyncInterval = DEFAULT_ACTIVITY_JOURNAL_SYNC_INTERVAL;
+
+    /**
+     * flag if activities are kept within a bounded buffer until they are sent
+     */
+    private boolean activityBuffering = false;
+
+    /**
+     * maximum number of activities kept within the activity buffer
+     */
+    private int activityBufferCapacity = DEFAULT_ACTIVITY_BUFFER_CAPACITY;
+
+    /**
+     * what happens with an activity added to the full activity buffer
+     */
+    private BreinOverflowPolicy activityBufferOverflowPolicy = BreinOverflowPolicy.DROP_OLDEST;
+
+    /**
+     * time in ms a caller waits for room within the full activity buffer (BLOCK policy)
+     */
+    private long activityBufferBlockTimeout = DEFAULT_ACTIVITY_BUFFER_BLOCK_TIMEOUT;
+
+    /**
+     * maximum number of activities kept within the spill file (SPILL_TO_DISK policy)
+     */
+    private int activityBufferSpillCapacity = DEFAULT_ACTIVITY_BUFFER_SPILL_CAPACITY;
+
     /**
      * contains the lookup endpoint (default = LOOKUP_ENDPOINT)
      */
@@ -103,6 +328,166 @@ public class BreinConfig {
      */
     private long socketTimeout = DEFAULT_SOCKET_TIMEOUT;
 
+    /**
+     * time in ms the detected information of the device (location, network) is cached
+     */
+    private long deviceContextTtl = DEFAULT_DEVICE_CONTEXT_TTL;
+
+    /**
+     * maximum size in bytes of a response, larger responses are dropped
+     */
+    private long maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+
+    /**
+     * flag if request bodies are written directly to the connection
+     */
+    private boolean requestStreaming = false;
+
+    /**
+     * flag if request bodies are sent gzip compressed
+     */
+    private boolean requestCompression = false;
+
+    /**
+     * minimum size in bytes of a request body to be compressed
+     */
+    private int requestCompressionThreshold = DEFAULT_REQUEST_COMPRESSION_THRESHOLD;
+
+    /**
+     * flag if connections are kept alive and reused for further requests
+     */
+    private boolean connectionKeepAlive = true;
+
+    /**
+     * maximum number of idle connections kept alive
+     */
+    private int connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+
+    /**
+     * time in ms an idle connection is kept alive
+     */
+    private long connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+
+    /**
+     * maximum number of connections opened at the same time by the non-blocking engine
+     */
+    private int connectionMaxActive = DEFAULT_CONNECTION_MAX_ACTIVE;
+
+    /**
+     * number of threads kept alive to dispatch requests
+     */
+    private int dispatchCorePoolSize = DEFAULT_DISPATCH_CORE_POOL_SIZE;
+
+    /**
+     * maximum number of threads used to dispatch requests
+     */
+    private int dispatchMaxPoolSize = DEFAULT_DISPATCH_MAX_POOL_SIZE;
+
+    /**
+     * number of requests waiting for a dispatch thread
+     */
+    private int dispatchQueueCapacity = DEFAULT_DISPATCH_QUEUE_CAPACITY;
+
+    /**
+     * what happens with requests if the dispatch queue is full
+     */
+    private BreinRejectionPolicy dispatchRejectionPolicy = BreinRejectionPolicy.DISCARD_OLDEST;
+
+    /**
+     * time in ms to wait for queued requests on termination
+     */
+    private long dispatchTerminationTimeout = DEFAULT_DISPATCH_TERMINATION_TIMEOUT;
+
+    /**
+     * maximum number of bulk requests sent at the same time
+     */
+    private int dispatchBulkConcurrency = DEFAULT_DISPATCH_BULK_CONCURRENCY;
+
+    /**
+     * maximum time in ms a bulk request is deferred in favor of interactive requests
+     */
+    private long dispatchBulkMaxDelay = DEFAULT_DISPATCH_BULK_MAX_DELAY;
+
+    /**
+     * maximum number of attempts to send a request, 1 means failed requests are not retried
+     */
+    private int retryMaxAttempts = 1;
+
+    /**
+     * initial delay in ms before a failed request is retried, doubled with each attempt
+     */
+    private long retryBaseDelay = DEFAULT_RETRY_BASE_DELAY;
+
+    /**
+     * maximum delay in ms before a failed request is retried
+     */
+    private long retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+
+    /**
+     * flag if requests to an unhealthy endpoint are kept back by a circuit breaker
+     */
+    private boolean circuitBreaking = false;
+
+    /**
+     * number of failed requests in a row, which opens the circuit breaker of an endpoint
+     */
+    private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+
+    /**
+     * time in ms the circuit breaker of an endpoint stays open before a request is tried again
+     */
+    private long circuitBreakerOpenTime = DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+
+    /**
+     * number of requests kept while the circuit breaker of an endpoint is open
+     */
+    private int circuitBreakerBufferSize = DEFAULT_CIRCUIT_BREAKER_BUFFER_SIZE;
+
+    /**
+     * flag if temporal data responses are cached
+     */
+    private boolean temporalDataCaching = false;
+
+    /**
+     * number of temporal data responses kept by the cache
+     */
+    private int temporalDataCacheSize = DEFAULT_TEMPORALDATA_CACHE_SIZE;
+
+    /**
+     * size in degrees of the geo-cells temporal data responses are cached for
+     */
+    private double temporalDataCacheCellSize = DEFAULT_TEMPORALDATA_CACHE_CELL_SIZE;
+
+    /**
+     * time in ms each section (e.g., weather) of a temporal data response is cached
+     */
+    private final Map<String, Long> temporalDataCacheTtls = createTemporalDataCacheTtls();
+
+    /**
+     * flag if recommendation results are cached (and refreshed in the background)
+     */
+    private boolean recommendationCaching = false;
+
+    /**
+     * number of recommendation results kept by the cache
+     */
+    private int recommendationCacheSize = DEFAULT_RECOMMENDATION_CACHE_SIZE;
+
+    /**
+     * maximum age in ms of a cached recommendation result to be used
+     */
+    private long recommendationCacheMaxAge = DEFAULT_RECOMMENDATION_CACHE_MAX_AGE;
+
+    /**
+     * url of the provider resolving the external ip-address of the device
+     */
+    private String ipInfoUrl = DEFAULT_IP_INFO_URL;
+
+    /**
+     * time in ms the resolved ip-address is used
+     */
+    private long ipInfoTtl = DEFAULT_IP_INFO_TTL;
+
     /**
      * default category
      */
@@ -168,7 +553,8 @@ public class BreinConfig {
      * initializes the rest client
      */
     public void initEngine() {
-        breinEngine = new BreinEngine();
+        breinEngine = new BreinEngine(getRestEngineType());
+        breinEngine.configure(this);
     }
 
     /**
@@ -220,7 +606,8 @@ public class BreinConfig {
     }
 
     /**
-     * set rest type client
+     * set rest type client, the engine is created by the factory registered for the type (see
+     * BreinEngineRegistry) when the engine is created, i.e., the type must be set before
      *
      * @param restEngineType  BreinEngineType rest impl
      * @return                BreinConfig the config object itself
@@ -308,22 +695,983 @@ public class BreinConfig {
     }
 
     /**
-     * retrieves the activity endpoint
+     * retrieves the time the detected information of the device is cached
      *
-     * @return String endpoint
+     * @return long time-to-live in ms
      */
-    public String getActivityEndpoint() {
-        return activityEndpoint;
+    public long getDeviceContextTtl() {
+        return deviceContextTtl;
     }
 
     /**
-     * sets the activity endpoint
+     * Sets the time the detected information of the device (location, network) is cached. Changes of the
+     * connectivity and location updates refresh the information earlier.
      *
-     * @param activityEndpoint String endpoint
+     * @param deviceContextTtl long time-to-live in ms
      * @return                 BreinConfig the config object itself
      */
-    public BreinConfig setActivityEndpoint(final String activityEndpoint) {
-        this.activityEndpoint = activityEndpoint;
+    public BreinConfig setDeviceContextTtl(final long deviceContextTtl) {
+        this.deviceContextTtl = deviceContextTtl;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum size of a response
+     *
+     * @return long maximum size in bytes
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * Sets the maximum size of a response, a larger response is treated as failed request.
+     *
+     * @param maxResponseSize long maximum size in bytes
+     * @return                BreinConfig the config object itself
+     */
+    public BreinConfig setMaxResponseSize(final long maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+        return this;
+    }
+
+    /**
+     * checks if request bodies are written directly to the connection
+     *
+     * @return boolean true if request bodies are streamed
+     */
+    public boolean isRequestStreaming() {
+        return requestStreaming;
+    }
+
+    /**
+     * Enables or disables the streaming of request bodies. If enabled, the JSON of a request is written directly
+     * to the connection using chunked transfer encoding, instead of creating it as String first.
+     *
+     * @param requestStreaming boolean true to stream request bodies
+     * @return                 BreinConfig the config object itself
+     */
+    public BreinConfig setRequestStreaming(final boolean requestStreaming) {
+        this.requestStreaming = requestStreaming;
+        return this;
+    }
+
+    /**
+     * checks if request bodies are sent gzip compressed
+     *
+     * @return boolean true if request bodies are compressed
+     */
+    public boolean isRequestCompression() {
+        return requestCompression;
+    }
+
+    /**
+     * Enables or disables the compression of request bodies. If enabled, bodies reaching the compression threshold
+     * are sent gzip compressed (Content-Encoding: gzip). Streamed bodies, which are written directly from the request
+     * data, have no known size and are always compressed.
+     *
+     * @param requestCompression boolean true to compress request bodies
+     * @return                   BreinConfig the config object itself
+     */
+    public BreinConfig setRequestCompression(final boolean requestCompression) {
+        this.requestCompression = requestCompression;
+        return this;
+    }
+
+    /**
+     * retrieves the minimum size of a request body to be compressed
+     *
+     * @return int minimum size in bytes
+     */
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the minimum size of a request body to be compressed, smaller bodies do not benefit from compression.
+     *
+     * @param requestCompressionThreshold int minimum size in bytes
+     * @return                            BreinConfig the config object itself
+     */
+    public BreinConfig setRequestCompressionThreshold(final int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        return this;
+    }
+
+    /**
+     * checks if connections are kept alive and reused for further requests
+     *
+     * @return boolean true if connections are kept alive
+     */
+    public boolean isConnectionKeepAlive() {
+        return connectionKeepAlive;
+    }
+
+    /**
+     * Enables or disables keeping connections alive. If disabled, each connection
+     * is closed after the request, i.e., each request needs a new TCP and TLS handshake.
+     * If enabled, the HttpURLConnection engine sets the system property
+     * {@code http.keepAlive}, which is process-wide (i.e., it affects all
+     * connections of the app) and read only once by the platform. The connection
+     * properties are not changed if the app set them already.
+     *
+     * @param connectionKeepAlive boolean true to keep connections alive
+     * @return                    BreinConfig the config object itself
+     */
+    public BreinConfig setConnectionKeepAlive(final boolean connectionKeepAlive) {
+        this.connectionKeepAlive = connectionKeepAlive;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of idle connections kept alive
+     *
+     * @return int pool size
+     */
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of idle connections kept alive. The HttpURLConnection
+     * engine applies the value to the connection pool of the platform (system property
+     * {@code http.maxConnections}). The property is process-wide, i.e., it affects
+     * all connections of the app, and it is read only once, i.e., the value has to
+     * be set before the first connection of the process is opened.
+     *
+     * @param connectionPoolSize int pool size
+     * @return                   BreinConfig the config object itself
+     */
+    public BreinConfig setConnectionPoolSize(final int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+        return this;
+    }
+
+    /**
+     * retrieves the time an idle connection is kept alive
+     *
+     * @return long timeout in ms
+     */
+    public long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * Sets the time an idle connection is kept alive. The HttpURLConnection engine
+     * applies the value to the connection pool of the platform (system property
+     * {@code http.keepAliveDuration}). The property is process-wide, i.e., it affects
+     * all connections of the app, and it is read only once, i.e., the value has to
+     * be set before the first connection of the process is opened.
+     *
+     * @param connectionIdleTimeout long timeout in ms
+     * @return                      BreinConfig the config object itself
+     */
+    public BreinConfig setConnectionIdleTimeout(final long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of connections opened at the same time by
+     * the non-blocking engine
+     *
+     * @return int maximum number of connections
+     */
+    public int getConnectionMaxActive() {
+        return connectionMaxActive;
+    }
+
+    /**
+     * Sets the maximum number of connections the non-blocking engine (see
+     * {@link BreinEngineType#NIO_ENGINE}) opens at the same time, i.e., the
+     * number of requests in flight. Further requests wait (up to the dispatch
+     * queue capacity) until a connection is available. Each connection keeps
+     * its own buffers, thus the value bounds the memory used by the engine.
+     * Using HTTP/2 (see {@link BreinEngineType#HTTP2_ENGINE}) the requests to a
+     * host share one connection, the number of requests in flight is limited by
+     * the server instead.
+     *
+     * @param connectionMaxActive int maximum number of connections
+     * @return                    BreinConfig the config object itself
+     */
+    public BreinConfig setConnectionMaxActive(final int connectionMaxActive) {
+        this.connectionMaxActive = connectionMaxActive;
+        return this;
+    }
+
+    /**
+     * retrieves the number of threads kept alive to dispatch requests
+     *
+     * @return int core pool size
+     */
+    public int getDispatchCorePoolSize() {
+        return dispatchCorePoolSize;
+    }
+
+    /**
+     * sets the number of threads kept alive to dispatch requests
+     *
+     * @param dispatchCorePoolSize int core pool size
+     * @return                     BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchCorePoolSize(final int dispatchCorePoolSize) {
+        this.dispatchCorePoolSize = dispatchCorePoolSize;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of threads used to dispatch requests
+     *
+     * @return int max pool size
+     */
+    public int getDispatchMaxPoolSize() {
+        return dispatchMaxPoolSize;
+    }
+
+    /**
+     * sets the maximum number of threads used to dispatch requests. Additional
+     * threads are only started if the dispatch queue is full.
+     *
+     * @param dispatchMaxPoolSize int max pool size
+     * @return                    BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchMaxPoolSize(final int dispatchMaxPoolSize) {
+        this.dispatchMaxPoolSize = dispatchMaxPoolSize;
+        return this;
+    }
+
+    /**
+     * retrieves the number of requests waiting for a dispatch thread
+     *
+     * @return int queue capacity
+     */
+    public int getDispatchQueueCapacity() {
+        return dispatchQueueCapacity;
+    }
+
+    /**
+     * sets the number of requests waiting for a dispatch thread
+     *
+     * @param dispatchQueueCapacity int queue capacity
+     * @return                      BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchQueueCapacity(final int dispatchQueueCapacity) {
+        this.dispatchQueueCapacity = dispatchQueueCapacity;
+        return this;
+    }
+
+    /**
+     * retrieves the policy applied if the dispatch queue is full
+     *
+     * @return BreinRejectionPolicy the policy
+     */
+    public BreinRejectionPolicy getDispatchRejectionPolicy() {
+        return dispatchRejectionPolicy;
+    }
+
+    /**
+     * sets the policy applied if the dispatch queue is full
+     *
+     * @param dispatchRejectionPolicy BreinRejectionPolicy the policy
+     * @return                        BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchRejectionPolicy(final BreinRejectionPolicy dispatchRejectionPolicy) {
+        this.dispatchRejectionPolicy = dispatchRejectionPolicy;
+        return this;
+    }
+
+    /**
+     * retrieves the time to wait for queued requests on termination
+     *
+     * @return long timeout in ms
+     */
+    public long getDispatchTerminationTimeout() {
+        return dispatchTerminationTimeout;
+    }
+
+    /**
+     * sets the time to wait for queued requests on termination
+     *
+     * @param dispatchTerminationTimeout long timeout in ms
+     * @return                           BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchTerminationTimeout(final long dispatchTerminationTimeout) {
+        this.dispatchTerminationTimeout = dispatchTerminationTimeout;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of bulk requests sent at the same time
+     *
+     * @return int the concurrency of the bulk lane
+     */
+    public int getDispatchBulkConcurrency() {
+        return dispatchBulkConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of bulk requests (i.e., activities, see
+     * {@link com.brein.engine.BreinPriority}) sent at the same time. The bulk
+     * requests are dispatched by their own threads (respectively connections),
+     * i.e., they never occupy the ones of the interactive requests, which are
+     * limited by the dispatch pool sizes (respectively the maximum of active
+     * connections).
+     *
+     * @param dispatchBulkConcurrency int the concurrency of the bulk lane
+     * @return                        BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchBulkConcurrency(final int dispatchBulkConcurrency) {
+        this.dispatchBulkConcurrency = dispatchBulkConcurrency;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum time a bulk request is deferred in favor of interactive requests
+     *
+     * @return long the maximum delay in ms
+     */
+    public long getDispatchBulkMaxDelay() {
+        return dispatchBulkMaxDelay;
+    }
+
+    /**
+     * Sets the maximum time a bulk request is deferred, while interactive
+     * requests are waiting or in flight. Afterwards it is sent anyway, i.e., a
+     * steady stream of interactive requests cannot starve the bulk requests.
+     *
+     * @param dispatchBulkMaxDelay long the maximum delay in ms, 0 to never defer bulk requests
+     * @return                     BreinConfig the config object itself
+     */
+    public BreinConfig setDispatchBulkMaxDelay(final long dispatchBulkMaxDelay) {
+        this.dispatchBulkMaxDelay = dispatchBulkMaxDelay;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of attempts to send a request
+     *
+     * @return int maximum number of attempts
+     */
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts to send a request. Requests failing because of a network error, a
+     * server error (5xx) or throttling (429) are retried with an exponentially growing, randomized delay. A
+     * Retry-After header of the response is honored. The default of 1 disables retries.
+     *
+     * @param retryMaxAttempts int maximum number of attempts
+     * @return                 BreinConfig the config object itself
+     */
+    public BreinConfig setRetryMaxAttempts(final int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+        return this;
+    }
+
+    /**
+     * retrieves the initial delay before a failed request is retried
+     *
+     * @return long delay in ms
+     */
+    public long getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    /**
+     * Sets the initial delay before a failed request is retried, the delay is doubled with each attempt. The
+     * actual delay is a random value between 0 and the calculated delay.
+     *
+     * @param retryBaseDelay long delay in ms
+     * @return               BreinConfig the config object itself
+     */
+    public BreinConfig setRetryBaseDelay(final long retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum delay before a failed request is retried
+     *
+     * @return long delay in ms
+     */
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    /**
+     * Sets the maximum delay before a failed request is retried, this also limits the delay requested by a
+     * Retry-After header.
+     *
+     * @param retryMaxDelay long delay in ms
+     * @return              BreinConfig the config object itself
+     */
+    public BreinConfig setRetryMaxDelay(final long retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+        return this;
+    }
+
+    /**
+     * checks if requests to an unhealthy endpoint are kept back by a circuit breaker
+     *
+     * @return boolean true if circuit breaking is enabled
+     */
+    public boolean isCircuitBreaking() {
+        return circuitBreaking;
+    }
+
+    /**
+     * Enables or disables circuit breaking. If enabled, the requests to an endpoint are not sent anymore after
+     * several failed requests in a row. Instead, they are kept in a buffer until a request succeeds again, which
+     * is tried after the open time.
+     *
+     * @param circuitBreaking boolean true to enable circuit breaking
+     * @return                BreinConfig the config object itself
+     */
+    public BreinConfig setCircuitBreaking(final boolean circuitBreaking) {
+        this.circuitBreaking = circuitBreaking;
+        return this;
+    }
+
+    /**
+     * retrieves the number of failed requests in a row, which opens the circuit breaker of an endpoint
+     *
+     * @return int number of failed requests
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Sets the number of failed requests in a row, which opens the circuit breaker of an endpoint.
+     *
+     * @param circuitBreakerThreshold int number of failed requests
+     * @return                        BreinConfig the config object itself
+     */
+    public BreinConfig setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        return this;
+    }
+
+    /**
+     * retrieves the time the circuit breaker of an endpoint stays open
+     *
+     * @return long time in ms
+     */
+    public long getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    /**
+     * Sets the time the circuit breaker of an endpoint stays open, afterwards a single request is sent to check if
+     * the endpoint recovered.
+     *
+     * @param circuitBreakerOpenTime long time in ms
+     * @return                       BreinConfig the config object itself
+     */
+    public BreinConfig setCircuitBreakerOpenTime(final long circuitBreakerOpenTime) {
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+        return this;
+    }
+
+    /**
+     * retrieves the number of requests kept while the circuit breaker of an endpoint is open
+     *
+     * @return int number of requests
+     */
+    public int getCircuitBreakerBufferSize() {
+        return circuitBreakerBufferSize;
+    }
+
+    /**
+     * Sets the number of requests kept while the circuit breaker of an endpoint is open, if the buffer is full the
+     * oldest request is dropped.
+     *
+     * @param circuitBreakerBufferSize int number of requests
+     * @return                         BreinConfig the config object itself
+     */
+    public BreinConfig setCircuitBreakerBufferSize(final int circuitBreakerBufferSize) {
+        this.circuitBreakerBufferSize = circuitBreakerBufferSize;
+        return this;
+    }
+
+    /**
+     * checks if temporal data responses are cached
+     *
+     * @return boolean true if the responses are cached, otherwise false
+     */
+    public boolean isTemporalDataCaching() {
+        return temporalDataCaching;
+    }
+
+    /**
+     * Enables or disables the caching of temporal data responses. A cached response is used for requests of the same
+     * geo-cell (or ip-address, if no coordinates are set) and shape-types, as long as none of its sections expired.
+     *
+     * @param temporalDataCaching boolean true to cache the responses
+     * @return                    BreinConfig the config object itself
+     */
+    public BreinConfig setTemporalDataCaching(final boolean temporalDataCaching) {
+        this.temporalDataCaching = temporalDataCaching;
+        return this;
+    }
+
+    /**
+     * retrieves the number of temporal data responses kept by the cache
+     *
+     * @return int number of responses
+     */
+    public int getTemporalDataCacheSize() {
+        return temporalDataCacheSize;
+    }
+
+    /**
+     * Sets the number of temporal data responses kept by the cache, the least recently used one is removed if the
+     * cache is full.
+     *
+     * @param temporalDataCacheSize int number of responses
+     * @return                      BreinConfig the config object itself
+     */
+    public BreinConfig setTemporalDataCacheSize(final int temporalDataCacheSize) {
+        this.temporalDataCacheSize = temporalDataCacheSize;
+        return this;
+    }
+
+    /**
+     * retrieves the size of the geo-cells temporal data responses are cached for
+     *
+     * @return double the size in degrees
+     */
+    public double getTemporalDataCacheCellSize() {
+        return temporalDataCacheCellSize;
+    }
+
+    /**
+     * Sets the size of the geo-cells temporal data responses are cached for, i.e., requests with coordinates within
+     * the same cell share the response.
+     *
+     * @param temporalDataCacheCellSize double the size in degrees, e.g., 0.01 (about 1 km)
+     * @return                          BreinConfig the config object itself
+     */
+    public BreinConfig setTemporalDataCacheCellSize(final double temporalDataCacheCellSize) {
+        this.temporalDataCacheCellSize = temporalDataCacheCellSize;
+        return this;
+    }
+
+    /**
+     * retrieves the time a section of a temporal data response is cached
+     *
+     * @param section String the section of the response, e.g., weather or holidays
+     * @return long the time in ms
+     */
+    public long getTemporalDataCacheTtl(final String section) {
+        final Long ttl = temporalDataCacheTtls.get(section);
+        return ttl == null ? DEFAULT_TEMPORALDATA_CACHE_TTL : ttl;
+    }
+
+    /**
+     * Sets the time a section of a temporal data response is cached. The response is requested again as soon as one
+     * of its sections expired.
+     *
+     * @param section String the section of the response, e.g., weather or holidays
+     * @param ttl     long the time in ms
+     * @return        BreinConfig the config object itself
+     */
+    public BreinConfig setTemporalDataCacheTtl(final String section, final long ttl) {
+        temporalDataCacheTtls.put(section, ttl);
+        return this;
+    }
+
+    /**
+     * checks if recommendation results are cached
+     *
+     * @return boolean true if the results are cached, otherwise false
+     */
+    public boolean isRecommendationCaching() {
+        return recommendationCaching;
+    }
+
+    /**
+     * Enables or disables the caching of recommendation results. A cached result is passed to the callback
+     * immediately and refreshed in the background (stale-while-revalidate), so that the next request gets the
+     * refreshed result. The results are kept within the files directory of the application (if set), so that they are
+     * available after a restart.
+     *
+     * @param recommendationCaching boolean true to cache the results
+     * @return                      BreinConfig the config object itself
+     */
+    public BreinConfig setRecommendationCaching(final boolean recommendationCaching) {
+        this.recommendationCaching = recommendationCaching;
+        return this;
+    }
+
+    /**
+     * retrieves the number of recommendation results kept by the cache
+     *
+     * @return int number of results
+     */
+    public int getRecommendationCacheSize() {
+        return recommendationCacheSize;
+    }
+
+    /**
+     * Sets the number of recommendation results kept by the cache, the least recently used one is removed if the
+     * cache is full.
+     *
+     * @param recommendationCacheSize int number of results
+     * @return                        BreinConfig the config object itself
+     */
+    public BreinConfig setRecommendationCacheSize(final int recommendationCacheSize) {
+        this.recommendationCacheSize = recommendationCacheSize;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum age of a cached recommendation result to be used
+     *
+     * @return long the age in ms
+     */
+    public long getRecommendationCacheMaxAge() {
+        return recommendationCacheMaxAge;
+    }
+
+    /**
+     * Sets the maximum age of a cached recommendation result to be used, an older result is not passed to the callback,
+     * instead the request waits for the result of the endpoint.
+     *
+     * @param recommendationCacheMaxAge long the age in ms
+     * @return                          BreinConfig the config object itself
+     */
+    public BreinConfig setRecommendationCacheMaxAge(final long recommendationCacheMaxAge) {
+        this.recommendationCacheMaxAge = recommendationCacheMaxAge;
+        return this;
+    }
+
+    /**
+     * retrieves the url of the provider resolving the external ip-address of the device
+     *
+     * @return String the url, {@code null} if the ip-address is not resolved
+     */
+    public String getIpInfoUrl() {
+        return ipInfoUrl;
+    }
+
+    /**
+     * Sets the url of the provider resolving the external ip-address of the device, which is added to the requests.
+     * The provider must answer a GET request with a JSON object containing the ip-address as {@code query} (e.g.,
+     * ip-api.com).
+     *
+     * @param ipInfoUrl String the url, {@code null} to not resolve the ip-address
+     * @return          BreinConfig the config object itself
+     */
+    public BreinConfig setIpInfoUrl(final String ipInfoUrl) {
+        this.ipInfoUrl = ipInfoUrl;
+        return this;
+    }
+
+    /**
+     * retrieves the time the resolved ip-address is used
+     *
+     * @return long the time in ms
+     */
+    public long getIpInfoTtl() {
+        return ipInfoTtl;
+    }
+
+    /**
+     * Sets the time the resolved ip-address is used, it is resolved again afterwards (or whenever the connectivity
+     * changes).
+     *
+     * @param ipInfoTtl long the time in ms
+     * @return          BreinConfig the config object itself
+     */
+    public BreinConfig setIpInfoTtl(final long ipInfoTtl) {
+        this.ipInfoTtl = ipInfoTtl;
+        return this;
+    }
+
+    private static Map<String, Long> createTemporalDataCacheTtls() {
+        final Map<String, Long> ttls = new ConcurrentHashMap<>();
+        ttls.put("weather", DEFAULT_TEMPORALDATA_CACHE_TTL);
+        ttls.put("time", DEFAULT_TEMPORALDATA_CACHE_TTL);
+        ttls.put("events", 60 * 60 * 1000L);
+        ttls.put("location", 24 * 60 * 60 * 1000L);
+        ttls.put("holidays", 24 * 60 * 60 * 1000L);
+
+        return ttls;
+    }
+
+    /**
+     * retrieves the activity endpoint
+     *
+     * @return String endpoint
+     */
+    public String getActivityEndpoint() {
+        return activityEndpoint;
+    }
+
+    /**
+     * sets the activity endpoint
+     *
+     * @param activityEndpoint String endpoint
+     * @return                 BreinConfig the config object itself
+     */
+    public BreinConfig setActivityEndpoint(final String activityEndpoint) {
+        this.activityEndpoint = activityEndpoint;
+        return this;
+    }
+
+    /**
+     * retrieves the bulk activity endpoint
+     *
+     * @return String endpoint
+     */
+    public String getActivityBulkEndpoint() {
+        return activityBulkEndpoint;
+    }
+
+    /**
+     * sets the bulk activity endpoint, used if activity batching is enabled
+     *
+     * @param activityBulkEndpoint String endpoint
+     * @return                     BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBulkEndpoint(final String activityBulkEndpoint) {
+        this.activityBulkEndpoint = activityBulkEndpoint;
+        return this;
+    }
+
+    /**
+     * checks if activities are batched
+     *
+     * @return boolean true if activities are sent to the bulk endpoint
+     */
+    public boolean isActivityBatching() {
+        return activityBatching;
+    }
+
+    /**
+     * enables or disables the batching of activities. If enabled, activities are
+     * collected and sent as one request to the bulk activity endpoint, whenever
+     * the batch size is reached or the batch interval elapsed.
+     *
+     * @param activityBatching boolean true to enable batching
+     * @return                 BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBatching(final boolean activityBatching) {
+        this.activityBatching = activityBatching;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of activities sent within one bulk request
+     *
+     * @return int batch size
+     */
+    public int getActivityBatchSize() {
+        return activityBatchSize;
+    }
+
+    /**
+     * sets the maximum number of activities sent within one bulk request
+     *
+     * @param activityBatchSize int batch size
+     * @return                  BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBatchSize(final int activityBatchSize) {
+        this.activityBatchSize = activityBatchSize;
+        return this;
+    }
+
+    /**
+     * retrieves the time an activity waits for further activities to be batched
+     *
+     * @return long interval in ms
+     */
+    public long getActivityBatchInterval() {
+        return activityBatchInterval;
+    }
+
+    /**
+     * sets the time an activity waits for further activities to be batched
+     *
+     * @param activityBatchInterval long interval in ms
+     * @return                      BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBatchInterval(final long activityBatchInterval) {
+        this.activityBatchInterval = activityBatchInterval;
+        return this;
+    }
+
+    /**
+     * checks if activities are written to a journal until they are sent
+     *
+     * @return boolean true if journaling is enabled
+     */
+    public boolean isActivityJournaling() {
+        return activityJournaling;
+    }
+
+    /**
+     * Enables or disables the journaling of activities. If enabled, activities are
+     * written to a file within the files directory of the application until the
+     * backend accepted them. Activities which could not be sent are replayed on the
+     * next start or whenever the connectivity is regained. Journaling needs the
+     * application to be set.
+     *
+     * @param activityJournaling boolean true to enable journaling
+     * @return                   BreinConfig the config object itself
+     */
+    public BreinConfig setActivityJournaling(final boolean activityJournaling) {
+        this.activityJournaling = activityJournaling;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum size of the not yet sent activities within the journal
+     *
+     * @return long maximum size (in bytes)
+     */
+    public long getActivityJournalMaxSize() {
+        return activityJournalMaxSize;
+    }
+
+    /**
+     * sets the maximum size of the not yet sent activities within the journal, if
+     * it is exceeded the oldest activities are dropped
+     *
+     * @param activityJournalMaxSize long maximum size (in bytes)
+     * @return                       BreinConfig the config object itself
+     */
+    public BreinConfig setActivityJournalMaxSize(final long activityJournalMaxSize) {
+        this.activityJournalMaxSize = activityJournalMaxSize;
+        return this;
+    }
+
+    /**
+     * retrieves the minimum time between two syncs of the journal to the disk
+     *
+     * @return long interval in ms
+     */
+    public long getActivityJournalSyncInterval() {
+        return activityJournalSyncInterval;
+    }
+
+    /**
+     * sets the minimum time between two syncs of the journal to the disk
+     *
+     * @param activityJournalSyncInterval long interval in ms
+     * @return                            BreinConfig the config object itself
+     */
+    public BreinConfig setActivityJournalSyncInterval(final long activityJournalSyncInterval) {
+        this.activityJournalSyncInterval = activityJournalSyncInterval;
+        return this;
+    }
+
+    /**
+     * checks if activities are kept within a bounded buffer until they are sent
+     *
+     * @return boolean true if buffering is enabled
+     */
+    public boolean isActivityBuffering() {
+        return activityBuffering;
+    }
+
+    /**
+     * Enables or disables the buffering of activities. If enabled, activities are
+     * added to a bounded buffer and sent by one thread with a limited number of
+     * requests in flight, thus a burst of activities cannot queue up without limit.
+     * The overflow policy decides what happens if the buffer is full.
+     *
+     * @param activityBuffering boolean true to enable buffering
+     * @return                  BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBuffering(final boolean activityBuffering) {
+        this.activityBuffering = activityBuffering;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of activities kept within the activity buffer
+     *
+     * @return int capacity of the buffer
+     */
+    public int getActivityBufferCapacity() {
+        return activityBufferCapacity;
+    }
+
+    /**
+     * sets the maximum number of activities kept within the activity buffer
+     *
+     * @param activityBufferCapacity int capacity of the buffer
+     * @return                       BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBufferCapacity(final int activityBufferCapacity) {
+        this.activityBufferCapacity = activityBufferCapacity;
+        return this;
+    }
+
+    /**
+     * retrieves the policy applied if an activity is added to the full activity buffer
+     *
+     * @return BreinOverflowPolicy the overflow policy
+     */
+    public BreinOverflowPolicy getActivityBufferOverflowPolicy() {
+        return activityBufferOverflowPolicy;
+    }
+
+    /**
+     * sets the policy applied if an activity is added to the full activity buffer,
+     * SPILL_TO_DISK needs the application to be set
+     *
+     * @param activityBufferOverflowPolicy BreinOverflowPolicy the overflow policy
+     * @return                             BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBufferOverflowPolicy(final BreinOverflowPolicy activityBufferOverflowPolicy) {
+        this.activityBufferOverflowPolicy = activityBufferOverflowPolicy == null ?
+                BreinOverflowPolicy.DROP_OLDEST : activityBufferOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * retrieves the time a caller waits for room within the full activity buffer
+     *
+     * @return long timeout in ms
+     */
+    public long getActivityBufferBlockTimeout() {
+        return activityBufferBlockTimeout;
+    }
+
+    /**
+     * sets the time a caller waits for room within the full activity buffer, the
+     * activity is dropped afterwards (only used by the BLOCK policy)
+     *
+     * @param activityBufferBlockTimeout long timeout in ms
+     * @return                           BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBufferBlockTimeout(final long activityBufferBlockTimeout) {
+        this.activityBufferBlockTimeout = activityBufferBlockTimeout;
+        return this;
+    }
+
+    /**
+     * retrieves the maximum number of activities kept within the spill file
+     *
+     * @return int capacity of the spill file
+     */
+    public int getActivityBufferSpillCapacity() {
+        return activityBufferSpillCapacity;
+    }
+
+    /**
+     * sets the maximum number of activities kept within the spill file, the oldest
+     * spilled activity is dropped if it is reached (only used by the SPILL_TO_DISK policy)
+     *
+     * @param activityBufferSpillCapacity int capacity of the spill file
+     * @return                            BreinConfig the config object itself
+     */
+    public BreinConfig setActivityBufferSpillCapacity(final int activityBufferSpillCapacity) {
+        this.activityBufferSpillCapacity = activityBufferSpillCapacity;
         return this;
     }
 
@@ -0,0 +1,341 @@
+package com.brein.domain;
+
+import android.Manifest;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Bundle;
+import android.support.v4.app.ActivityCompat;
+import android.text.format.Formatter;
+import android.util.Log;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * Caches the information of the device added to each request, i.e., the location, the network and the user agent.
+ * The location and the network are detected again after the configured time-to-live, or earlier if the device
+ * reports a change (see {@link #startListening(Application, long)} and {@link #invalidateNetwork()}). The
+ * user agent does not change while the app is running, thus it is only created once.
+ */
+public class BreinDeviceContext {
+
+    private static final String TAG = "BreinDeviceContext";
+
+    /**
+     * minimum distance in meters of location updates
+     */
+    private static final float LOCATION_MIN_DISTANCE = 50f;
+
+    // used for singleton
+    private static volatile BreinDeviceContext instance;
+
+    private volatile CachedValue<JsonObject> location;
+    private volatile CachedValue<JsonObject> network;
+    private volatile String userAgent;
+
+    private LocationManager locationManager;
+    private LocationListener locationListener;
+
+    protected BreinDeviceContext() {
+    }
+
+    public static BreinDeviceContext getInstance() {
+        if (instance == null) {
+            synchronized (BreinDeviceContext.class) {
+                if (instance == null) {
+                    instance = new BreinDeviceContext();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * retrieves the location of the device
+     *
+     * @param application Application the context used to detect the location, can be {@code null}
+     * @param ttl         long time in ms the detected location is valid
+     * @return JsonObject the location, {@code null} if the location is not available
+     */
+    public JsonObject getLocation(final Application application, final long ttl) {
+        final CachedValue<JsonObject> current = this.location;
+        if (current != null && !current.isExpired(ttl)) {
+            return current.value;
+        }
+
+        final JsonObject detected = application == null ? null : detectLocation(application);
+        this.location = new CachedValue<>(detected);
+        return detected;
+    }
+
+    /**
+     * retrieves the network information of the device
+     *
+     * @param application Application the context used to detect the network, can be {@code null}
+     * @param ttl         long time in ms the detected network is valid
+     * @return JsonObject the network information, {@code null} if not available
+     */
+    public JsonObject getNetwork(final Application application, final long ttl) {
+        final CachedValue<JsonObject> current = this.network;
+        if (current != null && !current.isExpired(ttl)) {
+            return current.value;
+        }
+
+        final JsonObject detected = application == null ? null : detectNetwork(application);
+        this.network = new CachedValue<>(detected);
+        return detected;
+    }
+
+    /**
+     * retrieves the user agent, i.e., the agent of the system and the name of the app
+     *
+     * @param application Application the context used to determine the name of the app, can be {@code null}
+     * @return String the user agent
+     */
+    public String getUserAgent(final Application application) {
+        String current = this.userAgent;
+        if (current == null) {
+            current = createUserAgent(application);
+
+            // without the application the name of the app is missing, i.e., try again next time
+            if (application != null) {
+                this.userAgent = current;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * the location is detected again with the next request
+     */
+    public void invalidateLocation() {
+        this.location = null;
+    }
+
+    /**
+     * the network is detected again with the next request, invoked whenever the connectivity changes
+     */
+    public void invalidateNetwork() {
+        this.network = null;
+    }
+
+    /**
+     * all values are detected again with the next request
+     */
+    public void invalidate() {
+        this.location = null;
+        this.network = null;
+        this.userAgent = null;
+    }
+
+    /**
+     * Registers for passive location updates, i.e., the location is updated whenever another app requested it. The
+     * permissions for the location have to be granted, otherwise the location is just detected after the
+     * time-to-live.
+     *
+     * @param application Application the context
+     * @param minTime     long minimum time in ms between location updates
+     */
+    public synchronized void startListening(final Application application, final long minTime) {
+        if (application == null || this.locationListener != null || !hasLocationPermission(application)) {
+            return;
+        }
+
+        final LocationManager manager = (LocationManager) application.getSystemService(Context.LOCATION_SERVICE);
+        if (manager == null) {
+            return;
+        }
+
+        final LocationListener listener = new LocationListener() {
+            @Override
+            public void onLocationChanged(final Location location) {
+                locationChanged(location);
+            }
+
+            @Override
+            public void onStatusChanged(final String provider, final int status, final Bundle extras) {
+                invalidateLocation();
+            }
+
+            @Override
+            public void onProviderEnabled(final String provider) {
+                invalidateLocation();
+            }
+
+            @Override
+            public void onProviderDisabled(final String provider) {
+                invalidateLocation();
+            }
+        };
+
+        try {
+            manager.requestLocationUpdates(LocationManager.PASSIVE_PROVIDER, minTime, LOCATION_MIN_DISTANCE, listener);
+            this.locationManager = manager;
+            this.locationListener = listener;
+        } catch (final SecurityException | IllegalArgumentException e) {
+            Log.d(TAG, "unable to register for location updates: " + e);
+        }
+    }
+
+    /**
+     * unregisters from the location updates
+     */
+    public synchronized void stopListening() {
+        if (this.locationManager != null && this.locationListener != null) {
+            try {
+                this.locationManager.removeUpdates(this.locationListener);
+            } catch (final SecurityException e) {
+                Log.d(TAG, "unable to unregister from location updates: " + e);
+            }
+        }
+
+        this.locationManager = null;
+        this.locationListener = null;
+    }
+
+    /**
+     * updates the cached location
+     *
+     * @param location Location the new location of the device
+     */
+    public void locationChanged(final Location location) {
+        if (location != null) {
+            this.location = new CachedValue<>(toJson(location));
+        }
+    }
+
+    /**
+     * detects the location of the device, using the last known location of the providers
+     *
+     * @param application Application the context
+     * @return JsonObject the location, {@code null} if not available
+     */
+    protected JsonObject detectLocation(final Application application) {
+        if (!hasLocationPermission(application)) {
+            return null;
+        }
+
+        final LocationManager manager = (LocationManager) application.getSystemService(Context.LOCATION_SERVICE);
+        if (manager == null) {
+            return null;
+        }
+
+        try {
+            final List<String> providers = manager.getAllProviders();
+
+            // Loop over the array backwards, and if you get an accurate location, then break out the loop
+            for (int index = providers.size() - 1; index >= 0; index--) {
+                final Location location = manager.getLastKnownLocation(providers.get(index));
+                if (location != null) {
+                    return toJson(location);
+                }
+            }
+        } catch (final SecurityException e) {
+            Log.d(TAG, "unable to detect the location: " + e);
+        }
+
+        return null;
+    }
+
+    /**
+     * detects the wifi the device is connected to
+     *
+     * @param application Application the context
+     * @return JsonObject the network information, {@code null} if not available
+     */
+    protected JsonObject detectNetwork(final Application application) {
+
+        // only possible if permission has been granted
+        if (ActivityCompat.checkSelfPermission(application,
+                Manifest.permission.ACCESS_WIFI_STATE) != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+
+        final WifiManager wifiManager = (WifiManager) application
+                .getApplicationContext()
+                .getSystemService(Context.WIFI_SERVICE);
+        if (wifiManager == null) {
+            return null;
+        }
+
+        final WifiInfo wifiInfo = wifiManager.getConnectionInfo();
+        if (wifiInfo == null) {
+            return null;
+        }
+
+        // contains double quotes
+        final String ssid = wifiInfo.getSSID().replace("\"", "");
+
+        final JsonObject networkData = new JsonObject();
+        networkData.addProperty("ssid", ssid);
+        networkData.addProperty("bssid", wifiInfo.getBSSID());
+        networkData.addProperty("ipAddress", Formatter.formatIpAddress(wifiInfo.getIpAddress()));
+        networkData.addProperty("linkSpeed", wifiInfo.getLinkSpeed());
+        networkData.addProperty("macAddress", wifiInfo.getMacAddress());
+        networkData.addProperty("rssi", wifiInfo.getRssi());
+        networkData.addProperty("networkId", wifiInfo.getNetworkId());
+        networkData.addProperty("state", wifiInfo.getSupplicantState().toString());
+
+        return networkData;
+    }
+
+    /**
+     * Creates the userAgent String in Android standard format and adds the app name.
+     *
+     * @param application Application the context, can be {@code null}
+     * @return String userAgent
+     */
+    protected String createUserAgent(final Application application) {
+        String appName = "";
+        if (application != null) {
+            appName = application.getApplicationInfo().loadLabel(application.getPackageManager()).toString();
+        }
+
+        // add the app
+        return System.getProperty("http.agent")
+                + "/("
+                + appName
+                + ")";
+    }
+
+    private boolean hasLocationPermission(final Application application) {
+        return ActivityCompat.checkSelfPermission(application,
+                Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED &&
+                ActivityCompat.checkSelfPermission(application,
+                        Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static JsonObject toJson(final Location location) {
+        final JsonObject locationData = new JsonObject();
+        locationData.addProperty("accuracy", location.getAccuracy());
+        locationData.addProperty("speed", location.getSpeed());
+        locationData.addProperty("latitude", location.getLatitude());
+        locationData.addProperty("longitude", location.getLongitude());
+
+        return locationData;
+    }
+
+    /**
+     * a detected value and the time it was detected
+     */
+    private static class CachedValue<T> {
+        private final T value;
+        private final long detected = System.currentTimeMillis();
+
+        private CachedValue(final T value) {
+            this.value = value;
+        }
+
+        private boolean isExpired(final long ttl) {
+            return System.currentTimeMillis() - detected >= ttl;
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package com.brein.domain;
 
 
+import android.app.Application;
 import android.util.Log;
 
-import com.google.gson.Gson;
+import com.brein.util.BreinGson;
+import com.brein.util.BreinResponseReader;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * request: http://www.ip-api.com/json
@@ -31,6 +49,13 @@ import java.util.Map;
  * timezone: "Europe/Berlin",
  * zip: "52159"
  * }
+ * <p>
+ * The information is resolved in the background and never blocks a request. It is kept for the configured
+ * time-to-live (and used further while it is resolved again), persisted so that it is available right after a
+ * restart, and resolved again whenever the connectivity changes (see {@link #invalidate()}). Only one resolution
+ * runs at a time (on one shared thread), a resolution started before the information was invalidated is not used.
+ * After a failed resolution, the next one is delayed (doubling with each failure, up to a maximum), unless the
+ * connectivity changes meanwhile.
  */
 
 public class BreinIpInfo {
@@ -38,18 +63,63 @@ public class BreinIpInfo {
     public static final String IP_FIELD = "query";
     public static final String TIMEZONE_FIELD = "timezone";
 
+    private static final String TAG = "BreinIpInfo";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * name of the file the information is kept in, within the files directory of the application
+     */
+    private static final String IP_INFO_FILE = "breinify-ipinfo.json";
+
+    /**
+     * maximum size in bytes of the ip information
+     */
+    private static final long MAX_RESPONSE_SIZE = 64 * 1024;
+
+    /**
+     * timeout in ms to connect to and read from the provider
+     */
+    private static final int TIMEOUT = 10000;
+
+    /**
+     * time in ms to wait after the first failed resolution, doubled with each further failure
+     */
+    private static final long MIN_BACKOFF = 1000L;
+
+    /**
+     * maximum time in ms to wait after a failed resolution
+     */
+    private static final long MAX_BACKOFF = 5L * 60L * 1000L;
+
+    /**
+     * runs the resolutions, the thread is stopped if idle
+     */
+    private static final ExecutorService EXECUTOR = createExecutor();
+
     // used for singleton
     private static volatile BreinIpInfo breinIpInfoInstance;
 
-    private Map<String, Object> infoMap;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
-    // private constructor
-    private BreinIpInfo() {
-        // Prevent form the reflection api.
-        if (breinIpInfoInstance != null) {
-            throw new RuntimeException("Use getInstance() method to get the single instance of this class.");
-        }
-        refreshData();
+    /**
+     * incremented whenever the information is invalidated, guarded by the instance
+     */
+    private int generation = 0;
+
+    /**
+     * number of resolutions failed in a row and the time (nanoTime) before which no resolution is started, guarded
+     * by the instance
+     */
+    private int failures = 0;
+    private long retryAt = 0L;
+
+    private volatile ResolvedInfo info;
+    private volatile String providerUrl = BreinConfig.DEFAULT_IP_INFO_URL;
+    private volatile long ttl = BreinConfig.DEFAULT_IP_INFO_TTL;
+    private volatile File file;
+
+    protected BreinIpInfo() {
     }
 
     public static BreinIpInfo getInstance() {
@@ -66,41 +136,220 @@ public class BreinIpInfo {
         return breinIpInfoInstance;
     }
 
-    @SuppressWarnings("unchecked")
-    public void refreshData() {
-        new Thread(new Runnable() {
+    /**
+     * Applies the provider and time-to-live of the configuration. The information is persisted within the files
+     * directory of the application, if the application is set.
+     *
+     * @param config BreinConfig contains the settings
+     */
+    public void configure(final BreinConfig config) {
+        final Application application = config == null ? null : config.getApplication();
+        final File filesDir = application == null ? null : application.getFilesDir();
+
+        configure(config, filesDir == null ? null : new File(filesDir, IP_INFO_FILE));
+    }
+
+    /**
+     * Applies the provider and time-to-live of the configuration, reads the persisted information and resolves the
+     * information in the background if it is not available.
+     *
+     * @param config BreinConfig contains the settings, can be {@code null} to use the defaults
+     * @param file   File the information is persisted in, can be {@code null}
+     */
+    public void configure(final BreinConfig config, final File file) {
+        final String providerUrl = config == null ? BreinConfig.DEFAULT_IP_INFO_URL : config.getIpInfoUrl();
+        if (this.providerUrl == null ? providerUrl != null : !this.providerUrl.equals(providerUrl)) {
+            discard();
+        }
+
+        this.providerUrl = providerUrl;
+        this.ttl = config == null ? BreinConfig.DEFAULT_IP_INFO_TTL : config.getIpInfoTtl();
+        this.file = file;
+
+        if (this.info == null) {
+            this.info = load(file);
+        }
+        getInfo();
+    }
+
+    /**
+     * Retrieves the resolved information. If the information is not available or expired, it is resolved in the
+     * background, i.e., it is available for later calls. Expired information is returned until it is resolved
+     * again.
+     *
+     * @return Map the information, {@code null} if not available (yet)
+     */
+    public Map<String, Object> getInfo() {
+        final ResolvedInfo current = this.info;
+        if (current != null && System.currentTimeMillis() - current.time <= ttl) {
+            return current.info;
+        }
+
+        refreshData();
+        return current == null ? null : current.info;
+    }
+
+    /**
+     * Resolves the information in the background, unless it is resolved already.
+     *
+     * @return boolean true if the resolution was started, false if a resolution is running already or no provider
+     * is configured
+     */
+    public boolean refreshData() {
+        if (providerUrl == null || isBackingOff() || !refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+
+        EXECUTOR.execute(new Runnable() {
             @Override
             public void run() {
-                final String ipJson = invokeRequest();
-                if (ipJson != null) {
-                    infoMap = new Gson().fromJson(ipJson, Map.class);
+                final int resolving = getGeneration();
+                try {
+                    completed(resolving, resolve(resolving));
+                } finally {
+                    refreshing.set(false);
+                }
+
+                // invalidated while resolving, i.e., the result belongs to the previous network
+                if (getGeneration() != resolving) {
+                    refreshData();
                 }
             }
-        }).start();
+        });
+
+        return true;
+    }
+
+    private synchronized boolean isBackingOff() {
+        return failures > 0 && System.nanoTime() - retryAt < 0;
+    }
+
+    /**
+     * records the outcome of the resolution, the next resolution after a failure is delayed
+     */
+    private synchronized void completed(final int resolving, final boolean resolved) {
+        if (generation != resolving) {
+            return;
+        } else if (resolved) {
+            failures = 0;
+            return;
+        }
+
+        final long backoff = Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(failures, 20));
+        failures++;
+        retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        Log.d(TAG, "unable to resolve the ip information, trying again in " + backoff + " ms");
+    }
+
+    /**
+     * the information is resolved again, invoked whenever the connectivity changes
+     */
+    public void invalidate() {
+        discard();
+        refreshData();
+    }
+
+    /**
+     * removes the information, a resolution running already is not used
+     */
+    private synchronized void discard() {
+        generation++;
+        failures = 0;
+        this.info = null;
+    }
+
+    /**
+     * retrieves the generation of the information, which changes whenever the information is discarded, e.g.,
+     * because the network changed
+     *
+     * @return int the current generation
+     */
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * keeps the resolved information, unless it was invalidated since the resolution started
+     *
+     * @return boolean true if the information was kept
+     */
+    private synchronized boolean store(final int resolving, final ResolvedInfo resolved) {
+        if (generation != resolving) {
+            Log.d(TAG, "ip information was invalidated while resolving it, resolving it again");
+            return false;
+        }
+
+        this.info = resolved;
+        return true;
+    }
+
+    /**
+     * checks if the information is being resolved
+     *
+     * @return boolean true if a resolution is running
+     */
+    public boolean isRefreshing() {
+        return refreshing.get();
+    }
+
+    /**
+     * resolves the information and keeps it
+     *
+     * @return boolean true if the information was resolved
+     */
+    @SuppressWarnings("unchecked")
+    private boolean resolve(final int resolving) {
+        final String ipJson = invokeRequest();
+        if (ipJson == null) {
+            return false;
+        }
+
+        final Map<String, Object> infoMap;
+        try {
+            infoMap = BreinGson.GSON.fromJson(ipJson, Map.class);
+        } catch (final JsonParseException e) {
+            Log.d(TAG, "unable to parse the ip information: " + e);
+            return false;
+        }
+
+        if (infoMap == null) {
+            return false;
+        }
+
+        final ResolvedInfo resolved = new ResolvedInfo(System.currentTimeMillis(), infoMap);
+        if (store(resolving, resolved)) {
+            persist(this.file, resolved);
+        }
+        return true;
     }
 
     public String invokeRequest() {
+        final String providerUrl = this.providerUrl;
+        if (providerUrl == null) {
+            return null;
+        }
+
         HttpURLConnection urlConnection = null;
         try {
-            final URL url = new URL("http://www.ip-api.com/json");
+            final URL url = new URL(providerUrl);
 
             urlConnection = (HttpURLConnection) url
                     .openConnection();
+            urlConnection.setConnectTimeout(TIMEOUT);
+            urlConnection.setReadTimeout(TIMEOUT);
+            if (urlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Log.d(TAG, "unable to resolve the ip information, status: " + urlConnection.getResponseCode());
+                return null;
+            }
 
             final InputStream in = urlConnection.getInputStream();
-            final InputStreamReader isw = new InputStreamReader(in);
-
-            String retVal = "";
-            int data = isw.read();
-            while (data != -1) {
-                char current = (char) data;
-                data = isw.read();
-                retVal += Character.toString(current);
+            try {
+                return BreinResponseReader.readString(in, MAX_RESPONSE_SIZE);
+            } finally {
+                in.close();
             }
-
-            return retVal;
         } catch (final Exception e) {
-            Log.e("BreinIpInfo", "Exception occured", e);
+            Log.d(TAG, "unable to resolve the ip information: " + e);
         } finally {
             if (urlConnection != null) {
                 urlConnection.disconnect();
@@ -110,11 +359,83 @@ public class BreinIpInfo {
     }
 
     public String getExternalIp() {
+        final Map<String, Object> infoMap = getInfo();
         return infoMap == null ? null : (String) infoMap.get(IP_FIELD);
     }
 
     public String getTimezone() {
+        final Map<String, Object> infoMap = getInfo();
         return infoMap == null ? null : (String) infoMap.get(TIMEZONE_FIELD);
     }
 
+    private static ExecutorService createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "breinify-ipinfo");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static ResolvedInfo load(final File file) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+
+        try {
+            final Reader reader = new InputStreamReader(new FileInputStream(file), UTF8);
+            try {
+                final ResolvedInfo resolved = BreinGson.GSON.fromJson(reader, ResolvedInfo.class);
+                return resolved == null || resolved.info == null ? null : resolved;
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException | JsonParseException e) {
+            Log.d(TAG, "unable to read the ip information: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * writes the information to the file, the file is replaced so that it is never read partly written
+     */
+    private static void persist(final File file, final ResolvedInfo resolved) {
+        if (file == null) {
+            return;
+        }
+
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), UTF8);
+            try {
+                BreinGson.GSON.toJson(resolved, writer);
+            } finally {
+                writer.close();
+            }
+
+            if (!tmpFile.renameTo(file)) {
+                Log.d(TAG, "unable to replace the ip information");
+            }
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to write the ip information: " + e);
+        }
+    }
+
+    private static class ResolvedInfo {
+        @SerializedName("time")
+        private final long time;
+        @SerializedName("info")
+        private final Map<String, Object> info;
+
+        private ResolvedInfo(final long time, final Map<String, Object> info) {
+            this.time = time;
+            this.info = info;
+        }
+    }
 }
@@ -1,31 +1,65 @@
 package com.brein.domain;
 
+import com.brein.util.BreinGson;
 import com.brein.util.BreinMapUtil;
-import com.google.gson.Gson;
-
+import com.brein.util.JsonHelper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Map;
 
 /**
  * Contains the result of an Brein Request when invoking a
- * request
+ * request. The result is kept as parsed json tree, i.e., numbers
+ * are not boxed and the map representation is only created if
+ * needed. Typed results (e.g., BreinTemporalDataResult) read the
+ * tree directly.
  */
 public class BreinResult {
 
     /**
-     * contains the collected data as map
+     * (de-)serializes results with Gson
+     */
+    public static final TypeAdapter<BreinResult> ADAPTER = new Adapter<BreinResult>() {
+        @Override
+        protected BreinResult create(final JsonObject json) {
+            return new BreinResult(json);
+        }
+    };
+
+    /**
+     * contains the collected data as parsed json tree
+     */
+    private volatile JsonObject json;
+
+    /**
+     * contains the collected data as map, created on first access
      */
-    private final Map<String, Object> map;
+    private volatile Map<String, Object> map;
 
      /**
      * creates a brein result object
      * @param jsonResponse as json string
      */
-    @SuppressWarnings("unchecked")
     public BreinResult(final String jsonResponse) {
-        map = new Gson().fromJson(jsonResponse, Map.class);
+        this(BreinGson.GSON.fromJson(jsonResponse, JsonObject.class));
+    }
+
+    /**
+     * creates a brein result object
+     * @param json JsonObject the parsed response
+     */
+    public BreinResult(final JsonObject json) {
+        this.json = json;
+        this.map = null;
     }
 
     public BreinResult(final Map<String, Object> json) {
+        this.json = null;
         this.map = json;
     }
 
@@ -35,9 +69,8 @@ public class BreinResult {
      * @param <T>   Object the value
      * @return      Object retrieved
      */
-    @SuppressWarnings("unchecked")
     public <T> T get(final String key) {
-        return (T) map.get(key);
+        return getValue(key);
     }
 
     /**
@@ -46,33 +79,87 @@ public class BreinResult {
      * @return true or false
      */
     public boolean has(final String key) {
+        final Map<String, Object> map = this.map;
+        if (map == null && json != null) {
+            final JsonElement value = json.get(key);
+            return value != null && !value.isJsonNull();
+        }
+
         return get(key) != null;
     }
 
     /**
-     * provides the map containing the results
+     * provides the map containing the results, the map is created on first access
      *
      * @return Map of String, Object
      */
+    @SuppressWarnings("unchecked")
     public Map<String, Object> getMap() {
+        if (map == null && json != null) {
+            map = BreinGson.GSON.fromJson(json, Map.class);
+        }
+
         return map;
     }
 
+    /**
+     * provides the parsed json tree containing the results
+     *
+     * @return JsonObject the results, {@code null} if there are none
+     */
+    public JsonObject getJson() {
+        if (json == null && map != null) {
+            json = BreinGson.GSON.toJsonTree(map).getAsJsonObject();
+        }
+
+        return json;
+    }
+
+    /**
+     * retrieves the value of the key, only the value is converted if the map was not created yet
+     *
+     * @param key String contains the key
+     * @param <T> Object the value
+     * @return    Object retrieved
+     */
     @SuppressWarnings("unchecked")
     public <T> T getValue(final String key) {
-        return map == null ? null : (T) map.get(key);
+        final Map<String, Object> map = this.map;
+        if (map != null) {
+            return (T) map.get(key);
+        } else if (json != null) {
+            return JsonHelper.toValue(json.get(key));
+        } else {
+            return null;
+        }
     }
 
     public boolean hasValue(final String key) {
-        return map != null && map.containsKey(key);
+        final Map<String, Object> map = this.map;
+        if (map != null) {
+            return map.containsKey(key);
+        } else {
+            return json != null && json.has(key);
+        }
     }
 
     public <T> T getNestedValue(final String... keys) {
-        return BreinMapUtil.getNestedValue(map, keys);
+        final Map<String, Object> map = this.map;
+        if (map != null || json == null) {
+            return BreinMapUtil.getNestedValue(map, keys);
+        }
+
+        return keys.length == 0 ? null : JsonHelper.<T>toValue(getNestedElement(keys));
     }
 
     public boolean hasNestedValue(final String... keys) {
-        return BreinMapUtil.hasNestedValue(map, keys);
+        final Map<String, Object> map = this.map;
+        if (map != null || json == null) {
+            return BreinMapUtil.hasNestedValue(map, keys);
+        }
+
+        final JsonElement value = getNestedElement(keys);
+        return value != null && !value.isJsonNull();
     }
 
     public String getMessage() {
@@ -83,4 +170,43 @@ public class BreinResult {
         return null;
     }
 
+    private JsonElement getNestedElement(final String... keys) {
+        JsonElement value = json;
+        for (final String key : keys) {
+            if (value == null || !value.isJsonObject()) {
+                return null;
+            }
+            value = value.getAsJsonObject().get(key);
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads and writes results of the type {@code T} using the parsed json tree, i.e., the results
+     * are read and written without creating their map representation.
+     *
+     * @param <T> the type of the result
+     */
+    public abstract static class Adapter<T extends BreinResult> extends TypeAdapter<T> {
+
+        /**
+         * creates the result from the parsed json tree
+         *
+         * @param json JsonObject the parsed json, never {@code null}
+         * @return T the result
+         */
+        protected abstract T create(final JsonObject json);
+
+        @Override
+        public void write(final JsonWriter out, final T value) throws IOException {
+            BreinGson.GSON.getAdapter(JsonElement.class).write(out, value == null ? null : value.getJson());
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            final JsonElement json = BreinGson.GSON.getAdapter(JsonElement.class).read(in);
+            return json == null || !json.isJsonObject() ? null : create(json.getAsJsonObject());
+        }
+    }
 }
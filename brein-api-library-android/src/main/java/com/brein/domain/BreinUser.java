@@ -1,28 +1,17 @@
 package com.brein.domain;
 
-import android.Manifest;
 import android.app.Application;
-import android.content.Context;
-import android.content.pm.PackageManager;
-import android.location.Location;
-import android.location.LocationManager;
-import android.net.wifi.WifiInfo;
-import android.net.wifi.WifiManager;
-import android.support.v4.app.ActivityCompat;
-import android.text.format.Formatter;
-
-import com.brein.api.BreinBase;
+
 import com.brein.api.BreinException;
 import com.brein.api.BreinifyManager;
+import com.brein.util.BreinGson;
 import com.brein.util.BreinMapUtil;
 import com.brein.util.BreinUtil;
 import com.google.gson.JsonObject;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import static android.content.Context.WIFI_SERVICE;
 import static com.brein.api.Breinify.getConfig;
 
 /**
@@ -32,15 +21,17 @@ public class BreinUser {
 
     public static final String USER_FIELD = "user";
     public static final String ADDITIONAL_FIELD = "additional";
+    public static final String LOCATION_FIELD = "location";
+    public static final String NETWORK_FIELD = "network";
 
     /**
-     * contains further fields in the user additional section
+     * contains further fields in the user additional section, the map is copied on write
      */
-    private Map<String, Object> additionalMap = new HashMap<>();
+    private volatile Map<String, Object> additionalMap = new HashMap<>();
     /**
-     * contains further fields in the user section
+     * contains further fields in the user section, the map is copied on write
      */
-    private Map<String, Object> userMap;
+    private volatile Map<String, Object> userMap;
 
     /**
      * create a brein user with field email.
@@ -297,19 +288,7 @@ public class BreinUser {
      * @return String userAgent
      */
     public String createUserAgent() {
-
-        final Application appCtx = BreinifyManager.getInstance().getApplication();
-
-        String appName = "";
-        if (appCtx != null) {
-            appName = appCtx.getApplicationInfo().loadLabel(appCtx.getPackageManager()).toString();
-        }
-
-        // add the app
-        return System.getProperty("http.agent")
-                + "/("
-                + appName
-                + ")";
+        return BreinDeviceContext.getInstance().getUserAgent(BreinifyManager.getInstance().getApplication());
     }
 
     /**
@@ -436,55 +415,12 @@ public class BreinUser {
      * detects the GPS coordinates and adds this to the user.additional.location section
      */
     public void detectGpsCoordinates() {
-
-        // firstly get the context
-        final Application applicationContext = getConfig().getApplication();
-        if (applicationContext == null) {
-            return;
-        }
-
-        final LocationManager locationManager = (LocationManager) applicationContext.getSystemService(Context.LOCATION_SERVICE);
-        final List<String> providers = locationManager.getAllProviders(); // getProviders(true);
-
-        // Loop over the array backwards, and if you get an accurate location, then break out the loop
-        Location location = null;
-
-        for (int index = providers.size() - 1; index >= 0; index--) {
-
-            final int accessFineLocationPermission = ActivityCompat.checkSelfPermission(applicationContext,
-                    Manifest.permission.ACCESS_FINE_LOCATION);
-
-            final int accessCoarseLocationPermission = ActivityCompat.checkSelfPermission(applicationContext,
-                    Manifest.permission.ACCESS_COARSE_LOCATION);
-
-            if (accessCoarseLocationPermission != PackageManager.PERMISSION_GRANTED ||
-                    accessFineLocationPermission != PackageManager.PERMISSION_GRANTED) {
-                return;
-            }
-
-            /*
-            if (ActivityCompat.checkSelfPermission(applicationContext,
-                    Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED
-                    && ActivityCompat.checkSelfPermission(applicationContext,
-                    Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                // we do not have the permissions
-                return;
-            }
-            */
-            location = locationManager.getLastKnownLocation(providers.get(index));
-            if (location != null) {
-                break;
-            }
-        }
+        final BreinConfig config = getConfig();
+        final JsonObject location = BreinDeviceContext.getInstance()
+                .getLocation(config.getApplication(), config.getDeviceContextTtl());
 
         if (location != null) {
-            final JsonObject locationData = new JsonObject();
-            locationData.addProperty("accuracy", location.getAccuracy());
-            locationData.addProperty("speed", location.getSpeed());
-            locationData.addProperty("latitude", location.getLatitude());
-            locationData.addProperty("longitude", location.getLongitude());
-
-            this.additionalMap.put("location", locationData);
+            setAdditional(LOCATION_FIELD, location);
         }
     }
 
@@ -492,52 +428,12 @@ public class BreinUser {
      * Provides network information within the user additional request
      */
     public void detectNetwork() {
+        final BreinConfig config = getConfig();
+        final JsonObject network = BreinDeviceContext.getInstance()
+                .getNetwork(config.getApplication(), config.getDeviceContextTtl());
 
-        // firstly get the context
-        final Application applicationContext = getConfig().getApplication();
-        if (applicationContext == null) {
-            return;
-        }
-
-        // only possible if permission has been granted
-        if (ActivityCompat.checkSelfPermission(applicationContext,
-                Manifest.permission.ACCESS_WIFI_STATE) == PackageManager.PERMISSION_GRANTED) {
-
-            final WifiManager wifiManager = (WifiManager) applicationContext
-                    .getApplicationContext()
-                    .getSystemService(WIFI_SERVICE);
-
-            if (wifiManager != null) {
-                final WifiInfo wifiInfo = wifiManager.getConnectionInfo();
-                if (wifiInfo != null) {
-                    // contains double quotes
-                    final String ssid = wifiInfo.getSSID().replace("\"", "");
-                    final String bssid = wifiInfo.getBSSID();
-                    // final boolean hiddenSsid = wifiInfo.getHiddenSSID();
-
-                    int ip = wifiInfo.getIpAddress();
-                    final String ipAddress = Formatter.formatIpAddress(ip);
-                    final int linkSpeed = wifiInfo.getLinkSpeed();
-                    final String macAddress = wifiInfo.getMacAddress();
-                    final int rssi = wifiInfo.getRssi();
-                    final int networkId = wifiInfo.getNetworkId();
-                    final String state = wifiInfo.getSupplicantState().toString();
-
-                    final JsonObject networkData = new JsonObject();
-                    networkData.addProperty("ssid", ssid);
-                    networkData.addProperty("bssid", bssid);
-                    networkData.addProperty("ipAddress", ipAddress);
-                    networkData.addProperty("linkSpeed", linkSpeed);
-                    networkData.addProperty("macAddress", macAddress);
-                    networkData.addProperty("rssi", rssi);
-                    networkData.addProperty("networkId", networkId);
-                    networkData.addProperty("state", state);
-
-                    if (this.additionalMap != null) {
-                        this.additionalMap.put("network", networkData);
-                    }
-                }
-            }
+        if (network != null) {
+            setAdditional(NETWORK_FIELD, network);
         }
     }
 
@@ -552,7 +448,7 @@ public class BreinUser {
         final Map<String, Object> requestData = new HashMap<>();
 
         prepareRequestData(config, requestData);
-        return BreinBase.GSON.toJson(requestData);
+        return BreinGson.toJson(requestData);
     }
 
     /**
@@ -566,11 +462,9 @@ public class BreinUser {
         if (ADDITIONAL_FIELD.equalsIgnoreCase(key)) {
             throw new BreinException("The field '" + ADDITIONAL_FIELD + "' cannot be set, " +
                     "use the setAdditional method to do so.");
-        } else if (this.userMap == null) {
-            this.userMap = new HashMap<>();
         }
 
-        this.userMap.put(key, value);
+        this.userMap = BreinMapUtil.copyAndPut(this.userMap, key, value);
         return this;
     }
 
@@ -594,11 +488,8 @@ public class BreinUser {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(final String key, final boolean additional) {
-        if (additional) {
-            return this.additionalMap == null ? null : (T) this.additionalMap.get(key);
-        } else {
-            return this.userMap == null ? null : (T) this.userMap.get(key);
-        }
+        final Map<String, Object> map = additional ? this.additionalMap : this.userMap;
+        return map == null ? null : (T) map.get(key);
     }
 
     /**
@@ -620,14 +511,24 @@ public class BreinUser {
      * @return       BreinUser the object itself
      */
     public BreinUser setAdditional(final String key, final Object value) {
-        if (this.additionalMap == null) {
-            this.additionalMap = new HashMap<>();
-        }
-
-        this.additionalMap.put(key, value);
+        this.additionalMap = BreinMapUtil.copyAndPut(this.additionalMap, key, value);
         return this;
     }
 
+    /**
+     * Creates a snapshot of the user, i.e., a copy which is not affected by later changes of this user. The maps
+     * of the user are copied on write, thus the snapshot shares them and is cheap to create.
+     *
+     * @return BreinUser the snapshot
+     */
+    public BreinUser snapshot() {
+        final BreinUser snapshot = new BreinUser();
+        snapshot.userMap = this.userMap;
+        snapshot.additionalMap = this.additionalMap;
+
+        return snapshot;
+    }
+
     /**
      * prepares the request data
      *
@@ -639,26 +540,43 @@ public class BreinUser {
         requestData.put(USER_FIELD, userRequestData);
 
         // add the user-data, if there is any
-        if (this.userMap != null) {
+        final Map<String, Object> userMap = this.userMap;
+        if (userMap != null) {
             // loop a Map
-            for (Map.Entry<String, Object> entry : this.userMap.entrySet()) {
+            for (Map.Entry<String, Object> entry : userMap.entrySet()) {
                 if (BreinUtil.containsValue(entry.getValue())) {
                     userRequestData.put(entry.getKey(), entry.getValue());
                 }
             }
         }
 
-        // tries to detect gps and network data this will be added to property additionalMap
-        detectGpsCoordinates();
-        detectNetwork();
+        // add the additional-data and the (cached) information of the device, the user itself is not changed
+        final Map<String, Object> additionalMap = this.additionalMap;
+        final Map<String, Object> additionalRequestData = additionalMap == null
+                ? new HashMap<String, Object>()
+                : BreinMapUtil.copyMap(additionalMap);
 
-        // check or create userAgent
-        handleUserAgent();
+        final BreinDeviceContext deviceContext = BreinDeviceContext.getInstance();
+        final Application application = config.getApplication();
+        final long ttl = config.getDeviceContextTtl();
+
+        final JsonObject location = deviceContext.getLocation(application, ttl);
+        if (location != null) {
+            additionalRequestData.put(LOCATION_FIELD, location);
+        }
 
-        // add the additional-data, if there is any
-        if (this.additionalMap != null) {
-            userRequestData.put(ADDITIONAL_FIELD, BreinMapUtil.copyMap(this.additionalMap));
+        final JsonObject network = deviceContext.getNetwork(application, ttl);
+        if (network != null) {
+            additionalRequestData.put(NETWORK_FIELD, network);
         }
+
+        // check or create userAgent
+        final Object userAgent = additionalRequestData.get(UserAdditionalField.USER_AGENT.getName());
+        if (!(userAgent instanceof String) || ((String) userAgent).length() != 0) {
+            additionalRequestData.put(UserAdditionalField.USER_AGENT.getName(), deviceContext.getUserAgent(application));
+        }
+
+        userRequestData.put(ADDITIONAL_FIELD, additionalRequestData);
     }
 
     /**
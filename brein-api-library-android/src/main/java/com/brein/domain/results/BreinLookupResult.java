@@ -0,0 +1,81 @@
+package com.brein.domain.results;
+
+import com.brein.domain.BreinResult;
+import com.brein.util.JsonHelper;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides typed access to the results of a lookup, i.e.:
+ * <p>
+ * <pre>
+ *     {
+ *         email: {
+ *             result: "toni.tester@mail.net"
+ *         }
+ *     }
+ * </pre>
+ * Only the value of the requested dimension is converted.
+ */
+public class BreinLookupResult extends BreinResult {
+
+    /**
+     * (de-)serializes lookup results with Gson
+     */
+    public static final TypeAdapter<BreinLookupResult> ADAPTER = new Adapter<BreinLookupResult>() {
+        @Override
+        protected BreinLookupResult create(final JsonObject json) {
+            return new BreinLookupResult(json);
+        }
+    };
+
+    private static final String RESULT_KEY = "result";
+
+    public BreinLookupResult(final Map<String, Object> json) {
+        super(json);
+    }
+
+    public BreinLookupResult(final JsonObject json) {
+        super(json == null ? new JsonObject() : json);
+    }
+
+    public BreinLookupResult(final BreinResult result) {
+        this(result.getJson());
+    }
+
+    /**
+     * retrieves the looked up dimensions
+     *
+     * @return Set the names of the dimensions
+     */
+    public Set<String> getDimensions() {
+        final Set<String> dimensions = new LinkedHashSet<>();
+        final JsonObject json = getJson();
+        if (json != null) {
+            for (final Map.Entry<String, ?> entry : json.entrySet()) {
+                if (JsonHelper.getObject(json, entry.getKey()) != null) {
+                    dimensions.add(entry.getKey());
+                }
+            }
+        }
+
+        return Collections.unmodifiableSet(dimensions);
+    }
+
+    /**
+     * retrieves the result of a dimension
+     *
+     * @param dimension String the name of the dimension, e.g., {@code "email"}
+     * @param <T>       the class of the value
+     * @return the result, {@code null} if the dimension was not looked up
+     */
+    public <T> T getResult(final String dimension) {
+        final JsonObject json = JsonHelper.getObject(getJson(), dimension);
+        return json == null ? null : JsonHelper.<T>toValue(json.get(RESULT_KEY));
+    }
+}
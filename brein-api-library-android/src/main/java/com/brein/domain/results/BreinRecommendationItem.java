@@ -0,0 +1,64 @@
+package com.brein.domain.results;
+
+import com.brein.util.JsonHelper;
+import com.google.gson.JsonObject;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Contains one recommended item of a recommendation result. The additional
+ * data of the item is only converted when accessed.
+ */
+public class BreinRecommendationItem {
+
+    private static final String DATA_ID_EXTERNAL_KEY = "dataIdExternal";
+    private static final String WEIGHT_KEY = "weight";
+    private static final String ADDITIONAL_DATA_KEY = "additionalData";
+
+    private final String dataIdExternal;
+    private final Double weight;
+    private final JsonObject additionalDataTree;
+
+    private volatile Map<String, Object> additionalData;
+
+    /**
+     * Contains the recommended item, read from the parsed json tree
+     *
+     * @param json JsonObject containing the item, can be {@code null}
+     */
+    public BreinRecommendationItem(final JsonObject json) {
+        dataIdExternal = JsonHelper.getString(json, DATA_ID_EXTERNAL_KEY);
+        weight = JsonHelper.getDouble(json, WEIGHT_KEY);
+        additionalDataTree = JsonHelper.getObject(json, ADDITIONAL_DATA_KEY);
+    }
+
+    public String getDataIdExternal() {
+        return dataIdExternal;
+    }
+
+    public Double getWeight() {
+        return weight;
+    }
+
+    /**
+     * retrieves the additional data of the item, the map is created on first access
+     *
+     * @return Map the additional data, empty if there is none
+     */
+    public Map<String, Object> getAdditionalData() {
+        if (additionalData == null) {
+            final Map<String, Object> map = JsonHelper.toValue(additionalDataTree);
+            additionalData = map == null
+                    ? Collections.<String, Object>emptyMap()
+                    : Collections.unmodifiableMap(map);
+        }
+
+        return additionalData;
+    }
+
+    @Override
+    public String toString() {
+        return "recommended item " + getDataIdExternal() + " with a weight of " + getWeight();
+    }
+}
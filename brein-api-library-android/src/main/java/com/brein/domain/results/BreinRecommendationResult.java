@@ -0,0 +1,89 @@
+package com.brein.domain.results;
+
+import com.brein.domain.BreinResult;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides typed access to the recommended items of a recommendation result.
+ * The items are read from the parsed json tree on first access and kept.
+ */
+public class BreinRecommendationResult extends BreinResult {
+
+    /**
+     * (de-)serializes recommendation results with Gson
+     */
+    public static final TypeAdapter<BreinRecommendationResult> ADAPTER = new Adapter<BreinRecommendationResult>() {
+        @Override
+        protected BreinRecommendationResult create(final JsonObject json) {
+            return new BreinRecommendationResult(json);
+        }
+    };
+
+    private static final String RESULT_KEY = "result";
+    private static final String STATUS_CODE_KEY = "statusCode";
+
+    private volatile List<BreinRecommendationItem> recommendations;
+
+    public BreinRecommendationResult(final Map<String, Object> json) {
+        super(json);
+    }
+
+    public BreinRecommendationResult(final JsonObject json) {
+        super(json == null ? new JsonObject() : json);
+    }
+
+    public BreinRecommendationResult(final BreinResult result) {
+        this(result.getJson());
+    }
+
+    /**
+     * retrieves the status code reported within the result
+     *
+     * @return Integer the status code, {@code null} if not reported
+     */
+    public Integer getStatusCode() {
+        final Number statusCode = getValue(STATUS_CODE_KEY);
+        return statusCode == null ? null : statusCode.intValue();
+    }
+
+    public boolean hasRecommendations() {
+        return has(RESULT_KEY);
+    }
+
+    /**
+     * retrieves the recommended items, the list is created on first access
+     *
+     * @return List of the items, empty if there are none
+     */
+    public List<BreinRecommendationItem> getRecommendations() {
+        if (recommendations == null) {
+            final List<BreinRecommendationItem> items = new ArrayList<>();
+
+            final JsonObject json = getJson();
+            final JsonElement value = json == null ? null : json.get(RESULT_KEY);
+            if (value != null && value.isJsonArray()) {
+                for (final JsonElement element : value.getAsJsonArray()) {
+                    if (element.isJsonObject()) {
+                        items.add(new BreinRecommendationItem(element.getAsJsonObject()));
+                    }
+                }
+            }
+
+            recommendations = Collections.unmodifiableList(items);
+        }
+
+        return recommendations;
+    }
+
+    @Override
+    public String toString() {
+        return "Recommendation results with " + getRecommendations().size() + " items";
+    }
+}
@@ -5,6 +5,10 @@ import com.brein.domain.results.temporaldataparts.BreinEventResult;
 import com.brein.domain.results.temporaldataparts.BreinHolidayResult;
 import com.brein.domain.results.temporaldataparts.BreinLocationResult;
 import com.brein.domain.results.temporaldataparts.BreinWeatherResult;
+import com.brein.util.JsonHelper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -12,6 +16,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Provides typed access to the sections of a temporal data result. The
+ * sections are read from the parsed json tree on first access and kept.
+ */
 public class BreinTemporalDataResult extends BreinResult {
 
     private static final String WEATHER_KEY = "weather";
@@ -23,21 +31,46 @@ public class BreinTemporalDataResult extends BreinResult {
     private static final String HOLIDAY_LIST_KEY = "holidays";
     private static final String EVENT_LIST_KEY = "events";
 
+    /**
+     * (de-)serializes temporal data results with Gson
+     */
+    public static final TypeAdapter<BreinTemporalDataResult> ADAPTER = new Adapter<BreinTemporalDataResult>() {
+        @Override
+        protected BreinTemporalDataResult create(final JsonObject json) {
+            return new BreinTemporalDataResult(json);
+        }
+    };
+
+    /*
+     * the typed sections, created on first access
+     */
+    private volatile BreinWeatherResult weather;
+    private volatile BreinLocationResult location;
+    private volatile List<BreinHolidayResult> holidays;
+    private volatile List<BreinEventResult> events;
+
     public BreinTemporalDataResult(final Map<String, Object> json) {
         super(json == null ? new HashMap<String, Object>() : json);
     }
 
+    public BreinTemporalDataResult(final JsonObject json) {
+        super(json == null ? new JsonObject() : json);
+    }
+
     public BreinTemporalDataResult(final BreinResult result) {
-        this(result.getMap());
+        this(result.getJson());
     }
 
     public boolean hasWeather() {
-        return getValue(WEATHER_KEY) != null;
+        return has(WEATHER_KEY);
     }
 
-    @SuppressWarnings("unchecked")
     public BreinWeatherResult getWeather() {
-        return new BreinWeatherResult((Map<String, Object>) getValue(WEATHER_KEY));
+        if (weather == null) {
+            weather = new BreinWeatherResult(JsonHelper.getObject(getJson(), WEATHER_KEY));
+        }
+
+        return weather;
     }
 
     public boolean hasLocalDateTime() {
@@ -83,104 +116,78 @@ public class BreinTemporalDataResult extends BreinResult {
     */
 
     public boolean hasLocation() {
-        return getValue(LOCATION_KEY) != null;
+        return has(LOCATION_KEY);
     }
 
-    @SuppressWarnings("unchecked")
     public BreinLocationResult getLocation() {
-        return new BreinLocationResult((Map<String, Object>) getValue(LOCATION_KEY));
+        if (location == null) {
+            location = new BreinLocationResult(JsonHelper.getObject(getJson(), LOCATION_KEY));
+        }
+
+        return location;
     }
 
     public boolean hasHolidays() {
-        return getValue(HOLIDAY_LIST_KEY) != null;
+        return has(HOLIDAY_LIST_KEY);
     }
 
     /**
+     * retrieves the holidays, the list is created on first access
      *
-     * @return
+     * @return List of the holidays, empty if there are none
      */
     public List<BreinHolidayResult> getHolidays() {
-        final List<Map<String, Object>> value = getValue(HOLIDAY_LIST_KEY);
-        if (value == null) {
-            return Collections.emptyList();
-        } else {
-            // TODO: check implementation
-
+        if (holidays == null) {
             final List<BreinHolidayResult> breinHolidayResultList = new ArrayList<>();
-
-            for (Map<String, Object> map : value) {
-
-                // create new BreinHolidayResult
-                final BreinHolidayResult breinHolidayResult = new BreinHolidayResult(map);
-                breinHolidayResultList.add(breinHolidayResult);
-
-                /*
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    String key = entry.getKey();
-                    Object object = entry.getValue();
-
-                    // create new BreinHolidayResult
-                    // final BreinHolidayResult breinHolidayResult = new BreinHolidayResult();
-
-                }
-                */
-
+            for (final JsonObject json : getObjects(HOLIDAY_LIST_KEY)) {
+                final Map<String, Object> map = JsonHelper.toValue(json);
+                breinHolidayResultList.add(new BreinHolidayResult(map));
             }
 
-
-            return breinHolidayResultList;
-
-            /*
-            return value.stream()
-                    .map(BreinHolidayResult::new)
-                    .collect(Collectors.toList());
-                    */
+            holidays = Collections.unmodifiableList(breinHolidayResultList);
         }
+
+        return holidays;
     }
 
     public boolean hasEvents() {
-        return getValue(EVENT_LIST_KEY) != null;
+        return has(EVENT_LIST_KEY);
     }
 
+    /**
+     * retrieves the events, the list is created on first access
+     *
+     * @return List of the events, empty if there are none
+     */
     public List<BreinEventResult> getEvents() {
-        final List<Map<String, Object>> value = getValue(EVENT_LIST_KEY);
-        if (value == null) {
-            return Collections.emptyList();
-        } else {
-
-            // TODO: check implementation
-
+        if (events == null) {
             final List<BreinEventResult> breinEventResultList = new ArrayList<>();
+            for (final JsonObject json : getObjects(EVENT_LIST_KEY)) {
+                final Map<String, Object> map = JsonHelper.toValue(json);
+                breinEventResultList.add(new BreinEventResult(map));
+            }
 
-            for (Map<String, Object> map : value) {
-
-                // create new
-                final BreinEventResult breinEventResult = new BreinEventResult(map);
-
-                breinEventResultList.add(breinEventResult);
-
-                /*
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    String key = entry.getKey();
-                    Object object = entry.getValue();
+            events = Collections.unmodifiableList(breinEventResultList);
+        }
 
-                    // create new BreinHolidayResult
-                    // final BreinHolidayResult breinHolidayResult = new BreinHolidayResult();
+        return events;
+    }
 
-                }
-                */
+    private List<JsonObject> getObjects(final String key) {
+        final JsonObject json = getJson();
+        final JsonElement value = json == null ? null : json.get(key);
+        if (value == null || !value.isJsonArray()) {
+            return Collections.emptyList();
+        }
 
+        final List<JsonObject> objects = new ArrayList<>();
+        for (final JsonElement element : value.getAsJsonArray()) {
+            if (element.isJsonObject()) {
+                objects.add(element.getAsJsonObject());
             }
-
-            return breinEventResultList;
-
-
-            /*
-            return value.stream()
-                    .map(BreinEventResult::new)
-                    .collect(Collectors.toList());
-                    */
         }
+
+        return objects;
     }
 
     @Override
@@ -2,10 +2,20 @@ package com.brein.domain.results.temporaldataparts;
 
 import com.brein.domain.BreinResult;
 import com.brein.util.BreinMapUtil;
+import com.brein.util.JsonHelper;
+import com.google.gson.JsonObject;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Contains the location of a temporal data result. The shapes (geojson) can be
+ * large, if read from the parsed json tree they are only converted when
+ * accessed.
+ */
 public class BreinLocationResult {
 
     private static final String COUNTRY_KEY = "country";
@@ -22,6 +32,14 @@ public class BreinLocationResult {
     private final String city;
     private final String granularity;
 
+    /**
+     * the shapes as parsed json tree, {@code null} if created from a map
+     */
+    private final JsonObject geojsonTree;
+
+    /**
+     * the converted shapes by type, filled on access if read from the parsed json tree
+     */
     private final Map<String, Map<String, Object>> geojsons;
 
     private final double lat;
@@ -37,6 +55,7 @@ public class BreinLocationResult {
             state = null;
             city = null;
             granularity = null;
+            geojsonTree = null;
             geojsons = Collections.emptyMap();
 
             //you're on null island now
@@ -47,7 +66,10 @@ public class BreinLocationResult {
             state = BreinMapUtil.getNestedValue(json, STATE_KEY);
             city = BreinMapUtil.getNestedValue(json, CITY_KEY);
             granularity = BreinMapUtil.getNestedValue(json, GRANULARITY_KEY);
-            geojsons = BreinMapUtil.getNestedValue(json, GEOJSON_KEY);
+            geojsonTree = null;
+
+            final Map<String, Map<String, Object>> geojsons = BreinMapUtil.getNestedValue(json, GEOJSON_KEY);
+            this.geojsons = geojsons == null ? Collections.<String, Map<String, Object>>emptyMap() : geojsons;
 
             if (json.containsKey(LAT_KEY)) {
                 lat = (double) json.get(LAT_KEY);
@@ -63,6 +85,29 @@ public class BreinLocationResult {
         }
     }
 
+    /**
+     * Contains the location, read from the parsed json tree
+     *
+     * @param json JsonObject containing the location, can be {@code null}
+     */
+    public BreinLocationResult(final JsonObject json) {
+        country = JsonHelper.getString(json, COUNTRY_KEY);
+        state = JsonHelper.getString(json, STATE_KEY);
+        city = JsonHelper.getString(json, CITY_KEY);
+        granularity = JsonHelper.getString(json, GRANULARITY_KEY);
+
+        // the shapes are converted when accessed
+        geojsonTree = JsonHelper.getObject(json, GEOJSON_KEY);
+        geojsons = geojsonTree == null
+                ? Collections.<String, Map<String, Object>>emptyMap()
+                : new HashMap<String, Map<String, Object>>();
+
+        final Double lat = JsonHelper.getDouble(json, LAT_KEY);
+        final Double lon = JsonHelper.getDouble(json, LON_KEY);
+        this.lat = lat == null ? 0 : lat;
+        this.lon = lon == null ? 0 : lon;
+    }
+
     public String getCountry() {
         return country;
     }
@@ -87,11 +132,51 @@ public class BreinLocationResult {
         return lon;
     }
 
+    /**
+     * retrieves the types of the available shapes, without converting the shapes
+     *
+     * @return Set the types
+     */
+    public Set<String> getGeoJsonTypes() {
+        if (geojsonTree == null) {
+            return Collections.unmodifiableSet(this.geojsons.keySet());
+        } else {
+            final Set<String> types = new HashSet<>();
+            for (final Map.Entry<String, ?> entry : geojsonTree.entrySet()) {
+                types.add(entry.getKey());
+            }
+            return Collections.unmodifiableSet(types);
+        }
+    }
+
     public Map<String, Map<String, Object>> getGeoJsons() {
-        return Collections.unmodifiableMap(this.geojsons);
+        if (geojsonTree == null) {
+            return Collections.unmodifiableMap(this.geojsons);
+        }
+
+        synchronized (this.geojsons) {
+            for (final String type : getGeoJsonTypes()) {
+                getGeoJson(type);
+            }
+            return Collections.unmodifiableMap(new HashMap<>(this.geojsons));
+        }
     }
 
     public Map<String, Object> getGeoJson(final String type) {
-        return this.geojsons.get(type);
+        if (geojsonTree == null) {
+            return this.geojsons.get(type);
+        }
+
+        synchronized (this.geojsons) {
+            Map<String, Object> geojson = this.geojsons.get(type);
+            if (geojson == null && geojsonTree.has(type)) {
+                geojson = JsonHelper.toValue(JsonHelper.getObject(geojsonTree, type));
+                if (geojson != null) {
+                    this.geojsons.put(type, geojson);
+                }
+            }
+
+            return geojson;
+        }
     }
 }
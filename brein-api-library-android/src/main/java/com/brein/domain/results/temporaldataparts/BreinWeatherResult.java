@@ -1,6 +1,7 @@
 package com.brein.domain.results.temporaldataparts;
 
 import com.brein.util.JsonHelper;
+import com.google.gson.JsonObject;
 
 import java.util.Map;
 
@@ -51,29 +52,50 @@ public class BreinWeatherResult {
             this.precipitation = PrecipitationType.UNKNOWN;
             precipitationAmount = null;
         } else {
-            final String type = JsonHelper.getOr(preciValue, PRECIPITATION_TYPE_KEY, null);
-            if (type == null) {
-                this.precipitation = PrecipitationType.UNKNOWN;
-            } else {
-                switch (type.toLowerCase()) {
-                    case "rain":
-                        this.precipitation = PrecipitationType.RAIN;
-                        break;
-                    case "snow":
-                        this.precipitation = PrecipitationType.SNOW;
-                        break;
-                    case "none":
-                        this.precipitation = PrecipitationType.NONE;
-                        break;
-                    default:
-                        this.precipitation = PrecipitationType.UNKNOWN;
-                }
-            }
-
+            this.precipitation = parsePrecipitation(JsonHelper.<String>getOr(preciValue, PRECIPITATION_TYPE_KEY, null));
             precipitationAmount = JsonHelper.getOr(preciValue, PRECIPITATION_AMOUNT_KEY, null);
         }
     }
 
+    /**
+     * Contains the weather, read from the parsed json tree
+     * @param result JsonObject containing the result data, can be {@code null}
+     */
+    public BreinWeatherResult(final JsonObject result) {
+        description = JsonHelper.getString(result, DESCRIPTION_KEY);
+        temperature = JsonHelper.getDouble(result, TEMPERATURE_KEY);
+        windStrength = JsonHelper.getDouble(result, WIND_STRENGTH_KEY);
+        lastMeasured = JsonHelper.getLong(result, LAST_MEASURED_KEY);
+        cloudCover = JsonHelper.getDouble(result, CLOUD_COVER_KEY);
+
+        final JsonObject measuredJson = JsonHelper.getObject(result, MEASURED_LOCATION_KEY);
+        lat = JsonHelper.getDouble(measuredJson, LATITUDE_KEY);
+        lon = JsonHelper.getDouble(measuredJson, LONGITUDE_KEY);
+
+        final JsonObject preciValue = JsonHelper.getObject(result, PRECIPITATION_KEY);
+        precipitation = preciValue == null
+                ? PrecipitationType.UNKNOWN
+                : parsePrecipitation(JsonHelper.getString(preciValue, PRECIPITATION_TYPE_KEY));
+        precipitationAmount = JsonHelper.getDouble(preciValue, PRECIPITATION_AMOUNT_KEY);
+    }
+
+    private static PrecipitationType parsePrecipitation(final String type) {
+        if (type == null) {
+            return PrecipitationType.UNKNOWN;
+        }
+
+        switch (type.toLowerCase()) {
+            case "rain":
+                return PrecipitationType.RAIN;
+            case "snow":
+                return PrecipitationType.SNOW;
+            case "none":
+                return PrecipitationType.NONE;
+            default:
+                return PrecipitationType.UNKNOWN;
+        }
+    }
+
     public String getDescription() {
         return description;
     }
@@ -0,0 +1,274 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinActivityBatch;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.util.BreinUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects activities and sends them as one request to the bulk activity
+ * endpoint. A batch is sent as soon as it reaches the configured batch size
+ * or when the batch interval elapsed after the first activity was added.
+ */
+public class BreinActivityBatcher {
+
+    private static final String TAG = "BreinActivityBatcher";
+
+    /**
+     * the engine used to send the batches
+     */
+    private final IRestEngine restEngine;
+
+    /**
+     * the configuration the pending activities were prepared with
+     */
+    private BreinConfig pendingConfig;
+
+    /**
+     * contains the prepared activities waiting to be sent
+     */
+    private List<String> pendingActivities = new ArrayList<>();
+
+    /**
+     * contains the callbacks of the pending activities
+     */
+    private List<ICallback<BreinResult>> pendingCallbacks = new ArrayList<>();
+
+    /**
+     * timer used to flush a batch after the batch interval, created lazily
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * the currently scheduled flush
+     */
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * creates a batcher sending the batches through the given engine
+     *
+     * @param restEngine IRestEngine used to send the batches
+     */
+    public BreinActivityBatcher(final IRestEngine restEngine) {
+        this.restEngine = restEngine;
+    }
+
+    /**
+     * Adds the activity to the current batch. The activity is prepared (and signed)
+     * immediately, so later changes of the activity do not affect the batch.
+     *
+     * @param config   BreinConfig the configuration to use
+     * @param activity BreinActivity the activity to be sent
+     * @param callback ICallback invoked with the result of the bulk request, can be {@code null}
+     */
+    public void add(final BreinConfig config,
+                    final BreinActivity activity,
+                    final ICallback<BreinResult> callback) {
+
+        // validate the input objects
+        BreinUtil.validate(activity);
+
+        addPrepared(config, BreinUtil.getRequestBody(config, activity), callback);
+    }
+
+    /**
+     * Adds an already prepared activity to the current batch.
+     *
+     * @param config           BreinConfig the configuration to use
+     * @param preparedActivity String the JSON of the activity
+     * @param callback         ICallback invoked with the result of the bulk request, can be {@code null}
+     */
+    public void addPrepared(final BreinConfig config,
+                            final String preparedActivity,
+                            final ICallback<BreinResult> callback) {
+
+        BreinConfig previousConfig = null;
+        List<ICallback<BreinResult>> previousCallbacks = null;
+        BreinActivityBatch previousBatch = null;
+
+        BreinConfig fullConfig = null;
+        List<ICallback<BreinResult>> fullCallbacks = null;
+        BreinActivityBatch fullBatch = null;
+
+        synchronized (this) {
+
+            // activities of another configuration cannot be mixed within one request
+            if (this.pendingConfig != null && this.pendingConfig != config) {
+                previousConfig = this.pendingConfig;
+                previousCallbacks = this.pendingCallbacks;
+                previousBatch = drain();
+            }
+
+            this.pendingConfig = config;
+            this.pendingActivities.add(preparedActivity);
+            this.pendingCallbacks.add(callback);
+
+            if (this.pendingActivities.size() >= Math.max(1, config.getActivityBatchSize())) {
+                fullConfig = this.pendingConfig;
+                fullCallbacks = this.pendingCallbacks;
+                fullBatch = drain();
+            } else if (this.scheduledFlush == null) {
+                this.scheduledFlush = getScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, config.getActivityBatchInterval(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // send outside of the lock, so that other callers are not blocked
+        if (previousBatch != null) {
+            send(previousConfig, previousBatch, previousCallbacks);
+        }
+        if (fullBatch != null) {
+            send(fullConfig, fullBatch, fullCallbacks);
+        }
+    }
+
+    /**
+     * sends the pending activities (if there are any) immediately
+     */
+    public void flush() {
+        final BreinConfig config;
+        final List<ICallback<BreinResult>> callbacks;
+        final BreinActivityBatch batch;
+
+        synchronized (this) {
+            if (this.pendingActivities.isEmpty()) {
+                return;
+            }
+
+            config = this.pendingConfig;
+            callbacks = this.pendingCallbacks;
+            batch = drain();
+        }
+
+        send(config, batch, callbacks);
+    }
+
+    /**
+     * sends the pending activities and stops the timer
+     */
+    public void terminate() {
+        flush();
+
+        synchronized (this) {
+            if (this.scheduler != null) {
+                this.scheduler.shutdownNow();
+                this.scheduler = null;
+            }
+        }
+    }
+
+    /**
+     * retrieves the number of activities waiting to be sent
+     *
+     * @return int number of pending activities
+     */
+    public synchronized int getPendingCount() {
+        return this.pendingActivities.size();
+    }
+
+    /**
+     * Moves the pending activities into a batch and resets the pending state,
+     * must be called while holding the lock.
+     *
+     * @return BreinActivityBatch the batch of all pending activities
+     */
+    private BreinActivityBatch drain() {
+        final BreinActivityBatch batch = new BreinActivityBatch();
+        for (final String activity : this.pendingActivities) {
+            batch.add(activity);
+        }
+
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+
+        this.pendingActivities = new ArrayList<>();
+        this.pendingCallbacks = new ArrayList<>();
+        this.pendingConfig = null;
+
+        return batch;
+    }
+
+    /**
+     * sends the batch and informs the callbacks of the batched activities
+     *
+     * @param config    BreinConfig the configuration to use
+     * @param batch     BreinActivityBatch the batch to be sent
+     * @param callbacks List of the callbacks of the batched activities
+     */
+    private void send(final BreinConfig config,
+                      final BreinActivityBatch batch,
+                      final List<ICallback<BreinResult>> callbacks) {
+        Log.d(TAG, "sending batch of " + batch.size() + " activities");
+
+        // the callbacks are already drained, thus they have to be informed if the engine rejects the batch
+        final BatchCallback batchCallback = new BatchCallback(callbacks);
+        try {
+            this.restEngine.invokeRequest(config, batch, batchCallback);
+        } catch (final RuntimeException e) {
+            Log.d(TAG, "batch rejected by the engine: " + e.getMessage());
+            batchCallback.callback(null);
+        }
+    }
+
+    /**
+     * informs the callbacks of the batched activities about the result (and the status) of the bulk request
+     */
+    private static class BatchCallback implements ICallback<BreinResult>, IStatusListener {
+        private final List<ICallback<BreinResult>> callbacks;
+
+        private BatchCallback(final List<ICallback<BreinResult>> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onStatus(final int status) {
+            for (final ICallback<BreinResult> callback : callbacks) {
+                if (callback instanceof IStatusListener) {
+                    ((IStatusListener) callback).onStatus(status);
+                }
+            }
+        }
+
+        @Override
+        public void callback(final BreinResult data) {
+            for (final ICallback<BreinResult> callback : callbacks) {
+                if (callback != null) {
+                    callback.callback(data);
+                }
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "breinify-batcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this.scheduler;
+    }
+}
@@ -0,0 +1,489 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded ring buffer between the callers adding activities and the engine.
+ * The activities are handed over to the sender by one thread, which keeps at
+ * most the given number of activities in flight, i.e., the buffer fills up if
+ * the activities are added faster than the network drains them. If the buffer
+ * is full, the overflow policy decides which activity is dropped, whether the
+ * caller waits or whether the activity is spilled to a file.
+ * <p>
+ * The depth and the number of dropped and spilled activities are counted, so
+ * that the capacity can be sized for the peak load.
+ * <p>
+ * The callbacks of dropped activities are never invoked while holding the
+ * lock of the buffer. Note that spilling writes to the file on the thread
+ * adding the activity (see {@link BreinOverflowPolicy#SPILL_TO_DISK}).
+ */
+public class BreinActivityBuffer implements Runnable {
+
+    private static final String TAG = "BreinActivityBuffer";
+
+    /**
+     * sends the activities taken from the buffer, e.g., through the batcher or the rest engine
+     */
+    public interface ISender {
+
+        /**
+         * sends the activity, the callback must be invoked when it is done (also if it failed)
+         *
+         * @param config           BreinConfig the configuration the activity was prepared with
+         * @param preparedActivity String the JSON of the activity
+         * @param callback         ICallback to be invoked with the result
+         */
+        void send(final BreinConfig config,
+                  final String preparedActivity,
+                  final ICallback<BreinResult> callback);
+    }
+
+    private final BreinConfig config;
+    private final ISender sender;
+    private final BreinOverflowPolicy overflowPolicy;
+    private final long blockTimeout;
+    private final Semaphore inFlight;
+
+    /**
+     * the ring, the oldest entry is at {@code head}
+     */
+    private final Entry[] ring;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * the overflow written to disk and the entries (without the activity) belonging to the spilled activities of
+     * this run, {@code null} if the activities are not spilled
+     */
+    private final BreinActivitySpill spill;
+    private final LinkedList<Entry> spilledEntries = new LinkedList<>();
+    private final int spillCapacity;
+    private int spilledWithoutEntry;
+
+    /**
+     * the entries dropped while holding the lock, their callbacks are informed after the lock is released
+     */
+    private final List<Entry> droppedEntries = new ArrayList<>();
+
+    private long peakDepth = 0L;
+    private long droppedCount = 0L;
+    private long spilledCount = 0L;
+
+    private boolean terminated = false;
+    private final Thread thread;
+
+    /**
+     * creates the buffer and starts the thread handing the activities over to the sender
+     *
+     * @param config      BreinConfig contains the capacities, the overflow policy and the block timeout, it is also
+     *                    used to send activities spilled by a previous run
+     * @param sender      ISender sends the activities
+     * @param maxInFlight int the number of activities sent at the same time
+     * @param spill       BreinActivitySpill the file to spill to, {@code null} to drop the oldest activities instead
+     */
+    public BreinActivityBuffer(final BreinConfig config,
+                               final ISender sender,
+                               final int maxInFlight,
+                               final BreinActivitySpill spill) {
+        this.config = config;
+        this.sender = sender;
+        this.overflowPolicy = config.getActivityBufferOverflowPolicy() == BreinOverflowPolicy.SPILL_TO_DISK &&
+                spill == null ? BreinOverflowPolicy.DROP_OLDEST : config.getActivityBufferOverflowPolicy();
+        this.blockTimeout = Math.max(0L, config.getActivityBufferBlockTimeout());
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.ring = new Entry[Math.max(1, config.getActivityBufferCapacity())];
+        this.spill = spill;
+        this.spillCapacity = Math.max(1, config.getActivityBufferSpillCapacity());
+        this.spilledWithoutEntry = spill == null ? 0 : spill.getLoadedCount();
+
+        this.thread = new Thread(this, "breinify-activity-buffer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Adds the prepared activity to the buffer, the overflow policy is applied
+     * if the buffer is full. The callback of a dropped activity is invoked with
+     * {@code null}. With the SPILL_TO_DISK policy the activity is written to the
+     * spill file by the calling thread, i.e., this method performs file I/O
+     * while the buffer is full.
+     *
+     * @param config           BreinConfig the configuration the activity was prepared with
+     * @param preparedActivity String the JSON of the activity
+     * @param callback         ICallback invoked with the result, can be {@code null}
+     */
+    public void add(final BreinConfig config,
+                    final String preparedActivity,
+                    final ICallback<BreinResult> callback) {
+        final Entry entry = new Entry(config, preparedActivity, callback);
+        final boolean send;
+
+        synchronized (this) {
+            if (terminated) {
+                send = true;
+            } else if (isSpilling() && spill(entry)) {
+                send = false;
+            } else if (size < ring.length) {
+                push(entry);
+                send = false;
+            } else {
+                final Entry dropped = overflow(entry);
+                if (dropped != null) {
+                    droppedEntries.add(dropped);
+                }
+                send = false;
+            }
+        }
+
+        informDropped();
+        if (send) {
+
+            // the buffer is not used anymore, the activity is sent directly
+            sender.send(config, preparedActivity, callback);
+        }
+    }
+
+    /**
+     * retrieves the number of buffered activities (including the spilled ones)
+     *
+     * @return int the depth of the buffer
+     */
+    public synchronized int getDepth() {
+        return size + (spill == null ? 0 : spill.size());
+    }
+
+    /**
+     * retrieves the maximal depth reached so far
+     *
+     * @return long the peak depth of the buffer
+     */
+    public synchronized long getPeakDepth() {
+        return peakDepth;
+    }
+
+    /**
+     * retrieves the number of activities dropped because the buffer was full
+     *
+     * @return long the number of dropped activities
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * retrieves the number of activities written to the spill file so far
+     *
+     * @return long the number of spilled activities
+     */
+    public synchronized long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * retrieves the policy applied if the buffer is full
+     *
+     * @return BreinOverflowPolicy the policy in use, i.e., {@code DROP_OLDEST} if spilling is not possible
+     */
+    public BreinOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Stops the buffer. The buffered activities are handed over to the sender
+     * (without waiting for the ones in flight), the spilled ones are kept
+     * within the file to be sent by the next run.
+     */
+    public void terminate() {
+        final List<Entry> remaining = new ArrayList<>();
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+
+            while (size > 0) {
+                remaining.add(poll());
+            }
+            if (spill != null) {
+                spill.close();
+            }
+            notifyAll();
+        }
+
+        thread.interrupt();
+        for (final Entry entry : remaining) {
+            sender.send(entry.config, entry.preparedActivity, entry.callback);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                inFlight.acquire();
+            } catch (final InterruptedException e) {
+                return;
+            }
+
+            final Entry entry;
+            try {
+                entry = take();
+            } catch (final InterruptedException e) {
+                return;
+            } finally {
+                informDropped();
+            }
+            if (entry == null) {
+                inFlight.release();
+                if (isTerminated()) {
+                    return;
+                }
+                continue;
+            }
+
+            final ICallback<BreinResult> done = new InFlightCallback(entry.callback);
+
+            try {
+                sender.send(entry.config, entry.preparedActivity, done);
+            } catch (final RuntimeException e) {
+                Log.d(TAG, "activity rejected by the engine: " + e.getMessage());
+                done.callback(null);
+            }
+        }
+    }
+
+    /**
+     * waits for the next activity, the buffered ones are taken before the spilled ones
+     *
+     * @return Entry the next activity, {@code null} if the buffer was terminated or spilled activities were dropped
+     */
+    private synchronized Entry take() throws InterruptedException {
+        while (!terminated) {
+            if (size > 0) {
+                final Entry entry = poll();
+                notifyAll();
+                return entry;
+            } else if (isSpilling()) {
+                final Entry entry = unspill();
+                if (entry != null || !droppedEntries.isEmpty()) {
+                    return entry;
+                }
+            } else {
+                wait();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * applies the overflow policy, must be called while holding the lock
+     *
+     * @return Entry the dropped entry, {@code null} if the entry was buffered or spilled
+     */
+    private Entry overflow(final Entry entry) {
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                droppedCount++;
+                return entry;
+            case BLOCK:
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+                long remaining;
+                while (size >= ring.length && !terminated && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                if (size < ring.length && !terminated) {
+                    push(entry);
+                    return null;
+                }
+
+                Log.d(TAG, "activity buffer is still full after " + blockTimeout + " ms, activity dropped");
+                droppedCount++;
+                return entry;
+            case SPILL_TO_DISK:
+                if (spill(entry)) {
+                    return null;
+                }
+                droppedCount++;
+                return entry;
+            case DROP_OLDEST:
+            default:
+                final Entry oldest = poll();
+                push(entry);
+                droppedCount++;
+                return oldest;
+        }
+    }
+
+    private synchronized boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * invokes the callbacks of the dropped entries with {@code null}, must be called without holding the lock
+     */
+    private void informDropped() {
+        final List<Entry> dropped;
+        synchronized (this) {
+            if (droppedEntries.isEmpty()) {
+                return;
+            }
+            dropped = new ArrayList<>(droppedEntries);
+            droppedEntries.clear();
+        }
+
+        for (final Entry entry : dropped) {
+            if (entry.callback != null) {
+                entry.callback.callback(null);
+            }
+        }
+    }
+
+    private void push(final Entry entry) {
+        ring[(head + size) % ring.length] = entry;
+        size++;
+        peakDepth = Math.max(peakDepth, getDepth());
+        notifyAll();
+    }
+
+    private Entry poll() {
+        final Entry entry = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+
+        return entry;
+    }
+
+    /**
+     * checks if activities are within the spill file, in that case new activities are spilled as well to keep the
+     * order
+     */
+    private boolean isSpilling() {
+        return spill != null && spill.size() > 0;
+    }
+
+    /**
+     * spills the activity, the oldest spilled activity is dropped if the spill file is full
+     */
+    private boolean spill(final Entry entry) {
+        try {
+            if (spill.size() >= spillCapacity) {
+                dropSpilled();
+            }
+            spill.append(entry.preparedActivity);
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to spill the activity: " + e);
+            return false;
+        }
+
+        spilledEntries.add(new Entry(entry.config, null, entry.callback));
+        spilledCount++;
+        peakDepth = Math.max(peakDepth, getDepth());
+        notifyAll();
+
+        return true;
+    }
+
+    /**
+     * drops the oldest spilled activity, the ones of a previous run have no callback
+     */
+    private void dropSpilled() throws IOException {
+        spill.poll();
+        droppedCount++;
+
+        if (spilledWithoutEntry > 0) {
+            spilledWithoutEntry--;
+        } else {
+            final Entry dropped = spilledEntries.poll();
+            if (dropped != null) {
+                droppedEntries.add(dropped);
+            }
+        }
+    }
+
+    private Entry unspill() {
+        final String preparedActivity;
+        try {
+            preparedActivity = spill.poll();
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to read the spilled activities, dropping them: " + e);
+            droppedCount += spill.size();
+            spill.clear();
+            spilledWithoutEntry = 0;
+
+            droppedEntries.addAll(spilledEntries);
+            spilledEntries.clear();
+            return null;
+        }
+
+        // the activities of a previous run come first, they are sent using the current configuration
+        if (spilledWithoutEntry > 0) {
+            spilledWithoutEntry--;
+            return new Entry(config, preparedActivity, null);
+        } else {
+            final Entry entry = spilledEntries.poll();
+            return new Entry(entry.config, preparedActivity, entry.callback);
+        }
+    }
+
+    /**
+     * frees the slot of the sent activity and informs its callback (including the status, if it is interested)
+     */
+    private class InFlightCallback implements ICallback<BreinResult>, IStatusListener {
+        private final ICallback<BreinResult> callback;
+
+        private InFlightCallback(final ICallback<BreinResult> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onStatus(final int status) {
+            if (callback instanceof IStatusListener) {
+                ((IStatusListener) callback).onStatus(status);
+            }
+        }
+
+        @Override
+        public void callback(final BreinResult data) {
+            inFlight.release();
+            if (callback != null) {
+                callback.callback(data);
+            }
+        }
+    }
+
+    /**
+     * an activity within the buffer
+     */
+    private static class Entry {
+        private final BreinConfig config;
+        private final String preparedActivity;
+        private final ICallback<BreinResult> callback;
+
+        private Entry(final BreinConfig config,
+                      final String preparedActivity,
+                      final ICallback<BreinResult> callback) {
+            this.config = config;
+            this.preparedActivity = preparedActivity;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of prepared activities, used to keep activities which
+ * could not be sent (e.g., because the device is offline) across restarts.
+ * <p>
+ * Each activity is appended before it is sent and an acknowledge record is
+ * appended as soon as the activity was accepted by the backend. The callers
+ * only update the pending activities in memory, the records are written by one
+ * background thread, i.e., no disk I/O happens on the thread adding an
+ * activity. Writes are not forced to the disk one by one, instead the journal
+ * is synced at most once per sync interval (group commit) and when it is
+ * closed. Written data is in the page cache of the OS, i.e., it survives a
+ * crash of the app. A record which was only partly written is detected by its
+ * checksum and dropped on load.
+ * <p>
+ * The size (UTF-8 encoded) of the pending activities is bounded, if it is
+ * exceeded the oldest activities are evicted. The file is compacted (by the
+ * background thread) whenever it contains mostly acknowledged records.
+ */
+public class BreinActivityJournal {
+
+    private static final String TAG = "BreinActivityJournal";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * record types
+     */
+    private static final byte APPEND_RECORD = 1;
+    private static final byte ACK_RECORD = 2;
+
+    /**
+     * type (1 byte), id (8 bytes), payload length (4 bytes), crc (4 bytes)
+     */
+    private static final int HEADER_SIZE = 17;
+
+    /**
+     * the file is not compacted as long as it is smaller than this
+     */
+    private static final long MIN_COMPACT_SIZE = 64 * 1024;
+
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    /**
+     * the file of the journal
+     */
+    private final File file;
+
+    /**
+     * maximum size (in bytes) of the pending activities
+     */
+    private final long maxSize;
+
+    /**
+     * minimum time in ns between two syncs of the journal
+     */
+    private final long syncInterval;
+
+    /**
+     * writes the records, syncs and compacts the file
+     */
+    private final ScheduledThreadPoolExecutor writer;
+
+    /**
+     * the pending (not acknowledged) activities (UTF-8 encoded) in the order they were appended
+     */
+    private final Map<Long, byte[]> pending = new LinkedHashMap<>();
+
+    /**
+     * the activities currently being sent
+     */
+    private final Set<Long> inFlight = new HashSet<>();
+
+    /**
+     * the records not written yet, guarded by the instance
+     */
+    private final List<Record> queued = new ArrayList<>();
+    private boolean drainScheduled = false;
+    private boolean closed = false;
+
+    private long nextId = 1;
+    private long pendingBytes = 0;
+
+    /**
+     * the file, only used by the writer (after it was loaded)
+     */
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long lastSync = System.nanoTime();
+    private boolean dirty = false;
+    private boolean syncScheduled = false;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private final Runnable syncTask = new Runnable() {
+        @Override
+        public void run() {
+            syncScheduled = false;
+            force();
+        }
+    };
+
+    /**
+     * Opens (or creates) the journal, pending activities of the file are loaded.
+     *
+     * @param file         File the journal is written to
+     * @param maxSize      long maximum size (in bytes) of the pending activities
+     * @param syncInterval long minimum time in ms between two syncs
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public BreinActivityJournal(final File file, final long maxSize, final long syncInterval) throws IOException {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.syncInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, syncInterval));
+
+        open();
+        load();
+
+        this.writer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "breinify-journal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.writer.setKeepAliveTime(30L, TimeUnit.SECONDS);
+        this.writer.allowCoreThreadTimeOut(true);
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        // the records evicted while loading are written and the file is compacted if needed
+        synchronized (this) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Appends the activity to the journal. The record is written in the background.
+     *
+     * @param preparedActivity String the prepared activity
+     * @return long the id of the journal entry, needed to acknowledge or release it
+     */
+    public long append(final String preparedActivity) {
+        final byte[] payload = preparedActivity.getBytes(UTF8);
+
+        synchronized (this) {
+            final long id = nextId++;
+            enqueue(APPEND_RECORD, id, payload);
+
+            pending.put(id, payload);
+            inFlight.add(id);
+            pendingBytes += payload.length;
+
+            evict();
+            return id;
+        }
+    }
+
+    /**
+     * Marks the activity as sent, i.e., it will not be replayed anymore.
+     *
+     * @param id long the id of the journal entry
+     */
+    public synchronized void acknowledge(final long id) {
+        inFlight.remove(id);
+
+        final byte[] activity = pending.remove(id);
+        if (activity == null) {
+            return;
+        }
+        pendingBytes -= activity.length;
+
+        enqueue(ACK_RECORD, id, NO_PAYLOAD);
+    }
+
+    /**
+     * Marks the activity as not sent, i.e., it will be part of the next replay.
+     *
+     * @param id long the id of the journal entry
+     */
+    public synchronized void release(final long id) {
+        inFlight.remove(id);
+    }
+
+    /**
+     * Retrieves the activities to be replayed, i.e., the pending activities which
+     * are currently not being sent. The returned activities are marked as being sent.
+     *
+     * @return Map of the journal id and the prepared activity, in the order they were appended
+     */
+    public synchronized Map<Long, String> replay() {
+        final Map<Long, String> result = new LinkedHashMap<>();
+        for (final Map.Entry<Long, byte[]> entry : pending.entrySet()) {
+            if (inFlight.add(entry.getKey())) {
+                result.put(entry.getKey(), new String(entry.getValue(), UTF8));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * retrieves the number of pending activities
+     *
+     * @return int number of not acknowledged activities
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes the queued records and forces them to the disk. The caller waits
+     * until the background thread is done, i.e., it must not be called from the
+     * main thread.
+     */
+    public void sync() {
+        final Future<?> synced;
+        try {
+            synced = writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                    force();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+
+            // the journal is closed already
+            return;
+        }
+
+        await(synced);
+    }
+
+    /**
+     * writes the queued records, syncs and closes the journal (waiting for the background thread)
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        final Future<?> done = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+                force();
+
+                try {
+                    randomAccessFile.close();
+                } catch (final IOException e) {
+                    Log.d(TAG, "unable to close journal: " + e);
+                }
+
+                randomAccessFile = null;
+                channel = null;
+            }
+        });
+        writer.shutdown();
+
+        await(done);
+    }
+
+    private void open() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * reads all records of the file, a truncated or corrupt tail is cut off
+     */
+    private void load() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        final CRC32 crc = new CRC32();
+
+        long position = 0;
+        final long size = channel.size();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+
+            final byte type = header.get();
+            final long id = header.getLong();
+            final int length = header.getInt();
+            final int checksum = header.getInt();
+
+            if ((type != APPEND_RECORD && type != ACK_RECORD) || length < 0 ||
+                    position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_SIZE);
+
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            if (type == APPEND_RECORD) {
+                pending.put(id, payload.array());
+                pendingBytes += length;
+            } else {
+                final byte[] activity = pending.remove(id);
+                if (activity != null) {
+                    pendingBytes -= activity.length;
+                }
+            }
+
+            nextId = Math.max(nextId, id + 1);
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            Log.d(TAG, "dropping corrupt journal tail of " + (size - position) + " bytes");
+            channel.truncate(position);
+        }
+        channel.position(position);
+
+        evict();
+    }
+
+    /**
+     * queues the record to be written by the background thread, must be called holding the lock
+     */
+    private void enqueue(final byte type, final long id, final byte[] payload) {
+        queued.add(new Record(type, id, payload));
+        scheduleDrain();
+    }
+
+    /**
+     * must be called holding the lock
+     */
+    private void scheduleDrain() {
+        if (drainScheduled || closed || writer == null) {
+            return;
+        }
+
+        drainScheduled = true;
+        writer.execute(drainTask);
+    }
+
+    /**
+     * writes the queued records, compacts the file if needed and syncs it if due (background thread)
+     */
+    private void drain() {
+        final List<Record> records;
+        synchronized (this) {
+            records = new ArrayList<>(queued);
+            queued.clear();
+            drainScheduled = false;
+        }
+
+        write(records);
+        compactIfNeeded();
+        syncIfDue();
+    }
+
+    private void write(final List<Record> records) {
+        if (channel == null) {
+            return;
+        }
+
+        for (final Record record : records) {
+            try {
+                write(channel, record.type, record.id, record.payload);
+                dirty = true;
+            } catch (final IOException e) {
+                Log.d(TAG, "unable to write to the journal: " + e);
+            }
+        }
+    }
+
+    private static void write(final FileChannel target,
+                              final byte type,
+                              final long id,
+                              final byte[] payload) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.put(type);
+        buffer.putLong(id);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * removes the oldest pending activities until the maximum size is met, must be called holding the lock
+     */
+    private void evict() {
+        final Iterator<Map.Entry<Long, byte[]>> it = pending.entrySet().iterator();
+        while (pendingBytes > maxSize && it.hasNext()) {
+            final Map.Entry<Long, byte[]> entry = it.next();
+            it.remove();
+            inFlight.remove(entry.getKey());
+            pendingBytes -= entry.getValue().length;
+
+            queued.add(new Record(ACK_RECORD, entry.getKey(), NO_PAYLOAD));
+        }
+    }
+
+    /**
+     * forces the written records to the disk, or schedules it if the last sync was too recently (background thread)
+     */
+    private void syncIfDue() {
+        if (!dirty) {
+            return;
+        }
+
+        final long elapsed = System.nanoTime() - lastSync;
+        if (elapsed >= syncInterval) {
+            force();
+        } else if (!syncScheduled) {
+            syncScheduled = true;
+            writer.schedule(syncTask, syncInterval - elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * forces the written records to the disk (background thread)
+     */
+    private void force() {
+        if (!dirty || channel == null) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to sync journal: " + e);
+        }
+
+        dirty = false;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Rewrites the file with the pending activities only, if the file mainly
+     * contains acknowledged activities. The compacted file is written and forced
+     * to the disk before it replaces the current one, which is kept open (and
+     * used further) if the compaction fails. The records queued meanwhile are
+     * part of the pending activities, i.e., they are not written again.
+     */
+    private void compactIfNeeded() {
+        final long size;
+        try {
+            size = channel == null ? 0 : channel.size();
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to determine the size of the journal: " + e);
+            return;
+        }
+
+        final Map<Long, byte[]> snapshot;
+        final List<Record> records;
+        synchronized (this) {
+            if (size < MIN_COMPACT_SIZE || size < 2 * (pendingBytes + HEADER_SIZE * pending.size())) {
+                return;
+            }
+
+            snapshot = new LinkedHashMap<>(pending);
+            records = new ArrayList<>(queued);
+            queued.clear();
+        }
+
+        final File compacted = new File(file.getPath() + ".tmp");
+        RandomAccessFile compactedFile = null;
+        try {
+            compactedFile = new RandomAccessFile(compacted, "rw");
+            compactedFile.setLength(0);
+
+            final FileChannel compactedChannel = compactedFile.getChannel();
+            for (final Map.Entry<Long, byte[]> entry : snapshot.entrySet()) {
+                write(compactedChannel, APPEND_RECORD, entry.getKey(), entry.getValue());
+            }
+            compactedChannel.force(false);
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to compact journal, keeping the current one: " + e);
+            discard(compactedFile, compacted);
+            write(records);
+            return;
+        }
+
+        // the open file follows the rename, thus it is used as the new journal
+        if (!compacted.renameTo(file)) {
+            Log.d(TAG, "unable to replace journal with compacted one, keeping the current one");
+            discard(compactedFile, compacted);
+            write(records);
+            return;
+        }
+
+        try {
+            randomAccessFile.close();
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to close the replaced journal: " + e);
+        }
+
+        randomAccessFile = compactedFile;
+        channel = compactedFile.getChannel();
+        dirty = false;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * closes and deletes the (incomplete) compacted file
+     */
+    private static void discard(final RandomAccessFile compactedFile, final File compacted) {
+        if (compactedFile != null) {
+            try {
+                compactedFile.close();
+            } catch (final IOException e) {
+                Log.d(TAG, "unable to close the compacted journal: " + e);
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        compacted.delete();
+    }
+
+    private static void await(final Future<?> future) {
+        try {
+            future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            Log.d(TAG, "unable to write the journal: " + e.getCause());
+        }
+    }
+
+    /**
+     * a record to be written
+     */
+    private static class Record {
+        private final byte type;
+        private final long id;
+        private final byte[] payload;
+
+        private Record(final byte type, final long id, final byte[] payload) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * File the activity buffer spills its overflow to. The prepared activities are
+ * appended as length-prefixed records and read in the same order, the position
+ * of the next record to read is kept within a header. The file is truncated as
+ * soon as all records are read, and the unread records are moved to the front
+ * once the read ones take up most of the file. Records left by a previous run
+ * are read first, a record which was only partly written is dropped.
+ */
+class BreinActivitySpill {
+
+    private static final String TAG = "BreinActivitySpill";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * the header contains the position of the next record to read
+     */
+    private static final long HEADER_SIZE = 8L;
+
+    /**
+     * the read records must take up at least this many bytes before the file is compacted
+     */
+    private static final long MIN_COMPACT_SIZE = 64L * 1024L;
+
+    private final RandomAccessFile file;
+
+    private long readPosition = HEADER_SIZE;
+    private long writePosition = HEADER_SIZE;
+    private int count = 0;
+
+    /**
+     * the number of records found when the file was opened
+     */
+    private final int loadedCount;
+
+    /**
+     * opens the spill file, the records of a previous run are kept
+     *
+     * @param spillFile File the file to spill to
+     * @throws IOException if the file cannot be opened
+     */
+    BreinActivitySpill(final File spillFile) throws IOException {
+        this(spillFile, true);
+    }
+
+    /**
+     * opens the spill file
+     *
+     * @param spillFile    File the file to spill to
+     * @param keepPrevious boolean {@code false} to discard the records of a previous run, e.g., because they are
+     *                     sent again by the activity journal
+     * @throws IOException if the file cannot be opened
+     */
+    BreinActivitySpill(final File spillFile, final boolean keepPrevious) throws IOException {
+        this.file = new RandomAccessFile(spillFile, "rw");
+
+        final long size = file.length();
+        if (size >= HEADER_SIZE) {
+            file.seek(0L);
+            final long position = file.readLong();
+            readPosition = position < HEADER_SIZE || position > size ? HEADER_SIZE : position;
+            writePosition = readPosition;
+        }
+
+        while (writePosition + 4 <= size) {
+            file.seek(writePosition);
+            final int length = file.readInt();
+            if (length < 0 || writePosition + 4 + length > size) {
+                break;
+            }
+
+            writePosition += 4 + length;
+            count++;
+        }
+
+        if (count > 0 && !keepPrevious) {
+            Log.d(TAG, "discarding the " + count + " activities spilled by a previous run");
+            clear();
+        } else if (count == 0) {
+            clear();
+        } else if (writePosition < size) {
+            Log.d(TAG, "dropping the incomplete record at the end of the spill file");
+            file.setLength(writePosition);
+        }
+        this.loadedCount = count;
+    }
+
+    /**
+     * appends the activity to the file
+     *
+     * @param preparedActivity String the JSON of the activity
+     * @throws IOException if the activity cannot be written
+     */
+    void append(final String preparedActivity) throws IOException {
+        final byte[] payload = preparedActivity.getBytes(UTF8);
+        final byte[] record = new byte[4 + payload.length];
+        record[0] = (byte) (payload.length >>> 24);
+        record[1] = (byte) (payload.length >>> 16);
+        record[2] = (byte) (payload.length >>> 8);
+        record[3] = (byte) payload.length;
+        System.arraycopy(payload, 0, record, 4, payload.length);
+
+        file.seek(writePosition);
+        file.write(record);
+        writePosition += record.length;
+        count++;
+    }
+
+    /**
+     * reads the oldest activity of the file
+     *
+     * @return String the JSON of the activity, {@code null} if the file is empty
+     * @throws IOException if the activity cannot be read
+     */
+    String poll() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+
+        file.seek(readPosition);
+        final byte[] payload = new byte[file.readInt()];
+        file.readFully(payload);
+        readPosition += 4 + payload.length;
+        count--;
+
+        if (count == 0) {
+            clear();
+        } else if (!compact()) {
+            file.seek(0L);
+            file.writeLong(readPosition);
+        }
+
+        return new String(payload, UTF8);
+    }
+
+    /**
+     * Moves the unread records to the front of the file, if they fit in front
+     * of the read position. The records are copied before the file is
+     * truncated and the header is updated, i.e., if the process dies
+     * meanwhile, the header points to the old records or beyond the end of
+     * the file, in which case the copied records are read.
+     *
+     * @return boolean {@code true} if the file was compacted
+     */
+    private boolean compact() throws IOException {
+        final long consumed = readPosition - HEADER_SIZE;
+        final long remaining = writePosition - readPosition;
+        if (consumed < MIN_COMPACT_SIZE || remaining >= consumed) {
+            return false;
+        }
+
+        final byte[] buffer = new byte[8192];
+        long copied = 0L;
+        while (copied < remaining) {
+            final int length = (int) Math.min(buffer.length, remaining - copied);
+            file.seek(readPosition + copied);
+            file.readFully(buffer, 0, length);
+            file.seek(HEADER_SIZE + copied);
+            file.write(buffer, 0, length);
+            copied += length;
+        }
+
+        readPosition = HEADER_SIZE;
+        writePosition = HEADER_SIZE + remaining;
+        file.setLength(writePosition);
+        file.seek(0L);
+        file.writeLong(readPosition);
+
+        return true;
+    }
+
+    /**
+     * removes all records, e.g., if the file cannot be read anymore
+     */
+    void clear() {
+        count = 0;
+        readPosition = HEADER_SIZE;
+        writePosition = HEADER_SIZE;
+
+        try {
+            file.setLength(HEADER_SIZE);
+            file.seek(0L);
+            file.writeLong(HEADER_SIZE);
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to truncate the spill file: " + e);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * retrieves the size of the file
+     *
+     * @return long the size in bytes
+     * @throws IOException if the size cannot be determined
+     */
+    long length() throws IOException {
+        return file.length();
+    }
+
+    int getLoadedCount() {
+        return loadedCount;
+    }
+
+    void close() {
+        try {
+            file.close();
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to close the spill file: " + e);
+        }
+    }
+}
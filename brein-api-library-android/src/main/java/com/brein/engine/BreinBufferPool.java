@@ -0,0 +1,84 @@
+package com.brein.engine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of direct buffers used by the connections of the non-blocking engine.
+ * Allocating direct buffers is expensive and their memory is released late,
+ * thus the buffers of closed connections are reused. The number of pooled
+ * buffers is bounded. The pool is not thread-safe, it is used by the selector
+ * thread only.
+ */
+class BreinBufferPool {
+
+    /**
+     * Size of the pooled buffers, large enough for a TLS record (the packet
+     * and application buffer sizes of an SSLEngine are about 16 KB).
+     */
+    static final int BUFFER_SIZE = 17 * 1024;
+
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    private final int maxPooled;
+
+    private long allocated = 0L;
+
+    /**
+     * creates a pool keeping at most the given number of released buffers
+     *
+     * @param maxPooled int maximum number of buffers kept
+     */
+    BreinBufferPool(final int maxPooled) {
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * retrieves a cleared buffer with at least the given capacity
+     *
+     * @param minCapacity int the needed capacity
+     * @return ByteBuffer the buffer (in write mode)
+     */
+    ByteBuffer acquire(final int minCapacity) {
+        if (minCapacity <= BUFFER_SIZE) {
+            final ByteBuffer buffer = buffers.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+
+        allocated++;
+        return ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, minCapacity));
+    }
+
+    /**
+     * hands the buffer back to the pool, buffers of another size are not kept
+     *
+     * @param buffer ByteBuffer the buffer to release, can be {@code null}
+     */
+    void release(final ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != BUFFER_SIZE || buffers.size() >= maxPooled) {
+            return;
+        }
+
+        buffer.clear();
+        buffers.push(buffer);
+    }
+
+    /**
+     * retrieves the number of buffers allocated by the pool
+     *
+     * @return long number of allocated buffers
+     */
+    long getAllocatedCount() {
+        return allocated;
+    }
+
+    /**
+     * retrieves the number of buffers available for reuse
+     *
+     * @return int number of pooled buffers
+     */
+    int getPooledCount() {
+        return buffers.size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.brein.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defers the bulk requests while interactive requests are pending, i.e.,
+ * waiting for or being sent by a dispatch thread. A bulk request is not
+ * deferred longer than the maximum delay, thus it cannot be starved by a
+ * steady stream of interactive requests.
+ */
+class BreinBulkGate {
+    private int interactivePending = 0;
+    private boolean deferring = true;
+
+    /**
+     * an interactive request was handed over to the dispatch executor
+     */
+    synchronized void interactiveQueued() {
+        interactivePending++;
+    }
+
+    /**
+     * an interactive request was sent (or dropped), the waiting bulk requests pass if it was the last one
+     */
+    synchronized void interactiveDone() {
+        interactivePending--;
+        if (interactivePending <= 0) {
+            interactivePending = 0;
+            notifyAll();
+        }
+    }
+
+    synchronized int getInteractivePending() {
+        return interactivePending;
+    }
+
+    /**
+     * the bulk requests are not deferred anymore, e.g., because the engine is terminated
+     */
+    synchronized void stopDeferring() {
+        deferring = false;
+        notifyAll();
+    }
+
+    /**
+     * Waits until no interactive request is pending, or the bulk request was
+     * deferred for the maximum delay.
+     *
+     * @param queuedTime long the time the bulk request was queued (as returned by {@link System#nanoTime()})
+     * @param maxDelay   long the maximum delay in ms
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    synchronized void awaitTurn(final long queuedTime, final long maxDelay) throws InterruptedException {
+        final long deadline = queuedTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxDelay));
+
+        long remaining;
+        while (deferring && interactivePending > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+}
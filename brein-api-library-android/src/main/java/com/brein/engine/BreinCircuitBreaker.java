@@ -0,0 +1,210 @@
+package com.brein.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of an endpoint. After several failed requests in a row the
+ * breaker opens and requests are not sent anymore, instead they are kept in a
+ * bounded buffer. After the open time a single request is let through to probe
+ * the endpoint. If it succeeds the breaker closes and the buffered requests are
+ * released, otherwise the breaker opens again. Whoever buffers a request while
+ * no probe is scheduled has to schedule one (see {@link #claimProbe()}).
+ *
+ * @param <T> the type of the buffered requests
+ */
+public class BreinCircuitBreaker<T> {
+
+    /**
+     * the states of the breaker
+     */
+    public enum State {
+
+        /**
+         * requests are sent
+         */
+        CLOSED,
+
+        /**
+         * requests are buffered
+         */
+        OPEN,
+
+        /**
+         * a single request probes the endpoint, others are buffered
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openTime;
+    private final int bufferSize;
+
+    private final Deque<T> buffer = new ArrayDeque<>();
+
+    private volatile State state = State.CLOSED;
+    private volatile int failures = 0;
+    private long openedAt = 0L;
+    private boolean probeScheduled = false;
+
+    /**
+     * creates a closed breaker
+     *
+     * @param failureThreshold int number of failed requests in a row, which opens the breaker
+     * @param openTime         long time in ms the breaker stays open
+     * @param bufferSize       int maximum number of buffered requests
+     */
+    public BreinCircuitBreaker(final int failureThreshold, final long openTime, final int bufferSize) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openTime = Math.max(0L, openTime);
+        this.bufferSize = Math.max(1, bufferSize);
+    }
+
+    /**
+     * Checks if a request can be sent. If the open time elapsed, the breaker
+     * becomes half-open and the caller is allowed to send the probe. If the
+     * probe is not answered within the open time (e.g., because it was dropped),
+     * another probe is allowed.
+     *
+     * @return boolean true if the request can be sent
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+            if (state != State.CLOSED && now - openedAt >= TimeUnit.MILLISECONDS.toNanos(openTime)) {
+                state = State.HALF_OPEN;
+                openedAt = now;
+                return true;
+            }
+
+            return state == State.CLOSED;
+        }
+    }
+
+    /**
+     * Marks the last request as succeeded, the breaker is closed. This is also
+     * the case if the endpoint answered with a failure, which is not temporary.
+     *
+     * @return List of the buffered requests, which have to be sent now
+     */
+    public List<T> onSuccess() {
+        if (state == State.CLOSED && failures == 0) {
+            return Collections.emptyList();
+        }
+
+        synchronized (this) {
+            failures = 0;
+            state = State.CLOSED;
+
+            final List<T> released = new ArrayList<>(buffer);
+            buffer.clear();
+            return released;
+        }
+    }
+
+    /**
+     * marks the last request as failed
+     *
+     * @return boolean true if the breaker was opened by this failure
+     */
+    public synchronized boolean onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Buffers the request until the breaker closes. If the breaker was closed in
+     * the meantime, the request is not buffered and returned to be sent.
+     *
+     * @param request T the request to buffer
+     * @return T the request which is not buffered: the given one if the breaker is closed, the oldest one if the
+     * buffer is full, otherwise {@code null}
+     */
+    public synchronized T buffer(final T request) {
+        if (state == State.CLOSED) {
+            return request;
+        }
+
+        final T evicted = buffer.size() >= bufferSize ? buffer.pollFirst() : null;
+        buffer.addLast(request);
+
+        return evicted;
+    }
+
+    /**
+     * Claims the scheduling of the next probe. Returns true at most once until
+     * the scheduled probe is taken by {@link #pollProbe()}, as long as the
+     * breaker is not closed.
+     *
+     * @return boolean true if the caller has to schedule a probe
+     */
+    public synchronized boolean claimProbe() {
+        if (state == State.CLOSED || probeScheduled) {
+            return false;
+        }
+
+        probeScheduled = true;
+        return true;
+    }
+
+    /**
+     * removes the oldest buffered request to be sent as the scheduled probe, the next probe can be claimed afterwards
+     *
+     * @return T the oldest request, {@code null} if none is buffered
+     */
+    public synchronized T pollProbe() {
+        probeScheduled = false;
+        return buffer.pollFirst();
+    }
+
+    /**
+     * removes the oldest buffered request, e.g., to use it as probe
+     *
+     * @return T the oldest request, {@code null} if none is buffered
+     */
+    public synchronized T poll() {
+        return buffer.pollFirst();
+    }
+
+    /**
+     * removes all buffered requests
+     *
+     * @return List of the buffered requests
+     */
+    public synchronized List<T> drain() {
+        final List<T> drained = new ArrayList<>(buffer);
+        buffer.clear();
+        return drained;
+    }
+
+    /**
+     * retrieves the number of buffered requests
+     *
+     * @return int number of buffered requests
+     */
+    public synchronized int getBufferedCount() {
+        return buffer.size();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getOpenTime() {
+        return openTime;
+    }
+}
@@ -0,0 +1,72 @@
+package com.brein.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests and the physical connections opened for them, used to
+ * verify that connections (and with them the TCP and TLS handshakes) are
+ * reused. New connections are counted whenever a socket is created, which is
+ * only observable for HTTPS connections.
+ */
+public class BreinConnectionStats {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    /**
+     * increments the number of requests
+     */
+    public void requestSent() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * increments the number of physical connections
+     */
+    public void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * retrieves the number of requests sent
+     *
+     * @return long number of requests
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * retrieves the number of physical connections opened
+     *
+     * @return long number of connections
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * retrieves the number of requests which were sent using an already open
+     * connection, i.e., without a new handshake
+     *
+     * @return long number of requests reusing a connection
+     */
+    public long getReusedCount() {
+        return Math.max(0, requests.get() - connections.get());
+    }
+
+    /**
+     * resets the counters
+     */
+    public void reset() {
+        requests.set(0);
+        connections.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "requests: " + getRequestCount()
+                + ", connections: " + getConnectionCount()
+                + ", reused: " + getReusedCount();
+    }
+}
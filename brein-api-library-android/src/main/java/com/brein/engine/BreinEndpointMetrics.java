@@ -0,0 +1,171 @@
+package com.brein.engine;
+
+/**
+ * Aggregated measurements of all requests sent to one endpoint. Times are in
+ * microseconds, sizes in bytes.
+ */
+public class BreinEndpointMetrics {
+
+    private final String endpoint;
+
+    private final BreinStripedCounter sent = new BreinStripedCounter();
+    private final BreinStripedCounter succeeded = new BreinStripedCounter();
+    private final BreinStripedCounter failed = new BreinStripedCounter();
+    private final BreinStripedCounter retried = new BreinStripedCounter();
+    private final BreinStripedCounter dropped = new BreinStripedCounter();
+
+    private final BreinStripedCounter bytesOut = new BreinStripedCounter();
+    private final BreinStripedCounter uncompressedBytesOut = new BreinStripedCounter();
+    private final BreinStripedCounter bytesIn = new BreinStripedCounter();
+
+    private final BreinHistogram serializationTime = new BreinHistogram();
+    private final BreinHistogram queueWait = new BreinHistogram();
+    private final BreinHistogram connectTime = new BreinHistogram();
+    private final BreinHistogram timeToFirstByte = new BreinHistogram();
+    private final BreinHistogram totalLatency = new BreinHistogram();
+
+    public BreinEndpointMetrics(final String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * adds the measurements of the request
+     *
+     * @param metrics BreinRequestMetrics the measurements of a request to this endpoint
+     */
+    public void record(final BreinRequestMetrics metrics) {
+        switch (metrics.getOutcome()) {
+            case SUCCEEDED:
+                succeeded.increment();
+                break;
+            case RETRIED:
+                retried.increment();
+                break;
+            case DROPPED:
+                dropped.increment();
+                break;
+            default:
+                failed.increment();
+                break;
+        }
+
+        if (metrics.getOutcome() != BreinRequestMetrics.Outcome.DROPPED) {
+            sent.increment();
+        }
+
+        bytesOut.add(metrics.getBytesOut());
+        uncompressedBytesOut.add(metrics.getUncompressedBytesOut());
+        bytesIn.add(metrics.getBytesIn());
+
+        serializationTime.record(metrics.getSerializationTime());
+        queueWait.record(metrics.getQueueWait());
+        connectTime.record(metrics.getConnectTime());
+        timeToFirstByte.record(metrics.getTimeToFirstByte());
+        totalLatency.record(metrics.getTotalLatency());
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * retrieves the number of sent requests, i.e., of all attempts which were not dropped
+     *
+     * @return long number of sent requests
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * retrieves the size of the request bodies before they were compressed
+     *
+     * @return long the size in bytes
+     */
+    public long getUncompressedBytesOut() {
+        return uncompressedBytesOut.sum();
+    }
+
+    /**
+     * retrieves the ratio of the size of the request bodies before and after the compression
+     *
+     * @return double the ratio, e.g., 5.0 if the bodies were compressed to a fifth, 1.0 if nothing was sent
+     */
+    public double getCompressionRatio() {
+        final long sent = getBytesOut();
+        return sent == 0 ? 1.0 : (double) getUncompressedBytesOut() / sent;
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public BreinHistogram getSerializationTime() {
+        return serializationTime;
+    }
+
+    public BreinHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public BreinHistogram getConnectTime() {
+        return connectTime;
+    }
+
+    public BreinHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public BreinHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    /**
+     * resets all counters and histograms
+     */
+    public void reset() {
+        sent.reset();
+        succeeded.reset();
+        failed.reset();
+        retried.reset();
+        dropped.reset();
+        bytesOut.reset();
+        uncompressedBytesOut.reset();
+        bytesIn.reset();
+
+        serializationTime.reset();
+        queueWait.reset();
+        connectTime.reset();
+        timeToFirstByte.reset();
+        totalLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + ": sent " + getSentCount() + ", succeeded " + getSucceededCount() +
+                ", failed " + getFailedCount() + ", retried " + getRetriedCount() +
+                ", dropped " + getDroppedCount() + ", out " + getBytesOut() + "B (uncompressed " +
+                getUncompressedBytesOut() + "B), in " + getBytesIn() + "B" +
+                ", latency [" + totalLatency + "]";
+    }
+}
@@ -1,30 +1,104 @@
 package com.brein.engine;
 
+import android.app.Application;
+import android.util.Log;
+
 import com.brein.api.BreinActivity;
 import com.brein.api.BreinBase;
 import com.brein.api.BreinLookup;
+import com.brein.api.BreinPreparedActivity;
+import com.brein.api.BreinRecommendation;
+import com.brein.api.BreinTemporalData;
 import com.brein.api.ICallback;
 import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinResult;
+import com.brein.util.BreinUtil;
 
-import static com.brein.engine.BreinEngineType.HTTP_URL_CONNECTION_ENGINE;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 
 /**
- * Creates the Rest Engine (currently only unirest) and provides the methods to
- * invoke activity and lookup calls
+ * Creates the Rest Engine (selected by the BreinEngineType, see
+ * BreinEngineRegistry) and provides the methods to invoke activity and lookup
+ * calls
  */
 public class BreinEngine {
 
+    private static final String TAG = "BreinEngine";
+
+    /**
+     * name of the activity journal within the files directory of the application
+     */
+    private static final String ACTIVITY_JOURNAL_FILE = "breinify-activities.journal";
+
+    /**
+     * name of the file the recommendation results are cached in, within the files directory of the application
+     */
+    private static final String RECOMMENDATION_CACHE_FILE = "breinify-recommendations.cache";
+
+    /**
+     * name of the file the activity buffer spills to, within the files directory of the application
+     */
+    private static final String ACTIVITY_SPILL_FILE = "breinify-activities.spill";
+
     /**
      * creation of rest com.brein.engine.
      */
     private IRestEngine restEngine = null;
 
     /**
-     * Creates the com.brein.engine
+     * the type of the rest engine, it cannot be changed after the creation
+     */
+    private final BreinEngineType restEngineType;
+
+    /**
+     * collects activities if batching is enabled
+     */
+    private BreinActivityBatcher activityBatcher = null;
+
+    /**
+     * answers temporal data requests if caching is enabled
+     */
+    private BreinTemporalDataCache temporalDataCache = null;
+
+    /**
+     * answers recommendation requests if caching is enabled, created lazily
+     */
+    private BreinRecommendationCache recommendationCache = null;
+
+    /**
+     * keeps the activities until they are sent if journaling is enabled, created lazily
+     */
+    private BreinActivityJournal activityJournal = null;
+
+    /**
+     * bounds the activities not sent so far if buffering is enabled, created lazily
+     */
+    private BreinActivityBuffer activityBuffer = null;
+
+    /**
+     * contains the measurements of the sent requests
+     */
+    private final BreinMetrics metrics = new BreinMetrics();
+
+    /**
+     * Creates the com.brein.engine using the default rest engine
      */
     public BreinEngine() {
-        restEngine = new HttpUrlRestEngine();
+        this(BreinEngineRegistry.DEFAULT_ENGINE_TYPE);
+    }
+
+    /**
+     * Creates the com.brein.engine using the rest engine of the type
+     *
+     * @param restEngineType BreinEngineType the type of the rest engine, {@code null} to use the default
+     */
+    public BreinEngine(final BreinEngineType restEngineType) {
+        this.restEngineType = restEngineType == null ? BreinEngineRegistry.DEFAULT_ENGINE_TYPE : restEngineType;
+        restEngine = BreinEngineRegistry.create(this.restEngineType, metrics);
+        activityBatcher = new BreinActivityBatcher(restEngine);
+        temporalDataCache = new BreinTemporalDataCache(restEngine);
     }
 
     /**
@@ -40,7 +114,8 @@ public class BreinEngine {
 
     /**
      * performs a lookup. This will be delegated to the
-     * configured restEngine.
+     * configured restEngine. The calling thread is blocked
+     * until the result is received (see {@link IRestEngine#doLookup(BreinLookup)}).
      *
      * @param breinLookup contains the appropriate data for the lookup
      *                    request
@@ -68,22 +143,353 @@ public class BreinEngine {
      * @param breinConfig configuration object
      */
     public void configure(final BreinConfig breinConfig) {
+        if (breinConfig != null && breinConfig.getRestEngineType() != null &&
+                breinConfig.getRestEngineType() != restEngineType) {
+            Log.d(TAG, "the engine type cannot be changed, keeping: " + restEngineType);
+        }
         restEngine.configure(breinConfig);
+
+        // the persisted recommendations are read in the background, before the first one is requested
+        if (breinConfig != null && breinConfig.isRecommendationCaching()) {
+            getRecommendationCache(breinConfig);
+        }
+    }
+
+    /**
+     * retrieves the type of the rest engine
+     *
+     * @return BreinEngineType the type of the rest engine
+     */
+    public BreinEngineType getRestEngineType() {
+        return restEngineType;
     }
 
+    /**
+     * retrieves the type of the rest engine, the parameter is ignored
+     *
+     * @param engine BreinEngineType not used
+     * @return BreinEngineType the type of the rest engine
+     * @deprecated use {@link #getRestEngineType()} instead
+     */
+    @Deprecated
     BreinEngineType getRestEngineType(final BreinEngineType engine) {
-        return HTTP_URL_CONNECTION_ENGINE;
+        return getRestEngineType();
     }
-    
+
+    /**
+     * invokes the request, activities are buffered or batched if enabled and
+     * temporal data or recommendations are cached if caching is enabled within
+     * the configuration
+     *
+     * @param config   BreinConfig contains the configuration object
+     * @param data     BreinBase contains the object to send
+     * @param callback ICallback contains the callback handler
+     */
     public void invoke(final BreinConfig config, final BreinBase data, final ICallback<BreinResult> callback) {
-        getEngine(config).invokeRequest(config, data, callback);
+        if (config != null && data instanceof BreinActivity && (config.isActivityBatching() ||
+                config.isActivityJournaling() || config.isActivityBuffering())) {
+            invokeActivity(config, (BreinActivity) data, callback);
+        } else if (config != null && data instanceof BreinTemporalData && config.isTemporalDataCaching()) {
+            temporalDataCache.invoke(config, (BreinTemporalData) data, callback);
+        } else if (config != null && data instanceof BreinRecommendation && config.isRecommendationCaching()) {
+            getRecommendationCache(config).invoke(config, (BreinRecommendation) data, callback);
+        } else {
+            getEngine(config).invokeRequest(config, data, callback);
+        }
+    }
+
+    /**
+     * Sends the activities of the journal, which were not accepted by the backend
+     * so far (e.g., because the device was offline).
+     *
+     * @param config BreinConfig contains the configuration object
+     */
+    public void replayActivities(final BreinConfig config) {
+        final BreinActivityJournal journal = getActivityJournal(config);
+        if (journal == null) {
+            return;
+        }
+
+        final Map<Long, String> activities = journal.replay();
+        if (!activities.isEmpty()) {
+            Log.d(TAG, "replaying " + activities.size() + " activities of the journal");
+        }
+
+        for (final Map.Entry<Long, String> entry : activities.entrySet()) {
+            invokePrepared(config, entry.getValue(), new JournalCallback(journal, entry.getKey(), null));
+        }
+    }
+
+    /**
+     * prepares the activity, writes it to the journal (if enabled) and sends it
+     * (buffered and batched if enabled)
+     */
+    private void invokeActivity(final BreinConfig config,
+                                final BreinActivity activity,
+                                final ICallback<BreinResult> callback) {
+
+        // validate the input objects
+        BreinUtil.validate(activity);
+        final String preparedActivity = BreinUtil.getRequestBody(config, activity);
+
+        // a journaled activity dropped by the buffer is released, i.e., it is replayed later
+        final BreinActivityJournal journal = getActivityJournal(config);
+        final ICallback<BreinResult> activityCallback;
+        if (journal == null) {
+            activityCallback = callback;
+        } else {
+            final long id = journal.append(preparedActivity);
+            activityCallback = new JournalCallback(journal, id, callback);
+        }
+
+        final BreinActivityBuffer buffer = getActivityBuffer(config);
+        if (buffer == null) {
+            invokePrepared(config, preparedActivity, activityCallback);
+        } else {
+            buffer.add(config, preparedActivity, activityCallback);
+        }
+    }
+
+    private void invokePrepared(final BreinConfig config,
+                                final String preparedActivity,
+                                final ICallback<BreinResult> callback) {
+        if (config.isActivityBatching()) {
+            activityBatcher.addPrepared(config, preparedActivity, callback);
+        } else {
+            getEngine(config).invokeRequest(config, new BreinPreparedActivity(preparedActivity), callback);
+        }
+    }
+
+    /**
+     * retrieves the activity journal, it is opened with the first call
+     *
+     * @param config BreinConfig contains the configuration object
+     * @return BreinActivityJournal the journal or {@code null} if journaling is
+     * disabled or not possible
+     */
+    protected synchronized BreinActivityJournal getActivityJournal(final BreinConfig config) {
+        if (this.activityJournal != null || config == null || !config.isActivityJournaling()) {
+            return this.activityJournal;
+        }
+
+        final Application application = config.getApplication();
+        final File filesDir = application == null ? null : application.getFilesDir();
+        if (filesDir == null) {
+            Log.d(TAG, "activity journaling not possible, because application object not set");
+            return null;
+        }
+
+        try {
+            this.activityJournal = new BreinActivityJournal(new File(filesDir, ACTIVITY_JOURNAL_FILE),
+                    config.getActivityJournalMaxSize(),
+                    config.getActivityJournalSyncInterval());
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to open activity journal: " + e);
+        }
+
+        return this.activityJournal;
+    }
+
+    /**
+     * Retrieves the activity buffer, it is created with the first call. The
+     * buffer sends as many activities at the same time as the rest engine
+     * dispatches bulk requests (times the batch size if batching is enabled).
+     *
+     * @param config BreinConfig contains the configuration object
+     * @return BreinActivityBuffer the buffer or {@code null} if buffering is disabled
+     */
+    protected synchronized BreinActivityBuffer getActivityBuffer(final BreinConfig config) {
+        if (this.activityBuffer != null || config == null || !config.isActivityBuffering()) {
+            return this.activityBuffer;
+        }
+
+        BreinActivitySpill spill = null;
+        if (config.getActivityBufferOverflowPolicy() == BreinOverflowPolicy.SPILL_TO_DISK) {
+            final Application application = config.getApplication();
+            final File filesDir = application == null ? null : application.getFilesDir();
+            if (filesDir == null) {
+                Log.d(TAG, "activities are not spilled, because application object not set");
+            } else {
+                try {
+
+                    // spilled activities are journaled as well, the journal replays the ones of a previous run
+                    spill = new BreinActivitySpill(new File(filesDir, ACTIVITY_SPILL_FILE),
+                            getActivityJournal(config) == null);
+                } catch (final IOException e) {
+                    Log.d(TAG, "unable to open the activity spill file: " + e);
+                }
+            }
+        }
+
+        final int maxInFlight = Math.max(1, config.getDispatchBulkConcurrency()) *
+                (config.isActivityBatching() ? Math.max(1, config.getActivityBatchSize()) : 1);
+        this.activityBuffer = new BreinActivityBuffer(config, new BreinActivityBuffer.ISender() {
+            @Override
+            public void send(final BreinConfig config,
+                             final String preparedActivity,
+                             final ICallback<BreinResult> callback) {
+                invokePrepared(config, preparedActivity, callback);
+            }
+        }, maxInFlight, spill);
+
+        return this.activityBuffer;
+    }
+
+    /**
+     * returns the buffer of the activities, e.g., to read its depth and the number of dropped activities
+     *
+     * @return BreinActivityBuffer the buffer or {@code null} if buffering is disabled or no activity was sent so far
+     */
+    public synchronized BreinActivityBuffer getActivityBuffer() {
+        return activityBuffer;
+    }
+
+    /**
+     * Retrieves the cache of the recommendation results, it is created with the
+     * first call (or when the engine is configured with recommendation caching).
+     * The results are persisted if the application is set.
+     *
+     * @param config BreinConfig contains the configuration object
+     * @return BreinRecommendationCache the cache
+     */
+    public synchronized BreinRecommendationCache getRecommendationCache(final BreinConfig config) {
+        if (this.recommendationCache != null) {
+            return this.recommendationCache;
+        }
+
+        final Application application = config == null ? null : config.getApplication();
+        final File filesDir = application == null ? null : application.getFilesDir();
+        if (filesDir == null) {
+            Log.d(TAG, "recommendations are not persisted, because application object not set");
+        }
+
+        this.recommendationCache = new BreinRecommendationCache(restEngine,
+                filesDir == null ? null : new File(filesDir, RECOMMENDATION_CACHE_FILE));
+        return this.recommendationCache;
+    }
+
+    /**
+     * sends all batched activities immediately
+     */
+    public void flush() {
+        activityBatcher.flush();
+    }
+
+    /**
+     * returns the batcher collecting the activities
+     *
+     * @return BreinActivityBatcher the batcher
+     */
+    public BreinActivityBatcher getActivityBatcher() {
+        return activityBatcher;
+    }
+
+    /**
+     * returns the cache answering temporal data requests
+     *
+     * @return BreinTemporalDataCache the cache
+     */
+    public BreinTemporalDataCache getTemporalDataCache() {
+        return temporalDataCache;
+    }
+
+    /**
+     * retrieves the statistics of the sent requests and opened connections
+     *
+     * @return BreinConnectionStats the statistics of the rest engine
+     */
+    public BreinConnectionStats getConnectionStats() {
+        return restEngine.getConnectionStats();
+    }
+
+    /**
+     * Retrieves the measurements of the sent requests, i.e., the counters and
+     * latencies per endpoint. Listeners can be added to the returned registry
+     * to be informed about each request.
+     *
+     * @return BreinMetrics the metrics of the requests
+     */
+    public BreinMetrics getMetrics() {
+        return metrics;
     }
 
     protected IRestEngine getEngine(final BreinConfig config) {
         return restEngine;
     }
 
+    /**
+     * terminates the rest engine, i.e., sends the buffered and batched
+     * activities, stops the dispatching of requests and closes the activity
+     * journal and the recommendation cache
+     */
     public void terminate() {
+        final BreinActivityBuffer buffer;
+        synchronized (this) {
+            buffer = this.activityBuffer;
+            this.activityBuffer = null;
+        }
+        if (buffer != null) {
+            buffer.terminate();
+        }
+
+        activityBatcher.terminate();
+        restEngine.terminate();
+
+        synchronized (this) {
+            if (this.activityJournal != null) {
+                this.activityJournal.close();
+                this.activityJournal = null;
+            }
+            if (this.recommendationCache != null) {
+                this.recommendationCache.close();
+                this.recommendationCache = null;
+            }
+        }
+    }
+
+    /**
+     * Acknowledges the journal entry if the request succeeded (i.e., it was
+     * answered with any 2xx status). An entry refused by the backend (i.e., a
+     * 4xx status, except 429) is removed as well, because it would be refused
+     * again. Otherwise the entry is kept to be replayed later.
+     */
+    private static class JournalCallback implements ICallback<BreinResult>, IStatusListener {
+        private final BreinActivityJournal journal;
+        private final long id;
+        private final ICallback<BreinResult> callback;
+        private volatile int status = -1;
+
+        JournalCallback(final BreinActivityJournal journal,
+                        final long id,
+                        final ICallback<BreinResult> callback) {
+            this.journal = journal;
+            this.id = id;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onStatus(final int status) {
+            this.status = status;
+            if (callback instanceof IStatusListener) {
+                ((IStatusListener) callback).onStatus(status);
+            }
+        }
+
+        @Override
+        public void callback(final BreinResult data) {
+            if (data != null || BreinRetryPolicy.isSuccessful(status)) {
+                journal.acknowledge(id);
+            } else if (BreinRetryPolicy.isRejected(status)) {
+                Log.d(TAG, "activity refused with status " + status + ", removing it from the journal");
+                journal.acknowledge(id);
+            } else {
+                journal.release(id);
+            }
+
+            if (callback != null) {
+                callback.callback(data);
+            }
+        }
     }
 
 }
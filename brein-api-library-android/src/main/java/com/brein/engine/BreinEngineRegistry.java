@@ -0,0 +1,124 @@
+package com.brein.engine;
+
+import com.brein.api.BreinException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the rest engines, keyed by the {@link BreinEngineType} selected
+ * within the configuration (see {@code BreinConfig.setRestEngineType}). Every
+ * type has a default implementation, which can be replaced, e.g., by an engine
+ * used for testing.
+ */
+public class BreinEngineRegistry {
+
+    /**
+     * the type used if none is specified
+     */
+    public static final BreinEngineType DEFAULT_ENGINE_TYPE = BreinEngineType.HTTP_URL_CONNECTION_ENGINE;
+
+    private static final Map<BreinEngineType, IRestEngineFactory> FACTORIES = new ConcurrentHashMap<>();
+
+    static {
+        registerDefaults();
+    }
+
+    private BreinEngineRegistry() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * Registers the factory creating the engines of the type, engines created
+     * already are not affected.
+     *
+     * @param type    BreinEngineType the type of the engines
+     * @param factory IRestEngineFactory creates the engines of the type
+     * @return IRestEngineFactory the factory registered before, {@code null} if there was none
+     */
+    public static IRestEngineFactory register(final BreinEngineType type, final IRestEngineFactory factory) {
+        if (type == null || factory == null) {
+            throw new BreinException("the type and the factory of an engine must be specified");
+        }
+
+        return FACTORIES.put(type, factory);
+    }
+
+    /**
+     * Removes the factory of the type, engines of the type cannot be created
+     * anymore.
+     *
+     * @param type BreinEngineType the type of the engines
+     * @return IRestEngineFactory the removed factory, {@code null} if there was none
+     */
+    public static IRestEngineFactory unregister(final BreinEngineType type) {
+        return type == null ? null : FACTORIES.remove(type);
+    }
+
+    /**
+     * checks if a factory is registered for the type
+     *
+     * @param type BreinEngineType the type of the engines
+     * @return boolean true if engines of the type can be created
+     */
+    public static boolean isRegistered(final BreinEngineType type) {
+        return type != null && FACTORIES.containsKey(type);
+    }
+
+    /**
+     * creates an engine of the type
+     *
+     * @param type    BreinEngineType the type of the engine, {@code null} to use the default type
+     * @param metrics BreinMetrics the registry the engine records its measurements in
+     * @return IRestEngine the created (not configured) engine
+     * @throws BreinException if no factory is registered for the type
+     */
+    public static IRestEngine create(final BreinEngineType type, final BreinMetrics metrics) {
+        final BreinEngineType engineType = type == null ? DEFAULT_ENGINE_TYPE : type;
+        final IRestEngineFactory factory = FACTORIES.get(engineType);
+        if (factory == null) {
+            throw new BreinException("no engine registered for type: " + engineType);
+        }
+
+        final IRestEngine engine = factory.create(metrics);
+        if (engine == null) {
+            throw new BreinException("the factory of type " + engineType + " did not create an engine");
+        }
+
+        return engine;
+    }
+
+    /**
+     * replaces all registered factories with the default implementations
+     */
+    public static void registerDefaults() {
+        FACTORIES.clear();
+        FACTORIES.put(BreinEngineType.HTTP_URL_CONNECTION_ENGINE, new IRestEngineFactory() {
+            @Override
+            public IRestEngine create(final BreinMetrics metrics) {
+                return new HttpUrlRestEngine(metrics);
+            }
+        });
+        FACTORIES.put(BreinEngineType.NIO_ENGINE, new IRestEngineFactory() {
+            @Override
+            public IRestEngine create(final BreinMetrics metrics) {
+                return new NioRestEngine(metrics);
+            }
+        });
+        FACTORIES.put(BreinEngineType.HTTP2_ENGINE, new IRestEngineFactory() {
+            @Override
+            public IRestEngine create(final BreinMetrics metrics) {
+                return new Http2RestEngine(metrics);
+            }
+        });
+        FACTORIES.put(BreinEngineType.NO_ENGINE, new IRestEngineFactory() {
+            @Override
+            public IRestEngine create(final BreinMetrics metrics) {
+                return new NoRestEngine();
+            }
+        });
+    }
+}
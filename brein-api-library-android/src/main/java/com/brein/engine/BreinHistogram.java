@@ -0,0 +1,138 @@
+package com.brein.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values (e.g., durations in microseconds).
+ * The values are counted in buckets with exponentially growing bounds, i.e.,
+ * bucket {@code i} contains the values in {@code [2^(i-1), 2^i)}. Percentiles
+ * are therefore estimates, reported as the upper bound of the bucket.
+ */
+public class BreinHistogram {
+
+    /**
+     * one bucket for 0 and one for each possible bit length of a positive long
+     */
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final BreinStripedCounter count = new BreinStripedCounter();
+    private final BreinStripedCounter sum = new BreinStripedCounter();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * records the value, negative values are ignored
+     *
+     * @param value long the value to record
+     */
+    public void record(final long value) {
+        if (value < 0) {
+            return;
+        }
+
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * retrieves the number of recorded values
+     *
+     * @return long number of values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * retrieves the sum of the recorded values
+     *
+     * @return long sum of the values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * retrieves the largest recorded value
+     *
+     * @return long the maximum, 0 if no value was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * retrieves the mean of the recorded values
+     *
+     * @return double the mean, 0 if no value was recorded
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0.0 : (double) getSum() / count;
+    }
+
+    /**
+     * Estimates the percentile of the recorded values, the result is the upper
+     * bound of the bucket containing the percentile (but at most the maximum).
+     *
+     * @param percentile double the percentile, e.g., 0.99
+     *
+     * @return long the estimated value, 0 if no value was recorded
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * resets the histogram, concurrent updates may be lost
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return "count: " + getCount() + ", mean: " + Math.round(getMean()) + ", p50: " + getPercentile(0.5) +
+                ", p99: " + getPercentile(0.99) + ", max: " + getMax();
+    }
+
+    private static int bucket(final long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long upperBound(final int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
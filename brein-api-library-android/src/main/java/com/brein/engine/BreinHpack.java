@@ -0,0 +1,482 @@
+package com.brein.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The header compression of HTTP/2 (HPACK, see RFC 7541). Both sides of a
+ * connection keep a table of the recently sent headers, thus a header sent
+ * before (e.g., {@code content-type: application/json}) is sent as an index
+ * using a single byte. Each connection needs its own encoder and decoder, they
+ * are not thread-safe.
+ */
+class BreinHpack {
+
+    /**
+     * size of the dynamic table if not changed by the settings of the peer
+     */
+    static final int DEFAULT_TABLE_SIZE = 4096;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * the overhead of an entry of the dynamic table
+     */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    /**
+     * the index of the first static entry with the name, and of the entries with name and value (key: name + '\0'
+     * + value)
+     */
+    private static final Map<String, Integer> STATIC_INDEX = createStaticIndex();
+
+    private BreinHpack() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * Compresses the headers sent, i.e., the header blocks must be sent in the
+     * order they are encoded.
+     */
+    static class Encoder {
+        private final Table table = new Table(DEFAULT_TABLE_SIZE);
+
+        /**
+         * the smallest table size set since the last header block, -1 if not changed
+         */
+        private int minSizeUpdate = -1;
+
+        /**
+         * the table size to be signaled with the next header block, -1 if not changed
+         */
+        private int sizeUpdate = -1;
+
+        /**
+         * Sets the maximum size of the table, as allowed by the settings of the
+         * peer. The encoder does not use more than the default size, the change
+         * is signaled at the start of the next header block.
+         *
+         * @param maxSize int the maximum size allowed by the peer
+         */
+        void setMaxTableSize(final int maxSize) {
+            final int size = Math.min(maxSize, DEFAULT_TABLE_SIZE);
+            if (size == table.getMaxSize() && sizeUpdate == -1) {
+                return;
+            }
+
+            minSizeUpdate = minSizeUpdate == -1 ? size : Math.min(minSizeUpdate, size);
+            sizeUpdate = size;
+            table.setMaxSize(size);
+        }
+
+        /**
+         * Appends the header to the header block. The header is sent as an
+         * index if it was sent before, otherwise it is added to the table if it
+         * should be indexed.
+         *
+         * @param name  String the name of the header (lower case)
+         * @param value String the value of the header
+         * @param index boolean false if the value changes often (e.g., the content length), i.e., it should not
+         *              be added to the table
+         * @param out   ByteArrayOutputStream the header block
+         */
+        void encode(final String name, final String value, final boolean index, final ByteArrayOutputStream out) {
+            if (sizeUpdate != -1) {
+
+                // the smallest size has to be signaled as well, so that the peer evicts the same entries
+                if (minSizeUpdate < sizeUpdate) {
+                    writeInt(out, 0x20, 5, minSizeUpdate);
+                }
+                writeInt(out, 0x20, 5, sizeUpdate);
+                minSizeUpdate = -1;
+                sizeUpdate = -1;
+            }
+
+            final Integer staticIndex = STATIC_INDEX.get(name + '\0' + value);
+            if (staticIndex != null) {
+                writeInt(out, 0x80, 7, staticIndex);
+                return;
+            }
+
+            final int dynamicIndex = table.indexOf(name, value);
+            if (dynamicIndex > 0) {
+                writeInt(out, 0x80, 7, STATIC_TABLE.length + dynamicIndex);
+                return;
+            }
+
+            int nameIndex = table.indexOf(name, null);
+            if (nameIndex > 0) {
+                nameIndex += STATIC_TABLE.length;
+            } else {
+                final Integer staticNameIndex = STATIC_INDEX.get(name);
+                nameIndex = staticNameIndex == null ? 0 : staticNameIndex;
+            }
+
+            if (index) {
+                writeInt(out, 0x40, 6, nameIndex);
+                table.add(name, value);
+            } else {
+                writeInt(out, 0x00, 4, nameIndex);
+            }
+            if (nameIndex == 0) {
+                writeString(out, name);
+            }
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Decompresses the received headers, i.e., all header blocks must be
+     * decoded in the order they are received.
+     */
+    static class Decoder {
+        private final Table table = new Table(DEFAULT_TABLE_SIZE);
+        private final int maxHeaderListSize;
+
+        /**
+         * creates a decoder, the table size is limited to the default size
+         *
+         * @param maxHeaderListSize int maximum size of the headers of a block (as defined for the table entries)
+         */
+        Decoder(final int maxHeaderListSize) {
+            this.maxHeaderListSize = maxHeaderListSize;
+        }
+
+        /**
+         * decodes a header block
+         *
+         * @param block  byte[] the buffer containing the block
+         * @param offset int the position of the block within the buffer
+         * @param length int the size of the block
+         * @return Map the headers by name (in the received order), values of repeated names are joined by a comma
+         * @throws IOException if the block is invalid or too large
+         */
+        Map<String, String> decode(final byte[] block, final int offset, final int length) throws IOException {
+            final Map<String, String> headers = new LinkedHashMap<>();
+            final Reader reader = new Reader(block, offset, offset + length);
+
+            long size = 0;
+            while (reader.hasRemaining()) {
+                final int b = reader.peek();
+
+                final String name;
+                final String value;
+                if ((b & 0x80) != 0) {
+                    final String[] entry = get(reader.readInt(7));
+                    name = entry[0];
+                    value = entry[1];
+                } else if ((b & 0x40) != 0) {
+                    final int nameIndex = reader.readInt(6);
+                    name = nameIndex == 0 ? reader.readString() : get(nameIndex)[0];
+                    value = reader.readString();
+                    table.add(name, value);
+                } else if ((b & 0x20) != 0) {
+                    final int maxSize = reader.readInt(5);
+                    if (maxSize > DEFAULT_TABLE_SIZE) {
+                        throw new IOException("invalid table size: " + maxSize);
+                    }
+                    table.setMaxSize(maxSize);
+                    continue;
+                } else {
+
+                    // literal without indexing (0x00) or never indexed (0x10)
+                    final int nameIndex = reader.readInt(4);
+                    name = nameIndex == 0 ? reader.readString() : get(nameIndex)[0];
+                    value = reader.readString();
+                }
+
+                size += name.length() + value.length() + ENTRY_OVERHEAD;
+                if (size > maxHeaderListSize) {
+                    throw new IOException("the headers are too large");
+                }
+
+                final String existing = headers.get(name);
+                headers.put(name, existing == null ? value : existing + ", " + value);
+            }
+
+            return headers;
+        }
+
+        private String[] get(final int index) throws IOException {
+            if (index <= 0) {
+                throw new IOException("invalid header index: " + index);
+            } else if (index <= STATIC_TABLE.length) {
+                return STATIC_TABLE[index - 1];
+            }
+
+            final String[] entry = table.get(index - STATIC_TABLE.length);
+            if (entry == null) {
+                throw new IOException("invalid header index: " + index);
+            }
+
+            return entry;
+        }
+    }
+
+    /**
+     * The dynamic table, the most recently added entry has the index 1. Entries
+     * are evicted when the table exceeds its maximum size.
+     */
+    private static class Table {
+        private final ArrayDeque<String[]> entries = new ArrayDeque<>();
+        private int maxSize;
+        private int size = 0;
+
+        private Table(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private int getMaxSize() {
+            return maxSize;
+        }
+
+        private void setMaxSize(final int maxSize) {
+            this.maxSize = maxSize;
+            evict(0);
+        }
+
+        private void add(final String name, final String value) {
+            final int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+
+            // an entry larger than the table empties the table
+            evict(entrySize);
+            if (entrySize <= maxSize) {
+                entries.addFirst(new String[]{name, value});
+                size += entrySize;
+            }
+        }
+
+        private String[] get(final int index) {
+            if (index > entries.size()) {
+                return null;
+            }
+
+            final Iterator<String[]> it = entries.iterator();
+            for (int i = 1; i < index; i++) {
+                it.next();
+            }
+
+            return it.next();
+        }
+
+        /**
+         * searches the entry
+         *
+         * @return int the index of the entry, 0 if not found
+         */
+        private int indexOf(final String name, final String value) {
+            int index = 1;
+            for (final String[] entry : entries) {
+                if (entry[0].equals(name) && (value == null || entry[1].equals(value))) {
+                    return index;
+                }
+                index++;
+            }
+
+            return 0;
+        }
+
+        private void evict(final int needed) {
+            while (!entries.isEmpty() && size + needed > maxSize) {
+                final String[] entry = entries.removeLast();
+                size -= entry[0].length() + entry[1].length() + ENTRY_OVERHEAD;
+            }
+        }
+    }
+
+    /**
+     * reads the integers and strings of a header block
+     */
+    private static class Reader {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        private Reader(final byte[] data, final int pos, final int end) {
+            this.data = data;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        private boolean hasRemaining() {
+            return pos < end;
+        }
+
+        private int peek() {
+            return data[pos] & 0xff;
+        }
+
+        private int readByte() throws IOException {
+            if (pos >= end) {
+                throw new IOException("truncated header block");
+            }
+
+            return data[pos++] & 0xff;
+        }
+
+        private int readInt(final int prefixBits) throws IOException {
+            final int mask = (1 << prefixBits) - 1;
+            int value = readByte() & mask;
+            if (value < mask) {
+                return value;
+            }
+
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                if (shift > 21) {
+                    throw new IOException("invalid integer within the header block");
+                }
+                value += (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            return value;
+        }
+
+        private String readString() throws IOException {
+            final boolean huffman = (peek() & 0x80) != 0;
+            final int length = readInt(7);
+            if (length > end - pos) {
+                throw new IOException("truncated header block");
+            }
+
+            final String value;
+            if (huffman) {
+                value = new String(BreinHuffman.decode(data, pos, length), ISO_8859_1);
+            } else {
+                value = new String(data, pos, length, ISO_8859_1);
+            }
+            pos += length;
+
+            return value;
+        }
+    }
+
+    /**
+     * writes the integer using the prefix (see RFC 7541, 5.1)
+     *
+     * @param out        ByteArrayOutputStream the header block
+     * @param flags      int the bits of the first byte preceding the prefix
+     * @param prefixBits int the number of bits of the prefix
+     * @param value      int the value to write
+     */
+    private static void writeInt(final ByteArrayOutputStream out,
+                                 final int flags,
+                                 final int prefixBits,
+                                 final int value) {
+        final int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            out.write(flags | value);
+            return;
+        }
+
+        out.write(flags | mask);
+        int remaining = value - mask;
+        while (remaining >= 0x80) {
+            out.write((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /**
+     * writes the string, it is compressed if it gets shorter
+     */
+    private static void writeString(final ByteArrayOutputStream out, final String value) {
+        final byte[] bytes = value.getBytes(ISO_8859_1);
+        final int huffmanLength = BreinHuffman.encodedLength(bytes);
+
+        if (huffmanLength < bytes.length) {
+            writeInt(out, 0x80, 7, huffmanLength);
+            BreinHuffman.encode(bytes, out);
+        } else {
+            writeInt(out, 0x00, 7, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static Map<String, Integer> createStaticIndex() {
+        final Map<String, Integer> index = new HashMap<>();
+        for (int i = STATIC_TABLE.length - 1; i >= 0; i--) {
+            index.put(STATIC_TABLE[i][0], i + 1);
+            index.put(STATIC_TABLE[i][0] + '\0' + STATIC_TABLE[i][1], i + 1);
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,798 @@
+package com.brein.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A HTTP/2 connection (see RFC 7540) of the non-blocking engine, the requests
+ * are sent as concurrent streams of one connection. The headers are compressed
+ * using HPACK, i.e., the headers repeated by every request are sent as a single
+ * byte each.
+ * <p>
+ * The session does not read from the connection: the received bytes are passed
+ * in as they arrive, the frames to be sent are collected and written when the
+ * connection is writable. The results of the streams are passed to the
+ * listener. The session is used by the selector thread only.
+ *
+ * @param <T> the type of the requests sent as streams
+ */
+class BreinHttp2Session<T> {
+
+    /**
+     * the bytes sent first by a client
+     */
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(Charset.forName("ISO-8859-1"));
+
+    static final int FRAME_HEADER_SIZE = 9;
+    static final int DEFAULT_FRAME_SIZE = 16384;
+    static final int DEFAULT_WINDOW_SIZE = 65535;
+
+    static final int TYPE_DATA = 0x0;
+    static final int TYPE_HEADERS = 0x1;
+    static final int TYPE_PRIORITY = 0x2;
+    static final int TYPE_RST_STREAM = 0x3;
+    static final int TYPE_SETTINGS = 0x4;
+    static final int TYPE_PUSH_PROMISE = 0x5;
+    static final int TYPE_PING = 0x6;
+    static final int TYPE_GOAWAY = 0x7;
+    static final int TYPE_WINDOW_UPDATE = 0x8;
+    static final int TYPE_CONTINUATION = 0x9;
+
+    static final int FLAG_END_STREAM = 0x1;
+    static final int FLAG_ACK = 0x1;
+    static final int FLAG_END_HEADERS = 0x4;
+    static final int FLAG_PADDED = 0x8;
+    static final int FLAG_PRIORITY = 0x20;
+
+    static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    static final int SETTINGS_ENABLE_PUSH = 0x2;
+    static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    static final int ERROR_NO_ERROR = 0x0;
+    static final int ERROR_PROTOCOL_ERROR = 0x1;
+    static final int ERROR_FLOW_CONTROL_ERROR = 0x3;
+    static final int ERROR_FRAME_SIZE_ERROR = 0x6;
+    static final int ERROR_REFUSED_STREAM = 0x7;
+    static final int ERROR_CANCEL = 0x8;
+    static final int ERROR_COMPRESSION_ERROR = 0x9;
+
+    /**
+     * the window of the connection and of each stream, i.e., the bytes the server can send without waiting
+     */
+    private static final int RECEIVE_WINDOW = 1024 * 1024;
+
+    /**
+     * the streams opened until the server announced its limit
+     */
+    private static final int DEFAULT_MAX_STREAMS = 100;
+
+    /**
+     * maximum size of the headers of a response
+     */
+    private static final int MAX_HEADER_LIST_SIZE = 64 * 1024;
+
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Informed about the results of the streams, called by the thread passing
+     * in the received bytes.
+     *
+     * @param <T> the type of the requests sent as streams
+     */
+    interface Listener<T> {
+
+        /**
+         * the first headers of the response were received
+         *
+         * @param request T the request of the stream
+         */
+        void started(T request);
+
+        /**
+         * the response is complete
+         *
+         * @param request    T the request of the stream
+         * @param status     int the status of the response
+         * @param retryAfter String the value of the retry-after header, {@code null} if not sent
+         * @param body       InputStream the body, decompressed if it was sent compressed
+         * @param bodySize   long the size of the body as sent
+         */
+        void received(T request, int status, String retryAfter, InputStream body, long bodySize);
+
+        /**
+         * the stream failed, e.g., it was reset by the server
+         *
+         * @param request   T the request of the stream
+         * @param processed boolean false if the server did not process the request, i.e., it can be sent again
+         * @param retryable boolean true if the failure may be temporary
+         */
+        void failed(T request, boolean processed, boolean retryable);
+    }
+
+    private final BreinNioConnection connection;
+    private final Listener<T> listener;
+    private final BreinHpack.Encoder encoder = new BreinHpack.Encoder();
+    private final BreinHpack.Decoder decoder = new BreinHpack.Decoder(MAX_HEADER_LIST_SIZE);
+
+    /**
+     * the open streams by id, in the order they were opened
+     */
+    private final Map<Integer, Stream> streams = new LinkedHashMap<>();
+
+    /**
+     * the frames to be sent (in write mode)
+     */
+    private ByteBuffer out = ByteBuffer.allocate(2 * (FRAME_HEADER_SIZE + DEFAULT_FRAME_SIZE));
+
+    // the frame being received
+    private final byte[] frameHeader = new byte[FRAME_HEADER_SIZE];
+    private final byte[] payload = new byte[DEFAULT_FRAME_SIZE];
+    private int frameHeaderRead = 0;
+    private int payloadRead = 0;
+    private int payloadLength = -1;
+
+    // the header block being received, continued by CONTINUATION frames
+    private ByteArrayOutputStream headerBlock = null;
+    private int headerBlockStreamId = 0;
+    private boolean headerBlockEndStream = false;
+
+    private int nextStreamId = 1;
+    private int peerMaxStreams = DEFAULT_MAX_STREAMS;
+    private int peerInitialWindow = DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = DEFAULT_FRAME_SIZE;
+    private long sendWindow = DEFAULT_WINDOW_SIZE;
+    private int receiveUnacknowledged = 0;
+
+    private boolean confirmed = false;
+    private boolean goingAway = false;
+    private long lastReceived = System.nanoTime();
+
+    /**
+     * creates the session, the preface and the settings are sent first
+     *
+     * @param connection BreinNioConnection the established connection
+     * @param listener   Listener informed about the results of the streams
+     */
+    BreinHttp2Session(final BreinNioConnection connection, final Listener<T> listener) {
+        this.connection = connection;
+        this.listener = listener;
+
+        ensureCapacity(PREFACE.length);
+        out.put(PREFACE);
+
+        final ByteBuffer settings = ByteBuffer.allocate(3 * 6);
+        settings.putShort((short) SETTINGS_ENABLE_PUSH).putInt(0);
+        settings.putShort((short) SETTINGS_INITIAL_WINDOW_SIZE).putInt(RECEIVE_WINDOW);
+        settings.putShort((short) SETTINGS_MAX_HEADER_LIST_SIZE).putInt(MAX_HEADER_LIST_SIZE);
+        writeFrame(TYPE_SETTINGS, 0, 0, settings.array(), 0, settings.capacity());
+        writeWindowUpdate(0, RECEIVE_WINDOW - DEFAULT_WINDOW_SIZE);
+    }
+
+    BreinNioConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * checks if the server answered with its settings, i.e., if it supports HTTP/2
+     *
+     * @return boolean true if the server supports HTTP/2
+     */
+    boolean isConfirmed() {
+        return confirmed;
+    }
+
+    /**
+     * checks if the server announced to close the connection, i.e., no further streams can be opened
+     *
+     * @return boolean true if the server is closing the connection
+     */
+    boolean isGoingAway() {
+        return goingAway;
+    }
+
+    /**
+     * checks if a further stream can be opened, until the settings of the server are received (i.e., its limit
+     * is known and it is known to support HTTP/2) only one stream is opened
+     *
+     * @return boolean true if the limit of concurrent streams of the server is not reached
+     */
+    boolean canOpen() {
+        return !goingAway && nextStreamId > 0 && streams.size() < (confirmed ? peerMaxStreams : 1);
+    }
+
+    int getStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * retrieves the time the last bytes were received
+     *
+     * @return long the time (as returned by {@link System#nanoTime()})
+     */
+    long getLastReceived() {
+        return lastReceived;
+    }
+
+    /**
+     * Opens a stream sending the request. The frames are sent (as far as the
+     * flow control allows) with the next {@link #flush()}.
+     *
+     * @param request     T the request
+     * @param headers     String[] the names and values of the headers (alternating, names in lower case)
+     * @param body        byte[] the buffer containing the body
+     * @param offset      int the position of the body within the buffer
+     * @param length      int the size of the body
+     * @param maxBodySize long maximum size of the body of the response
+     */
+    void open(final T request,
+              final String[] headers,
+              final byte[] body,
+              final int offset,
+              final int length,
+              final long maxBodySize) {
+        final Stream stream = new Stream(nextStreamId, request, maxBodySize);
+        nextStreamId += 2;
+        streams.put(stream.id, stream);
+
+        final ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+        for (int i = 0; i < headers.length; i += 2) {
+
+            // the content length differs per request, it would only evict the other headers from the table
+            encoder.encode(headers[i], headers[i + 1], !"content-length".equals(headers[i]), block);
+        }
+
+        final byte[] blockBytes = block.toByteArray();
+        final int endStream = length == 0 ? FLAG_END_STREAM : 0;
+        int pos = 0;
+        do {
+            final int size = Math.min(peerMaxFrameSize, blockBytes.length - pos);
+            final boolean last = pos + size == blockBytes.length;
+            writeFrame(pos == 0 ? TYPE_HEADERS : TYPE_CONTINUATION,
+                    (pos == 0 ? endStream : 0) | (last ? FLAG_END_HEADERS : 0),
+                    stream.id, blockBytes, pos, size);
+            pos += size;
+        } while (pos < blockBytes.length);
+
+        if (length > 0) {
+            stream.data = ByteBuffer.wrap(body, offset, length);
+            writeData();
+        }
+    }
+
+    /**
+     * resets the stream of the request, e.g., if the request was cancelled
+     *
+     * @param request T the request
+     * @return boolean true if the stream was open
+     */
+    boolean reset(final T request) {
+        final Iterator<Stream> it = streams.values().iterator();
+        while (it.hasNext()) {
+            final Stream stream = it.next();
+            if (stream.request == request) {
+                it.remove();
+                writeRstStream(stream.id, ERROR_CANCEL);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * announces that the session is closed, i.e., the frame is sent with the next {@link #flush()}
+     *
+     * @param errorCode int the reason, e.g., {@link #ERROR_NO_ERROR}
+     */
+    void goAway(final int errorCode) {
+        final ByteBuffer goAway = ByteBuffer.allocate(8);
+        goAway.putInt(0).putInt(errorCode);
+        writeFrame(TYPE_GOAWAY, 0, 0, goAway.array(), 0, 8);
+        goingAway = true;
+    }
+
+    /**
+     * removes all streams, e.g., because the connection failed
+     *
+     * @return List the requests of the removed streams, in the order they were opened
+     */
+    List<T> abort() {
+        final List<T> requests = new ArrayList<>(streams.size());
+        for (final Stream stream : streams.values()) {
+            requests.add(stream.request);
+        }
+        streams.clear();
+        goingAway = true;
+
+        return requests;
+    }
+
+    /**
+     * checks if frames are waiting to be sent
+     *
+     * @return boolean true if frames are waiting
+     */
+    boolean hasPendingOutput() {
+        return out.position() > 0 || connection.hasPendingOutput();
+    }
+
+    /**
+     * writes the waiting frames to the connection
+     *
+     * @return boolean true if all frames were written, otherwise the connection has to become writable again
+     * @throws IOException if the frames cannot be written
+     */
+    boolean flush() throws IOException {
+        out.flip();
+        try {
+            return connection.write(out);
+        } finally {
+            out.compact();
+        }
+    }
+
+    /**
+     * Consumes the received bytes, the listener is informed about completed
+     * streams. Frames to be sent in reply (e.g., acknowledgements) are
+     * collected.
+     *
+     * @param buffer ByteBuffer the received bytes (in read mode)
+     * @throws IOException if the server violated the protocol
+     */
+    void receive(final ByteBuffer buffer) throws IOException {
+        if (buffer.hasRemaining()) {
+            lastReceived = System.nanoTime();
+        }
+
+        while (buffer.hasRemaining()) {
+            if (frameHeaderRead < FRAME_HEADER_SIZE) {
+                final int size = Math.min(buffer.remaining(), FRAME_HEADER_SIZE - frameHeaderRead);
+                buffer.get(frameHeader, frameHeaderRead, size);
+                frameHeaderRead += size;
+                if (frameHeaderRead < FRAME_HEADER_SIZE) {
+                    return;
+                }
+
+                // the server has to start with its settings, otherwise it does not support HTTP/2
+                if (!confirmed && frameHeader[3] != TYPE_SETTINGS) {
+                    throw new IOException("the server does not support HTTP/2");
+                }
+
+                payloadLength = ((frameHeader[0] & 0xff) << 16) | ((frameHeader[1] & 0xff) << 8) |
+                        (frameHeader[2] & 0xff);
+                if (payloadLength > DEFAULT_FRAME_SIZE) {
+                    throw new IOException("invalid frame size: " + payloadLength);
+                }
+                payloadRead = 0;
+            }
+
+            final int size = Math.min(buffer.remaining(), payloadLength - payloadRead);
+            buffer.get(payload, payloadRead, size);
+            payloadRead += size;
+
+            if (payloadRead == payloadLength) {
+                frameHeaderRead = 0;
+                processFrame(frameHeader[3] & 0xff, frameHeader[4] & 0xff, readInt(frameHeader, 5) & 0x7fffffff,
+                        payloadLength);
+            }
+        }
+    }
+
+    private void processFrame(final int type, final int flags, final int streamId, final int length)
+            throws IOException {
+        if (headerBlock != null && (type != TYPE_CONTINUATION || streamId != headerBlockStreamId)) {
+            throw new IOException("header block of stream " + headerBlockStreamId + " was not continued");
+        }
+
+        switch (type) {
+            case TYPE_DATA:
+                processData(flags, streamId, length);
+                break;
+            case TYPE_HEADERS:
+                processHeaders(flags, streamId, length);
+                break;
+            case TYPE_CONTINUATION:
+                if (headerBlock == null) {
+                    throw new IOException("unexpected continuation of stream " + streamId);
+                }
+                appendHeaderBlock(0, length);
+                if ((flags & FLAG_END_HEADERS) != 0) {
+                    endHeaderBlock();
+                }
+                break;
+            case TYPE_RST_STREAM:
+                if (streamId == 0 || length != 4) {
+                    throw new IOException("invalid reset of stream " + streamId);
+                }
+                processReset(streamId, readInt(payload, 0));
+                break;
+            case TYPE_SETTINGS:
+                processSettings(flags, streamId, length);
+                break;
+            case TYPE_PING:
+                if (streamId != 0 || length != 8) {
+                    throw new IOException("invalid ping");
+                } else if ((flags & FLAG_ACK) == 0) {
+                    writeFrame(TYPE_PING, FLAG_ACK, 0, payload, 0, 8);
+                }
+                break;
+            case TYPE_GOAWAY:
+                if (streamId != 0 || length < 8) {
+                    throw new IOException("invalid goaway");
+                }
+                processGoAway(readInt(payload, 0) & 0x7fffffff);
+                break;
+            case TYPE_WINDOW_UPDATE:
+                if (length != 4) {
+                    throw new IOException("invalid window update");
+                }
+                processWindowUpdate(streamId, readInt(payload, 0) & 0x7fffffff);
+                break;
+            case TYPE_PUSH_PROMISE:
+                throw new IOException("push promise received, although push is disabled");
+            case TYPE_PRIORITY:
+            default:
+                // the priorities of the server and unknown frames are ignored
+                break;
+        }
+    }
+
+    private void processData(final int flags, final int streamId, final int length) throws IOException {
+        if (streamId == 0) {
+            throw new IOException("data without stream");
+        }
+
+        // the window of the connection is consumed by the streams reset as well
+        receiveUnacknowledged += length;
+        if (receiveUnacknowledged >= RECEIVE_WINDOW / 2) {
+            writeWindowUpdate(0, receiveUnacknowledged);
+            receiveUnacknowledged = 0;
+        }
+
+        final Stream stream = streams.get(streamId);
+        if (stream == null) {
+            return;
+        } else if (stream.status == -1) {
+            throw new IOException("data before the headers of stream " + streamId);
+        }
+
+        final int padding = (flags & FLAG_PADDED) != 0 ? (payload[0] & 0xff) + 1 : 0;
+        final int dataLength = length - padding;
+        if (dataLength < 0) {
+            throw new IOException("invalid padding of stream " + streamId);
+        }
+
+        if (stream.body.size() + dataLength > stream.maxBodySize) {
+            streams.remove(streamId);
+            writeRstStream(streamId, ERROR_CANCEL);
+            listener.failed(stream.request, true, false);
+            return;
+        }
+        stream.body.write(payload, padding > 0 ? 1 : 0, dataLength);
+
+        if ((flags & FLAG_END_STREAM) != 0) {
+            complete(stream);
+        } else {
+            stream.receiveUnacknowledged += length;
+            if (stream.receiveUnacknowledged >= RECEIVE_WINDOW / 2) {
+                writeWindowUpdate(streamId, stream.receiveUnacknowledged);
+                stream.receiveUnacknowledged = 0;
+            }
+        }
+    }
+
+    private void processHeaders(final int flags, final int streamId, final int length) throws IOException {
+        if (streamId == 0) {
+            throw new IOException("headers without stream");
+        }
+
+        int offset = 0;
+        int padding = 0;
+        if ((flags & FLAG_PADDED) != 0) {
+            padding = payload[0] & 0xff;
+            offset++;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            offset += 5;
+        }
+        if (offset + padding > length) {
+            throw new IOException("invalid padding of stream " + streamId);
+        }
+
+        headerBlock = new ByteArrayOutputStream(length);
+        headerBlockStreamId = streamId;
+        headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+        appendHeaderBlock(offset, length - offset - padding);
+
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            endHeaderBlock();
+        }
+    }
+
+    private void appendHeaderBlock(final int offset, final int length) throws IOException {
+        if (headerBlock.size() + length > MAX_HEADER_LIST_SIZE) {
+            throw new IOException("the headers of stream " + headerBlockStreamId + " are too large");
+        }
+        headerBlock.write(payload, offset, length);
+    }
+
+    /**
+     * the header block is complete, it is decoded even if the stream was reset to keep the table in sync
+     */
+    private void endHeaderBlock() throws IOException {
+        final byte[] block = headerBlock.toByteArray();
+        final int streamId = headerBlockStreamId;
+        final boolean endStream = headerBlockEndStream;
+        headerBlock = null;
+
+        final Map<String, String> headers = decoder.decode(block, 0, block.length);
+        final Stream stream = streams.get(streamId);
+        if (stream == null) {
+            return;
+        }
+
+        if (!stream.started) {
+            stream.started = true;
+            listener.started(stream.request);
+        }
+
+        // informational responses are followed by the actual response, further headers are trailers
+        if (stream.status == -1) {
+            final String status = headers.get(":status");
+            try {
+                final int value = Integer.parseInt(status);
+                if (value < 200) {
+                    return;
+                }
+                stream.status = value;
+                stream.headers = headers;
+            } catch (final NumberFormatException e) {
+                throw new IOException("invalid status of stream " + streamId + ": " + status);
+            }
+        }
+
+        if (endStream) {
+            complete(stream);
+        }
+    }
+
+    private void processReset(final int streamId, final int errorCode) {
+        final Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            listener.failed(stream.request, errorCode != ERROR_REFUSED_STREAM, true);
+        }
+    }
+
+    private void processSettings(final int flags, final int streamId, final int length) throws IOException {
+        if (streamId != 0 || length % 6 != 0) {
+            throw new IOException("invalid settings");
+        } else if ((flags & FLAG_ACK) != 0) {
+            return;
+        }
+
+        for (int pos = 0; pos < length; pos += 6) {
+            final int id = ((payload[pos] & 0xff) << 8) | (payload[pos + 1] & 0xff);
+            final int value = readInt(payload, pos + 2);
+
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    encoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+                    break;
+                case SETTINGS_MAX_CONCURRENT_STREAMS:
+                    peerMaxStreams = value < 0 ? Integer.MAX_VALUE : value;
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value < 0) {
+                        throw new IOException("invalid initial window size");
+                    }
+
+                    // the change applies to the open streams as well
+                    final int delta = value - peerInitialWindow;
+                    for (final Stream stream : streams.values()) {
+                        stream.sendWindow += delta;
+                    }
+                    peerInitialWindow = value;
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_FRAME_SIZE || value > 0xffffff) {
+                        throw new IOException("invalid maximum frame size");
+                    }
+                    peerMaxFrameSize = value;
+                    break;
+                default:
+                    // other settings do not affect the client
+                    break;
+            }
+        }
+
+        confirmed = true;
+        writeFrame(TYPE_SETTINGS, FLAG_ACK, 0, payload, 0, 0);
+        writeData();
+    }
+
+    private void processGoAway(final int lastStreamId) {
+        goingAway = true;
+
+        // the streams above the last one were not processed, i.e., they can be sent again
+        final Iterator<Stream> it = streams.values().iterator();
+        final List<T> unprocessed = new ArrayList<>();
+        while (it.hasNext()) {
+            final Stream stream = it.next();
+            if (stream.id > lastStreamId) {
+                it.remove();
+                unprocessed.add(stream.request);
+            }
+        }
+
+        for (final T request : unprocessed) {
+            listener.failed(request, false, true);
+        }
+    }
+
+    private void processWindowUpdate(final int streamId, final int increment) throws IOException {
+        if (increment == 0) {
+            throw new IOException("invalid window update of stream " + streamId);
+        }
+
+        if (streamId == 0) {
+            sendWindow += increment;
+            if (sendWindow > MAX_WINDOW_SIZE) {
+                throw new IOException("the window of the connection is too large");
+            }
+        } else {
+            final Stream stream = streams.get(streamId);
+            if (stream == null) {
+                return;
+            }
+
+            stream.sendWindow += increment;
+            if (stream.sendWindow > MAX_WINDOW_SIZE) {
+                throw new IOException("the window of stream " + streamId + " is too large");
+            }
+        }
+
+        writeData();
+    }
+
+    private void complete(final Stream stream) throws IOException {
+        streams.remove(stream.id);
+
+        // the server answered before the body was sent completely
+        if (stream.data != null && stream.data.hasRemaining()) {
+            writeRstStream(stream.id, ERROR_NO_ERROR);
+        }
+
+        if (stream.status == -1) {
+            throw new IOException("stream " + stream.id + " ended without a response");
+        }
+
+        final InputStream body;
+        final String contentEncoding = stream.headers.get("content-encoding");
+        try {
+            final InputStream in = new ByteArrayInputStream(stream.body.toByteArray());
+            if (contentEncoding != null && contentEncoding.toLowerCase(Locale.US).contains("gzip")) {
+                body = new GZIPInputStream(in);
+            } else {
+                body = in;
+            }
+        } catch (final IOException e) {
+
+            // the stream is invalid, the other streams are not affected
+            listener.failed(stream.request, true, true);
+            return;
+        }
+
+        listener.received(stream.request, stream.status, stream.headers.get("retry-after"), body,
+                stream.body.size());
+    }
+
+    /**
+     * writes the waiting bodies, as far as allowed by the windows of the streams and the connection
+     */
+    private void writeData() {
+        for (final Stream stream : streams.values()) {
+            if (sendWindow <= 0) {
+                return;
+            }
+
+            while (stream.data != null && stream.data.hasRemaining() && stream.sendWindow > 0 && sendWindow > 0) {
+                final int size = (int) Math.min(Math.min(stream.data.remaining(), peerMaxFrameSize),
+                        Math.min(stream.sendWindow, sendWindow));
+                final boolean last = size == stream.data.remaining();
+
+                writeFrame(TYPE_DATA, last ? FLAG_END_STREAM : 0, stream.id, stream.data.array(),
+                        stream.data.arrayOffset() + stream.data.position(), size);
+                stream.data.position(stream.data.position() + size);
+                stream.sendWindow -= size;
+                sendWindow -= size;
+            }
+        }
+    }
+
+    private void writeWindowUpdate(final int streamId, final int increment) {
+        final byte[] value = new byte[4];
+        writeInt(value, 0, increment);
+        writeFrame(TYPE_WINDOW_UPDATE, 0, streamId, value, 0, 4);
+    }
+
+    private void writeRstStream(final int streamId, final int errorCode) {
+        final byte[] value = new byte[4];
+        writeInt(value, 0, errorCode);
+        writeFrame(TYPE_RST_STREAM, 0, streamId, value, 0, 4);
+    }
+
+    private void writeFrame(final int type,
+                            final int flags,
+                            final int streamId,
+                            final byte[] data,
+                            final int offset,
+                            final int length) {
+        ensureCapacity(FRAME_HEADER_SIZE + length);
+
+        out.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length)
+                .put((byte) type).put((byte) flags).putInt(streamId)
+                .put(data, offset, length);
+    }
+
+    private void ensureCapacity(final int size) {
+        if (out.remaining() < size) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * out.capacity(), out.position() + size));
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+    }
+
+    private static int readInt(final byte[] data, final int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) |
+                ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    private static void writeInt(final byte[] data, final int offset, final int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    /**
+     * a request sent as a stream and its response
+     */
+    private class Stream {
+        private final int id;
+        private final T request;
+        private final long maxBodySize;
+
+        /**
+         * the part of the body not sent so far, {@code null} if the request has no body
+         */
+        private ByteBuffer data = null;
+        private long sendWindow = peerInitialWindow;
+        private int receiveUnacknowledged = 0;
+
+        private boolean started = false;
+        private int status = -1;
+        private Map<String, String> headers = null;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Stream(final int id, final T request, final long maxBodySize) {
+            this.id = id;
+            this.request = request;
+            this.maxBodySize = maxBodySize;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.brein.engine;
+
+import com.brein.api.BreinException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Incremental parser of a HTTP/1.1 response, used by the non-blocking engine.
+ * The received bytes are passed in as they arrive, i.e., a response can be
+ * split at any position. The body is delimited by its content length, by the
+ * chunked transfer encoding or by the end of the connection. The parser is
+ * not thread-safe.
+ */
+class BreinHttpResponseParser {
+
+    /**
+     * maximum size of the status line and headers of a response
+     */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    private enum State {
+        STATUS_LINE,
+        HEADERS,
+        BODY,
+        BODY_UNTIL_CLOSE,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_END,
+        TRAILERS,
+        DONE
+    }
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    private final byte[] scratch = new byte[8 * 1024];
+    private final Map<String, String> headers = new HashMap<>();
+    private ByteArrayOutputStream body;
+
+    private long maxBodySize;
+    private State state;
+    private boolean http11;
+    private int status;
+    private int headerSize;
+    private long remaining;
+    private long bytesRead;
+
+    /**
+     * creates a parser, it has to be reset before each response
+     */
+    BreinHttpResponseParser() {
+        reset(0L);
+    }
+
+    /**
+     * resets the parser, so that the next response can be parsed
+     *
+     * @param maxBodySize long maximum size of the (possibly compressed) body in bytes
+     */
+    void reset(final long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+        line.reset();
+        headers.clear();
+        body = null;
+        state = State.STATUS_LINE;
+        http11 = true;
+        status = -1;
+        headerSize = 0;
+        remaining = 0;
+        bytesRead = 0;
+    }
+
+    /**
+     * Consumes the available bytes of the buffer, at most up to the end of the
+     * response. Remaining bytes are kept within the buffer.
+     *
+     * @param buffer ByteBuffer the received bytes (in read mode)
+     * @return boolean true if the response is complete
+     * @throws IOException    if the response is malformed
+     * @throws BreinException if the body exceeds the maximum size
+     */
+    boolean parse(final ByteBuffer buffer) throws IOException {
+        while (state != State.DONE && buffer.hasRemaining()) {
+            switch (state) {
+                case STATUS_LINE:
+                case HEADERS:
+                case CHUNK_SIZE:
+                case CHUNK_END:
+                case TRAILERS:
+                    if (readLine(buffer)) {
+                        processLine(line.toString("ISO-8859-1"));
+                        line.reset();
+                    }
+                    break;
+                case BODY:
+                case CHUNK_DATA:
+                    final int length = (int) Math.min(buffer.remaining(), remaining);
+                    readBody(buffer, length);
+                    remaining -= length;
+                    if (remaining == 0) {
+                        state = state == State.BODY ? State.DONE : State.CHUNK_END;
+                    }
+                    break;
+                case BODY_UNTIL_CLOSE:
+                default:
+                    readBody(buffer, buffer.remaining());
+                    break;
+            }
+        }
+
+        return state == State.DONE;
+    }
+
+    /**
+     * informs the parser that the connection was closed by the server
+     *
+     * @return boolean true if the response is complete, i.e., its body is delimited by the end of the connection
+     * @throws IOException if the response is incomplete
+     */
+    boolean parseEnd() throws IOException {
+        if (state == State.BODY_UNTIL_CLOSE) {
+            state = State.DONE;
+        } else if (state != State.DONE) {
+            throw new IOException("connection closed before the response was complete");
+        }
+
+        return true;
+    }
+
+    /**
+     * checks if any byte of the response was received
+     *
+     * @return boolean true if the response started
+     */
+    boolean isStarted() {
+        return bytesRead > 0;
+    }
+
+    /**
+     * checks if the response is complete
+     *
+     * @return boolean true if the response is complete
+     */
+    boolean isDone() {
+        return state == State.DONE;
+    }
+
+    /**
+     * retrieves the status of the response
+     *
+     * @return int the status, -1 if the status line was not received yet
+     */
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * retrieves the value of the header
+     *
+     * @param name String the name of the header (case-insensitive)
+     * @return String the value, {@code null} if the header was not sent
+     */
+    String getHeader(final String name) {
+        return headers.get(name.toLowerCase(Locale.US));
+    }
+
+    /**
+     * retrieves the number of bytes received for the response
+     *
+     * @return long number of bytes (including the status line and headers)
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * retrieves the size of the received body, as sent by the server
+     *
+     * @return long the size in bytes
+     */
+    long getBodySize() {
+        return body == null ? 0 : body.size();
+    }
+
+    /**
+     * checks if the connection can be used for further requests
+     *
+     * @return boolean true if the connection can be kept alive
+     */
+    boolean isKeepAlive() {
+        final String connection = getHeader("Connection");
+        if (state != State.DONE) {
+            return false;
+        } else if (http11) {
+            return !"close".equalsIgnoreCase(connection);
+        } else {
+            return "keep-alive".equalsIgnoreCase(connection);
+        }
+    }
+
+    /**
+     * retrieves the body, it is decompressed if it was sent compressed
+     *
+     * @return InputStream the body
+     * @throws IOException if the compressed body cannot be read
+     */
+    InputStream getBody() throws IOException {
+        final InputStream in = new ByteArrayInputStream(body == null ? new byte[0] : body.toByteArray());
+        if ("gzip".equalsIgnoreCase(getHeader("Content-Encoding"))) {
+            return new GZIPInputStream(in);
+        } else {
+            return in;
+        }
+    }
+
+    /**
+     * reads the bytes of the current line into {@link #line}
+     *
+     * @return boolean true if the line is complete, the line ending is not kept
+     */
+    private boolean readLine(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            bytesRead++;
+
+            if (state == State.STATUS_LINE || state == State.HEADERS) {
+                if (++headerSize > MAX_HEADER_SIZE) {
+                    throw new IOException("the headers of the response are too large");
+                }
+            } else if (line.size() > MAX_HEADER_SIZE) {
+                throw new IOException("invalid chunk of the response");
+            }
+
+            if (b == '\n') {
+                return true;
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        return false;
+    }
+
+    private void processLine(final String value) throws IOException {
+        switch (state) {
+            case STATUS_LINE:
+                if (!value.isEmpty()) {
+                    parseStatusLine(value);
+                    state = State.HEADERS;
+                }
+                break;
+            case HEADERS:
+                if (value.isEmpty()) {
+                    startBody();
+                } else {
+                    final int pos = value.indexOf(':');
+                    if (pos > 0) {
+                        headers.put(value.substring(0, pos).trim().toLowerCase(Locale.US),
+                                value.substring(pos + 1).trim());
+                    }
+                }
+                break;
+            case CHUNK_SIZE:
+                remaining = parseChunkSize(value);
+                state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                break;
+            case CHUNK_END:
+                if (!value.isEmpty()) {
+                    throw new IOException("invalid end of chunk: " + value);
+                }
+                state = State.CHUNK_SIZE;
+                break;
+            case TRAILERS:
+            default:
+                if (value.isEmpty()) {
+                    state = State.DONE;
+                }
+                break;
+        }
+    }
+
+    private void parseStatusLine(final String value) throws IOException {
+        final String[] parts = value.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("invalid status line: " + value);
+        }
+
+        http11 = !"HTTP/1.0".equals(parts[0]);
+        try {
+            status = Integer.parseInt(parts[1]);
+        } catch (final NumberFormatException e) {
+            throw new IOException("invalid status line: " + value);
+        }
+    }
+
+    private void startBody() throws IOException {
+
+        // informational responses (e.g., 100 Continue) are followed by the actual response
+        if (status >= 100 && status < 200) {
+            headers.clear();
+            status = -1;
+            state = State.STATUS_LINE;
+            return;
+        }
+
+        final String transferEncoding = getHeader("Transfer-Encoding");
+        final String contentLength = getHeader("Content-Length");
+        if (status == 204 || status == 304) {
+            state = State.DONE;
+        } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.US).contains("chunked")) {
+            body = new ByteArrayOutputStream();
+            state = State.CHUNK_SIZE;
+        } else if (contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength);
+            } catch (final NumberFormatException e) {
+                throw new IOException("invalid content length: " + contentLength);
+            }
+            checkSize(remaining);
+
+            body = new ByteArrayOutputStream((int) remaining);
+            state = remaining == 0 ? State.DONE : State.BODY;
+        } else {
+            body = new ByteArrayOutputStream();
+            state = State.BODY_UNTIL_CLOSE;
+        }
+    }
+
+    private long parseChunkSize(final String value) throws IOException {
+        final int pos = value.indexOf(';');
+        final String size = (pos < 0 ? value : value.substring(0, pos)).trim();
+        try {
+            final long chunkSize = Long.parseLong(size, 16);
+            checkSize(body.size() + chunkSize);
+            return chunkSize;
+        } catch (final NumberFormatException e) {
+            throw new IOException("invalid chunk size: " + value);
+        }
+    }
+
+    private void readBody(final ByteBuffer buffer, final int length) {
+        checkSize(body.size() + length);
+
+        if (buffer.hasArray()) {
+            body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+
+            // direct buffers are copied in bulk
+            int left = length;
+            while (left > 0) {
+                final int size = Math.min(left, scratch.length);
+                buffer.get(scratch, 0, size);
+                body.write(scratch, 0, size);
+                left -= size;
+            }
+        }
+        bytesRead += length;
+    }
+
+    private void checkSize(final long size) {
+        if (size > maxBodySize || size < 0) {
+            throw new BreinException(BreinException.RESPONSE_TOO_LARGE);
+        }
+    }
+}
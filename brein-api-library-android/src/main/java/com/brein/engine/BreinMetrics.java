@@ -0,0 +1,111 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the request measurements, aggregated per endpoint. Recording a
+ * request does not take any lock, the counters are striped and the histograms
+ * are updated atomically. Registered listeners are informed about each request.
+ */
+public class BreinMetrics {
+
+    private static final String TAG = "BreinMetrics";
+
+    private final ConcurrentMap<String, BreinEndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final List<IMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * adds the measurements of the request and informs the listeners
+     *
+     * @param metrics BreinRequestMetrics the measurements of the request
+     */
+    public void record(final BreinRequestMetrics metrics) {
+        getEndpoint(metrics.getEndpoint()).record(metrics);
+
+        for (final IMetricsListener listener : listeners) {
+            try {
+                listener.onRequest(metrics);
+            } catch (final RuntimeException e) {
+                Log.d(TAG, "metrics listener failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * retrieves the metrics of the endpoint, they are created if not available yet
+     *
+     * @param endpoint String the endpoint, e.g., /activity
+     *
+     * @return BreinEndpointMetrics the metrics of the endpoint
+     */
+    public BreinEndpointMetrics getEndpoint(final String endpoint) {
+        final String key = endpoint == null ? "" : endpoint;
+
+        final BreinEndpointMetrics metrics = endpoints.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        final BreinEndpointMetrics created = new BreinEndpointMetrics(key);
+        final BreinEndpointMetrics existing = endpoints.putIfAbsent(key, created);
+        return existing == null ? created : existing;
+    }
+
+    /**
+     * retrieves the metrics of all endpoints requests were sent to
+     *
+     * @return Map of the endpoint and its metrics
+     */
+    public Map<String, BreinEndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * adds the listener, which is informed about each request
+     *
+     * @param listener IMetricsListener the listener to add
+     */
+    public void addListener(final IMetricsListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * removes the listener
+     *
+     * @param listener IMetricsListener the listener to remove
+     */
+    public void removeListener(final IMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * resets the metrics of all endpoints
+     */
+    public void reset() {
+        for (final BreinEndpointMetrics metrics : endpoints.values()) {
+            metrics.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (final BreinEndpointMetrics metrics : endpoints.values()) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(metrics);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,442 @@
+package com.brein.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+/**
+ * A non-blocking connection of the NIO engine, optionally secured by an
+ * SSLEngine. The received and sent bytes are kept within direct buffers taken
+ * from the pool of the engine. All methods are called by the selector thread.
+ * <p>
+ * The methods never block: {@link #handshake()} and {@link #write(ByteBuffer)}
+ * return the operation to wait for, if the channel cannot take or provide
+ * more bytes right now.
+ */
+class BreinNioConnection {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final String key;
+    private final SocketChannel channel;
+    private final SSLEngine sslEngine;
+    private final BreinBufferPool pool;
+
+    /**
+     * received bytes, decrypted bytes of secured connections are kept in {@link #appIn}
+     */
+    private ByteBuffer netIn;
+
+    /**
+     * bytes (encrypted if secured) to be sent
+     */
+    private ByteBuffer netOut;
+
+    /**
+     * received (decrypted) bytes of the response, the same buffer as {@link #netIn} if not secured
+     */
+    private ByteBuffer appIn;
+
+    /**
+     * parses the responses received by the connection
+     */
+    private final BreinHttpResponseParser parser = new BreinHttpResponseParser();
+
+    private SelectionKey selectionKey;
+    private boolean connected = false;
+    private boolean established = false;
+    private boolean closed = false;
+    private long openTime = 0L;
+    private long lastUsed = 0L;
+    private int requests = 0;
+
+    /**
+     * creates the connection, the buffers are taken from the pool
+     *
+     * @param key       String identifies the host the connection is opened to, e.g., https://api.breinify.com:443
+     * @param channel   SocketChannel the non-blocking channel (not connected yet)
+     * @param sslEngine SSLEngine used to secure the connection, {@code null} if not secured
+     * @param pool      BreinBufferPool the pool of the buffers
+     */
+    BreinNioConnection(final String key,
+                       final SocketChannel channel,
+                       final SSLEngine sslEngine,
+                       final BreinBufferPool pool) {
+        this.key = key;
+        this.channel = channel;
+        this.sslEngine = sslEngine;
+        this.pool = pool;
+
+        if (sslEngine == null) {
+            this.netIn = pool.acquire(BreinBufferPool.BUFFER_SIZE);
+            this.netOut = pool.acquire(BreinBufferPool.BUFFER_SIZE);
+            this.appIn = this.netIn;
+        } else {
+            this.netIn = pool.acquire(sslEngine.getSession().getPacketBufferSize());
+            this.netOut = pool.acquire(sslEngine.getSession().getPacketBufferSize());
+            this.appIn = pool.acquire(sslEngine.getSession().getApplicationBufferSize());
+        }
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SSLEngine getSslEngine() {
+        return sslEngine;
+    }
+
+    boolean isSecure() {
+        return sslEngine != null;
+    }
+
+    SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    void setSelectionKey(final SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * sets the operations the selector waits for
+     *
+     * @param ops int the operations, e.g., {@link SelectionKey#OP_READ}
+     */
+    void setInterest(final int ops) {
+        if (selectionKey != null && selectionKey.isValid()) {
+            selectionKey.interestOps(ops);
+        }
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * checks if the connection is established, i.e., connected and the handshake is done
+     *
+     * @return boolean true if requests can be sent
+     */
+    boolean isEstablished() {
+        return established;
+    }
+
+    /**
+     * marks the connection as established, i.e., connected and the handshake is done
+     */
+    void established() {
+        this.established = true;
+    }
+
+    BreinHttpResponseParser getParser() {
+        return parser;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getOpenTime() {
+        return openTime;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    int getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * marks the connection as used by a request now
+     */
+    void used() {
+        this.lastUsed = System.nanoTime();
+        this.requests++;
+    }
+
+    /**
+     * Completes the connect, secured connections start the handshake.
+     *
+     * @return boolean true if the connection is established
+     * @throws IOException if the connection cannot be established
+     */
+    boolean finishConnect() throws IOException {
+        if (!channel.finishConnect()) {
+            return false;
+        }
+
+        connected = true;
+        openTime = System.nanoTime();
+        if (sslEngine != null) {
+            sslEngine.beginHandshake();
+        }
+
+        return true;
+    }
+
+    /**
+     * Continues the TLS handshake as far as possible without blocking. The
+     * delegated tasks of the handshake (e.g., the verification of the
+     * certificates) are run directly.
+     *
+     * @return int 0 if the handshake is done, otherwise the operation to wait for
+     * @throws IOException if the handshake fails
+     */
+    int handshake() throws IOException {
+        if (sslEngine == null) {
+            return 0;
+        }
+
+        while (true) {
+            final SSLEngineResult.HandshakeStatus status = sslEngine.getHandshakeStatus();
+            switch (status) {
+                case NEED_TASK:
+                    runTasks();
+                    break;
+                case NEED_WRAP:
+                    final SSLEngineResult wrapResult = sslEngine.wrap(EMPTY, netOut);
+                    if (wrapResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new SSLException("connection closed during the handshake");
+                    } else if (!flush()) {
+                        return SelectionKey.OP_WRITE;
+                    }
+                    break;
+                case FINISHED:
+                case NOT_HANDSHAKING:
+                    return flush() ? 0 : SelectionKey.OP_WRITE;
+                case NEED_UNWRAP:
+                default:
+                    if (!flush()) {
+                        return SelectionKey.OP_WRITE;
+                    }
+
+                    netIn.flip();
+                    final SSLEngineResult unwrapResult = sslEngine.unwrap(netIn, appIn);
+                    netIn.compact();
+
+                    if (unwrapResult.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                        ensureNetInCapacity();
+                        final int read = channel.read(netIn);
+                        if (read < 0) {
+                            throw new SSLException("connection closed during the handshake");
+                        } else if (read == 0) {
+                            return SelectionKey.OP_READ;
+                        }
+                    } else if (unwrapResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new SSLException("connection closed during the handshake");
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Sends the bytes, encrypted if the connection is secured.
+     *
+     * @param src ByteBuffer the bytes to send (in read mode), the position is moved by the sent bytes
+     * @return boolean true if all bytes are sent, otherwise the operation has to be continued when the channel is
+     * writable again
+     * @throws IOException if the bytes cannot be sent
+     */
+    boolean write(final ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            if (sslEngine == null) {
+                final int length = Math.min(src.remaining(), netOut.remaining());
+                final int limit = src.limit();
+                src.limit(src.position() + length);
+                netOut.put(src);
+                src.limit(limit);
+            } else {
+                final SSLEngineResult result = sslEngine.wrap(src, netOut);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("connection closed");
+                }
+            }
+
+            if (!flush()) {
+                return false;
+            }
+        }
+
+        return flush();
+    }
+
+    /**
+     * Reads the available bytes, the decrypted bytes are appended to the
+     * buffer retrieved by {@link #getAppIn()}.
+     *
+     * @return int the number of received bytes, -1 if the connection was closed by the server
+     * @throws IOException if the bytes cannot be read
+     */
+    int read() throws IOException {
+        if (sslEngine == null) {
+            return channel.read(netIn);
+        }
+
+        ensureNetInCapacity();
+        final int read = channel.read(netIn);
+
+        netIn.flip();
+        try {
+            while (netIn.hasRemaining()) {
+                final SSLEngineResult result = sslEngine.unwrap(netIn, appIn);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+
+                    // the response has to be consumed first
+                    if (appIn.position() > 0) {
+                        break;
+                    }
+                    appIn = grow(appIn, sslEngine.getSession().getApplicationBufferSize());
+                } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    break;
+                } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    return -1;
+                }
+
+                // post-handshake messages, e.g., session tickets
+                if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    runTasks();
+                } else if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                    netIn.compact();
+                    try {
+                        handshake();
+                    } finally {
+                        netIn.flip();
+                    }
+                }
+            }
+        } finally {
+            netIn.compact();
+        }
+
+        return read;
+    }
+
+    /**
+     * retrieves the buffer containing the received (decrypted) bytes
+     *
+     * @return ByteBuffer the buffer (in write mode), i.e., it has to be flipped to read the bytes and compacted
+     * afterwards
+     */
+    ByteBuffer getAppIn() {
+        return appIn;
+    }
+
+    /**
+     * Checks if received bytes are left which were not decrypted so far,
+     * because the response buffer was full.
+     *
+     * @return boolean true if bytes are left
+     */
+    boolean hasBufferedInput() {
+        return sslEngine != null && netIn != null && netIn.position() > 0;
+    }
+
+    /**
+     * checks if bytes are left which could not be sent so far
+     *
+     * @return boolean true if bytes are pending
+     */
+    boolean hasPendingOutput() {
+        return netOut.position() > 0;
+    }
+
+    /**
+     * writes the pending bytes to the channel
+     *
+     * @return boolean true if all pending bytes are written
+     * @throws IOException if the bytes cannot be written
+     */
+    boolean flush() throws IOException {
+        if (netOut.position() == 0) {
+            return true;
+        }
+
+        netOut.flip();
+        try {
+            channel.write(netOut);
+            return !netOut.hasRemaining();
+        } finally {
+            netOut.compact();
+        }
+    }
+
+    /**
+     * Closes the connection and hands the buffers back to the pool. A secured
+     * connection tries to send the closing message, without waiting for it.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (sslEngine != null && connected) {
+            try {
+                sslEngine.closeOutbound();
+                sslEngine.wrap(EMPTY, netOut);
+                flush();
+            } catch (final IOException e) {
+                // the connection is closed anyways
+            }
+        }
+
+        if (selectionKey != null) {
+            selectionKey.cancel();
+        }
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            // nothing to do
+        }
+
+        if (appIn != netIn) {
+            pool.release(appIn);
+        }
+        pool.release(netIn);
+        pool.release(netOut);
+        appIn = null;
+        netIn = null;
+        netOut = null;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = sslEngine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private void ensureNetInCapacity() {
+        final int packetSize = sslEngine.getSession().getPacketBufferSize();
+        if (netIn.capacity() < packetSize) {
+            netIn = grow(netIn, packetSize);
+        }
+    }
+
+    private ByteBuffer grow(final ByteBuffer buffer, final int minCapacity) {
+        final ByteBuffer grown = pool.acquire(Math.max(minCapacity, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        pool.release(buffer);
+
+        return grown;
+    }
+
+    @Override
+    public String toString() {
+        return key + (connected ? " (connected, " + requests + " requests)" : " (connecting)");
+    }
+}
@@ -0,0 +1,39 @@
+package com.brein.engine;
+
+/**
+ * Specifies what happens with an activity added to the activity buffer, while
+ * the buffer is full (see {@link BreinActivityBuffer})
+ */
+public enum BreinOverflowPolicy {
+
+    /**
+     * the oldest buffered activity is dropped to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * the new activity is dropped
+     */
+    DROP_NEWEST,
+
+    /**
+     * the caller waits (at most the configured block timeout) until the buffer
+     * has room, the activity is dropped if the timeout elapsed
+     */
+    BLOCK,
+
+    /**
+     * Activities are written to a file while the buffer is full, they are sent
+     * after the buffered ones (also after a restart of the app, unless the
+     * journal is enabled, which replays them instead). The oldest spilled
+     * activity is dropped if the spill capacity is reached. Requires the
+     * application to be set within the configuration, otherwise the oldest
+     * activities are dropped.
+     * <p>
+     * The activity is written by the thread adding it, i.e., while the buffer
+     * is full, adding an activity performs file I/O on the calling thread.
+     * Prefer {@code DROP_OLDEST} or a larger capacity if activities are sent
+     * from the main thread of the app.
+     */
+    SPILL_TO_DISK
+}
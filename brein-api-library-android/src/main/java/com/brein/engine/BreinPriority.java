@@ -0,0 +1,20 @@
+package com.brein.engine;
+
+/**
+ * The lane a request is dispatched in, see {@link com.brein.api.BreinBase#getPriority()}
+ */
+public enum BreinPriority {
+
+    /**
+     * requests the user waits for (e.g., recommendations, temporal data or
+     * lookups), they are sent immediately
+     */
+    INTERACTIVE,
+
+    /**
+     * Requests nobody waits for (i.e., activities and location pings), they
+     * are sent by a limited number of threads (respectively connections) and
+     * are deferred while interactive requests are pending.
+     */
+    BULK
+}
@@ -0,0 +1,534 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinRecommendation;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.util.BreinGson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of recommendation requests (stale-while-revalidate). A
+ * cached result is passed to the callback immediately and the request is sent
+ * in the background, so that the next request gets the refreshed result. Only
+ * if there is no result younger than the configured maximum age, the callback
+ * waits for the endpoint.
+ * <p>
+ * The results are written to a file (if available), so that they can be used
+ * right after a restart of the application. The file is read in the background
+ * when the cache is created and written in the background at most once per
+ * {@link #PERSIST_DELAY}, and the keys do not contain the identity of the user
+ * in plain text. Concurrent requests for the same key share one request to the
+ * endpoint.
+ */
+public class BreinRecommendationCache {
+
+    private static final String TAG = "BreinRecommendationCache";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * time in ms the writing of the file is delayed, the results received meanwhile are written at once
+     */
+    public static final long PERSIST_DELAY = 1000L;
+
+    /**
+     * time in ms {@link #close()} waits for the file to be read or written
+     */
+    private static final long CLOSE_TIMEOUT = 2000L;
+
+    /**
+     * the engine used to send the requests
+     */
+    private final IRestEngine restEngine;
+
+    /**
+     * the file the results are kept in, {@code null} if the results are not persisted
+     */
+    private final File file;
+
+    /**
+     * synchronizes the writing of the file
+     */
+    private final Object fileLock = new Object();
+
+    /**
+     * reads and writes the file, {@code null} if the results are not persisted
+     */
+    private final ScheduledThreadPoolExecutor worker;
+
+    /**
+     * the cached results, ordered by their last access
+     */
+    private final LinkedHashMap<String, CachedResult> results =
+            new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, CachedResult> eldest) {
+                    return size() > maxSize;
+                }
+            };
+
+    /**
+     * the request currently sent for a key, including the callbacks waiting for it
+     */
+    private final Map<String, PendingRequest> pending = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private int maxSize = Integer.MAX_VALUE;
+
+    /**
+     * set while the writing of the file is scheduled, guarded by the lock of the cache
+     */
+    private boolean persistScheduled = false;
+
+    /**
+     * set as soon as the persisted results were read, guarded by the file lock
+     */
+    private volatile boolean loaded = false;
+
+    /**
+     * Creates a cache sending the requests through the given engine. The
+     * persisted results are read in the background, requests sent meanwhile
+     * wait for the endpoint.
+     *
+     * @param restEngine IRestEngine used to send the requests
+     * @param file       File the results are kept in, can be {@code null} to keep them in memory only
+     */
+    public BreinRecommendationCache(final IRestEngine restEngine, final File file) {
+        this.restEngine = restEngine;
+        this.file = file;
+
+        if (file == null) {
+            this.worker = null;
+            this.loaded = true;
+        } else {
+            this.worker = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "breinify-recommendation-cache");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.worker.setKeepAliveTime(30L, TimeUnit.SECONDS);
+            this.worker.allowCoreThreadTimeOut(true);
+            this.worker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+            this.worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (fileLock) {
+                        load();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Passes the cached result to the callback and refreshes it in the
+     * background. If there is no cached result (or it is too old), the callback
+     * is informed with the result of the request.
+     *
+     * @param config   BreinConfig contains the configuration object
+     * @param data     BreinRecommendation the request
+     * @param callback ICallback invoked with the result, can be {@code null}
+     */
+    public void invoke(final BreinConfig config,
+                       final BreinRecommendation data,
+                       final ICallback<BreinResult> callback) {
+        final String key = data.getCacheKey();
+        final long now = System.nanoTime();
+
+        final CachedResult usable;
+        final PendingRequest request;
+        synchronized (this) {
+            this.maxSize = Math.max(1, config.getRecommendationCacheSize());
+
+            final CachedResult cached = results.get(key);
+            usable = cached != null && System.currentTimeMillis() - cached.time <= config.getRecommendationCacheMaxAge()
+                    ? cached
+                    : null;
+
+            final PendingRequest sent = pending.get(key);
+            if (sent != null && !sent.isStale(now)) {
+
+                // the result is refreshed already, wait for it if needed
+                if (usable == null) {
+                    sent.callbacks.add(callback);
+                }
+                request = null;
+            } else {
+                request = new PendingRequest(now, TimeUnit.MILLISECONDS.toNanos(
+                        BreinRetryPolicy.getMaxRequestTime(config)));
+                if (sent != null) {
+
+                    // the request takes longer than possible, its callbacks wait for the new one instead
+                    Log.d(TAG, "no response for " + key + " in time, sending the request again");
+                    request.callbacks.addAll(sent.callbacks);
+                    sent.callbacks.clear();
+                }
+                if (usable == null) {
+                    request.callbacks.add(callback);
+                }
+                pending.put(key, request);
+            }
+        }
+
+        if (usable == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            inform(callback, new BreinResult(usable.response));
+        }
+
+        if (request != null) {
+            if (usable != null) {
+                refreshes.incrementAndGet();
+            }
+            send(config, data, key, request);
+        }
+    }
+
+    private void send(final BreinConfig config,
+                      final BreinRecommendation data,
+                      final String key,
+                      final PendingRequest request) {
+        try {
+            restEngine.invokeRequest(config, data, new ICallback<BreinResult>() {
+                @Override
+                public void callback(final BreinResult result) {
+                    complete(key, request, result);
+                }
+            });
+        } catch (final RuntimeException e) {
+
+            // the request is invalid, the requests waiting for it fail as well
+            final List<ICallback<BreinResult>> callbacks;
+            synchronized (this) {
+                callbacks = remove(key, request);
+            }
+            for (final ICallback<BreinResult> callback : callbacks) {
+                inform(callback, null);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * caches the result (if the request succeeded) and informs the waiting callbacks, a failed
+     * request keeps the previous result
+     */
+    private void complete(final String key, final PendingRequest request, final BreinResult result) {
+        final List<ICallback<BreinResult>> callbacks;
+        final boolean succeeded = result != null && result.getJson() != null;
+        synchronized (this) {
+            callbacks = remove(key, request);
+            if (succeeded) {
+                results.put(key, new CachedResult(key, System.currentTimeMillis(), result.getJson()));
+            }
+        }
+
+        if (succeeded) {
+            schedulePersist();
+        }
+
+        for (final ICallback<BreinResult> callback : callbacks) {
+            inform(callback, result == null ? null : new BreinResult(result.getJson()));
+        }
+    }
+
+    /**
+     * removes the request (unless it was replaced already) and takes its callbacks, must be called holding the lock
+     */
+    private List<ICallback<BreinResult>> remove(final String key, final PendingRequest request) {
+        if (pending.get(key) == request) {
+            pending.remove(key);
+        }
+
+        final List<ICallback<BreinResult>> callbacks = new ArrayList<>(request.callbacks);
+        request.callbacks.clear();
+        return callbacks;
+    }
+
+    private void inform(final ICallback<BreinResult> callback, final BreinResult result) {
+        if (callback == null) {
+            return;
+        }
+
+        try {
+            callback.callback(result);
+        } catch (final RuntimeException e) {
+            Log.d(TAG, "callback failed: " + e);
+        }
+    }
+
+    /**
+     * Reads the persisted results, must be called holding the file lock. The
+     * file is read without holding the lock of the cache, results received
+     * meanwhile are kept instead of the persisted ones.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        try {
+            merge(read());
+        } finally {
+            loaded = true;
+        }
+    }
+
+    /**
+     * reads the persisted results without holding the lock of the cache
+     *
+     * @return List the persisted results, {@code null} if there are none
+     */
+    private List<CachedResult> read() {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            final Reader reader = new InputStreamReader(new FileInputStream(file), UTF8);
+            try {
+                return BreinGson.GSON.fromJson(reader, new TypeToken<List<CachedResult>>() {}.getType());
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException | JsonParseException e) {
+            Log.d(TAG, "unable to read the cached recommendations: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * adds the persisted results, the ones received meanwhile are kept
+     */
+    private synchronized void merge(final List<CachedResult> persisted) {
+        if (persisted == null) {
+            return;
+        }
+
+        // the persisted results are older than the received ones, i.e., they are added as least recently used
+        final List<CachedResult> received = new ArrayList<>(results.values());
+        results.clear();
+        for (final CachedResult result : persisted) {
+            if (result != null && result.key != null && result.response != null) {
+                results.put(result.key, result);
+            }
+        }
+        for (final CachedResult result : received) {
+            results.put(result.key, result);
+        }
+    }
+
+    /**
+     * checks if the persisted results were read
+     *
+     * @return boolean true if the persisted results are available (or there are none)
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * schedules the writing of the file, unless it is scheduled already
+     */
+    private void schedulePersist() {
+        if (worker == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (persistScheduled) {
+                return;
+            }
+            persistScheduled = true;
+        }
+
+        try {
+            worker.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (takePersistScheduled()) {
+                        persist();
+                    }
+                }
+            }, PERSIST_DELAY, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+
+            // the cache is closed, the result is written right away
+            if (takePersistScheduled()) {
+                persist();
+            }
+        }
+    }
+
+    private synchronized boolean takePersistScheduled() {
+        final boolean scheduled = persistScheduled;
+        persistScheduled = false;
+        return scheduled;
+    }
+
+    /**
+     * Stops the background thread. The results received since the file was
+     * written last are written before this method returns.
+     */
+    public void close() {
+        if (worker == null) {
+            return;
+        }
+
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                Log.d(TAG, "the cached recommendations were not read in time");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (takePersistScheduled()) {
+            persist();
+        }
+    }
+
+    /**
+     * writes the results to the file, the file is replaced so that it is never read partly written
+     */
+    private void persist() {
+        if (file == null) {
+            return;
+        }
+
+        synchronized (fileLock) {
+
+            // the persisted results are not overwritten before they were read
+            load();
+
+            final List<CachedResult> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(results.values());
+            }
+
+            final File tmpFile = new File(file.getPath() + ".tmp");
+            try {
+                final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), UTF8);
+                try {
+                    BreinGson.GSON.toJson(snapshot, writer);
+                } finally {
+                    writer.close();
+                }
+
+                if (!tmpFile.renameTo(file)) {
+                    Log.d(TAG, "unable to replace the cached recommendations");
+                }
+            } catch (final IOException e) {
+                Log.d(TAG, "unable to write the cached recommendations: " + e);
+            }
+        }
+    }
+
+    /**
+     * removes all cached results, including the persisted ones
+     */
+    public void clear() {
+        synchronized (fileLock) {
+            loaded = true;
+            synchronized (this) {
+                results.clear();
+            }
+
+            if (file != null && file.exists() && !file.delete()) {
+                Log.d(TAG, "unable to delete the cached recommendations");
+            }
+        }
+    }
+
+    /**
+     * retrieves the number of requests answered from the cache
+     *
+     * @return long the number of requests
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * retrieves the number of requests waiting for the endpoint, because no usable result was cached
+     *
+     * @return long the number of requests
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * retrieves the number of cached results refreshed in the background
+     *
+     * @return long the number of refreshes
+     */
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    private static class PendingRequest {
+        private final long sentAt;
+        private final long maxTime;
+        private final List<ICallback<BreinResult>> callbacks = new ArrayList<>();
+
+        private PendingRequest(final long sentAt, final long maxTime) {
+            this.sentAt = sentAt;
+            this.maxTime = maxTime;
+        }
+
+        private boolean isStale(final long now) {
+            return maxTime > 0 && now - sentAt >= maxTime;
+        }
+    }
+
+    private static class CachedResult {
+        @SerializedName("key")
+        private final String key;
+        @SerializedName("time")
+        private final long time;
+        @SerializedName("response")
+        private final JsonObject response;
+
+        private CachedResult(final String key, final long time, final JsonObject response) {
+            this.key = key;
+            this.time = time;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinException;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Specifies what happens with a request that cannot be dispatched, because
+ * all dispatch threads are busy and the dispatch queue is full
+ */
+public enum BreinRejectionPolicy {
+
+    /**
+     * the request is rejected by throwing a {@code BreinException}
+     */
+    ABORT,
+
+    /**
+     * the request is executed within the thread that submitted it
+     */
+    CALLER_RUNS,
+
+    /**
+     * the request is dropped silently (only logged)
+     */
+    DISCARD,
+
+    /**
+     * the oldest queued request is dropped to make room for the new one
+     */
+    DISCARD_OLDEST;
+
+    private static final String TAG = "BreinRejectionPolicy";
+
+    /**
+     * creates the handler to be used by the dispatch executor
+     *
+     * @return RejectedExecutionHandler implementing this policy
+     */
+    public RejectedExecutionHandler createHandler() {
+        switch (this) {
+            case ABORT:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                        throw new BreinException(BreinException.REQUEST_REJECTED);
+                    }
+                };
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case DISCARD:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                        Log.d(TAG, "dispatch queue is full, request discarded");
+                    }
+                };
+            case DISCARD_OLDEST:
+            default:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) {
+                            return;
+                        }
+
+                        Log.d(TAG, "dispatch queue is full, oldest request discarded");
+                        executor.getQueue().poll();
+                        executor.execute(r);
+                    }
+                };
+        }
+    }
+}
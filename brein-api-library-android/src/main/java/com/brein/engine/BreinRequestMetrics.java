@@ -0,0 +1,216 @@
+package com.brein.engine;
+
+/**
+ * Contains the measurements of a single request, i.e., of one attempt to send
+ * it. All times are in microseconds, a value of -1 means it was not measured
+ * (e.g., the connect time of a dropped request).
+ */
+public class BreinRequestMetrics {
+
+    /**
+     * the possible outcomes of a request
+     */
+    public enum Outcome {
+
+        /**
+         * the request was answered successfully
+         */
+        SUCCEEDED,
+
+        /**
+         * the request failed (e.g., error status, timeout, no network)
+         */
+        FAILED,
+
+        /**
+         * the request failed and is sent again
+         */
+        RETRIED,
+
+        /**
+         * the request was never sent, because the dispatch queue was full
+         */
+        DROPPED
+    }
+
+    private final String endpoint;
+
+    /**
+     * time (System.nanoTime) the request was created, used to calculate the total latency
+     */
+    private final long startTime;
+
+    private Outcome outcome = Outcome.FAILED;
+    private int status = -1;
+
+    private long serializationTime = -1L;
+    private long queueWait = -1L;
+    private long connectTime = -1L;
+    private long timeToFirstByte = -1L;
+    private long totalLatency = -1L;
+
+    private long bytesOut = 0L;
+    private long uncompressedBytesOut = 0L;
+    private long bytesIn = 0L;
+
+    /**
+     * creates the metrics of a request started now
+     *
+     * @param endpoint String the endpoint the request is sent to
+     */
+    public BreinRequestMetrics(final String endpoint) {
+        this.endpoint = endpoint;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * calculates the microseconds passed since the given time
+     *
+     * @param start long the start time (System.nanoTime)
+     *
+     * @return long the passed microseconds
+     */
+    public static long microsSince(final long start) {
+        return (System.nanoTime() - start) / 1000L;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public BreinRequestMetrics setOutcome(final Outcome outcome) {
+        this.outcome = outcome;
+        return this;
+    }
+
+    /**
+     * retrieves the http status of the response
+     *
+     * @return int the status, -1 if no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public BreinRequestMetrics setStatus(final int status) {
+        this.status = status;
+        return this;
+    }
+
+    /**
+     * retrieves the time needed to create (and sign) the request body
+     *
+     * @return long the time in microseconds
+     */
+    public long getSerializationTime() {
+        return serializationTime;
+    }
+
+    public BreinRequestMetrics setSerializationTime(final long serializationTime) {
+        this.serializationTime = serializationTime;
+        return this;
+    }
+
+    /**
+     * retrieves the time the request waited within the dispatch queue
+     *
+     * @return long the time in microseconds
+     */
+    public long getQueueWait() {
+        return queueWait;
+    }
+
+    public BreinRequestMetrics setQueueWait(final long queueWait) {
+        this.queueWait = queueWait;
+        return this;
+    }
+
+    /**
+     * retrieves the time needed to connect, close to 0 if a pooled connection was reused
+     *
+     * @return long the time in microseconds
+     */
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    public BreinRequestMetrics setConnectTime(final long connectTime) {
+        this.connectTime = connectTime;
+        return this;
+    }
+
+    /**
+     * retrieves the time between the request was written and the response status was received
+     *
+     * @return long the time in microseconds
+     */
+    public long getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public BreinRequestMetrics setTimeToFirstByte(final long timeToFirstByte) {
+        this.timeToFirstByte = timeToFirstByte;
+        return this;
+    }
+
+    /**
+     * retrieves the time between the request was created and the response was read
+     *
+     * @return long the time in microseconds
+     */
+    public long getTotalLatency() {
+        return totalLatency;
+    }
+
+    public BreinRequestMetrics setTotalLatency(final long totalLatency) {
+        this.totalLatency = totalLatency;
+        return this;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public BreinRequestMetrics setBytesOut(final long bytesOut) {
+        this.bytesOut = bytesOut;
+        return this;
+    }
+
+    /**
+     * retrieves the size of the request body before it was compressed
+     *
+     * @return long the size in bytes, equal to the bytes out if the body was not compressed
+     */
+    public long getUncompressedBytesOut() {
+        return uncompressedBytesOut;
+    }
+
+    public BreinRequestMetrics setUncompressedBytesOut(final long uncompressedBytesOut) {
+        this.uncompressedBytesOut = uncompressedBytesOut;
+        return this;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public BreinRequestMetrics setBytesIn(final long bytesIn) {
+        this.bytesIn = bytesIn;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " " + outcome + " (status: " + status + ", total: " + totalLatency + "us, " +
+                "serialization: " + serializationTime + "us, queue: " + queueWait + "us, connect: " +
+                connectTime + "us, ttfb: " + timeToFirstByte + "us, out: " + bytesOut + "B, in: " + bytesIn + "B)";
+    }
+}
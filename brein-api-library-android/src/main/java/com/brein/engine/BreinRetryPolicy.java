@@ -0,0 +1,163 @@
+package com.brein.engine;
+
+import com.brein.domain.BreinConfig;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides if and when a failed request is sent again. Network errors, server
+ * errors (5xx) and throttled requests (429) are retried. The delay grows
+ * exponentially with each attempt and is randomized over the whole range
+ * (full jitter), so that many clients failing at the same time do not retry at
+ * the same time. A delay requested by the server (Retry-After) is honored.
+ */
+public class BreinRetryPolicy {
+
+    /**
+     * status of a throttled request
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    private static final Random RANDOM = new Random();
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * creates the policy of the configuration
+     *
+     * @param config BreinConfig contains the retry settings
+     */
+    public BreinRetryPolicy(final BreinConfig config) {
+        this(config.getRetryMaxAttempts(), config.getRetryBaseDelay(), config.getRetryMaxDelay());
+    }
+
+    /**
+     * creates a policy
+     *
+     * @param maxAttempts int maximum number of attempts, 1 disables retries
+     * @param baseDelay   long the delay in ms of the first retry
+     * @param maxDelay    long the maximum delay in ms
+     */
+    public BreinRetryPolicy(final int maxAttempts, final long baseDelay, final long maxDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = Math.max(0L, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * determines the time a request takes at most, i.e., each attempt takes the connection and the socket timeout
+     * and is delayed as long as possible
+     *
+     * @param config BreinConfig contains the timeouts and the retry settings
+     * @return long the time in ms, 0 if the requests are not timed out
+     */
+    public static long getMaxRequestTime(final BreinConfig config) {
+        if (config.getConnectionTimeout() <= 0 || config.getSocketTimeout() <= 0) {
+            return 0L;
+        }
+
+        final BreinRetryPolicy policy = new BreinRetryPolicy(config);
+        final long attemptTime = config.getConnectionTimeout() + config.getSocketTimeout();
+        return policy.maxAttempts * attemptTime + (policy.maxAttempts - 1) * policy.maxDelay;
+    }
+
+    /**
+     * checks if another attempt is allowed after the given one failed
+     *
+     * @param attempt int the failed attempt, starting with 1
+     * @return boolean true if the request can be retried
+     */
+    public boolean canRetry(final int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * checks if a request answered with the status can be retried
+     *
+     * @param status int the http status of the response
+     * @return boolean true if the status signals a temporary problem
+     */
+    public boolean isRetryable(final int status) {
+        return status == TOO_MANY_REQUESTS || status >= 500;
+    }
+
+    /**
+     * checks if the status signals a successful request
+     *
+     * @param status int the http status of the response
+     * @return boolean true for any 2xx status
+     */
+    public static boolean isSuccessful(final int status) {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * checks if the backend refused the request permanently, i.e., sending it again would fail as well
+     *
+     * @param status int the http status of the response
+     * @return boolean true for any 4xx status, except a throttled request
+     */
+    public static boolean isRejected(final int status) {
+        return status >= 400 && status < 500 && status != TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * calculates the delay before the next attempt
+     *
+     * @param attempt    int the failed attempt, starting with 1
+     * @param retryAfter long the delay in ms requested by the server, -1 if none was requested
+     * @return long the delay in ms
+     */
+    public long getDelay(final int attempt, final long retryAfter) {
+        if (retryAfter >= 0) {
+            return Math.min(retryAfter, maxDelay);
+        }
+
+        // exponential backoff, the shift is limited to avoid an overflow
+        final int shift = Math.min(Math.max(0, attempt - 1), 30);
+        final long backoff = baseDelay > (maxDelay >> shift) ? maxDelay : baseDelay << shift;
+
+        return (long) (RANDOM.nextDouble() * (backoff + 1));
+    }
+
+    /**
+     * Parses the value of a Retry-After header, which is either a number of
+     * seconds or a http date.
+     *
+     * @param value String the value of the header, can be {@code null}
+     * @param now   long the current time in ms
+     * @return long the requested delay in ms, -1 if the value is not valid
+     */
+    public static long parseRetryAfter(final String value, final long now) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1L;
+        }
+
+        final String trimmed = value.trim();
+        try {
+            return Math.max(0L, Long.parseLong(trimmed) * 1000L);
+        } catch (final NumberFormatException e) {
+            // try the date format
+        }
+
+        final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            final Date date = format.parse(trimmed);
+            return Math.max(0L, date.getTime() - now);
+        } catch (final ParseException e) {
+            return -1L;
+        }
+    }
+}
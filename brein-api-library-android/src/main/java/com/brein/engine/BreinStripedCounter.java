@@ -0,0 +1,81 @@
+package com.brein.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which can be incremented by many threads without contention. The
+ * value is spread over several cells (each on its own cache line), a thread
+ * always updates the cell selected by its id. Reading the value sums up the
+ * cells, i.e., it is more expensive than an update and not an atomic snapshot.
+ */
+public class BreinStripedCounter {
+
+    /**
+     * number of longs per cell, so that each cell has its own cache line
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * number of cells, a power of two
+     */
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * increments the counter by one
+     */
+    public void increment() {
+        add(1L);
+    }
+
+    /**
+     * adds the value to the counter
+     *
+     * @param value long the value to add
+     */
+    public void add(final long value) {
+        cells.getAndAdd(index(), value);
+    }
+
+    /**
+     * retrieves the current value of the counter
+     *
+     * @return long the sum of all cells
+     */
+    public long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    /**
+     * resets the counter, concurrent updates may be lost
+     */
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(sum());
+    }
+
+    private static int index() {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripes(final int processors) {
+        int stripes = 1;
+        while (stripes < 2 * processors && stripes < 64) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}
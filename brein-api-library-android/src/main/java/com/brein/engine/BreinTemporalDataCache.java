@@ -0,0 +1,286 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinTemporalData;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.util.BreinGson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the responses of temporal data requests. Weather, holidays, timezone
+ * and location of a place change slowly, thus requests for the same geo-cell
+ * (or ip-address) and shape-types share a response until one of its sections
+ * expired. The cache keeps the most recently used responses only, and
+ * concurrent requests for the same key share one request to the endpoint.
+ * <p>
+ * Requests sharing another request cannot be aborted by cancelling their
+ * {@code BreinFuture}, the shared request is always finished. Each callback
+ * receives its own copy of the response, i.e., changing it does not affect the
+ * cached response.
+ */
+public class BreinTemporalDataCache {
+
+    private static final String TAG = "BreinTemporalDataCache";
+
+    /**
+     * the engine used to send the requests
+     */
+    private final IRestEngine restEngine;
+
+    /**
+     * the cached responses, ordered by their last access
+     */
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedResponse> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * the request currently sent for a key, including the callbacks waiting for it
+     */
+    private final Map<String, PendingRequest> pending = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private int maxSize = Integer.MAX_VALUE;
+
+    /**
+     * creates a cache sending the requests through the given engine
+     *
+     * @param restEngine IRestEngine used to send the requests
+     */
+    public BreinTemporalDataCache(final IRestEngine restEngine) {
+        this.restEngine = restEngine;
+    }
+
+    /**
+     * Answers the request from the cache if possible. Otherwise the request is
+     * sent, unless the same request is already sent, in which case the callback
+     * is informed with the result of that request.
+     *
+     * @param config   BreinConfig contains the configuration object
+     * @param data     BreinTemporalData the request
+     * @param callback ICallback invoked with the result, can be {@code null}
+     */
+    public void invoke(final BreinConfig config,
+                       final BreinTemporalData data,
+                       final ICallback<BreinResult> callback) {
+        final String key = data.getCacheKey(config.getTemporalDataCacheCellSize());
+        final long now = System.nanoTime();
+
+        final CachedResponse entry;
+        final PendingRequest request;
+        synchronized (this) {
+            this.maxSize = Math.max(1, config.getTemporalDataCacheSize());
+
+            final CachedResponse cached = entries.get(key);
+            if (cached != null && cached.isValid(now)) {
+                entry = cached;
+                request = null;
+            } else {
+                final PendingRequest sent = pending.get(key);
+                if (sent != null && !sent.isStale(now)) {
+                    sent.callbacks.add(callback);
+                    coalesced.incrementAndGet();
+                    return;
+                }
+
+                entry = null;
+                request = new PendingRequest(now, TimeUnit.MILLISECONDS.toNanos(
+                        BreinRetryPolicy.getMaxRequestTime(config)));
+                if (sent != null) {
+
+                    // the request takes longer than possible, its callbacks wait for the new one instead
+                    Log.d(TAG, "no response for " + key + " in time, sending the request again");
+                    request.callbacks.addAll(sent.callbacks);
+                    sent.callbacks.clear();
+                }
+                request.callbacks.add(callback);
+                pending.put(key, request);
+            }
+        }
+
+        if (entry != null) {
+            hits.incrementAndGet();
+            inform(callback, new BreinResult(BreinGson.deepCopy(entry.response)));
+            return;
+        }
+
+        misses.incrementAndGet();
+        try {
+            restEngine.invokeRequest(config, data, new ICallback<BreinResult>() {
+                @Override
+                public void callback(final BreinResult result) {
+                    complete(config, key, request, result);
+                }
+            });
+        } catch (final RuntimeException e) {
+
+            // the request is invalid, the requests waiting for it fail as well
+            final List<ICallback<BreinResult>> callbacks;
+            synchronized (this) {
+                callbacks = remove(key, request);
+            }
+            for (final ICallback<BreinResult> waiting : callbacks) {
+                if (waiting != callback) {
+                    inform(waiting, null);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * caches the result (if the request succeeded) and informs the waiting callbacks
+     */
+    private void complete(final BreinConfig config,
+                          final String key,
+                          final PendingRequest request,
+                          final BreinResult result) {
+        final List<ICallback<BreinResult>> callbacks;
+        synchronized (this) {
+            callbacks = remove(key, request);
+            if (result != null && result.getJson() != null) {
+                entries.put(key, new CachedResponse(result.getJson(), System.nanoTime() + getTtl(config, result.getJson())));
+            }
+        }
+
+        for (final ICallback<BreinResult> callback : callbacks) {
+            inform(callback, result == null ? null : new BreinResult(BreinGson.deepCopy(result.getJson())));
+        }
+    }
+
+    /**
+     * removes the request (unless it was replaced already) and takes its callbacks, must be called holding the lock
+     */
+    private List<ICallback<BreinResult>> remove(final String key, final PendingRequest request) {
+        if (pending.get(key) == request) {
+            pending.remove(key);
+        }
+
+        final List<ICallback<BreinResult>> callbacks = new ArrayList<>(request.callbacks);
+        request.callbacks.clear();
+        return callbacks;
+    }
+
+    /**
+     * determines the time the response is valid, i.e., the time until the first of its sections expires
+     *
+     * @param config   BreinConfig contains the times of the sections
+     * @param response JsonObject the response
+     * @return long the time in nanoseconds
+     */
+    private long getTtl(final BreinConfig config, final JsonObject response) {
+        long ttl = Long.MAX_VALUE;
+        for (final Map.Entry<String, JsonElement> section : response.entrySet()) {
+            if (section.getValue().isJsonObject()) {
+                ttl = Math.min(ttl, config.getTemporalDataCacheTtl(section.getKey()));
+            }
+        }
+
+        if (ttl == Long.MAX_VALUE) {
+            ttl = config.getTemporalDataCacheTtl("");
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, ttl));
+    }
+
+    private void inform(final ICallback<BreinResult> callback, final BreinResult result) {
+        if (callback == null) {
+            return;
+        }
+
+        try {
+            callback.callback(result);
+        } catch (final RuntimeException e) {
+            Log.d(TAG, "callback failed: " + e);
+        }
+    }
+
+    /**
+     * removes all cached responses
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * retrieves the number of cached responses, including expired ones not removed yet
+     *
+     * @return int the number of responses
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * retrieves the number of requests answered from the cache
+     *
+     * @return long the number of requests
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * retrieves the number of requests sent to the endpoint
+     *
+     * @return long the number of requests
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * retrieves the number of requests which shared the result of a request already sent
+     *
+     * @return long the number of requests
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private static class PendingRequest {
+        private final long sentAt;
+        private final long maxTime;
+        private final List<ICallback<BreinResult>> callbacks = new ArrayList<>();
+
+        private PendingRequest(final long sentAt, final long maxTime) {
+            this.sentAt = sentAt;
+            this.maxTime = maxTime;
+        }
+
+        private boolean isStale(final long now) {
+            return maxTime > 0 && now - sentAt >= maxTime;
+        }
+    }
+
+    private static class CachedResponse {
+        private final JsonObject response;
+        private final long expiresAt;
+
+        private CachedResponse(final JsonObject response, final long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid(final long now) {
+            return now - expiresAt < 0;
+        }
+    }
+}
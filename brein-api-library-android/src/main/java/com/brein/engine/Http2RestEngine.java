@@ -0,0 +1,45 @@
+package com.brein.engine;
+
+/**
+ * Non-blocking engine sending the requests using HTTP/2 (see
+ * {@link BreinEngineType#HTTP2_ENGINE}). The requests to a host are sent as
+ * concurrent streams of a single connection, i.e., only one TCP and TLS
+ * handshake is needed and a slow response does not block the others. The
+ * headers are compressed, the ones repeated by every request are sent as a
+ * single byte each.
+ * <p>
+ * HTTP/2 is offered during the TLS handshake (ALPN), which is supported since
+ * Android 10. If it is not supported by the platform or not selected by the
+ * server, the requests are sent using HTTP/1.1 as done by the
+ * {@link NioRestEngine}. Plain (not secured) connections start with HTTP/2
+ * directly and fall back to HTTP/1.1 if the server does not answer with its
+ * HTTP/2 settings.
+ */
+public class Http2RestEngine extends NioRestEngine {
+
+    /**
+     * creates an engine recording its measurements in an own registry
+     */
+    public Http2RestEngine() {
+        this(new BreinMetrics());
+    }
+
+    /**
+     * creates an engine recording its measurements in the given registry
+     *
+     * @param metrics BreinMetrics the registry to record the measurements in
+     */
+    public Http2RestEngine(final BreinMetrics metrics) {
+        super(metrics, true);
+    }
+
+    @Override
+    public IRestEngine getRestEngine(final BreinEngineType engine) {
+        return engine == BreinEngineType.HTTP2_ENGINE ? this : null;
+    }
+
+    @Override
+    public BreinEngineType getRestEngineType(final BreinEngineType engine) {
+        return BreinEngineType.HTTP2_ENGINE;
+    }
+}
@@ -4,19 +4,52 @@ import android.util.Log;
 
 import com.brein.api.BreinActivity;
 import com.brein.api.BreinBase;
+import com.brein.api.BreinException;
+import com.brein.api.BreinFuture;
 import com.brein.api.BreinLookup;
 import com.brein.api.Breinify;
 import com.brein.api.ICallback;
 import com.brein.domain.BreinConfig;
 import com.brein.domain.BreinResult;
+import com.brein.util.BreinGzip;
+import com.brein.util.BreinResponseReader;
 import com.brein.util.BreinUtil;
-import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 
 /**
  * could be the jersey rest com.brein.engine implementation
@@ -25,11 +58,92 @@ public class HttpUrlRestEngine implements IRestEngine {
 
     private static final String TAG = "HttpUrlRestEngine";
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     /**
      * constant for post method
      */
     private static final String POST_METHOD = "POST";
 
+    /**
+     * time in seconds an idle non-core dispatch thread is kept alive
+     */
+    private static final long DISPATCH_KEEP_ALIVE = 30;
+
+    /**
+     * the values of the connection properties set by the library, guarded by the class, a property with another
+     * value was set by the app
+     */
+    private static final Map<String, String> APPLIED_PROPERTIES = new HashMap<>();
+
+    /**
+     * counts the requests and the connections opened for them
+     */
+    private final BreinConnectionStats connectionStats = new BreinConnectionStats();
+
+    /**
+     * socket factory of the https connections, counts the opened connections
+     */
+    private final SSLSocketFactory socketFactory = new CountingSocketFactory(connectionStats);
+
+    /**
+     * the registry the measurements of the requests are recorded in
+     */
+    private final BreinMetrics metrics;
+
+    /**
+     * the configuration used to create the dispatch executor
+     */
+    private BreinConfig config;
+
+    /**
+     * executor used to dispatch the requests, created lazily
+     */
+    private ExecutorService executor;
+
+    /**
+     * executor used to dispatch the bulk requests (i.e., activities), created lazily
+     */
+    private ExecutorService bulkExecutor;
+
+    /**
+     * defers the bulk requests while interactive requests are pending
+     */
+    private BreinBulkGate bulkGate = new BreinBulkGate();
+
+    /**
+     * timer used to send retries and probes of opened circuit breakers, created lazily
+     */
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * the retries waiting for their delay, they are dropped if the engine is terminated meanwhile
+     */
+    private final Set<RequestAttempt> scheduledRetries =
+            Collections.newSetFromMap(new ConcurrentHashMap<RequestAttempt, Boolean>());
+
+    /**
+     * the circuit breakers per endpoint, only used if circuit breaking is enabled
+     */
+    private final ConcurrentMap<String, BreinCircuitBreaker<RequestAttempt>> circuitBreakers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * creates an engine recording its measurements in an own registry
+     */
+    public HttpUrlRestEngine() {
+        this(new BreinMetrics());
+    }
+
+    /**
+     * creates an engine recording its measurements in the given registry
+     *
+     * @param metrics BreinMetrics the registry to record the measurements in
+     */
+    public HttpUrlRestEngine(final BreinMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * invokes the post request. Needs to run a thread.
      *
@@ -47,181 +161,1152 @@ public class HttpUrlRestEngine implements IRestEngine {
         final int connectionTimeout = (int) Breinify.getConfig().getConnectionTimeout();
         final int readTimeout = (int) Breinify.getConfig().getSocketTimeout();
 
-        new Thread(new Runnable() {
+        final BreinConfig config = Breinify.getConfig();
+        dispatch(config, BreinPriority.BULK, new Runnable() {
             @Override
             public void run() {
+                HttpURLConnection conn = null;
                 try {
-                    final URL url = new URL(fullUrl);
-                    final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-                    conn.setReadTimeout(readTimeout);
-                    conn.setConnectTimeout(connectionTimeout);
-                    conn.setRequestMethod(POST_METHOD);
-                    conn.setDoInput(true);
-                    conn.setDoOutput(true);
+                    conn = openConnection(config, fullUrl, connectionTimeout, readTimeout);
+                    writeBody(config, conn, requestBody, null);
 
-                    Log.d(TAG, "Outputstream is: " + conn.getOutputStream());
-                    final PrintWriter out = new PrintWriter(conn.getOutputStream());
-                    out.print(requestBody);
-                    out.close();
-
-                    conn.connect();
                     final int response = conn.getResponseCode();
                     Log.d(TAG, "response is: " + response);
-
                 } catch (final Exception e) {
                     Log.d(TAG, "HttpUrlRestEngine exception is: " + e);
+                } finally {
+                    closeConnection(config, conn);
                 }
-
             }
-        }).start();
+        });
     }
 
     /**
-     * performs a lookup and provides details
+     * Performs a lookup and waits for the result.
+     * <p>
+     * <b>This method blocks the calling thread</b> until the response is received, including the retries, or the
+     * maximum request time of the retry policy elapsed. It must not be called from the main thread (it may cause an
+     * ANR) nor from a dispatching thread, use {@link com.brein.api.Brein#lookup(BreinLookup)}, which returns a
+     * {@link BreinFuture}, or the variant taking a callback instead.
      *
      * @param breinLookup contains request data
-     * @return response from Breinify
+     * @return response from Breinify, {@code null} if the lookup failed or timed out
      */
     @Override
     public BreinResult doLookup(final BreinLookup breinLookup) {
+        final BreinConfig config = Breinify.getConfig();
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        invokeRequest(config, breinLookup, future);
 
-        // validate the input objects
-        BreinUtil.validate(breinLookup);
-
-        final String fullUrl = BreinUtil.getFullyQualifiedUrl(breinLookup);
-        final String requestBody = BreinUtil.getRequestBody(breinLookup);
-        final int connectionTimeout = (int) Breinify.getConfig().getConnectionTimeout();
-        final int readTimeout = (int) Breinify.getConfig().getSocketTimeout();
-
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    final URL url = new URL(fullUrl);
-                    final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        // the caller is not blocked longer than all attempts, including the delays in between, may take
+        final long timeout = BreinRetryPolicy.getMaxRequestTime(config);
+        try {
+            return future.getOrCancel(timeout <= 0 ? Integer.MAX_VALUE : timeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final TimeoutException e) {
+            Log.d(TAG, "doLookup - no response within " + timeout + " ms");
+            return null;
+        } catch (final ExecutionException e) {
+            Log.d(TAG, "doLookup - exception: " + e.getCause());
+            return null;
+        }
+    }
 
-                    conn.setReadTimeout(readTimeout);
-                    conn.setConnectTimeout(connectionTimeout);
-                    conn.setRequestMethod(POST_METHOD);
-                    conn.setDoInput(true);
-                    conn.setDoOutput(true);
+    /**
+     * stops the dispatch executors. Already queued requests are still sent
+     * (the bulk requests without being deferred anymore), as long as they
+     * finish within the configured termination timeout.
+     */
+    @Override
+    public void terminate() {
+        final ExecutorService current;
+        final ExecutorService currentBulk;
+        final ScheduledExecutorService currentRetryScheduler;
+        synchronized (this) {
+            current = this.executor;
+            currentBulk = this.bulkExecutor;
+            currentRetryScheduler = this.retryScheduler;
+            this.executor = null;
+            this.bulkExecutor = null;
+            this.retryScheduler = null;
 
-                    Log.d(TAG, "Outputstream is: " + conn.getOutputStream());
-                    final PrintWriter out = new PrintWriter(conn.getOutputStream());
-                    out.print(requestBody);
-                    out.close();
+            this.bulkGate.stopDeferring();
+            this.bulkGate = new BreinBulkGate();
+        }
 
-                    conn.connect();
-                    final int response = conn.getResponseCode();
+        // pending retries are not sent anymore, they fail as the requests kept by circuit breakers
+        if (currentRetryScheduler != null) {
+            currentRetryScheduler.shutdownNow();
+        }
+        for (final RequestAttempt attempt : scheduledRetries) {
+            if (scheduledRetries.remove(attempt)) {
+                attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            }
+        }
+        for (final BreinCircuitBreaker<RequestAttempt> breaker : circuitBreakers.values()) {
+            for (final RequestAttempt attempt : breaker.drain()) {
+                attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            }
+        }
 
-                    if (response == HttpURLConnection.HTTP_OK) {
-                        final StringBuilder sb = new StringBuilder();
-                        final InputStream mInputStream = conn.getInputStream();
+        final long timeout = this.config == null
+                ? 0L
+                : this.config.getDispatchTerminationTimeout();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
 
-                        int i;
-                        while ((i = mInputStream.read()) != -1) {
-                            sb.append((char) i);
-                        }
-                    } else {
-                        Log.d(TAG, "doLookup - exception");
-                    }
+        // both executors share the termination timeout
+        for (final ExecutorService dispatcher : new ExecutorService[]{current, currentBulk}) {
+            if (dispatcher != null) {
+                dispatcher.shutdown();
+            }
+        }
+        for (final ExecutorService dispatcher : new ExecutorService[]{current, currentBulk}) {
+            if (dispatcher == null) {
+                continue;
+            }
 
-                } catch (final Exception e) {
-                    Log.d(TAG, "doLookup - exception");
+            try {
+                if (!dispatcher.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    Log.d(TAG, "dispatch executor did not terminate in time, dropping remaining requests");
+                    dropAll(dispatcher.shutdownNow());
                 }
-
+            } catch (final InterruptedException e) {
+                dropAll(dispatcher.shutdownNow());
+                Thread.currentThread().interrupt();
             }
-        }).start();
+        }
 
-        return null;
+        BreinGzip.clear();
     }
 
     /**
-     * stops possible functionality (e.g. threads)
+     * informs the requests which were queued but are not going to be sent anymore
+     *
+     * @param requests List the runnables removed from the queue of an executor
      */
-    @Override
-    public void terminate() {
+    private void dropAll(final List<Runnable> requests) {
+        for (final Runnable request : requests) {
+            if (request instanceof DispatchedRequest) {
+                ((DispatchedRequest) request).dropped();
+            }
+        }
     }
 
     @Override
-    public IRestEngine getRestEngine(BreinEngineType engine) {
-        return null;
+    public IRestEngine getRestEngine(final BreinEngineType engine) {
+        return engine == BreinEngineType.HTTP_URL_CONNECTION_ENGINE ? this : null;
     }
 
     @Override
-    public BreinEngineType getRestEngineType(BreinEngineType engine) {
-        return null;
+    public BreinEngineType getRestEngineType(final BreinEngineType engine) {
+        return BreinEngineType.HTTP_URL_CONNECTION_ENGINE;
     }
 
     /**
-     * configuration of the rest  client
+     * configuration of the rest  client, the dispatch executor is created
+     * with the first request using this configuration
      */
     @Override
     public void configure(final BreinConfig breinConfig) {
+        synchronized (this) {
+            this.config = breinConfig;
+        }
+        applyConnectionSettings(breinConfig);
+    }
+
+    /**
+     * hands the request over to the dispatch executor of its lane
+     *
+     * @param config   BreinConfig used if the executor has to be created
+     * @param priority BreinPriority the lane of the request, bulk requests are sent by own threads
+     * @param request  Runnable the request to be sent
+     */
+    protected void dispatch(final BreinConfig config, final BreinPriority priority, final Runnable request) {
+        if (priority == BreinPriority.BULK) {
+            getBulkExecutor(config).execute(request);
+        } else {
+            getExecutor(config).execute(request);
+        }
+    }
+
+    /**
+     * retrieves the dispatch executor, the executor is created if not available yet
+     *
+     * @param fallbackConfig BreinConfig used if the engine was not configured
+     * @return ExecutorService the executor
+     */
+    protected synchronized ExecutorService getExecutor(final BreinConfig fallbackConfig) {
+        if (this.executor == null) {
+            if (this.config == null) {
+                this.config = fallbackConfig;
+            }
+            this.executor = createExecutor(this.config);
+        }
+
+        return this.executor;
+    }
+
+    /**
+     * retrieves the executor of the bulk requests, the executor is created if not available yet
+     *
+     * @param fallbackConfig BreinConfig used if the engine was not configured
+     * @return ExecutorService the executor
+     */
+    protected synchronized ExecutorService getBulkExecutor(final BreinConfig fallbackConfig) {
+        if (this.bulkExecutor == null) {
+            if (this.config == null) {
+                this.config = fallbackConfig;
+            }
+
+            // the bulk requests wait within the queue, the threads are limited by the concurrency of the lane
+            final int concurrency = Math.max(1, this.config.getDispatchBulkConcurrency());
+            final ThreadPoolExecutor bulk = new ThreadPoolExecutor(concurrency,
+                    concurrency,
+                    DISPATCH_KEEP_ALIVE,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, this.config.getDispatchQueueCapacity())),
+                    new DispatchThreadFactory("breinify-bulk-"),
+                    new DroppedRequestHandler(this.config.getDispatchRejectionPolicy()));
+            bulk.allowCoreThreadTimeOut(true);
+            this.bulkExecutor = bulk;
+        }
+
+        return this.bulkExecutor;
+    }
+
+    private synchronized BreinBulkGate getBulkGate() {
+        return bulkGate;
+    }
+
+    /**
+     * Creates the executor used to dispatch the requests. Can be overridden to
+     * plug in a different executor, it will be shut down on {@link #terminate()}.
+     *
+     * @param config BreinConfig contains the dispatch settings
+     * @return ExecutorService the created executor
+     */
+    protected ExecutorService createExecutor(final BreinConfig config) {
+        final int corePoolSize = Math.max(1, config.getDispatchCorePoolSize());
+        final int maxPoolSize = Math.max(corePoolSize, config.getDispatchMaxPoolSize());
+        final int queueCapacity = Math.max(1, config.getDispatchQueueCapacity());
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(corePoolSize,
+                maxPoolSize,
+                DISPATCH_KEEP_ALIVE,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new DispatchThreadFactory("breinify-dispatch-"),
+                new DroppedRequestHandler(config.getDispatchRejectionPolicy()));
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void invokeRequest(final BreinConfig config, final BreinBase data, final ICallback<BreinResult> callback) {
 
         // validate the input objects
         BreinUtil.validate(data);
 
-        final String fullUrl = BreinUtil.getFullyQualifiedUrl(data);
-        final String requestBody = BreinUtil.getRequestBody(data);
-        Log.d(TAG, "InvokeRequest - request is:  " + requestBody);
-        final int connectionTimeout = (int) Breinify.getConfig().getConnectionTimeout();
-        final int readTimeout = (int) Breinify.getConfig().getSocketTimeout();
+        final BreinRequestMetrics requestMetrics = new BreinRequestMetrics(data.getEndPoint(config));
+
+        // the request data is created (and signed) by the caller, only the writing is dispatched
+        final Map<String, Object> requestData = config.isRequestStreaming() ? data.prepareRequestMap(config) : null;
+        final String requestBody;
+        if (requestData == null) {
+            requestBody = BreinUtil.getRequestBody(config, data);
+            Log.d(TAG, "InvokeRequest - request is:  " + requestBody);
+        } else {
+            requestBody = null;
+        }
+        requestMetrics.setSerializationTime(BreinRequestMetrics.microsSince(requestMetrics.getStartTime()));
+
+        submit(new RequestAttempt(config, data, requestData, requestBody, callback, requestMetrics));
+    }
+
+    /**
+     * Dispatches the attempt, unless the circuit breaker of its endpoint is open.
+     * In that case the attempt is buffered until the endpoint recovered.
+     *
+     * @param attempt RequestAttempt the attempt to send
+     */
+    private void submit(final RequestAttempt attempt) {
+        if (attempt.isCancelled()) {
+            attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            return;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> breaker = getCircuitBreaker(attempt.config, attempt.endpoint);
+        if (breaker == null || breaker.allowRequest()) {
+            attempt.markDispatched();
+            dispatch(attempt.config, attempt.getPriority(), attempt);
+            return;
+        }
 
-        new Thread(new Runnable() {
+        final RequestAttempt rejected = breaker.buffer(attempt);
+        if (rejected == attempt) {
+
+            // the breaker was closed in the meantime
+            attempt.markDispatched();
+            dispatch(attempt.config, attempt.getPriority(), attempt);
+        } else {
+            if (rejected != null) {
+                Log.d(TAG, "circuit breaker buffer of " + attempt.endpoint + " is full, oldest request dropped");
+                rejected.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            }
+
+            // a buffered request (e.g., a probe buffered again) is never left without a scheduled probe
+            if (breaker.claimProbe()) {
+                scheduleProbe(breaker);
+            }
+        }
+    }
+
+    /**
+     * schedules the oldest buffered attempt of the breaker to be sent as probe after the open time
+     *
+     * @param breaker BreinCircuitBreaker the opened breaker
+     */
+    private void scheduleProbe(final BreinCircuitBreaker<RequestAttempt> breaker) {
+        schedule(new Runnable() {
             @Override
             public void run() {
+                final RequestAttempt probe = breaker.pollProbe();
+                if (probe != null) {
+                    submit(probe);
+                }
 
+                // another probe is sent if this one is not answered within the open time
+                if (breaker.getBufferedCount() > 0 && breaker.claimProbe()) {
+                    scheduleProbe(breaker);
+                }
+            }
+        }, breaker.getOpenTime());
+    }
+
+    /**
+     * runs the task after the delay on the retry scheduler
+     *
+     * @param task  Runnable the task to run
+     * @param delay long the delay in ms
+     * @return boolean true if the task was scheduled, false if the engine was terminated
+     */
+    private boolean schedule(final Runnable task, final long delay) {
+        try {
+            getRetryScheduler().schedule(task, delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private synchronized ScheduledExecutorService getRetryScheduler() {
+        if (this.retryScheduler == null) {
+            this.retryScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "breinify-retry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this.retryScheduler;
+    }
+
+    /**
+     * retrieves the circuit breaker of the endpoint, it is created if needed
+     *
+     * @param config   BreinConfig contains the circuit breaker settings
+     * @param endpoint String the endpoint
+     * @return BreinCircuitBreaker the breaker, {@code null} if circuit breaking is disabled
+     */
+    private BreinCircuitBreaker<RequestAttempt> getCircuitBreaker(final BreinConfig config, final String endpoint) {
+        if (!config.isCircuitBreaking()) {
+            return null;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> breaker = circuitBreakers.get(endpoint);
+        if (breaker != null) {
+            return breaker;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> created = new BreinCircuitBreaker<>(
+                config.getCircuitBreakerThreshold(),
+                config.getCircuitBreakerOpenTime(),
+                config.getCircuitBreakerBufferSize());
+        final BreinCircuitBreaker<RequestAttempt> existing = circuitBreakers.putIfAbsent(endpoint, created);
+        return existing == null ? created : existing;
+    }
+
+    /**
+     * retrieves the circuit breaker of the endpoint
+     *
+     * @param endpoint String the endpoint, e.g., /activity
+     * @return BreinCircuitBreaker the breaker, {@code null} if no request was sent with circuit breaking enabled
+     */
+    public BreinCircuitBreaker<?> getCircuitBreaker(final String endpoint) {
+        return circuitBreakers.get(endpoint);
+    }
+
+    /**
+     * retrieves the statistics of the sent requests and opened connections
+     *
+     * @return BreinConnectionStats the statistics of this engine
+     */
+    @Override
+    public BreinConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /**
+     * retrieves the registry the measurements of the requests are recorded in
+     *
+     * @return BreinMetrics the metrics of this engine
+     */
+    public BreinMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Applies the connection settings to the platform's connection pool using the
+     * system properties {@code http.keepAlive}, {@code http.maxConnections} and
+     * {@code http.keepAliveDuration}. The properties are process-wide, i.e., they
+     * apply to all connections of the app, and the pool reads them only once, when
+     * the first connection is opened. Nothing is set if keep-alive is disabled, and
+     * a property set by the app is kept.
+     *
+     * @param config BreinConfig contains the connection settings
+     */
+    protected void applyConnectionSettings(final BreinConfig config) {
+        if (config == null || !config.isConnectionKeepAlive()) {
+            return;
+        }
+
+        applyProperty("http.keepAlive", "true");
+        applyProperty("http.maxConnections", String.valueOf(Math.max(1, config.getConnectionPoolSize())));
+        applyProperty("http.keepAliveDuration", String.valueOf(Math.max(0, config.getConnectionIdleTimeout())));
+    }
+
+    /**
+     * sets the system property, unless it was set by the app (i.e., it is set and not to the value set before)
+     *
+     * @param name  String the name of the property
+     * @param value String the value to set
+     */
+    private static void applyProperty(final String name, final String value) {
+        synchronized (HttpUrlRestEngine.class) {
+            final String current = System.getProperty(name);
+            if (current != null && !current.equals(APPLIED_PROPERTIES.get(name))) {
+                Log.d(TAG, "keeping " + name + "=" + current + " set by the app instead of " + value);
+                return;
+            }
+
+            if (!value.equals(current)) {
+                Log.d(TAG, "setting " + name + "=" + value + (current == null ? "" : " (was " + current + ")"));
+                System.setProperty(name, value);
+            }
+            APPLIED_PROPERTIES.put(name, value);
+        }
+    }
+
+    /**
+     * opens a post connection to the given url
+     *
+     * @param config            BreinConfig contains the connection settings
+     * @param fullUrl           String the url to connect to
+     * @param connectionTimeout int timeout in ms to establish the connection
+     * @param readTimeout       int timeout in ms to read the response
+     * @return HttpURLConnection the opened connection
+     * @throws IOException if the connection cannot be opened
+     */
+    private HttpURLConnection openConnection(final BreinConfig config,
+                                             final String fullUrl,
+                                             final int connectionTimeout,
+                                             final int readTimeout) throws IOException {
+        final URL url = new URL(fullUrl);
+        final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        if (conn instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(socketFactory);
+        }
+
+        conn.setReadTimeout(readTimeout);
+        conn.setConnectTimeout(connectionTimeout);
+        conn.setRequestMethod(POST_METHOD);
+        conn.setDoInput(true);
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Accept", "application/json");
+        if (!config.isConnectionKeepAlive()) {
+            conn.setRequestProperty("Connection", "close");
+        }
+
+        connectionStats.requestSent();
+        return conn;
+    }
+
+    /**
+     * Writes the request body using a fixed length, so that the connection can be reused. The body is
+     * compressed if compression is enabled and the body reaches the threshold.
+     *
+     * @param config         BreinConfig contains the compression settings
+     * @param conn           HttpURLConnection the connection to write to
+     * @param requestBody    String the body to be sent
+     * @param requestMetrics BreinRequestMetrics the connect time and size are recorded in, can be {@code null}
+     * @throws IOException if the body cannot be written
+     */
+    private void writeBody(final BreinConfig config,
+                           final HttpURLConnection conn,
+                           final String requestBody,
+                           final BreinRequestMetrics requestMetrics) throws IOException {
+        final byte[] uncompressed = requestBody.getBytes(UTF8);
+
+        final byte[] data;
+        if (config.isRequestCompression() && uncompressed.length >= config.getRequestCompressionThreshold()) {
+            data = BreinGzip.compress(uncompressed);
+            conn.setRequestProperty("Content-Encoding", "gzip");
+        } else {
+            data = uncompressed;
+        }
+        conn.setFixedLengthStreamingMode(data.length);
+
+        final OutputStream out = getOutputStream(conn, requestMetrics);
+        try {
+            out.write(data);
+            out.flush();
+        } finally {
+            out.close();
+        }
+
+        if (requestMetrics != null) {
+            requestMetrics.setBytesOut(data.length);
+            requestMetrics.setUncompressedBytesOut(uncompressed.length);
+        }
+    }
+
+    /**
+     * Writes the request body directly to the connection using chunked transfer encoding. The body is
+     * either written from the request data or, if the request is not created from a map, from the body.
+     * If compression is enabled, bodies written from the request data are always compressed (the size is
+     * not known upfront), other bodies only if they reach the threshold.
+     *
+     * @param config         BreinConfig contains the compression settings
+     * @param conn           HttpURLConnection the connection to write to
+     * @param data           BreinBase the request
+     * @param requestData    Map the request data, can be {@code null}
+     * @param requestBody    String the body used if there is no request data
+     * @param requestMetrics BreinRequestMetrics the connect time and size are recorded in
+     * @throws IOException if the body cannot be written
+     */
+    private void streamBody(final BreinConfig config,
+                            final HttpURLConnection conn,
+                            final BreinBase data,
+                            final Map<String, Object> requestData,
+                            final String requestBody,
+                            final BreinRequestMetrics requestMetrics) throws IOException {
+        final boolean compress = config.isRequestCompression() &&
+                (requestData != null || requestBody.length() >= config.getRequestCompressionThreshold());
+        if (compress) {
+            conn.setRequestProperty("Content-Encoding", "gzip");
+        }
+        conn.setChunkedStreamingMode(0);
+
+        final CountingOutputStream out = new CountingOutputStream(getOutputStream(conn, requestMetrics));
+        final CountingOutputStream uncompressed = compress ? new CountingOutputStream(BreinGzip.wrap(out)) : out;
+        final Writer writer = new OutputStreamWriter(uncompressed, UTF8);
+        try {
+            if (requestData == null) {
+                writer.write(requestBody);
+            } else {
+                data.writeRequestData(requestData, writer);
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+
+        requestMetrics.setBytesOut(out.getCount());
+        requestMetrics.setUncompressedBytesOut(uncompressed.getCount());
+    }
+
+    /**
+     * Retrieves the stream to write the body to. The connection is established
+     * when the stream is retrieved, thus the time needed is recorded as the
+     * connect time.
+     *
+     * @param conn           HttpURLConnection the connection to write to
+     * @param requestMetrics BreinRequestMetrics the connect time is recorded in, can be {@code null}
+     * @return OutputStream the stream of the connection
+     * @throws IOException if the connection cannot be established
+     */
+    private OutputStream getOutputStream(final HttpURLConnection conn,
+                                         final BreinRequestMetrics requestMetrics) throws IOException {
+        final long start = System.nanoTime();
+        final OutputStream out = conn.getOutputStream();
+        if (requestMetrics != null) {
+            requestMetrics.setConnectTime(BreinRequestMetrics.microsSince(start));
+        }
+
+        return out;
+    }
+
+    /**
+     * Reads the remaining response and closes the stream, which hands the
+     * connection back to the pool. The connection is only disconnected if
+     * connections are not kept alive.
+     *
+     * @param config BreinConfig contains the connection settings
+     * @param conn   HttpURLConnection the connection to release, can be {@code null}
+     */
+    private void closeConnection(final BreinConfig config, final HttpURLConnection conn) {
+        if (conn == null) {
+            return;
+        }
+
+        InputStream in = null;
+        try {
+            try {
+                in = conn.getInputStream();
+            } catch (final IOException e) {
+                in = conn.getErrorStream();
+            }
+
+            if (in != null) {
+                BreinResponseReader.drain(in);
+            }
+        } catch (final IOException e) {
+            Log.d(TAG, "unable to drain the response: " + e);
+        } finally {
+            if (in != null) {
                 try {
-                    final URL url = new URL(fullUrl);
-                    final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-                    conn.setReadTimeout(readTimeout);
-                    conn.setConnectTimeout(connectionTimeout);
-                    conn.setRequestMethod(POST_METHOD);
-                    conn.setDoInput(true);
-                    conn.setDoOutput(true);
-                    conn.setRequestProperty("Content-Type", "application/json");
-                    conn.setRequestProperty("Accept", "application/json");
-
-                    final byte[] data = requestBody.getBytes();
-                    conn.setFixedLengthStreamingMode(data.length);
-                    conn.getOutputStream().write(data);
-                    conn.getOutputStream().flush();
+                    in.close();
+                } catch (final IOException e) {
+                    Log.d(TAG, "unable to close the response: " + e);
+                }
+            }
+        }
 
-                    final int response = conn.getResponseCode();
-                    Log.d(TAG, "InvokeRequest - response is:  " + conn.getResponseMessage());
-                    BreinResult breinResponse = null;
-                    if (response == HttpURLConnection.HTTP_OK) {
-                        final StringBuilder jsonResponse = new StringBuilder();
-                        final InputStream mInputStream = conn.getInputStream();
-
-                        int i;
-                        while ((i = mInputStream.read()) != -1) {
-                            jsonResponse.append((char) i);
-                        }
+        if (!config.isConnectionKeepAlive()) {
+            conn.disconnect();
+        }
+    }
 
-                        final Map<String, Object> mapResponse = new Gson().fromJson(jsonResponse.toString(), Map.class);
-                        breinResponse = new BreinResult(mapResponse);
-                    }
+    /**
+     * A request handed over to the dispatch executor, measures the time it waited
+     * within the queue and records it as dropped if the executor rejects it.
+     * Interactive requests are pending (see BreinBulkGate) until they are sent
+     * or dropped, bulk requests wait for their turn before being sent.
+     */
+    private abstract class DispatchedRequest implements Runnable {
+        private final BreinRequestMetrics requestMetrics;
+        private final BreinPriority priority;
+        private final long bulkMaxDelay;
+        private long dispatchTime = System.nanoTime();
+        private BreinBulkGate pendingAt = null;
+
+        private DispatchedRequest(final BreinRequestMetrics requestMetrics,
+                                  final BreinPriority priority,
+                                  final long bulkMaxDelay) {
+            this.requestMetrics = requestMetrics;
+            this.priority = priority;
+            this.bulkMaxDelay = bulkMaxDelay;
+        }
+
+        /**
+         * marks the request as handed over to the executor now, i.e., the queue wait starts
+         */
+        protected void markDispatched() {
+            dispatchTime = System.nanoTime();
+
+            if (priority == BreinPriority.INTERACTIVE && pendingAt == null) {
+                pendingAt = getBulkGate();
+                pendingAt.interactiveQueued();
+            }
+        }
+
+        protected BreinRequestMetrics getRequestMetrics() {
+            return requestMetrics;
+        }
+
+        protected BreinPriority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (priority == BreinPriority.BULK) {
+                    getBulkGate().awaitTurn(dispatchTime, bulkMaxDelay);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            try {
+                requestMetrics.setQueueWait(BreinRequestMetrics.microsSince(dispatchTime));
+                send();
+            } finally {
+                releasePending();
+            }
+        }
+
+        /**
+         * sends the request, invoked on the dispatching thread
+         */
+        protected abstract void send();
+
+        /**
+         * the request is not sent, it is recorded as dropped and the callback is informed with {@code null}
+         */
+        private void dropped() {
+            releasePending();
+            finishDropped();
+        }
+
+        /**
+         * the request is rejected, i.e., the caller is informed by an exception instead of the callback
+         */
+        private void rejected() {
+            releasePending();
+            requestMetrics.setOutcome(BreinRequestMetrics.Outcome.DROPPED);
+            metrics.record(requestMetrics);
+        }
+
+        /**
+         * records the request as dropped and informs the callback
+         */
+        protected abstract void finishDropped();
+
+        private void releasePending() {
+            if (pendingAt != null) {
+                pendingAt.interactiveDone();
+                pendingAt = null;
+            }
+        }
+    }
+
+    /**
+     * One attempt to send a request. A failed attempt schedules the next one
+     * according to the retry policy, the callback is only informed about the
+     * final result. If the callback is a {@code BreinFuture}, cancelling it
+     * closes the connection of the running attempt and prevents further ones,
+     * the request is recorded as dropped.
+     */
+    private class RequestAttempt extends DispatchedRequest {
+        private final BreinConfig config;
+        private final BreinBase data;
+        private final String endpoint;
+        private final String fullUrl;
+        private final Map<String, Object> requestData;
+        private final String requestBody;
+        private final ICallback<BreinResult> callback;
+        private final BreinRetryPolicy retryPolicy;
+        private final int attempt;
+
+        private RequestAttempt(final BreinConfig config,
+                               final BreinBase data,
+                               final Map<String, Object> requestData,
+                               final String requestBody,
+                               final ICallback<BreinResult> callback,
+                               final BreinRequestMetrics requestMetrics) {
+            super(requestMetrics, data.getPriority(), config.getDispatchBulkMaxDelay());
+            this.config = config;
+            this.data = data;
+            this.endpoint = requestMetrics.getEndpoint();
+            this.fullUrl = BreinUtil.getFullyQualifiedUrl(config, data);
+            this.requestData = requestData;
+            this.requestBody = requestBody;
+            this.callback = callback;
+            this.retryPolicy = new BreinRetryPolicy(config);
+            this.attempt = 1;
+        }
+
+        private RequestAttempt(final RequestAttempt previous) {
+            super(new BreinRequestMetrics(previous.endpoint), previous.getPriority(),
+                    previous.config.getDispatchBulkMaxDelay());
+            this.config = previous.config;
+            this.data = previous.data;
+            this.endpoint = previous.endpoint;
+            this.fullUrl = previous.fullUrl;
+            this.requestData = previous.requestData;
+            this.requestBody = previous.requestBody;
+            this.callback = previous.callback;
+            this.retryPolicy = previous.retryPolicy;
+            this.attempt = previous.attempt + 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected void send() {
+            final BreinRequestMetrics requestMetrics = getRequestMetrics();
+            if (isCancelled()) {
+                finish(BreinRequestMetrics.Outcome.DROPPED, null);
+                return;
+            }
+
+            BreinResult breinResponse = null;
+            boolean retryable = false;
+            long retryAfter = -1L;
+
+            HttpURLConnection conn = null;
+            try {
+                conn = openConnection(config, fullUrl, (int) config.getConnectionTimeout(),
+                        (int) config.getSocketTimeout());
+                setCancellationHandler(conn);
+                if (!config.isRequestStreaming()) {
+                    writeBody(config, conn, requestBody, requestMetrics);
+                } else {
+                    streamBody(config, conn, data, requestData, requestBody, requestMetrics);
+                }
+
+                final long writtenTime = System.nanoTime();
+                final int response = conn.getResponseCode();
+                requestMetrics.setTimeToFirstByte(BreinRequestMetrics.microsSince(writtenTime));
+                requestMetrics.setStatus(response);
+
+                Log.d(TAG, "InvokeRequest - response is:  " + conn.getResponseMessage());
+                if (BreinRetryPolicy.isSuccessful(response)) {
+                    final CountingInputStream in = new CountingInputStream(conn.getInputStream());
+                    final JsonObject jsonResponse = BreinResponseReader.readJson(
+                            in, config.getMaxResponseSize(), JsonObject.class);
+                    requestMetrics.setBytesIn(in.getCount());
 
+                    // a response without a body (e.g., 204) is successful as well
+                    breinResponse = new BreinResult(jsonResponse == null ? new JsonObject() : jsonResponse);
+                } else {
+                    requestMetrics.setBytesIn(Math.max(0, conn.getContentLength()));
+                    retryable = retryPolicy.isRetryable(response);
+                    retryAfter = BreinRetryPolicy.parseRetryAfter(conn.getHeaderField("Retry-After"),
+                            System.currentTimeMillis());
+                }
+            } catch (final BreinException e) {
+                Log.d(TAG, "HttpUrlRestEngine exception is: " + e);
+
+                // do not drain an oversized response, drop the connection instead
+                if (conn != null) {
                     conn.disconnect();
+                    conn = null;
+                }
+            } catch (final IOException e) {
+                Log.d(TAG, "HttpUrlRestEngine exception is: " + e);
+                retryable = true;
+            } catch (final Exception e) {
+                Log.d(TAG, "HttpUrlRestEngine exception is: " + e);
+            } finally {
+                setCancellationHandler(null);
+                closeConnection(config, conn);
+            }
+
+            if (isCancelled()) {
+                finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            } else {
+                complete(breinResponse, retryable, retryAfter);
+            }
+        }
+
+        /**
+         * sets the connection to be closed if the request is cancelled
+         *
+         * @param conn HttpURLConnection the connection of this attempt, {@code null} if the attempt is done
+         */
+        private void setCancellationHandler(final HttpURLConnection conn) {
+            if (!(callback instanceof BreinFuture)) {
+                return;
+            }
+
+            ((BreinFuture<?>) callback).setCancellationHandler(conn == null ? null : new Runnable() {
+                @Override
+                public void run() {
+                    conn.disconnect();
+                }
+            });
+        }
 
-                    if (callback != null) {
-                        callback.callback(breinResponse);
+        private boolean isCancelled() {
+            return callback instanceof BreinFuture && ((BreinFuture<?>) callback).isCancelled();
+        }
+
+        @Override
+        protected void finishDropped() {
+            finish(BreinRequestMetrics.Outcome.DROPPED, null);
+        }
+
+        /**
+         * Informs the circuit breaker about the result and retries the request
+         * if possible, otherwise the callback is informed.
+         */
+        private void complete(final BreinResult breinResponse, final boolean retryable, final long retryAfter) {
+            final BreinCircuitBreaker<RequestAttempt> breaker = getCircuitBreaker(config, endpoint);
+
+            if (breinResponse != null) {
+                if (breaker != null) {
+                    for (final RequestAttempt released : breaker.onSuccess()) {
+                        submit(released);
                     }
-                } catch (final Exception e) {
+                }
 
-                    Log.d(TAG, "HttpUrlRestEngine exception is: " + e);
-                    // throw new BreinException("REST rest call exception");
+                finish(BreinRequestMetrics.Outcome.SUCCEEDED, breinResponse);
+                return;
+            }
+
+            // only temporary problems are an indicator of an unhealthy endpoint, otherwise the endpoint answered
+            if (breaker != null && !retryable) {
+                for (final RequestAttempt released : breaker.onSuccess()) {
+                    submit(released);
+                }
+            } else if (breaker != null && breaker.onFailure()) {
+                Log.d(TAG, "circuit breaker of " + endpoint + " opened");
+                if (breaker.claimProbe()) {
+                    scheduleProbe(breaker);
+                }
+            }
+
+            if (retryable && retryPolicy.canRetry(attempt)) {
+                final RequestAttempt next = new RequestAttempt(this);
+                final long delay = retryPolicy.getDelay(attempt, retryAfter);
+
+                // the retry is only sent if it was not dropped by a termination meanwhile
+                scheduledRetries.add(next);
+                if (schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (scheduledRetries.remove(next)) {
+                            submit(next);
+                        }
+                    }
+                }, delay)) {
+                    Log.d(TAG, "retrying request to " + endpoint + " in " + delay + " ms");
+                    record(BreinRequestMetrics.Outcome.RETRIED);
+                    return;
                 }
+                scheduledRetries.remove(next);
             }
-        }).start();
+
+            finish(BreinRequestMetrics.Outcome.FAILED, null);
+        }
+
+        /**
+         * records the final outcome and informs the callback, a null result means the request failed
+         */
+        private void finish(final BreinRequestMetrics.Outcome outcome, final BreinResult breinResponse) {
+            record(outcome);
+
+            final int status = getRequestMetrics().getStatus();
+            if (status != -1 && outcome != BreinRequestMetrics.Outcome.DROPPED && callback instanceof IStatusListener) {
+                ((IStatusListener) callback).onStatus(status);
+            }
+            if (callback != null) {
+                callback.callback(breinResponse);
+            }
+        }
+
+        private void record(final BreinRequestMetrics.Outcome outcome) {
+            final BreinRequestMetrics requestMetrics = getRequestMetrics();
+            requestMetrics.setOutcome(outcome);
+            if (outcome != BreinRequestMetrics.Outcome.DROPPED) {
+                requestMetrics.setTotalLatency(BreinRequestMetrics.microsSince(requestMetrics.getStartTime()));
+            }
+            metrics.record(requestMetrics);
+        }
+    }
+
+    /**
+     * Applies the rejection policy. The request which is not going to be sent
+     * (depending on the policy) is recorded as dropped and its callback is
+     * informed, unless the policy rejects it by throwing an exception.
+     */
+    private static class DroppedRequestHandler implements RejectedExecutionHandler {
+        private final BreinRejectionPolicy policy;
+        private final RejectedExecutionHandler delegate;
+
+        private DroppedRequestHandler(final BreinRejectionPolicy policy) {
+            this.policy = policy;
+            this.delegate = policy.createHandler();
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            if (policy == BreinRejectionPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                delegate.rejectedExecution(runnable, executor);
+            } else if (policy == BreinRejectionPolicy.DISCARD_OLDEST && !executor.isShutdown()) {
+
+                // the oldest is removed here (not by the delegate), so that exactly the removed one is dropped
+                Log.d(TAG, "dispatch queue is full, oldest request discarded");
+                final Runnable oldest = executor.getQueue().poll();
+                if (oldest instanceof DispatchedRequest) {
+                    ((DispatchedRequest) oldest).dropped();
+                }
+                executor.execute(runnable);
+            } else if (policy == BreinRejectionPolicy.ABORT) {
+                if (runnable instanceof DispatchedRequest) {
+                    ((DispatchedRequest) runnable).rejected();
+                }
+                delegate.rejectedExecution(runnable, executor);
+            } else {
+                if (runnable instanceof DispatchedRequest) {
+                    ((DispatchedRequest) runnable).dropped();
+                }
+                delegate.rejectedExecution(runnable, executor);
+            }
+        }
+    }
+
+    /**
+     * counts the bytes written to the wrapped stream
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0L;
+
+        private CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * counts the bytes read from the wrapped stream
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0L;
+
+        private CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = in.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = in.skip(n);
+            count += Math.max(0L, skipped);
+            return skipped;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * creates named daemon threads, so that pending requests do not keep the
+     * process alive
+     */
+    private static class DispatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        private DispatchThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Delegates to the default socket factory and counts the created sockets,
+     * i.e., the connections which needed a new handshake.
+     */
+    private static class CountingSocketFactory extends SSLSocketFactory {
+        private final BreinConnectionStats stats;
+        private SSLSocketFactory delegate;
+
+        private CountingSocketFactory(final BreinConnectionStats stats) {
+            this.stats = stats;
+        }
+
+        private synchronized SSLSocketFactory getDelegate() {
+            if (delegate == null) {
+                delegate = HttpsURLConnection.getDefaultSSLSocketFactory();
+            }
+            return delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return getDelegate().getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return getDelegate().getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(final Socket socket,
+                                   final String host,
+                                   final int port,
+                                   final boolean autoClose) throws IOException {
+            stats.connectionOpened();
+            return getDelegate().createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+            stats.connectionOpened();
+            return getDelegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final String host,
+                                   final int port,
+                                   final InetAddress localHost,
+                                   final int localPort) throws IOException {
+            stats.connectionOpened();
+            return getDelegate().createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+            stats.connectionOpened();
+            return getDelegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address,
+                                   final int port,
+                                   final InetAddress localAddress,
+                                   final int localPort) throws IOException {
+            stats.connectionOpened();
+            return getDelegate().createSocket(address, port, localAddress, localPort);
+        }
     }
 }
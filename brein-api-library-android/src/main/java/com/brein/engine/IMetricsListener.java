@@ -0,0 +1,17 @@
+package com.brein.engine;
+
+/**
+ * Listener informed about each finished request, e.g., to push the measurements
+ * into an own telemetry system.
+ */
+public interface IMetricsListener {
+
+    /**
+     * Invoked whenever an attempt to send a request finished (or the request was
+     * dropped). The listener is invoked on the thread sending the request, thus it
+     * should return quickly and must not block.
+     *
+     * @param metrics BreinRequestMetrics the measurements of the request
+     */
+    void onRequest(final BreinRequestMetrics metrics);
+}
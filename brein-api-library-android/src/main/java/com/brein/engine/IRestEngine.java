@@ -10,7 +10,9 @@ import com.brein.domain.BreinResult;
 
 
 /**
- * Interface for all possible rest  engines
+ * Interface for all possible rest  engines, the engines are created by the
+ * factories registered within the {@link BreinEngineRegistry}. Every engine
+ * must pass the conformance tests of the library.
  */
 public interface IRestEngine {
 
@@ -29,10 +31,13 @@ public interface IRestEngine {
     void doRequest(final BreinActivity breinActivity) throws BreinException;
 
     /**
-     * performs a lookup and provides details
+     * performs a lookup and waits for the details, this blocks the calling thread for up to the maximum request
+     * time of the retry policy and must not be called from the main thread, use the asynchronous
+     * {@link com.brein.api.Brein#lookup(BreinLookup)} instead
      *
      * @param breinLookup contains request data
-     * @return response from Breinify
+     * @return response from Breinify, {@code null} if the lookup failed or no response was received within
+     *         the maximum request time (see {@link BreinRetryPolicy#getMaxRequestTime(BreinConfig)})
      */
     BreinResult doLookup(final BreinLookup breinLookup) throws BreinException;
 
@@ -45,14 +50,14 @@ public interface IRestEngine {
      * Retrieves the rest engine
      *
      * @param engine BreinEngineType contains the engine
-     * @return IRestEngine instance
+     * @return IRestEngine instance, {@code null} if this engine is not of the type
      */
     IRestEngine getRestEngine(final BreinEngineType engine);
 
     /**
      * Retrieves the rest engine type
      * @param engine BreinEngineType contains type of engine
-     * @return BreinEngineType
+     * @return BreinEngineType the type this engine is registered for (see BreinEngineRegistry)
      */
     BreinEngineType getRestEngineType(final BreinEngineType engine);
 
@@ -66,4 +71,10 @@ public interface IRestEngine {
                            final BreinBase data,
                            final ICallback<BreinResult> callback);
 
+    /**
+     * retrieves the statistics of the sent requests and opened connections
+     *
+     * @return BreinConnectionStats the statistics, can be {@code null} if not supported
+     */
+    BreinConnectionStats getConnectionStats();
 }
@@ -0,0 +1,15 @@
+package com.brein.engine;
+
+/**
+ * Creates the rest engines of a type, see {@link BreinEngineRegistry}
+ */
+public interface IRestEngineFactory {
+
+    /**
+     * creates a new (not configured) rest engine
+     *
+     * @param metrics BreinMetrics the registry the engine records its measurements in
+     * @return IRestEngine the created engine
+     */
+    IRestEngine create(final BreinMetrics metrics);
+}
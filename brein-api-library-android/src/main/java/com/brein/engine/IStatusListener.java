@@ -0,0 +1,19 @@
+package com.brein.engine;
+
+/**
+ * Can be implemented by a callback to be informed about the http status the
+ * request was finally answered with, e.g., to distinguish a request refused by
+ * the backend (which must not be sent again) from a request which failed
+ * because of a temporary problem.
+ */
+public interface IStatusListener {
+
+    /**
+     * Invoked right before the callback, if a response was received. The
+     * callback may still be informed with {@code null}, e.g., if the response
+     * could not be read.
+     *
+     * @param status int the http status of the final response
+     */
+    void onStatus(final int status);
+}
@@ -0,0 +1,1952 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinException;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinLookup;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.util.BreinGzip;
+import com.brein.util.BreinResponseReader;
+import com.brein.util.BreinUtil;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * Non-blocking engine (see {@link BreinEngineType#NIO_ENGINE}), all requests are
+ * sent by one selector thread. The HttpUrlRestEngine needs a thread per request
+ * in flight, this engine multiplexes the requests over non-blocking connections
+ * (secured by an SSLEngine if needed), e.g., to send the activities queued while
+ * the device was offline.
+ * <p>
+ * The memory used is bounded: at most {@code connectionMaxActive} connections are
+ * opened (each with its own direct buffers taken from a pool), at most
+ * {@code dispatchQueueCapacity} requests wait for a connection (a full queue is
+ * handled according to the rejection policy) and responses are limited by the
+ * maximum response size. Connections are kept alive and reused.
+ * <p>
+ * The request bodies are created by the caller, the responses are parsed and the
+ * callbacks informed by a separate thread, i.e., the selector thread only moves
+ * bytes. Retries and circuit breaking work as within the HttpUrlRestEngine.
+ */
+public class NioRestEngine implements IRestEngine {
+
+    private static final String TAG = "NioRestEngine";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * verifies the host of a secured connection during the handshake, as done for https connections
+     */
+    private static final String ENDPOINT_IDENTIFICATION = "HTTPS";
+
+    /**
+     * maximum time in ms the selector waits, i.e., the resolution of the timeouts
+     */
+    private static final long MAX_SELECT_TIMEOUT = 1000L;
+
+    /**
+     * the protocols offered during the handshake (ALPN) if HTTP/2 is enabled
+     */
+    private static final String HTTP2 = "h2";
+    private static final String HTTP1 = "http/1.1";
+
+    /**
+     * counts the requests and the connections opened for them
+     */
+    private final BreinConnectionStats connectionStats = new BreinConnectionStats();
+
+    /**
+     * the registry the measurements of the requests are recorded in
+     */
+    private final BreinMetrics metrics;
+
+    /**
+     * true if the requests are sent using HTTP/2 if supported by the server
+     */
+    private final boolean http2;
+
+    /**
+     * the circuit breakers per endpoint, only used if circuit breaking is enabled
+     */
+    private final ConcurrentMap<String, BreinCircuitBreaker<RequestAttempt>> circuitBreakers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * the configuration used to create the dispatcher
+     */
+    private BreinConfig config;
+
+    /**
+     * the selector thread sending the requests, created lazily
+     */
+    private Dispatcher dispatcher;
+
+    /**
+     * executor reading the responses and informing the callbacks, created lazily
+     */
+    private ExecutorService completionExecutor;
+
+    /**
+     * creates an engine recording its measurements in an own registry
+     */
+    public NioRestEngine() {
+        this(new BreinMetrics());
+    }
+
+    /**
+     * creates an engine recording its measurements in the given registry
+     *
+     * @param metrics BreinMetrics the registry to record the measurements in
+     */
+    public NioRestEngine(final BreinMetrics metrics) {
+        this(metrics, false);
+    }
+
+    /**
+     * creates an engine recording its measurements in the given registry
+     *
+     * @param metrics BreinMetrics the registry to record the measurements in
+     * @param http2   boolean true if the requests are sent using HTTP/2 if supported by the server (see
+     *                {@link Http2RestEngine})
+     */
+    protected NioRestEngine(final BreinMetrics metrics, final boolean http2) {
+        this.metrics = metrics;
+        this.http2 = http2;
+    }
+
+    @Override
+    public void configure(final BreinConfig breinConfig) {
+        synchronized (this) {
+            this.config = breinConfig;
+        }
+    }
+
+    /**
+     * sends the activity without informing anyone about the result
+     *
+     * @param breinActivity data
+     */
+    @Override
+    public void doRequest(final BreinActivity breinActivity) {
+        invokeRequest(Breinify.getConfig(), breinActivity, null);
+    }
+
+    /**
+     * Performs a lookup and waits for the result.
+     * <p>
+     * <b>This method blocks the calling thread</b> until the response is received, including the retries, or the
+     * maximum request time of the retry policy elapsed. It must not be called from the main thread (it may cause an
+     * ANR) nor from a callback, use {@link com.brein.api.Brein#lookup(BreinLookup)}, which returns a
+     * {@link BreinFuture}, or the variant taking a callback instead.
+     *
+     * @param breinLookup contains request data
+     * @return response from Breinify, {@code null} if the lookup failed or timed out
+     */
+    @Override
+    public BreinResult doLookup(final BreinLookup breinLookup) {
+        final BreinConfig config = Breinify.getConfig();
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        invokeRequest(config, breinLookup, future);
+
+        // the caller is not blocked longer than all attempts, including the delays in between, may take
+        final long timeout = BreinRetryPolicy.getMaxRequestTime(config);
+        try {
+            return future.getOrCancel(timeout <= 0 ? Integer.MAX_VALUE : timeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final TimeoutException e) {
+            Log.d(TAG, "doLookup - no response within " + timeout + " ms");
+            return null;
+        } catch (final ExecutionException e) {
+            Log.d(TAG, "doLookup - exception: " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Stops the selector thread. Requests in flight are still sent, as long as
+     * they finish within the configured termination timeout.
+     */
+    @Override
+    public void terminate() {
+        final Dispatcher currentDispatcher;
+        final ExecutorService currentCompletionExecutor;
+        synchronized (this) {
+            currentDispatcher = this.dispatcher;
+            currentCompletionExecutor = this.completionExecutor;
+            this.dispatcher = null;
+            this.completionExecutor = null;
+        }
+
+        // requests kept by circuit breakers fail
+        for (final BreinCircuitBreaker<RequestAttempt> breaker : circuitBreakers.values()) {
+            for (final RequestAttempt attempt : breaker.drain()) {
+                attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            }
+        }
+
+        final long timeout = this.config == null ? 0L : this.config.getDispatchTerminationTimeout();
+        if (currentDispatcher != null) {
+            currentDispatcher.shutdown(timeout);
+        }
+
+        if (currentCompletionExecutor != null) {
+            currentCompletionExecutor.shutdown();
+            try {
+                if (!currentCompletionExecutor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                    currentCompletionExecutor.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                currentCompletionExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        BreinGzip.clear();
+    }
+
+    @Override
+    public IRestEngine getRestEngine(final BreinEngineType engine) {
+        return engine == BreinEngineType.NIO_ENGINE ? this : null;
+    }
+
+    @Override
+    public BreinEngineType getRestEngineType(final BreinEngineType engine) {
+        return BreinEngineType.NIO_ENGINE;
+    }
+
+    @Override
+    public void invokeRequest(final BreinConfig config, final BreinBase data, final ICallback<BreinResult> callback) {
+
+        // validate the input objects
+        BreinUtil.validate(data);
+
+        final BreinRequestMetrics requestMetrics = new BreinRequestMetrics(data.getEndPoint(config));
+
+        // the request (including the headers) is created by the caller, the selector thread only sends it
+        final String requestBody = BreinUtil.getRequestBody(config, data);
+        Log.d(TAG, "InvokeRequest - request is:  " + requestBody);
+        final RequestAttempt attempt = new RequestAttempt(config, BreinUtil.getFullyQualifiedUrl(config, data),
+                requestBody, data.getPriority(), callback, requestMetrics);
+        requestMetrics.setSerializationTime(BreinRequestMetrics.microsSince(requestMetrics.getStartTime()));
+
+        submit(attempt, true);
+    }
+
+    /**
+     * Hands the attempt over to the selector thread, unless the circuit
+     * breaker of its endpoint is open. In that case the attempt is buffered
+     * until the endpoint recovered.
+     *
+     * @param attempt RequestAttempt the attempt to send
+     * @param caller  boolean true if submitted by the caller, i.e., the rejection policy is applied if the queue is
+     *                full, false if submitted by the engine (e.g., a retry)
+     */
+    private void submit(final RequestAttempt attempt, final boolean caller) {
+        if (attempt.isCancelled()) {
+            attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            return;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> breaker = getCircuitBreaker(attempt.config, attempt.endpoint);
+        if (breaker == null || breaker.allowRequest()) {
+            getDispatcher(attempt.config).enqueue(attempt, caller);
+            return;
+        }
+
+        final RequestAttempt rejected = breaker.buffer(attempt);
+        if (rejected == attempt) {
+
+            // the breaker was closed in the meantime
+            getDispatcher(attempt.config).enqueue(attempt, caller);
+        } else {
+            if (rejected != null) {
+                Log.d(TAG, "circuit breaker buffer of " + attempt.endpoint + " is full, oldest request dropped");
+                rejected.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+            }
+
+            // a buffered request (e.g., a probe buffered again) is never left without a scheduled probe
+            if (breaker.claimProbe()) {
+                scheduleProbe(breaker, attempt.config);
+            }
+        }
+    }
+
+    /**
+     * schedules the oldest buffered attempt of the breaker to be sent as probe after the open time
+     *
+     * @param breaker BreinCircuitBreaker the opened breaker
+     */
+    private void scheduleProbe(final BreinCircuitBreaker<RequestAttempt> breaker, final BreinConfig config) {
+        getDispatcher(config).schedule(new Runnable() {
+            @Override
+            public void run() {
+                final RequestAttempt probe = breaker.pollProbe();
+                if (probe != null) {
+                    submit(probe, false);
+                }
+
+                // another probe is sent if this one is not answered within the open time
+                if (breaker.getBufferedCount() > 0 && breaker.claimProbe()) {
+                    scheduleProbe(breaker, config);
+                }
+            }
+        }, breaker.getOpenTime(), null);
+    }
+
+    /**
+     * retrieves the selector thread, it is started if not available yet
+     *
+     * @param fallbackConfig BreinConfig used if the engine was not configured
+     * @return Dispatcher the running dispatcher
+     */
+    private synchronized Dispatcher getDispatcher(final BreinConfig fallbackConfig) {
+        if (this.dispatcher == null || !this.dispatcher.isAlive()) {
+            if (this.dispatcher != null) {
+                Log.d(TAG, "selector thread is not running anymore, starting a new one");
+            }
+            if (this.config == null) {
+                this.config = fallbackConfig;
+            }
+
+            try {
+                this.dispatcher = new Dispatcher(this.config);
+            } catch (final IOException e) {
+                throw new BreinException("unable to open the selector", e);
+            }
+            this.dispatcher.start();
+        }
+
+        return this.dispatcher;
+    }
+
+    /**
+     * runs the task on the completion thread, which is created if not available yet
+     *
+     * @param task Runnable the task, e.g., reading a response and informing the callback
+     */
+    private void runCompletion(final Runnable task) {
+        ExecutorService executor;
+        synchronized (this) {
+            if (this.completionExecutor == null) {
+                this.completionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "breinify-nio-completion");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            executor = this.completionExecutor;
+        }
+
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+
+            // the engine is terminating
+            task.run();
+        }
+    }
+
+    /**
+     * retrieves the circuit breaker of the endpoint, it is created if needed
+     *
+     * @param config   BreinConfig contains the circuit breaker settings
+     * @param endpoint String the endpoint
+     * @return BreinCircuitBreaker the breaker, {@code null} if circuit breaking is disabled
+     */
+    private BreinCircuitBreaker<RequestAttempt> getCircuitBreaker(final BreinConfig config, final String endpoint) {
+        if (!config.isCircuitBreaking()) {
+            return null;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> breaker = circuitBreakers.get(endpoint);
+        if (breaker != null) {
+            return breaker;
+        }
+
+        final BreinCircuitBreaker<RequestAttempt> created = new BreinCircuitBreaker<>(
+                config.getCircuitBreakerThreshold(),
+                config.getCircuitBreakerOpenTime(),
+                config.getCircuitBreakerBufferSize());
+        final BreinCircuitBreaker<RequestAttempt> existing = circuitBreakers.putIfAbsent(endpoint, created);
+        return existing == null ? created : existing;
+    }
+
+    /**
+     * retrieves the circuit breaker of the endpoint
+     *
+     * @param endpoint String the endpoint, e.g., /activity
+     * @return BreinCircuitBreaker the breaker, {@code null} if no request was sent with circuit breaking enabled
+     */
+    public BreinCircuitBreaker<?> getCircuitBreaker(final String endpoint) {
+        return circuitBreakers.get(endpoint);
+    }
+
+    @Override
+    public BreinConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /**
+     * retrieves the registry the measurements of the requests are recorded in
+     *
+     * @return BreinMetrics the metrics of this engine
+     */
+    public BreinMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates the SSLEngine securing a connection to the host. The host is
+     * verified during the handshake if supported by the platform (see
+     * {@link #verifyHost(String, SSLEngine)}). Can be overridden, e.g., to use
+     * another SSLContext.
+     *
+     * @param host String the host to connect to
+     * @param port int the port to connect to
+     * @return SSLEngine the engine in client mode
+     * @throws IOException if no engine can be created
+     */
+    protected SSLEngine createSslEngine(final String host, final int port) throws IOException {
+        final SSLEngine sslEngine;
+        try {
+            sslEngine = SSLContext.getDefault().createSSLEngine(host, port);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new SSLException("unable to create the SSLEngine", e);
+        }
+        sslEngine.setUseClientMode(true);
+
+        try {
+            final SSLParameters parameters = sslEngine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm(ENDPOINT_IDENTIFICATION);
+            sslEngine.setSSLParameters(parameters);
+        } catch (final NoSuchMethodError e) {
+            // not available before Android 7, the host is verified after the handshake
+        }
+
+        return sslEngine;
+    }
+
+    /**
+     * Verifies that the certificate of the secured connection belongs to the
+     * host. The host is verified by the SSLEngine during the handshake if the
+     * endpoint identification is enabled, otherwise the default hostname
+     * verifier of the platform is used.
+     *
+     * @param host      String the host connected to
+     * @param sslEngine SSLEngine the engine of the established connection
+     * @return boolean true if the host is verified
+     */
+    protected boolean verifyHost(final String host, final SSLEngine sslEngine) {
+        try {
+            if (ENDPOINT_IDENTIFICATION.equals(sslEngine.getSSLParameters().getEndpointIdentificationAlgorithm())) {
+                return true;
+            }
+        } catch (final NoSuchMethodError e) {
+            // not available before Android 7
+        }
+
+        return HttpsURLConnection.getDefaultHostnameVerifier().verify(host, sslEngine.getSession());
+    }
+
+    /**
+     * Offers HTTP/2 during the handshake (ALPN). The API is not available
+     * before Android 10 (and Java 9), thus it is called using reflection.
+     *
+     * @param sslEngine SSLEngine the engine of the connection, the handshake did not start yet
+     * @return boolean true if HTTP/2 is offered, false if not supported by the platform
+     */
+    private static boolean offerHttp2(final SSLEngine sslEngine) {
+        try {
+            final SSLParameters parameters = sslEngine.getSSLParameters();
+            SSLParameters.class.getMethod("setApplicationProtocols", String[].class)
+                    .invoke(parameters, (Object) new String[]{HTTP2, HTTP1});
+            sslEngine.setSSLParameters(parameters);
+            return true;
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+
+    /**
+     * checks if HTTP/2 was selected by the server during the handshake
+     *
+     * @param sslEngine SSLEngine the engine of the established connection
+     * @return boolean true if HTTP/2 was selected
+     */
+    private static boolean isHttp2Selected(final SSLEngine sslEngine) {
+        try {
+            return HTTP2.equals(SSLEngine.class.getMethod("getApplicationProtocol").invoke(sslEngine));
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The selector thread, it owns the connections and the requests waiting for
+     * a connection. Other threads hand over tasks, which are run by the selector
+     * thread.
+     * <p>
+     * If HTTP/2 is enabled, the first connection to a host negotiates the
+     * protocol. The requests to the host wait until the protocol is known: if
+     * the server supports HTTP/2, they are sent as streams of this connection,
+     * otherwise the host is remembered and HTTP/1.1 connections are used.
+     * <p>
+     * The interactive requests are dispatched first. The bulk requests are
+     * limited to the concurrency of their lane (leaving at least one connection
+     * to the interactive requests) and are deferred while interactive requests
+     * are pending, at most for the configured delay.
+     */
+    private class Dispatcher implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final BreinBufferPool bufferPool;
+        private final Semaphore queueSlots;
+        private final BreinRejectionPolicy rejectionPolicy;
+        private final int maxActive;
+        private final int bulkConcurrency;
+        private final long bulkMaxDelay;
+        private final boolean keepAlive;
+        private final int maxIdle;
+        private final long idleTimeout;
+
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        // the following fields are only used by the selector thread
+        private final ArrayDeque<RequestAttempt> waiting = new ArrayDeque<>();
+        private final ArrayDeque<RequestAttempt> bulkWaiting = new ArrayDeque<>();
+        private final Map<BreinNioConnection, RequestAttempt> busy = new HashMap<>();
+        private final Map<String, ArrayDeque<BreinNioConnection>> idle = new HashMap<>();
+        private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+        private final Map<BreinNioConnection, BreinHttp2Session<RequestAttempt>> sessions = new HashMap<>();
+        private final Map<RequestAttempt, BreinHttp2Session<RequestAttempt>> streaming = new HashMap<>();
+        private final Set<String> negotiating = new HashSet<>();
+        private final Set<String> http1Hosts = new HashSet<>();
+        private int idleCount = 0;
+        private long timerSequence = 0L;
+        private int interactiveActive = 0;
+        private int bulkActive = 0;
+
+        private volatile boolean shutdown = false;
+        private volatile boolean closed = false;
+        private volatile long shutdownDeadline = Long.MAX_VALUE;
+
+        /**
+         * informed about the streams of the HTTP/2 connections
+         */
+        private final BreinHttp2Session.Listener<RequestAttempt> streamListener =
+                new BreinHttp2Session.Listener<RequestAttempt>() {
+
+                    @Override
+                    public void started(final RequestAttempt attempt) {
+                        attempt.responseStarted = true;
+                        attempt.getRequestMetrics().setTimeToFirstByte(
+                                BreinRequestMetrics.microsSince(attempt.writtenTime));
+                    }
+
+                    @Override
+                    public void received(final RequestAttempt attempt,
+                                         final int status,
+                                         final String retryAfter,
+                                         final InputStream body,
+                                         final long bodySize) {
+                        streaming.remove(attempt);
+                        attempt.getRequestMetrics().setBytesIn(bodySize);
+                        attempt.completeLater(status, retryAfter, body);
+                    }
+
+                    @Override
+                    public void failed(final RequestAttempt attempt, final boolean processed, final boolean retryable) {
+                        streaming.remove(attempt);
+                        if (!processed && !attempt.staleRetried) {
+                            attempt.staleRetried = true;
+                            attempt.reused = false;
+                            laneOf(attempt).addFirst(attempt);
+                        } else {
+                            attempt.failLater(retryable);
+                        }
+                    }
+                };
+
+        private Dispatcher(final BreinConfig config) throws IOException {
+            this.selector = Selector.open();
+            this.maxActive = Math.max(1, config.getConnectionMaxActive());
+            this.bulkConcurrency = Math.max(1, Math.min(config.getDispatchBulkConcurrency(), maxActive - 1));
+            this.bulkMaxDelay = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, config.getDispatchBulkMaxDelay()));
+            this.keepAlive = config.isConnectionKeepAlive();
+            this.maxIdle = config.isConnectionKeepAlive() ? Math.max(0, config.getConnectionPoolSize()) : 0;
+            this.idleTimeout = Math.max(0, config.getConnectionIdleTimeout());
+            this.queueSlots = new Semaphore(Math.max(1, config.getDispatchQueueCapacity()));
+            this.rejectionPolicy = config.getDispatchRejectionPolicy();
+            this.bufferPool = new BreinBufferPool(3 * maxActive);
+
+            this.thread = new Thread(this, "breinify-nio-selector");
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        /**
+         * checks if the dispatcher still accepts requests, i.e., it is not shut down and its thread did not die
+         *
+         * @return boolean true if the selector thread is running
+         */
+        private boolean isAlive() {
+            return !shutdown && thread.isAlive();
+        }
+
+        /**
+         * Adds the attempt to the requests waiting for a connection. If the
+         * queue is full, the rejection policy is applied to attempts submitted
+         * by the caller, i.e., the attempt is rejected, dropped, replaces the
+         * oldest waiting one or the caller waits for a free slot.
+         */
+        private void enqueue(final RequestAttempt attempt, final boolean caller) {
+            attempt.markDispatched();
+
+            if (caller && queueSlots.tryAcquire()) {
+                attempt.queueSlot = queueSlots;
+            } else if (caller) {
+                switch (rejectionPolicy) {
+                    case ABORT:
+                        attempt.record(BreinRequestMetrics.Outcome.DROPPED);
+                        throw new BreinException(BreinException.REQUEST_REJECTED);
+                    case CALLER_RUNS:
+                        try {
+                            queueSlots.acquire();
+                            attempt.queueSlot = queueSlots;
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+                            return;
+                        }
+                        break;
+                    case DISCARD:
+                        Log.d(TAG, "dispatch queue is full, request discarded");
+                        attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+                        return;
+                    case DISCARD_OLDEST:
+                    default:
+                        attempt.replacesOldest = true;
+                        break;
+                }
+            }
+
+            if (attempt.callback instanceof BreinFuture) {
+                ((BreinFuture<?>) attempt.callback).setCancellationHandler(new Runnable() {
+                    @Override
+                    public void run() {
+                        post(new Runnable() {
+                            @Override
+                            public void run() {
+                                cancel(attempt);
+                            }
+                        });
+                    }
+                });
+            }
+
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    if (attempt.replacesOldest) {
+
+                        // the bulk requests are discarded first
+                        final RequestAttempt oldest = bulkWaiting.isEmpty() ? waiting.poll() : bulkWaiting.poll();
+                        if (oldest != null) {
+                            Log.d(TAG, "dispatch queue is full, oldest request discarded");
+
+                            // the new attempt takes the slot of the oldest
+                            attempt.queueSlot = oldest.queueSlot;
+                            oldest.queueSlot = null;
+                            drop(oldest);
+                        }
+                    }
+                    laneOf(attempt).add(attempt);
+                }
+            });
+        }
+
+        /**
+         * runs the task after the delay on the selector thread
+         *
+         * @param task    Runnable the task to run
+         * @param delay   long the delay in ms
+         * @param attempt RequestAttempt the attempt sent by the task, dropped if the task is not run
+         * @return boolean true if the task was scheduled, false if the dispatcher is shut down
+         */
+        private boolean schedule(final Runnable task, final long delay, final RequestAttempt attempt) {
+            if (shutdown) {
+                return false;
+            }
+
+            final long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delay));
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    timers.add(new Timer(due, timerSequence++, task, attempt));
+                }
+            });
+
+            return true;
+        }
+
+        private void post(final Runnable task) {
+            tasks.add(task);
+
+            // the selector thread is gone, a request posted meanwhile is dropped instead of being lost
+            if (closed) {
+                dropRemaining();
+            } else {
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * stops the selector thread, after the requests in flight are done or the timeout elapsed
+         *
+         * @param timeout long the time in ms to wait for the requests in flight
+         */
+        private void shutdown(final long timeout) {
+            shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            shutdown = true;
+            selector.wakeup();
+
+            try {
+                thread.join(timeout + MAX_SELECT_TIMEOUT);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    runTasks();
+                    final boolean idle = busy.isEmpty() && streaming.isEmpty() && waiting.isEmpty() &&
+                            bulkWaiting.isEmpty();
+                    if (shutdown && (idle || System.nanoTime() >= shutdownDeadline)) {
+                        break;
+                    }
+
+                    dispatchWaiting();
+                    flushSessions();
+
+                    final long timeout = getSelectTimeout();
+                    if (timeout <= 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(timeout);
+                    }
+
+                    final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        final SelectionKey key = it.next();
+                        it.remove();
+                        handle(key);
+                    }
+
+                    runTimers();
+                    checkTimeouts();
+                }
+            } catch (final Exception e) {
+                Log.d(TAG, "selector thread failed: " + e);
+            } finally {
+                close();
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        private void runTimers() {
+            final long now = System.nanoTime();
+            while (!timers.isEmpty() && timers.peek().due <= now) {
+
+                // the tasks may inform callbacks, thus they are not run by the selector thread
+                runCompletion(timers.poll().task);
+            }
+        }
+
+        /**
+         * calculates the time until the next timer or timeout
+         *
+         * @return long the time in ms, 0 if tasks are waiting
+         */
+        private long getSelectTimeout() {
+            if (!tasks.isEmpty()) {
+                return 0L;
+            }
+
+            long next = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_SELECT_TIMEOUT);
+            if (!timers.isEmpty()) {
+                next = Math.min(next, timers.peek().due);
+            }
+            for (final RequestAttempt attempt : busy.values()) {
+                next = Math.min(next, attempt.deadline);
+            }
+            for (final RequestAttempt attempt : streaming.keySet()) {
+                next = Math.min(next, attempt.deadline);
+            }
+
+            // a deferred bulk request is sent at the latest after the maximum delay
+            if (!bulkWaiting.isEmpty()) {
+                final long due = bulkWaiting.peek().dispatchTime + bulkMaxDelay;
+                if (due > System.nanoTime()) {
+                    next = Math.min(next, due);
+                }
+            }
+
+            return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(next - System.nanoTime()) + 1L);
+        }
+
+        /**
+         * assigns connections to the waiting requests, as long as connections are available
+         */
+        private void dispatchWaiting() {
+            if (!bulkWaiting.isEmpty()) {
+                countActive();
+            }
+
+            RequestAttempt attempt;
+            while ((attempt = nextWaiting()) != null) {
+                final ArrayDeque<RequestAttempt> lane = laneOf(attempt);
+                if (attempt.isCancelled()) {
+                    lane.poll();
+                    drop(attempt);
+                    continue;
+                }
+
+                if (http2 && !http1Hosts.contains(attempt.hostKey)) {
+                    final BreinHttp2Session<RequestAttempt> session = getSession(attempt.hostKey);
+                    if (session != null) {
+                        if (!session.canOpen()) {
+                            return;
+                        }
+
+                        lane.poll();
+                        started(attempt);
+                        attempt.releaseQueueSlot();
+                        attempt.getRequestMetrics().setQueueWait(BreinRequestMetrics.microsSince(attempt.dispatchTime));
+                        attempt.getRequestMetrics().setConnectTime(0L);
+                        attempt.reused = true;
+
+                        session.getConnection().used();
+                        connectionStats.requestSent();
+                        openStream(session, attempt);
+                        continue;
+                    } else if (negotiating.contains(attempt.hostKey)) {
+
+                        // the protocol is not known yet, the requests may be sent using the negotiating connection
+                        return;
+                    }
+                }
+
+                BreinNioConnection connection = pollIdle(attempt.hostKey);
+                if (connection == null) {
+                    final int active = busy.size() + sessions.size();
+                    if (active >= maxActive) {
+                        return;
+                    } else if (active + idleCount >= maxActive) {
+                        closeOldestIdle();
+                    }
+                }
+
+                lane.poll();
+                started(attempt);
+                attempt.releaseQueueSlot();
+                attempt.getRequestMetrics().setQueueWait(BreinRequestMetrics.microsSince(attempt.dispatchTime));
+
+                try {
+                    if (connection == null) {
+                        connection = open(attempt);
+                    } else {
+                        attempt.reused = true;
+                        attempt.getRequestMetrics().setConnectTime(0L);
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    Log.d(TAG, "unable to connect to " + attempt.hostKey + ": " + e);
+                    attempt.failLater(true);
+                    continue;
+                }
+
+                assign(connection, attempt);
+            }
+        }
+
+        /**
+         * Selects the next request to be dispatched. The interactive requests
+         * come first, unless a bulk request was deferred for the maximum delay.
+         * Bulk requests are only selected if the concurrency of their lane
+         * allows it, otherwise only if no interactive request is in flight.
+         *
+         * @return RequestAttempt the next request (still waiting), {@code null} if no request can be dispatched
+         */
+        private RequestAttempt nextWaiting() {
+            final RequestAttempt bulk = bulkWaiting.peek();
+            final boolean bulkAllowed = bulk != null && bulkActive < bulkConcurrency;
+
+            if (bulkAllowed && bulk.dispatchTime + bulkMaxDelay <= System.nanoTime()) {
+                return bulk;
+            } else if (!waiting.isEmpty()) {
+                return waiting.peek();
+            } else if (bulkAllowed && interactiveActive == 0) {
+                return bulk;
+            } else {
+                return null;
+            }
+        }
+
+        /**
+         * counts the requests in flight per lane, the counts are updated while dispatching the waiting requests
+         */
+        private void countActive() {
+            interactiveActive = 0;
+            bulkActive = 0;
+            for (final RequestAttempt attempt : busy.values()) {
+                started(attempt);
+            }
+            for (final RequestAttempt attempt : streaming.keySet()) {
+                started(attempt);
+            }
+        }
+
+        private void started(final RequestAttempt attempt) {
+            if (attempt.priority == BreinPriority.BULK) {
+                bulkActive++;
+            } else {
+                interactiveActive++;
+            }
+        }
+
+        private ArrayDeque<RequestAttempt> laneOf(final RequestAttempt attempt) {
+            return attempt.priority == BreinPriority.BULK ? bulkWaiting : waiting;
+        }
+
+        private BreinNioConnection open(final RequestAttempt attempt) throws IOException {
+            final SocketChannel channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                final SSLEngine sslEngine = attempt.secure ? createSslEngine(attempt.host, attempt.port) : null;
+                final BreinNioConnection connection = new BreinNioConnection(attempt.hostKey, channel, sslEngine,
+                        bufferPool);
+                connectionStats.connectionOpened();
+
+                attempt.connectStart = System.nanoTime();
+                channel.connect(new InetSocketAddress(attempt.socketHost, attempt.port));
+                connection.setSelectionKey(channel.register(selector, SelectionKey.OP_CONNECT, connection));
+
+                // plain connections start with HTTP/2 directly, the server answers with its settings if supported
+                if (http2 && !http1Hosts.contains(attempt.hostKey)) {
+                    if (sslEngine == null || offerHttp2(sslEngine)) {
+                        negotiating.add(attempt.hostKey);
+                    } else {
+                        http1Hosts.add(attempt.hostKey);
+                    }
+                }
+
+                return connection;
+            } catch (final IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void assign(final BreinNioConnection connection, final RequestAttempt attempt) {
+            busy.put(connection, attempt);
+            connection.used();
+            connection.getParser().reset(attempt.config.getMaxResponseSize());
+            connectionStats.requestSent();
+
+            attempt.request = ByteBuffer.wrap(attempt.requestBytes);
+            if (connection.isEstablished()) {
+                attempt.deadline = deadline(attempt.config.getSocketTimeout());
+                connection.setInterest(SelectionKey.OP_WRITE);
+            } else {
+                attempt.deadline = deadline(attempt.config.getConnectionTimeout());
+            }
+        }
+
+        private void handle(final SelectionKey key) {
+            final BreinNioConnection connection = (BreinNioConnection) key.attachment();
+            final BreinHttp2Session<RequestAttempt> session = sessions.get(connection);
+            if (session != null) {
+                handleSession(key, session);
+                return;
+            }
+
+            final RequestAttempt attempt = busy.get(connection);
+            if (attempt == null) {
+
+                // an idle connection is readable if the server closed it
+                removeIdle(connection);
+                connection.close();
+                return;
+            }
+
+            try {
+                if (!key.isValid()) {
+                    throw new IOException("the connection was closed");
+                } else if (key.isConnectable() && !connection.finishConnect()) {
+                    return;
+                }
+
+                process(connection, attempt);
+            } catch (final BreinException e) {
+                Log.d(TAG, "NioRestEngine exception is: " + e);
+                fail(connection, attempt, false);
+            } catch (final IOException | RuntimeException e) {
+                Log.d(TAG, "NioRestEngine exception is: " + e);
+                fail(connection, attempt, true);
+            }
+        }
+
+        /**
+         * continues the request as far as possible: handshake, sending the request, reading the response
+         */
+        private void process(final BreinNioConnection connection, final RequestAttempt attempt) throws IOException {
+            if (!connection.isEstablished()) {
+                final int waitFor = connection.handshake();
+                if (waitFor != 0) {
+                    connection.setInterest(waitFor);
+                    return;
+                }
+
+                if (connection.isSecure() && !verifyHost(attempt.host, connection.getSslEngine())) {
+                    throw new SSLException("the certificate does not match the host " + attempt.host);
+                }
+                connection.established();
+                attempt.getRequestMetrics().setConnectTime(BreinRequestMetrics.microsSince(attempt.connectStart));
+                attempt.deadline = deadline(attempt.config.getSocketTimeout());
+
+                if (negotiating.remove(attempt.hostKey)) {
+                    if (!connection.isSecure() || isHttp2Selected(connection.getSslEngine())) {
+                        startSession(connection, attempt);
+                        return;
+                    }
+                    http1Hosts.add(attempt.hostKey);
+                }
+            }
+
+            if (attempt.request.hasRemaining() || connection.hasPendingOutput()) {
+                if (!connection.write(attempt.request)) {
+                    connection.setInterest(SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                attempt.writtenTime = System.nanoTime();
+                attempt.deadline = deadline(attempt.config.getSocketTimeout());
+                connection.setInterest(SelectionKey.OP_READ);
+            }
+
+            read(connection, attempt);
+        }
+
+        private void read(final BreinNioConnection connection, final RequestAttempt attempt) throws IOException {
+            final BreinHttpResponseParser parser = connection.getParser();
+
+            boolean more = true;
+            while (more) {
+                final int read = connection.read();
+
+                final ByteBuffer appIn = connection.getAppIn();
+                appIn.flip();
+                final boolean received = appIn.hasRemaining();
+                if (received && !parser.isStarted()) {
+                    attempt.getRequestMetrics().setTimeToFirstByte(
+                            BreinRequestMetrics.microsSince(attempt.writtenTime));
+                }
+                final boolean done = parser.parse(appIn);
+                appIn.compact();
+
+                if (done) {
+                    received(connection, attempt, true);
+                    return;
+                } else if (read < 0) {
+                    if (!parser.isStarted() && attempt.reused && !attempt.staleRetried) {
+                        retryStale(connection, attempt);
+                    } else if (parser.parseEnd()) {
+                        received(connection, attempt, false);
+                    }
+                    return;
+                } else if (read > 0) {
+                    attempt.deadline = deadline(attempt.config.getSocketTimeout());
+                }
+
+                more = received && connection.hasBufferedInput();
+            }
+        }
+
+        /**
+         * retrieves the HTTP/2 connection to the host
+         *
+         * @return BreinHttp2Session the session, {@code null} if no connection is open
+         */
+        private BreinHttp2Session<RequestAttempt> getSession(final String hostKey) {
+            BreinHttp2Session<RequestAttempt> result = null;
+            for (final BreinHttp2Session<RequestAttempt> session : sessions.values()) {
+                if (session.isGoingAway() || !hostKey.equals(session.getConnection().getKey())) {
+                    continue;
+                } else if (result == null || session.getStreamCount() < result.getStreamCount()) {
+                    result = session;
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * the connection negotiated HTTP/2, the request establishing it is sent as its first stream
+         */
+        private void startSession(final BreinNioConnection connection, final RequestAttempt attempt)
+                throws IOException {
+            busy.remove(connection);
+
+            final BreinHttp2Session<RequestAttempt> session = new BreinHttp2Session<>(connection, streamListener);
+            sessions.put(connection, session);
+            openStream(session, attempt);
+            flushSession(session);
+        }
+
+        private void openStream(final BreinHttp2Session<RequestAttempt> session, final RequestAttempt attempt) {
+            streaming.put(attempt, session);
+            session.open(attempt, attempt.createHttp2Headers(), attempt.requestBytes, attempt.bodyOffset,
+                    attempt.requestBytes.length - attempt.bodyOffset, attempt.config.getMaxResponseSize());
+
+            attempt.writtenTime = System.nanoTime();
+            attempt.deadline = deadline(attempt.config.getSocketTimeout());
+        }
+
+        /**
+         * writes the frames of all sessions, e.g., the streams opened for the waiting requests
+         */
+        private void flushSessions() {
+            List<BreinHttp2Session<RequestAttempt>> failed = null;
+            for (final BreinHttp2Session<RequestAttempt> session : sessions.values()) {
+                if (!session.hasPendingOutput()) {
+                    continue;
+                }
+
+                try {
+                    flushSession(session);
+                } catch (final IOException e) {
+                    Log.d(TAG, "NioRestEngine exception is: " + e);
+                    if (failed == null) {
+                        failed = new ArrayList<>();
+                    }
+                    failed.add(session);
+                }
+            }
+
+            if (failed != null) {
+                for (final BreinHttp2Session<RequestAttempt> session : failed) {
+                    closeSession(session, false);
+                }
+            }
+        }
+
+        private void flushSession(final BreinHttp2Session<RequestAttempt> session) throws IOException {
+            if (!session.hasPendingOutput() || session.flush()) {
+                session.getConnection().setInterest(SelectionKey.OP_READ);
+            } else {
+                session.getConnection().setInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * reads the frames received by the HTTP/2 connection and writes the frames waiting to be sent
+         */
+        private void handleSession(final SelectionKey key, final BreinHttp2Session<RequestAttempt> session) {
+            final BreinNioConnection connection = session.getConnection();
+            try {
+                if (!key.isValid()) {
+                    throw new IOException("the connection was closed");
+                }
+
+                boolean more = key.isReadable();
+                while (more) {
+                    final int read = connection.read();
+
+                    final ByteBuffer appIn = connection.getAppIn();
+                    appIn.flip();
+                    final boolean received = appIn.hasRemaining();
+                    try {
+                        session.receive(appIn);
+                    } finally {
+                        appIn.compact();
+                    }
+
+                    if (read < 0) {
+                        throw new IOException("the connection was closed by the server");
+                    }
+                    more = received && connection.hasBufferedInput();
+                }
+
+                flushSession(session);
+            } catch (final IOException | RuntimeException e) {
+                if (session.getStreamCount() > 0) {
+                    Log.d(TAG, "NioRestEngine exception is: " + e);
+                }
+                closeSession(session, !connection.isSecure() && !session.isConfirmed());
+                return;
+            }
+
+            if (session.getStreamCount() == 0 && (session.isGoingAway() || shutdown || !keepAlive)) {
+                closeSession(session, false);
+            }
+        }
+
+        /**
+         * Closes the HTTP/2 connection. The requests sent as streams are sent
+         * again if the server did not answer them so far and the connection was
+         * reused, like a stale HTTP/1.1 connection.
+         *
+         * @param session  BreinHttp2Session the session to close
+         * @param fallback boolean true if the server does not support HTTP/2, i.e., the requests are sent again using
+         *                 HTTP/1.1
+         */
+        private void closeSession(final BreinHttp2Session<RequestAttempt> session, final boolean fallback) {
+            final BreinNioConnection connection = session.getConnection();
+            sessions.remove(connection);
+            if (fallback) {
+                Log.d(TAG, connection.getKey() + " does not support HTTP/2, HTTP/1.1 is used");
+                http1Hosts.add(connection.getKey());
+            }
+
+            final List<RequestAttempt> attempts = session.abort();
+            closeGracefully(session);
+
+            // the requests sent again are added in their order
+            for (int i = attempts.size() - 1; i >= 0; i--) {
+                final RequestAttempt attempt = attempts.get(i);
+                streaming.remove(attempt);
+
+                if (fallback) {
+                    attempt.reused = false;
+                    laneOf(attempt).addFirst(attempt);
+                } else if (attempt.reused && !attempt.responseStarted && !attempt.staleRetried) {
+                    attempt.staleRetried = true;
+                    attempt.reused = false;
+                    laneOf(attempt).addFirst(attempt);
+                } else {
+                    attempt.failLater(true);
+                }
+            }
+        }
+
+        /**
+         * announces the end of the session (without waiting for the server) and closes the connection
+         */
+        private void closeGracefully(final BreinHttp2Session<RequestAttempt> session) {
+            final BreinNioConnection connection = session.getConnection();
+            if (connection.isEstablished() && session.isConfirmed()) {
+                try {
+                    session.goAway(BreinHttp2Session.ERROR_NO_ERROR);
+                    session.flush();
+                } catch (final IOException e) {
+                    // the connection is closed anyways
+                }
+            }
+            connection.close();
+        }
+
+        /**
+         * the response is complete, the connection is kept alive if possible and the response handed over
+         */
+        private void received(final BreinNioConnection connection,
+                              final RequestAttempt attempt,
+                              final boolean open) throws IOException {
+            final BreinHttpResponseParser parser = connection.getParser();
+            busy.remove(connection);
+
+            final int status = parser.getStatus();
+            final String retryAfter = parser.getHeader("Retry-After");
+            final InputStream body = parser.getBody();
+            attempt.getRequestMetrics().setBytesIn(parser.getBodySize());
+
+            if (open && parser.isKeepAlive() && attempt.config.isConnectionKeepAlive() &&
+                    !connection.hasBufferedInput() && !shutdown) {
+                addIdle(connection);
+            } else {
+                connection.close();
+            }
+
+            attempt.completeLater(status, retryAfter, body);
+        }
+
+        /**
+         * A reused connection was closed by the server before the request was
+         * answered (e.g., because it was idle too long), the request is sent
+         * again using another connection.
+         */
+        private void retryStale(final BreinNioConnection connection, final RequestAttempt attempt) {
+            busy.remove(connection);
+            connection.close();
+
+            attempt.staleRetried = true;
+            attempt.reused = false;
+            laneOf(attempt).addFirst(attempt);
+        }
+
+        private void fail(final BreinNioConnection connection, final RequestAttempt attempt, final boolean retryable) {
+            if (!connection.isEstablished() && connection.isConnected() && connection.isSecure() &&
+                    negotiating.contains(attempt.hostKey)) {
+
+                // the handshake failed, e.g., because the server does not support the offer of HTTP/2
+                http1Hosts.add(attempt.hostKey);
+            }
+
+            if (retryable && !connection.getParser().isStarted() && attempt.reused && !attempt.staleRetried) {
+                retryStale(connection, attempt);
+                return;
+            }
+
+            closeBusy(connection);
+            attempt.failLater(retryable);
+        }
+
+        private void cancel(final RequestAttempt attempt) {
+            if (attempt.done) {
+                return;
+            } else if (laneOf(attempt).remove(attempt)) {
+                drop(attempt);
+                return;
+            }
+
+            final BreinHttp2Session<RequestAttempt> session = streaming.remove(attempt);
+            if (session != null) {
+                session.reset(attempt);
+                drop(attempt);
+                return;
+            }
+
+            for (final Map.Entry<BreinNioConnection, RequestAttempt> entry : busy.entrySet()) {
+                if (entry.getValue() == attempt) {
+                    final BreinNioConnection connection = entry.getKey();
+                    closeBusy(connection);
+                    drop(attempt);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * closes the connection used by a request, the negotiation of the protocol is ended if it was not established
+         */
+        private void closeBusy(final BreinNioConnection connection) {
+            busy.remove(connection);
+            if (!connection.isEstablished()) {
+                negotiating.remove(connection.getKey());
+            }
+            connection.close();
+        }
+
+        private void drop(final RequestAttempt attempt) {
+            attempt.releaseQueueSlot();
+            attempt.done = true;
+            runCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    attempt.finish(BreinRequestMetrics.Outcome.DROPPED, null);
+                }
+            });
+        }
+
+        private void checkTimeouts() {
+            final long now = System.nanoTime();
+
+            List<BreinNioConnection> expired = null;
+            for (final Map.Entry<BreinNioConnection, RequestAttempt> entry : busy.entrySet()) {
+                if (entry.getValue().deadline <= now) {
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(entry.getKey());
+                }
+            }
+            if (expired != null) {
+                for (final BreinNioConnection connection : expired) {
+                    final RequestAttempt attempt = busy.get(connection);
+                    Log.d(TAG, "NioRestEngine exception is: request to " + attempt.endpoint + " timed out");
+                    closeBusy(connection);
+                    attempt.failLater(true);
+                }
+            }
+
+            List<RequestAttempt> expiredStreams = null;
+            for (final RequestAttempt attempt : streaming.keySet()) {
+                if (attempt.deadline <= now) {
+                    if (expiredStreams == null) {
+                        expiredStreams = new ArrayList<>();
+                    }
+                    expiredStreams.add(attempt);
+                }
+            }
+            if (expiredStreams != null) {
+                for (final RequestAttempt attempt : expiredStreams) {
+                    final BreinHttp2Session<RequestAttempt> session = streaming.get(attempt);
+                    if (session == null) {
+
+                        // the session was closed by a previous timeout
+                        continue;
+                    }
+
+                    Log.d(TAG, "NioRestEngine exception is: request to " + attempt.endpoint + " timed out");
+                    final BreinNioConnection connection = session.getConnection();
+                    if (!connection.isSecure() && !session.isConfirmed()) {
+
+                        // the server does not answer the HTTP/2 preface
+                        closeSession(session, true);
+                    } else if (session.getLastReceived() < attempt.writtenTime) {
+
+                        // nothing was received since the request was sent, the connection is assumed to be broken
+                        closeSession(session, false);
+                    } else {
+                        streaming.remove(attempt);
+                        session.reset(attempt);
+                        attempt.failLater(true);
+                    }
+                }
+            }
+
+            final long idleLimit = now - TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+            for (final ArrayDeque<BreinNioConnection> connections : idle.values()) {
+                while (!connections.isEmpty() && connections.peekLast().getLastUsed() <= idleLimit) {
+                    connections.pollLast().close();
+                    idleCount--;
+                }
+            }
+
+            List<BreinHttp2Session<RequestAttempt>> idleSessions = null;
+            for (final BreinHttp2Session<RequestAttempt> session : sessions.values()) {
+                if (session.getStreamCount() == 0 && session.getConnection().getLastUsed() <= idleLimit) {
+                    if (idleSessions == null) {
+                        idleSessions = new ArrayList<>();
+                    }
+                    idleSessions.add(session);
+                }
+            }
+            if (idleSessions != null) {
+                for (final BreinHttp2Session<RequestAttempt> session : idleSessions) {
+                    closeSession(session, false);
+                }
+            }
+        }
+
+        private BreinNioConnection pollIdle(final String hostKey) {
+            final ArrayDeque<BreinNioConnection> connections = idle.get(hostKey);
+            final BreinNioConnection connection = connections == null ? null : connections.poll();
+            if (connection != null) {
+                idleCount--;
+            }
+
+            return connection;
+        }
+
+        private void addIdle(final BreinNioConnection connection) {
+            if (idleCount >= maxIdle) {
+                closeOldestIdle();
+            }
+            if (idleCount >= maxIdle) {
+                connection.close();
+                return;
+            }
+
+            ArrayDeque<BreinNioConnection> connections = idle.get(connection.getKey());
+            if (connections == null) {
+                connections = new ArrayDeque<>();
+                idle.put(connection.getKey(), connections);
+            }
+
+            // the most recently used connection is reused first, so that the others can expire
+            connections.push(connection);
+            idleCount++;
+            connection.setInterest(SelectionKey.OP_READ);
+        }
+
+        private void removeIdle(final BreinNioConnection connection) {
+            final ArrayDeque<BreinNioConnection> connections = idle.get(connection.getKey());
+            if (connections != null && connections.remove(connection)) {
+                idleCount--;
+            }
+        }
+
+        private void closeOldestIdle() {
+            BreinNioConnection oldest = null;
+            for (final ArrayDeque<BreinNioConnection> connections : idle.values()) {
+                final BreinNioConnection candidate = connections.peekLast();
+                if (candidate != null && (oldest == null || candidate.getLastUsed() < oldest.getLastUsed())) {
+                    oldest = candidate;
+                }
+            }
+
+            if (oldest != null) {
+                removeIdle(oldest);
+                oldest.close();
+            }
+        }
+
+        private long deadline(final long timeout) {
+            return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout <= 0 ? Integer.MAX_VALUE : timeout);
+        }
+
+        /**
+         * closes all connections, the requests not sent so far are dropped
+         */
+        private void close() {
+            shutdown = true;
+            runTasks();
+
+            for (final Map.Entry<BreinNioConnection, RequestAttempt> entry : busy.entrySet()) {
+                entry.getKey().close();
+                drop(entry.getValue());
+            }
+            busy.clear();
+
+            for (final BreinHttp2Session<RequestAttempt> session : sessions.values()) {
+                for (final RequestAttempt attempt : session.abort()) {
+                    drop(attempt);
+                }
+                closeGracefully(session);
+            }
+            sessions.clear();
+            streaming.clear();
+
+            for (final ArrayDeque<BreinNioConnection> connections : idle.values()) {
+                for (final BreinNioConnection connection : connections) {
+                    connection.close();
+                }
+            }
+            idle.clear();
+            idleCount = 0;
+
+            try {
+                selector.close();
+            } catch (final IOException e) {
+                Log.d(TAG, "unable to close the selector: " + e);
+            }
+
+            closed = true;
+            dropRemaining();
+        }
+
+        /**
+         * Drops the waiting and scheduled requests of the closed dispatcher,
+         * including the ones posted while it was closed. Called by the selector
+         * thread when closing and afterwards by the threads posting a task.
+         */
+        private synchronized void dropRemaining() {
+            runTasks();
+
+            for (final RequestAttempt attempt : waiting) {
+                drop(attempt);
+            }
+            waiting.clear();
+            for (final RequestAttempt attempt : bulkWaiting) {
+                drop(attempt);
+            }
+            bulkWaiting.clear();
+
+            for (final Timer timer : timers) {
+                if (timer.attempt != null) {
+                    drop(timer.attempt);
+                }
+            }
+            timers.clear();
+        }
+    }
+
+    /**
+     * a task run by the selector thread at the due time
+     */
+    private static class Timer implements Comparable<Timer> {
+        private final long due;
+        private final long sequence;
+        private final Runnable task;
+        private final RequestAttempt attempt;
+
+        private Timer(final long due, final long sequence, final Runnable task, final RequestAttempt attempt) {
+            this.due = due;
+            this.sequence = sequence;
+            this.task = task;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public int compareTo(final Timer other) {
+            if (due != other.due) {
+                return due < other.due ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * One attempt to send a request. A failed attempt schedules the next one
+     * according to the retry policy, the callback is only informed about the
+     * final result. If the callback is a {@code BreinFuture}, cancelling it
+     * closes the connection of the running attempt and prevents further ones,
+     * the request is recorded as dropped.
+     * <p>
+     * The fields describing the state of the transfer are only used by the
+     * selector thread.
+     */
+    private class RequestAttempt {
+        private final BreinConfig config;
+        private final String endpoint;
+        private final ICallback<BreinResult> callback;
+        private final BreinRetryPolicy retryPolicy;
+        private final int attempt;
+        private final BreinPriority priority;
+        private final BreinRequestMetrics requestMetrics;
+
+        private final boolean secure;
+        private final String host;
+        private final String socketHost;
+        private final int port;
+        private final String hostKey;
+        private final String authority;
+        private final String path;
+
+        /**
+         * the request line, headers and body
+         */
+        private final byte[] requestBytes;
+
+        /**
+         * the position of the body within the request, the body is compressed if {@link #compressed} is true
+         */
+        private int bodyOffset;
+        private boolean compressed;
+
+        private long dispatchTime = System.nanoTime();
+        /**
+         * the slot of the dispatch queue taken by the attempt, {@code null} if none was taken
+         */
+        private Semaphore queueSlot = null;
+        private boolean replacesOldest = false;
+
+        private ByteBuffer request;
+        private boolean reused = false;
+        private boolean staleRetried = false;
+        private boolean responseStarted = false;
+        private boolean done = false;
+        private long connectStart = 0L;
+        private long writtenTime = 0L;
+        private long deadline = Long.MAX_VALUE;
+
+        private RequestAttempt(final BreinConfig config,
+                               final String fullUrl,
+                               final String requestBody,
+                               final BreinPriority priority,
+                               final ICallback<BreinResult> callback,
+                               final BreinRequestMetrics requestMetrics) {
+            this.config = config;
+            this.endpoint = requestMetrics.getEndpoint();
+            this.callback = callback;
+            this.retryPolicy = new BreinRetryPolicy(config);
+            this.attempt = 1;
+            this.priority = priority;
+            this.requestMetrics = requestMetrics;
+
+            final URL url;
+            try {
+                url = new URL(fullUrl);
+            } catch (final MalformedURLException e) {
+                throw new BreinException("invalid url: " + fullUrl, e);
+            }
+
+            this.secure = "https".equalsIgnoreCase(url.getProtocol());
+            this.host = url.getHost();
+            this.socketHost = host.startsWith("[") ? host.substring(1, host.length() - 1) : host;
+            this.port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+            this.hostKey = url.getProtocol() + "://" + host + ":" + port;
+            this.authority = url.getPort() == -1 ? host : host + ":" + port;
+            this.path = url.getFile().isEmpty() ? "/" : url.getFile();
+            this.requestBytes = createRequest(requestBody);
+        }
+
+        private RequestAttempt(final RequestAttempt previous) {
+            this.config = previous.config;
+            this.endpoint = previous.endpoint;
+            this.callback = previous.callback;
+            this.retryPolicy = previous.retryPolicy;
+            this.attempt = previous.attempt + 1;
+            this.priority = previous.priority;
+            this.requestMetrics = new BreinRequestMetrics(previous.endpoint);
+            this.requestMetrics.setBytesOut(previous.requestMetrics.getBytesOut());
+            this.requestMetrics.setUncompressedBytesOut(previous.requestMetrics.getUncompressedBytesOut());
+
+            this.secure = previous.secure;
+            this.host = previous.host;
+            this.socketHost = previous.socketHost;
+            this.port = previous.port;
+            this.hostKey = previous.hostKey;
+            this.authority = previous.authority;
+            this.path = previous.path;
+            this.requestBytes = previous.requestBytes;
+            this.bodyOffset = previous.bodyOffset;
+            this.compressed = previous.compressed;
+        }
+
+        /**
+         * Creates the request, using a fixed length so that the connection can
+         * be reused. The body is compressed if compression is enabled and the
+         * body reaches the threshold.
+         */
+        private byte[] createRequest(final String requestBody) {
+            final byte[] uncompressed = requestBody.getBytes(UTF8);
+            final boolean compress = config.isRequestCompression() &&
+                    uncompressed.length >= config.getRequestCompressionThreshold();
+            final byte[] body = compress ? BreinGzip.compress(uncompressed) : uncompressed;
+
+            final StringBuilder head = new StringBuilder(256)
+                    .append("POST ").append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(authority).append("\r\n")
+                    .append("Content-Type: application/json\r\n")
+                    .append("Accept: application/json\r\n")
+                    .append("Accept-Encoding: gzip\r\n")
+                    .append("Content-Length: ").append(body.length).append("\r\n");
+            if (compress) {
+                head.append("Content-Encoding: gzip\r\n");
+            }
+            if (!config.isConnectionKeepAlive()) {
+                head.append("Connection: close\r\n");
+            }
+            head.append("\r\n");
+
+            final byte[] headBytes = head.toString().getBytes(UTF8);
+            final byte[] request = new byte[headBytes.length + body.length];
+            System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+            System.arraycopy(body, 0, request, headBytes.length, body.length);
+
+            requestMetrics.setBytesOut(body.length);
+            requestMetrics.setUncompressedBytesOut(uncompressed.length);
+            this.bodyOffset = headBytes.length;
+            this.compressed = compress;
+            return request;
+        }
+
+        /**
+         * creates the headers of the request if sent as HTTP/2 stream, the body is the one of the HTTP/1.1 request
+         *
+         * @return String[] the names and values of the headers
+         */
+        private String[] createHttp2Headers() {
+            final String contentLength = String.valueOf(requestBytes.length - bodyOffset);
+            if (compressed) {
+                return new String[]{
+                        ":method", "POST", ":scheme", secure ? "https" : "http", ":authority", authority, ":path", path,
+                        "content-type", "application/json", "accept", "application/json", "accept-encoding", "gzip",
+                        "content-encoding", "gzip", "content-length", contentLength};
+            } else {
+                return new String[]{
+                        ":method", "POST", ":scheme", secure ? "https" : "http", ":authority", authority, ":path", path,
+                        "content-type", "application/json", "accept", "application/json", "accept-encoding", "gzip",
+                        "content-length", contentLength};
+            }
+        }
+
+        private BreinRequestMetrics getRequestMetrics() {
+            return requestMetrics;
+        }
+
+        /**
+         * marks the attempt as handed over to the selector thread now, i.e., the queue wait starts
+         */
+        private void markDispatched() {
+            dispatchTime = System.nanoTime();
+        }
+
+        private void releaseQueueSlot() {
+            if (queueSlot != null) {
+                queueSlot.release();
+                queueSlot = null;
+            }
+        }
+
+        private boolean isCancelled() {
+            return callback instanceof BreinFuture && ((BreinFuture<?>) callback).isCancelled();
+        }
+
+        /**
+         * hands the received response over to the completion thread
+         */
+        private void completeLater(final int status, final String retryAfter, final InputStream body) {
+            done = true;
+            requestMetrics.setStatus(status);
+            runCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    if (BreinRetryPolicy.isSuccessful(status)) {
+                        readResponse(body);
+                    } else {
+                        complete(null, retryPolicy.isRetryable(status),
+                                BreinRetryPolicy.parseRetryAfter(retryAfter, System.currentTimeMillis()));
+                    }
+                }
+            });
+        }
+
+        /**
+         * hands the failure over to the completion thread
+         */
+        private void failLater(final boolean retryable) {
+            done = true;
+            runCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    complete(null, retryable, -1L);
+                }
+            });
+        }
+
+        private void readResponse(final InputStream body) {
+            BreinResult breinResponse = null;
+            try {
+                final JsonObject jsonResponse = BreinResponseReader.readJson(body, config.getMaxResponseSize(),
+                        JsonObject.class);
+
+                // a response without a body (e.g., 204) is successful as well
+                breinResponse = new BreinResult(jsonResponse == null ? new JsonObject() : jsonResponse);
+            } catch (final Exception e) {
+                Log.d(TAG, "NioRestEngine exception is: " + e);
+            }
+
+            complete(breinResponse, false, -1L);
+        }
+
+        /**
+         * Informs the circuit breaker about the result and retries the request
+         * if possible, otherwise the callback is informed.
+         */
+        private void complete(final BreinResult breinResponse, final boolean retryable, final long retryAfter) {
+            if (isCancelled()) {
+                finish(BreinRequestMetrics.Outcome.DROPPED, null);
+                return;
+            }
+
+            final BreinCircuitBreaker<RequestAttempt> breaker = getCircuitBreaker(config, endpoint);
+            if (breinResponse != null) {
+                if (breaker != null) {
+                    for (final RequestAttempt released : breaker.onSuccess()) {
+                        submit(released, false);
+                    }
+                }
+
+                finish(BreinRequestMetrics.Outcome.SUCCEEDED, breinResponse);
+                return;
+            }
+
+            // only temporary problems are an indicator of an unhealthy endpoint, otherwise the endpoint answered
+            if (breaker != null && !retryable) {
+                for (final RequestAttempt released : breaker.onSuccess()) {
+                    submit(released, false);
+                }
+            } else if (breaker != null && breaker.onFailure()) {
+                Log.d(TAG, "circuit breaker of " + endpoint + " opened");
+                if (breaker.claimProbe()) {
+                    scheduleProbe(breaker, config);
+                }
+            }
+
+            if (retryable && retryPolicy.canRetry(attempt)) {
+                final RequestAttempt next = new RequestAttempt(this);
+                final long delay = retryPolicy.getDelay(attempt, retryAfter);
+
+                if (getDispatcher(config).schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        submit(next, false);
+                    }
+                }, delay, next)) {
+                    Log.d(TAG, "retrying request to " + endpoint + " in " + delay + " ms");
+                    record(BreinRequestMetrics.Outcome.RETRIED);
+                    return;
+                }
+            }
+
+            finish(BreinRequestMetrics.Outcome.FAILED, null);
+        }
+
+        /**
+         * records the final outcome and informs the callback, a null result means the request failed
+         */
+        private void finish(final BreinRequestMetrics.Outcome outcome, final BreinResult breinResponse) {
+            record(outcome);
+
+            final int status = requestMetrics.getStatus();
+            if (status != -1 && outcome != BreinRequestMetrics.Outcome.DROPPED && callback instanceof IStatusListener) {
+                ((IStatusListener) callback).onStatus(status);
+            }
+            if (callback != null) {
+                callback.callback(breinResponse);
+            }
+        }
+
+        private void record(final BreinRequestMetrics.Outcome outcome) {
+            requestMetrics.setOutcome(outcome);
+            if (outcome != BreinRequestMetrics.Outcome.DROPPED) {
+                requestMetrics.setTotalLatency(BreinRequestMetrics.microsSince(requestMetrics.getStartTime()));
+            }
+            metrics.record(requestMetrics);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.brein.engine;
+
+import android.util.Log;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinLookup;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+
+/**
+ * The engine of {@link BreinEngineType#NO_ENGINE}, no request is sent. The
+ * callbacks are informed immediately that there is no result.
+ */
+public class NoRestEngine implements IRestEngine {
+
+    private static final String TAG = "NoRestEngine";
+
+    @Override
+    public void configure(final BreinConfig breinConfig) {
+        // nothing to configure
+    }
+
+    @Override
+    public void doRequest(final BreinActivity breinActivity) {
+        Log.d(TAG, "activity is not sent, no engine configured");
+    }
+
+    @Override
+    public BreinResult doLookup(final BreinLookup breinLookup) {
+        return null;
+    }
+
+    @Override
+    public void terminate() {
+        // nothing to terminate
+    }
+
+    @Override
+    public IRestEngine getRestEngine(final BreinEngineType engine) {
+        return engine == BreinEngineType.NO_ENGINE ? this : null;
+    }
+
+    @Override
+    public BreinEngineType getRestEngineType(final BreinEngineType engine) {
+        return BreinEngineType.NO_ENGINE;
+    }
+
+    @Override
+    public void invokeRequest(final BreinConfig config,
+                              final BreinBase data,
+                              final ICallback<BreinResult> callback) {
+        if (callback != null) {
+            callback.callback(null);
+        }
+    }
+
+    @Override
+    public BreinConnectionStats getConnectionStats() {
+        return null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.brein.util;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinException;
+import com.brein.api.BreinRecommendation;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.domain.results.BreinLookupResult;
+import com.brein.domain.results.BreinRecommendationResult;
+import com.brein.domain.results.BreinTemporalDataResult;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides the single Gson instance used by the library. Creating a Gson instance is expensive and the type
+ * adapters (e.g., the reflective ones) are cached per instance, thus the instance is shared.
+ * <p>
+ * The output is compact, i.e., not pretty printed and not html-escaped (e.g., the padding of the signatures is
+ * written as {@code =} instead of an escaped unicode character). The requests (BreinActivity, BreinUser,
+ * BreinTemporalData, BreinRecommendation) and results have registered type adapters.
+ */
+public class BreinGson {
+
+    /**
+     * the shared Gson instance
+     */
+    public static final Gson GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE)
+            .disableHtmlEscaping()
+            .registerTypeAdapter(BreinActivity.class, new RequestAdapter<BreinActivity>())
+            .registerTypeAdapter(BreinTemporalData.class, new RequestAdapter<BreinTemporalData>())
+            .registerTypeAdapter(BreinRecommendation.class, new RequestAdapter<BreinRecommendation>())
+            .registerTypeAdapter(BreinUser.class, new UserAdapter())
+            .registerTypeAdapter(BreinResult.class, BreinResult.ADAPTER)
+            .registerTypeAdapter(BreinTemporalDataResult.class, BreinTemporalDataResult.ADAPTER)
+            .registerTypeAdapter(BreinRecommendationResult.class, BreinRecommendationResult.ADAPTER)
+            .registerTypeAdapter(BreinLookupResult.class, BreinLookupResult.ADAPTER)
+            .create();
+
+    private BreinGson() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * Copies the element, so that changes of the copy do not affect the
+     * original. Primitives and nulls are immutable and thus shared
+     * ({@code JsonElement.deepCopy()} is not public before Gson 2.8.2).
+     *
+     * @param element JsonElement the element to copy, can be {@code null}
+     * @param <T>     the type of the element
+     * @return JsonElement the copy
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends JsonElement> T deepCopy(final T element) {
+        if (element instanceof JsonObject) {
+            final JsonObject copy = new JsonObject();
+            for (final Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                copy.add(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return (T) copy;
+        } else if (element instanceof JsonArray) {
+            final JsonArray copy = new JsonArray();
+            for (final JsonElement value : (JsonArray) element) {
+                copy.add(deepCopy(value));
+            }
+            return (T) copy;
+        } else {
+            return element;
+        }
+    }
+
+    /**
+     * creates the JSON of the value
+     *
+     * @param value Object the value to be serialized, e.g., the request data
+     * @return String the JSON
+     */
+    public static String toJson(final Object value) {
+        return GSON.toJson(value);
+    }
+
+    /**
+     * writes the JSON of the value to the writer (without creating it as String), the writer is not closed
+     *
+     * @param value  Object the value to be serialized, e.g., the request data
+     * @param writer Writer the writer to write the JSON to
+     * @throws IOException if the JSON cannot be written
+     */
+    public static void write(final Object value, final Writer writer) throws IOException {
+        final JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+        write(jsonWriter, value);
+        jsonWriter.flush();
+    }
+
+    /**
+     * writes the value using the type adapter of its class
+     */
+    private static void write(final JsonWriter out, final Object value) {
+        if (value == null) {
+            GSON.toJson(null, Object.class, out);
+        } else {
+            GSON.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private static BreinConfig getConfig() {
+        final BreinConfig config = Breinify.getConfig();
+        return config == null ? new BreinConfig(null) : config;
+    }
+
+    /**
+     * Writes the request data of a request, using the configuration set for Breinify. Requests cannot be read.
+     */
+    private static class RequestAdapter<T extends BreinBase<?>> extends TypeAdapter<T> {
+
+        @Override
+        public void write(final JsonWriter out, final T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            final BreinConfig config = getConfig();
+            final Map<String, Object> requestData = value.prepareRequestMap(config);
+            if (requestData == null) {
+                out.jsonValue(value.prepareRequestData(config));
+            } else {
+                BreinGson.write(out, requestData);
+            }
+        }
+
+        @Override
+        public T read(final JsonReader in) throws IOException {
+            throw new BreinException("requests cannot be read from JSON");
+        }
+    }
+
+    /**
+     * Writes the user data as sent within a request. Users cannot be read.
+     */
+    private static class UserAdapter extends TypeAdapter<BreinUser> {
+
+        @Override
+        public void write(final JsonWriter out, final BreinUser value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            final Map<String, Object> requestData = new HashMap<>();
+            value.prepareRequestData(getConfig(), requestData);
+            BreinGson.write(out, requestData.get(BreinUser.USER_FIELD));
+        }
+
+        @Override
+        public BreinUser read(final JsonReader in) throws IOException {
+            throw new BreinException("users cannot be read from JSON");
+        }
+    }
+}
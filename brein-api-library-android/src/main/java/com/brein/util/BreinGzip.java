@@ -0,0 +1,183 @@
+package com.brein.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses request bodies using the gzip format. Creating a {@code Deflater}
+ * allocates native memory and a large window, thus the instances are taken from
+ * a small pool instead of creating one per request (as {@code GZIPOutputStream}
+ * does). Instances exceeding the pool are ended when they are returned, the
+ * pooled ones are ended by {@link #clear()} when the engine is terminated.
+ */
+public class BreinGzip {
+
+    /**
+     * magic number, compression method (deflate), no flags, no time, no extra flags, unknown OS
+     */
+    private static final byte[] HEADER = new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * maximum number of idle {@code Deflater} instances kept
+     */
+    static final int POOL_SIZE = 4;
+
+    private static final Deque<Deflater> POOL = new ArrayDeque<>();
+
+    private BreinGzip() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * compresses the data
+     *
+     * @param data byte[] the data to compress
+     * @return byte[] the gzip compressed data
+     */
+    public static byte[] compress(final byte[] data) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try {
+            final OutputStream gzip = wrap(out);
+            gzip.write(data);
+            gzip.close();
+        } catch (final IOException e) {
+            // cannot happen, the data is written to memory
+            throw new IllegalStateException("unable to compress data", e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Wraps the stream, so that the written data is compressed. The returned
+     * stream must be closed (or finished) to return its {@code Deflater} to the
+     * pool.
+     *
+     * @param out OutputStream the stream the compressed data is written to
+     * @return OutputStream the stream to write the data to
+     * @throws IOException if the header cannot be written
+     */
+    public static GzipOutputStream wrap(final OutputStream out) throws IOException {
+        return new GzipOutputStream(out, acquire());
+    }
+
+    /**
+     * ends the pooled {@code Deflater} instances, instances in use are ended when they are returned to the full pool
+     */
+    public static void clear() {
+        final List<Deflater> pooled;
+        synchronized (POOL) {
+            pooled = new ArrayList<>(POOL);
+            POOL.clear();
+        }
+
+        for (final Deflater deflater : pooled) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * retrieves the number of idle {@code Deflater} instances
+     *
+     * @return int the number of pooled instances
+     */
+    static int getPooledCount() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+
+    private static Deflater acquire() {
+        final Deflater deflater;
+        synchronized (POOL) {
+            deflater = POOL.pollFirst();
+        }
+
+        return deflater == null ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : deflater;
+    }
+
+    private static void release(final Deflater deflater) {
+        deflater.reset();
+        synchronized (POOL) {
+            if (POOL.size() < POOL_SIZE) {
+                POOL.addFirst(deflater);
+                return;
+            }
+        }
+
+        deflater.end();
+    }
+
+    /**
+     * Writes the gzip format using a pooled {@code Deflater}, which is returned
+     * to the pool when the stream is finished.
+     */
+    public static class GzipOutputStream extends DeflaterOutputStream {
+        private final CRC32 crc = new CRC32();
+        private boolean finished = false;
+
+        private GzipOutputStream(final OutputStream out, final Deflater deflater) throws IOException {
+            super(out, deflater, BUFFER_SIZE);
+            deflater.reset();
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (finished) {
+                throw new IOException("write beyond end of stream");
+            }
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            try {
+                super.finish();
+                writeInt((int) crc.getValue());
+                writeInt((int) def.getBytesRead());
+            } finally {
+                release(def);
+            }
+        }
+
+        /**
+         * finishes the compressed data and closes the underlying stream, the
+         * {@code Deflater} is returned to the pool instead of being ended
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeInt(final int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
+    }
+}
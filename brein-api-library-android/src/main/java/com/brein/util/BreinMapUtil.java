@@ -13,6 +13,25 @@ public class BreinMapUtil {
 
     }
 
+    /**
+     * Copy-on-write helper, creates a copy of the map containing the additional entry. The source is not modified,
+     * i.e., it can be shared by several snapshots of a request.
+     *
+     * @param source contains the original map, can be {@code null}
+     * @param key    the key to be set
+     * @param value  the value to be set
+     *
+     * @return a new map containing the entries of the source and the new entry
+     */
+    public static Map<String, Object> copyAndPut(final Map<String, Object> source,
+                                                 final String key,
+                                                 final Object value) {
+        final Map<String, Object> copy = source == null ? new HashMap<String, Object>() : new HashMap<>(source);
+        copy.put(key, value);
+
+        return copy;
+    }
+
     /**
      * Map Helper method used to copy a hashmap of type String, Object
      *
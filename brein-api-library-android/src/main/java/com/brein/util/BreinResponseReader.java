@@ -0,0 +1,172 @@
+package com.brein.util;
+
+import com.brein.api.BreinException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+
+/**
+ * Reads response bodies in bulk using pooled buffers. The body is decoded as
+ * UTF-8 and guarded by a maximum size. JSON bodies are parsed directly from the
+ * stream, i.e., without materializing the body as a String.
+ */
+public class BreinResponseReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * size of the pooled buffers
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * maximum number of buffers kept in the pool
+     */
+    private static final int MAX_POOLED_BUFFERS = 8;
+
+    private static final ArrayDeque<byte[]> BUFFER_POOL = new ArrayDeque<>();
+
+    private BreinResponseReader() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * reads the whole body as UTF-8 encoded String
+     *
+     * @param in      InputStream the body to read
+     * @param maxSize long maximum number of bytes accepted
+     * @return String the decoded body
+     * @throws IOException if the body cannot be read
+     * @throws BreinException if the body exceeds the maximum size
+     */
+    public static String readString(final InputStream in, final long maxSize) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = acquireBuffer();
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (out.size() + read > maxSize) {
+                    throw new BreinException(BreinException.RESPONSE_TOO_LARGE);
+                }
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+        // decode once, so that multi-byte characters split between two reads are kept
+        return new String(out.toByteArray(), UTF8);
+    }
+
+    /**
+     * parses the UTF-8 encoded JSON body directly from the stream
+     *
+     * @param in      InputStream the body to read
+     * @param maxSize long maximum number of bytes accepted
+     * @param type    Type the type to parse the JSON into
+     * @param <T>     the type of the result
+     * @return T the parsed body, {@code null} if the body is empty
+     * @throws IOException if the body cannot be read
+     * @throws BreinException if the body exceeds the maximum size
+     */
+    public static <T> T readJson(final InputStream in, final long maxSize, final Type type) throws IOException {
+        final JsonReader reader = new JsonReader(new InputStreamReader(new LimitedInputStream(in, maxSize), UTF8));
+        try {
+            return BreinGson.GSON.fromJson(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * reads and discards the remaining body, so that the connection can be reused
+     *
+     * @param in InputStream the body to drain
+     * @throws IOException if the body cannot be read
+     */
+    public static void drain(final InputStream in) throws IOException {
+        final byte[] buffer = acquireBuffer();
+        try {
+            //noinspection StatementWithEmptyBody
+            while (in.read(buffer) != -1) {
+                // just drain the body
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private static byte[] acquireBuffer() {
+        synchronized (BUFFER_POOL) {
+            final byte[] buffer = BUFFER_POOL.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+
+        return new byte[BUFFER_SIZE];
+    }
+
+    private static void releaseBuffer(final byte[] buffer) {
+        synchronized (BUFFER_POOL) {
+            if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+                BUFFER_POOL.push(buffer);
+            }
+        }
+    }
+
+    /**
+     * fails as soon as more than the maximum number of bytes are read
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long count = 0;
+
+        private LimitedInputStream(final InputStream in, final long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = super.read();
+            if (result != -1) {
+                count(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count(result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long result = super.skip(n);
+            count(result);
+            return result;
+        }
+
+        private void count(final long read) {
+            count += read;
+            if (count > maxSize) {
+                throw new BreinException(BreinException.RESPONSE_TOO_LARGE);
+            }
+        }
+    }
+}
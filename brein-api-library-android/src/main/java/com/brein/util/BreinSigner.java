@@ -0,0 +1,112 @@
+package com.brein.util;
+
+import com.brein.api.BreinException;
+
+import java.nio.charset.Charset;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Creates the HmacSHA256 signatures of the requests. A {@code Mac} is not thread-safe, thus each thread uses
+ * its own instance, which stays initialized with the key of the last used secret. The keys are created once
+ * per secret.
+ */
+public class BreinSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * the keys are cleared if more secrets than this are used
+     */
+    private static final int MAX_CACHED_KEYS = 16;
+
+    private static final ConcurrentMap<String, SecretKeySpec> KEYS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<ThreadMac> MACS = new ThreadLocal<ThreadMac>() {
+        @Override
+        protected ThreadMac initialValue() {
+            return new ThreadMac();
+        }
+    };
+
+    private BreinSigner() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * creates the signature of the message
+     *
+     * @param message String the message to sign
+     * @param secret  String the secret to sign with
+     * @return String the Base64 encoded signature
+     */
+    public static String sign(final String message, final String secret) {
+
+        if (message == null) {
+            throw new BreinException("Illegal value for message in method generateSignature");
+        }
+
+        if (secret == null) {
+            throw new BreinException("Illegal value for secret in method generateSignature");
+        }
+
+        final Mac mac = MACS.get().getMac(secret);
+        return Base64.encodeBytes(mac.doFinal(message.getBytes(UTF8)));
+    }
+
+    private static SecretKeySpec getKey(final String secret) {
+        SecretKeySpec key = KEYS.get(secret);
+        if (key == null) {
+            if (KEYS.size() >= MAX_CACHED_KEYS) {
+                KEYS.clear();
+            }
+
+            key = new SecretKeySpec(secret.getBytes(UTF8), ALGORITHM);
+            KEYS.put(secret, key);
+        }
+
+        return key;
+    }
+
+    /**
+     * the {@code Mac} of a thread and the secret it is initialized with
+     */
+    private static class ThreadMac {
+        private final Mac mac;
+        private String secret;
+
+        private ThreadMac() {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Unable to find needed algorithm!", e);
+            }
+        }
+
+        private Mac getMac(final String secret) {
+
+            // a finished Mac is reset to its key, i.e., it only has to be initialized if the secret changes
+            if (!secret.equals(this.secret)) {
+                try {
+                    mac.init(getKey(secret));
+                } catch (final InvalidKeyException e) {
+                    this.secret = null;
+                    throw new IllegalStateException("Unable to create signature!", e);
+                }
+                this.secret = secret;
+            }
+
+            return mac;
+        }
+    }
+}
@@ -10,33 +10,21 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.Charset;
-import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Random;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
 /**
  * Utility class
  */
 public class BreinUtil {
 
     private static final String AB = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final Mac mac;
     private static final Random RANDOM = new Random();
 
     private BreinUtil() {}
 
-    static {
-        try {
-            mac = Mac.getInstance("HmacSHA256");
-        } catch (final NoSuchAlgorithmException e) {
-            throw new IllegalStateException("Unable to find needed algorithm!", e);
-        }
-    }
-
     /**
      * Verifies if the object contains a value
      * Return false in case of:
@@ -108,24 +96,21 @@ public class BreinUtil {
      * @return signature
      */
     public static String generateSignature(final String message, final String secret) {
+        return BreinSigner.sign(message, secret);
+    }
 
-        if (message == null) {
-            throw new BreinException("Illegal value for message in method generateSignature");
-        }
-
-        if (secret == null) {
-            throw new BreinException("Illegal value for secret in method generateSignature");
-        }
-
+    /**
+     * creates the SHA-256 hash of the value, e.g., to keep an identity without revealing it
+     *
+     * @param value String the value to hash
+     * @return String the Base64 encoded hash
+     */
+    public static String sha256(final String value) {
         try {
-            byte[] e = secret.getBytes(Charset.forName("UTF-8"));
-            SecretKeySpec secretKey = new SecretKeySpec(e, "HmacSHA256");
-            mac.init(secretKey);
-            byte[] hmacData = mac.doFinal(message.getBytes(Charset.forName("UTF-8")));
-            return Base64.encodeBytes(hmacData);
-
-        } catch (final InvalidKeyException e) {
-            throw new IllegalStateException("Unable to create signature!", e);
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.encodeBytes(digest.digest(value.getBytes(Charset.forName("UTF-8"))));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new BreinException("SHA-256 is not available", e);
         }
     }
 
@@ -204,8 +189,17 @@ public class BreinUtil {
      * @return full url
      */
     public static String getFullyQualifiedUrl(final BreinBase breinBase) {
-        final BreinConfig breinConfig = Breinify.getConfig();
+        return getFullyQualifiedUrl(Breinify.getConfig(), breinBase);
+    }
 
+    /**
+     * retrieves the fully qualified url (base + endpoint) of the given configuration
+     *
+     * @param breinConfig configuration to use
+     * @param breinBase   activity or lookup object
+     * @return full url
+     */
+    public static String getFullyQualifiedUrl(final BreinConfig breinConfig, final BreinBase breinBase) {
         final String url = breinConfig.getUrl();
         if (null == url) {
             throw new BreinException(BreinException.URL_IS_NULL);
@@ -222,8 +216,19 @@ public class BreinUtil {
      * @return request as json string
      */
     public static String getRequestBody(final BreinBase breinBase) {
+        return getRequestBody(Breinify.getConfig(), breinBase);
+    }
+
+    /**
+     * retrieves the request body depending of the object and the given configuration
+     *
+     * @param breinConfig configuration to use
+     * @param breinBase   object to use
+     * @return request as json string
+     */
+    public static String getRequestBody(final BreinConfig breinConfig, final BreinBase breinBase) {
 
-        final String requestBody = breinBase.prepareRequestData(Breinify.getConfig());
+        final String requestBody = breinBase.prepareRequestData(breinConfig);
         if (!BreinUtil.containsValue(requestBody)) {
             throw new BreinException(BreinException.REQUEST_BODY_FAILED);
         }
@@ -1,5 +1,9 @@
 package com.brein.util;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
 import java.util.Map;
 
 public class JsonHelper {
@@ -45,4 +49,75 @@ public class JsonHelper {
             return null;
         }
     }
+
+    /**
+     * Grabs a nested object from a parsed json tree
+     *
+     * @param json the parsed json, can be {@code null}
+     * @param key  the key to look at
+     *
+     * @return the object, {@code null} if there is no object for the key
+     */
+    public static JsonObject getObject(final JsonObject json, final String key) {
+        final JsonElement value = json == null ? null : json.get(key);
+        return value != null && value.isJsonObject() ? value.getAsJsonObject() : null;
+    }
+
+    /**
+     * Grabs a String from a parsed json tree
+     *
+     * @param json the parsed json, can be {@code null}
+     * @param key  the key to look at
+     *
+     * @return the value, {@code null} if there is no value for the key
+     */
+    public static String getString(final JsonObject json, final String key) {
+        final JsonPrimitive value = getPrimitive(json, key);
+        return value == null ? null : value.getAsString();
+    }
+
+    /**
+     * Grabs a number from a parsed json tree
+     *
+     * @param json the parsed json, can be {@code null}
+     * @param key  the key to look at
+     *
+     * @return the value, {@code null} if there is no numeric value for the key
+     */
+    public static Double getDouble(final JsonObject json, final String key) {
+        final JsonPrimitive value = getPrimitive(json, key);
+        return value == null || !value.isNumber() ? null : value.getAsDouble();
+    }
+
+    /**
+     * Grabs a number from a parsed json tree, without the detour via a double
+     *
+     * @param json the parsed json, can be {@code null}
+     * @param key  the key to look at
+     *
+     * @return the value, {@code null} if there is no numeric value for the key
+     */
+    public static Long getLong(final JsonObject json, final String key) {
+        final JsonPrimitive value = getPrimitive(json, key);
+        return value == null || !value.isNumber() ? null : value.getAsNumber().longValue();
+    }
+
+    /**
+     * Converts a parsed json tree into plain values, i.e., {@code Map}, {@code List}, {@code Double},
+     * {@code String}, or {@code Boolean} (the same values a json parsed into a {@code Map} contains)
+     *
+     * @param json the parsed json, can be {@code null}
+     * @param <T>  the class of the value
+     *
+     * @return the converted value, {@code null} if the json is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T toValue(final JsonElement json) {
+        return json == null || json.isJsonNull() ? null : (T) BreinGson.GSON.fromJson(json, Object.class);
+    }
+
+    private static JsonPrimitive getPrimitive(final JsonObject json, final String key) {
+        final JsonElement value = json == null ? null : json.get(key);
+        return value != null && value.isJsonPrimitive() ? value.getAsJsonPrimitive() : null;
+    }
 }
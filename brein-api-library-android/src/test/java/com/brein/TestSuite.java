@@ -1,7 +1,31 @@
 package com.brein;
 
+import com.brein.api.TestFuture;
+import com.brein.api.TestRequestSnapshot;
+import com.brein.api.TestRequestStreaming;
 import com.brein.config.TestConfig;
+import com.brein.domain.TestDeviceContext;
 import com.brein.domain.TestDomain;
+import com.brein.domain.TestIpInfo;
+import com.brein.domain.TestResults;
+import com.brein.engine.TestActivityBatcher;
+import com.brein.engine.TestActivityBuffer;
+import com.brein.engine.TestActivityJournal;
+import com.brein.engine.TestEngineRegistry;
+import com.brein.engine.TestHpack;
+import com.brein.engine.TestHttp2RestEngine;
+import com.brein.engine.TestHttpResponseParser;
+import com.brein.engine.TestHttpUrlRestEngine;
+import com.brein.engine.TestMetrics;
+import com.brein.engine.TestNioRestEngine;
+import com.brein.engine.TestRecommendationCache;
+import com.brein.engine.TestRetry;
+import com.brein.engine.TestTemporalDataCache;
+import com.brein.mock.TestMockServer;
+import com.brein.util.TestGson;
+import com.brein.util.TestGzip;
+import com.brein.util.TestResponseReader;
+import com.brein.util.TestSigner;
 import com.brein.util.TestUtil;
 
 import org.junit.runner.RunWith;
@@ -14,6 +38,30 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
         TestConfig.class,
         TestDomain.class,
+        TestDeviceContext.class,
+        TestIpInfo.class,
+        TestResults.class,
+        TestActivityBatcher.class,
+        TestActivityJournal.class,
+        TestActivityBuffer.class,
+        TestEngineRegistry.class,
+        TestHttpUrlRestEngine.class,
+        TestNioRestEngine.class,
+        TestHttpResponseParser.class,
+        TestHttp2RestEngine.class,
+        TestHpack.class,
+        TestMetrics.class,
+        TestRetry.class,
+        TestTemporalDataCache.class,
+        TestRecommendationCache.class,
+        TestMockServer.class,
+        TestFuture.class,
+        TestRequestSnapshot.class,
+        TestRequestStreaming.class,
+        TestGzip.class,
+        TestGson.class,
+        TestResponseReader.class,
+        TestSigner.class,
         TestUtil.class
 })
 public class TestSuite {
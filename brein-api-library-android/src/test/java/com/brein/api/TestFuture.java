@@ -0,0 +1,170 @@
+package com.brein.api;
+
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinDimension;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.engine.BreinEndpointMetrics;
+import com.brein.engine.BreinMetrics;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the future based requests, i.e., waiting for, combining and cancelling requests
+ */
+public class TestFuture {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testRequestsAreSentInParallel() throws Exception {
+        server.setLatency(300);
+        final Brein brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+
+        final long start = System.nanoTime();
+        final BreinFuture<BreinResult> temporalData = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        final BreinFuture<BreinResult> recommendation = brein.recommendation(new BreinRecommendation()
+                .setUser(new BreinUser("toni.tester@mail.net")));
+
+        final BreinResult temporalDataResult = temporalData.get(5, TimeUnit.SECONDS);
+        final BreinResult recommendationResult = recommendation.get(5, TimeUnit.SECONDS);
+        final long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("San Francisco", temporalDataResult.getNestedValue("location", "city"));
+        assertNotNull(recommendationResult);
+        assertTrue("both requests took " + duration + " ms", duration < 550);
+    }
+
+    @Test
+    public void testFailedRequestIsReported() throws Exception {
+        final Brein brein = Breinify.setConfig(new BreinConfig(API_KEY, "h5HRhGRwWlRs9pscyHhQWN==")
+                .setBaseUrl(server.getBaseUrl()));
+
+        final BreinFuture<BreinResult> future = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("the request should fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof BreinException);
+        }
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+    }
+
+    @Test
+    public void testTimeoutAbortsConnection() throws Exception {
+        server.setLatency(5000);
+        final Brein brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+        final BreinMetrics metrics = brein.getEngine().getMetrics();
+
+        final AtomicInteger failed = new AtomicInteger();
+        final BreinFuture<BreinResult> future = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"))
+                .addCallback(new ICallback<BreinResult>() {
+                    @Override
+                    public void callback(final BreinResult data) {
+                        if (data == null) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+
+        try {
+            future.getOrCancel(200, TimeUnit.MILLISECONDS);
+            fail("the request should time out");
+        } catch (final TimeoutException e) {
+            // expected
+        }
+
+        assertTrue(future.isCancelled());
+        assertEquals(1, failed.get());
+
+        // the dispatching thread is released long before the server answers
+        final String endpoint = brein.getConfig().getTemporalDataEndpoint();
+        final long deadline = System.currentTimeMillis() + 2000L;
+        BreinEndpointMetrics endpointMetrics = metrics.getEndpoint(endpoint);
+        while ((endpointMetrics == null || endpointMetrics.getDroppedCount() == 0) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            endpointMetrics = metrics.getEndpoint(endpoint);
+        }
+        assertNotNull(endpointMetrics);
+        assertEquals(1, endpointMetrics.getDroppedCount());
+        assertEquals(0, endpointMetrics.getSucceededCount());
+
+        try {
+            future.get();
+            fail("the request should be cancelled");
+        } catch (final CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCallbacksAreInformedOnce() throws Exception {
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        final AtomicInteger informed = new AtomicInteger();
+        final ICallback<BreinResult> callback = new ICallback<BreinResult>() {
+            @Override
+            public void callback(final BreinResult data) {
+                assertNotNull(data);
+                informed.incrementAndGet();
+            }
+        };
+
+        future.addCallback(callback);
+        assertTrue(future.complete(new BreinResult("{\"result\":1}")));
+        assertFalse(future.complete(new BreinResult("{\"result\":2}")));
+        assertFalse(future.cancel(true));
+
+        // added after the completion, thus informed immediately
+        future.addCallback(callback);
+
+        assertEquals(2, informed.get());
+        assertEquals(1.0, ((Number) future.get().get("result")).doubleValue(), 0.0);
+    }
+
+    @Test
+    public void testLookupReturnsResult() {
+        Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+
+        final BreinLookup lookup = new BreinLookup().setBreinDimension(new BreinDimension("email"));
+        lookup.setUser(new BreinUser("toni.tester@mail.net"));
+        final BreinResult result = Breinify.getBrein().getEngine().performLookUp(lookup);
+
+        assertNotNull(result);
+        assertEquals(1, server.getRequestCount(BreinMockServer.LOOKUP_ENDPOINT));
+    }
+}
@@ -0,0 +1,99 @@
+package com.brein.api;
+
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinUser;
+import com.brein.util.BreinMapUtil;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the snapshots of requests, which are used to send shared requests from several threads
+ */
+public class TestRequestSnapshot {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        final BreinActivity activity = new BreinActivity()
+                .setUser(new BreinUser("toni.tester@mail.net"))
+                .setActivityType("login")
+                .setTag("productId", "1");
+
+        final BreinActivity snapshot = activity.snapshot();
+
+        activity.setActivityType("logout");
+        activity.setTag("productId", "2");
+        activity.getUser().setEmail("other@mail.net");
+        activity.getUser().setAdditional("referrer", "https://example.com");
+
+        assertEquals("login", snapshot.getActivityType());
+        assertEquals("1", snapshot.getTagsMap().get("productId"));
+        assertEquals("toni.tester@mail.net", snapshot.getUser().getEmail());
+        assertNull(snapshot.getUser().getAdditional("referrer"));
+    }
+
+    @Test
+    public void testSharedRequestCanBeChangedWhileSent() throws Exception {
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET);
+        final BreinUser user = new BreinUser("toni.tester@mail.net");
+        final BreinActivity activity = new BreinActivity().setUser(user);
+
+        final int threads = 8;
+        final int iterations = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+
+                        int matching = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            final String type = "type-" + thread + "-" + i;
+
+                            // modify the shared objects, like the static helpers of Breinify do
+                            user.setAdditional("iteration-" + thread, i);
+                            activity.setTag("tag-" + thread, i);
+
+                            final Map<String, Object> requestData = activity.snapshot()
+                                    .setActivityType(type)
+                                    .prepareRequestMap(config);
+
+                            final String sentType = BreinMapUtil.getNestedValue(requestData, "activity", "type");
+                            if (type.equals(sentType)) {
+                                matching++;
+                            }
+                        }
+                        return matching;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (final Future<Integer> result : results) {
+                assertEquals(iterations, result.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
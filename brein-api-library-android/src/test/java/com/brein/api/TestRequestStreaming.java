@@ -0,0 +1,52 @@
+package com.brein.api;
+
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinUser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that streamed request bodies are the same as the created ones
+ */
+public class TestRequestStreaming {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    @Test
+    public void testStreamedActivityEqualsCreatedActivity() throws IOException {
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET).setRequestStreaming(true);
+        Breinify.setConfig(config);
+
+        final BreinActivity activity = new BreinActivity()
+                .setUser(new BreinUser("toni.tester@mail.net")
+                        .setFirstName("Toni"))
+                .setActivityType("checkOut")
+                .setDescription("<b>Caf\u00e9</b> & more")
+                .setTag("productIds", new String[]{"1", "2"})
+                .setTag("price", 12.5)
+                .setAdditional("referrer", "https://example.com/?a=1&b=2");
+
+        final Map<String, Object> requestData = activity.prepareRequestMap(config);
+
+        final StringWriter writer = new StringWriter();
+        activity.writeRequestData(requestData, writer);
+
+        assertEquals(activity.getGson().toJson(requestData), writer.toString());
+    }
+
+    @Test
+    public void testPreparedRequestsAreNotCreatedFromMap() {
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET);
+
+        assertNull(new BreinPreparedActivity("{}").prepareRequestMap(config));
+        assertNull(new BreinActivityBatch().add("{}").prepareRequestMap(config));
+    }
+}
@@ -0,0 +1,86 @@
+package com.brein.domain;
+
+import android.app.Application;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the caching of the information of the device
+ */
+public class TestDeviceContext {
+
+    private static final long TTL = 60 * 1000;
+
+    private CountingDeviceContext deviceContext;
+    private Application application;
+
+    @Before
+    public void setUp() {
+        deviceContext = new CountingDeviceContext();
+        application = new Application();
+    }
+
+    @Test
+    public void testInformationIsDetectedOnceWithinTtl() {
+        final JsonObject location = deviceContext.getLocation(application, TTL);
+        final JsonObject network = deviceContext.getNetwork(application, TTL);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(location, deviceContext.getLocation(application, TTL));
+            assertSame(network, deviceContext.getNetwork(application, TTL));
+        }
+
+        assertEquals(1, deviceContext.locationDetections);
+        assertEquals(1, deviceContext.networkDetections);
+    }
+
+    @Test
+    public void testInformationIsDetectedAgainAfterTtl() throws InterruptedException {
+        deviceContext.getNetwork(application, 10);
+        Thread.sleep(20);
+        deviceContext.getNetwork(application, 10);
+
+        assertEquals(2, deviceContext.networkDetections);
+    }
+
+    @Test
+    public void testConnectivityChangeInvalidatesNetwork() {
+        final JsonObject network = deviceContext.getNetwork(application, TTL);
+        deviceContext.getLocation(application, TTL);
+
+        deviceContext.invalidateNetwork();
+
+        assertNotSame(network, deviceContext.getNetwork(application, TTL));
+        deviceContext.getLocation(application, TTL);
+
+        assertEquals(2, deviceContext.networkDetections);
+        assertEquals(1, deviceContext.locationDetections);
+    }
+
+    /**
+     * Counts the detections instead of asking the device
+     */
+    private static class CountingDeviceContext extends BreinDeviceContext {
+        private int locationDetections = 0;
+        private int networkDetections = 0;
+
+        @Override
+        protected JsonObject detectLocation(final Application application) {
+            locationDetections++;
+            return new JsonObject();
+        }
+
+        @Override
+        protected JsonObject detectNetwork(final Application application) {
+            networkDetections++;
+            return new JsonObject();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.brein.domain;
+
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the resolution of the external ip-address in the background
+ */
+public class TestIpInfo {
+
+    private static final String IP = "74.115.209.58";
+
+    private BreinMockServer server;
+    private BreinConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer().start();
+        config = new BreinConfig("TEST-API-KEY")
+                .setIpInfoUrl(server.getBaseUrl() + BreinMockServer.IP_INFO_ENDPOINT);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testIpAddressIsResolvedInBackground() throws InterruptedException {
+        server.setLatency(300);
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+
+        final long start = System.nanoTime();
+        ipInfo.configure(config, null);
+        assertNull(ipInfo.getExternalIp());
+        assertTrue(System.nanoTime() - start < 200L * 1000L * 1000L);
+
+        assertEquals(IP, waitForIp(ipInfo));
+        assertEquals("America/Los_Angeles", ipInfo.getTimezone());
+    }
+
+    @Test
+    public void testConcurrentResolutionsAreShared() throws InterruptedException {
+        server.setLatency(200);
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config, null);
+
+        final CountDownLatch latch = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ipInfo.getExternalIp();
+                    ipInfo.refreshData();
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        assertEquals(IP, waitForIp(ipInfo));
+        assertEquals(1, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    @Test
+    public void testIpAddressIsPersisted() throws Exception {
+        final File file = File.createTempFile("breinify-ipinfo", ".json");
+        assertTrue(file.delete());
+
+        try {
+            final BreinIpInfo ipInfo = new BreinIpInfo();
+            ipInfo.configure(config, file);
+            assertEquals(IP, waitForIp(ipInfo));
+            waitForRefresh(ipInfo);
+            assertTrue(file.exists());
+
+            // after a restart the persisted ip-address is used without resolving it again
+            final BreinIpInfo restarted = new BreinIpInfo();
+            restarted.configure(config, file);
+            assertEquals(IP, restarted.getExternalIp());
+            assertFalse(restarted.isRefreshing());
+            assertEquals(1, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+
+            // unless it expired
+            final BreinIpInfo expired = new BreinIpInfo();
+            Thread.sleep(20);
+            expired.configure(config.setIpInfoTtl(10), file);
+            assertEquals(IP, waitForIp(expired));
+            waitForRefresh(expired);
+            assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testInvalidatedIpAddressIsResolvedAgain() throws InterruptedException {
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config, null);
+        assertEquals(IP, waitForIp(ipInfo));
+        waitForRefresh(ipInfo);
+
+        ipInfo.invalidate();
+        assertEquals(IP, waitForIp(ipInfo));
+        assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    @Test
+    public void testResolutionStartedBeforeInvalidationIsNotUsed() throws InterruptedException {
+        server.setLatency(500);
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config, null);
+        Thread.sleep(100);
+        ipInfo.invalidate();
+
+        // the first resolution is done, but it belongs to the previous network
+        Thread.sleep(600);
+        assertNull(ipInfo.getExternalIp());
+        assertTrue(ipInfo.isRefreshing());
+
+        assertEquals(IP, waitForIp(ipInfo));
+        assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    @Test
+    public void testExpiredIpAddressIsUsedWhileResolving() throws InterruptedException {
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config.setIpInfoTtl(50), null);
+        assertEquals(IP, waitForIp(ipInfo));
+        waitForRefresh(ipInfo);
+
+        server.setLatency(300);
+        Thread.sleep(100);
+        assertEquals(IP, ipInfo.getExternalIp());
+        assertTrue(ipInfo.isRefreshing());
+
+        waitForRefresh(ipInfo);
+        assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    @Test
+    public void testFailedResolutionIsTriedAgain() throws InterruptedException {
+        server.failNext(1);
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config, null);
+        waitForRefresh(ipInfo);
+
+        assertEquals(IP, waitForIp(ipInfo));
+        assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    @Test
+    public void testFailedResolutionIsNotRetriedImmediately() throws InterruptedException {
+        server.failNext(10);
+        final BreinIpInfo ipInfo = new BreinIpInfo();
+        ipInfo.configure(config, null);
+        waitForRefresh(ipInfo);
+
+        // requests while backing off do not start another resolution
+        for (int i = 0; i < 50; i++) {
+            assertNull(ipInfo.getExternalIp());
+            assertFalse(ipInfo.isRefreshing());
+        }
+        assertEquals(1, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+
+        // a change of the connectivity resolves it again right away
+        ipInfo.invalidate();
+        waitForRefresh(ipInfo);
+        assertEquals(2, server.getRequestCount(BreinMockServer.IP_INFO_ENDPOINT));
+    }
+
+    private String waitForIp(final BreinIpInfo ipInfo) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000L;
+        String ip = ipInfo.getExternalIp();
+        while (ip == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            ip = ipInfo.getExternalIp();
+        }
+
+        return ip;
+    }
+
+    private void waitForRefresh(final BreinIpInfo ipInfo) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (ipInfo.isRefreshing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
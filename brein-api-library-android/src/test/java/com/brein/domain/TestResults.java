@@ -0,0 +1,165 @@
+package com.brein.domain;
+
+import com.brein.domain.results.BreinLookupResult;
+import com.brein.domain.results.BreinRecommendationItem;
+import com.brein.domain.results.BreinRecommendationResult;
+import com.brein.domain.results.BreinTemporalDataResult;
+import com.brein.domain.results.temporaldataparts.BreinLocationResult;
+import com.brein.domain.results.temporaldataparts.BreinWeatherResult;
+import com.brein.domain.results.temporaldataparts.PrecipitationType;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the typed results read from the parsed json tree
+ */
+public class TestResults {
+
+    private static final String TEMPORAL_DATA_RESPONSE = "{" +
+            "\"time\":{\"timezone\":\"America/Los_Angeles\",\"epochFormatIso8601\":\"2017-10-16T17:15:42Z\"}," +
+            "\"weather\":{\"description\":\"light rain\",\"temperature\":18.4,\"lastMeasured\":1508174142," +
+            "\"precipitation\":{\"precipitationType\":\"rain\",\"precipitationAmount\":0.3}," +
+            "\"measuredAt\":{\"lat\":37.77,\"lon\":-122.42}}," +
+            "\"location\":{\"city\":\"San Francisco\",\"state\":\"CA\",\"country\":\"US\"," +
+            "\"lat\":37.7749,\"lon\":-122.4194,\"geojson\":{" +
+            "\"CITY\":{\"type\":\"Feature\",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[-122.5,37.7]]]}}," +
+            "\"NEIGHBORHOOD\":{\"type\":\"Feature\"}}}," +
+            "\"holidays\":[{\"holiday\":\"Columbus Day\",\"source\":\"Government\"}]," +
+            "\"events\":[{\"displayName\":\"Concert\",\"category\":\"eventCategoryConcert\",\"startTime\":1508174142}]}";
+
+    private static final String RECOMMENDATION_RESPONSE = "{\"statusCode\":200,\"message\":\"success\"," +
+            "\"result\":[{\"dataIdExternal\":\"product-1\",\"weight\":0.9,\"additionalData\":{\"name\":\"shoe\"}}," +
+            "{\"dataIdExternal\":\"product-2\",\"weight\":0.7}]}";
+
+    @Test
+    public void testTemporalDataResult() {
+        final BreinTemporalDataResult result = new BreinTemporalDataResult(new BreinResult(TEMPORAL_DATA_RESPONSE));
+
+        assertTrue(result.hasWeather());
+        final BreinWeatherResult weather = result.getWeather();
+        assertEquals("light rain", weather.getDescription());
+        assertEquals(18.4, weather.getTemperatureCelsius(), 0.0001);
+        assertEquals(Long.valueOf(1508174142L), weather.getLastMeasured());
+        assertEquals(PrecipitationType.RAIN, weather.getPrecipitation());
+        assertEquals(0.3, weather.getPrecipitationAmount(), 0.0001);
+        assertEquals(-122.42, weather.getMeasuredAt().getLongitude(), 0.0001);
+
+        // the sections are created once
+        assertSame(weather, result.getWeather());
+        assertSame(result.getLocation(), result.getLocation());
+
+        assertTrue(result.hasLocation());
+        assertEquals("San Francisco", result.getLocation().getCity());
+        assertEquals(37.7749, result.getLocation().getLat(), 0.0001);
+
+        assertEquals(1, result.getHolidays().size());
+        assertEquals("Columbus Day", result.getHolidays().get(0).getName());
+        assertEquals(1, result.getEvents().size());
+        assertEquals(Long.valueOf(1508174142L), result.getEvents().get(0).getStart());
+
+        assertTrue(result.hasEpochDateTime());
+        assertFalse(result.hasLocalDateTime());
+        assertEquals("America/Los_Angeles", result.getNestedValue("time", "timezone"));
+    }
+
+    @Test
+    public void testGeoJsonIsConvertedOnAccess() {
+        final BreinLocationResult location = new BreinTemporalDataResult(new BreinResult(TEMPORAL_DATA_RESPONSE))
+                .getLocation();
+
+        assertEquals(2, location.getGeoJsonTypes().size());
+        assertTrue(location.getGeoJsonTypes().contains("CITY"));
+
+        final Map<String, Object> city = location.getGeoJson("CITY");
+        assertEquals("Feature", city.get("type"));
+        assertSame(city, location.getGeoJson("CITY"));
+        assertNull(location.getGeoJson("STATE"));
+
+        final Map<String, Map<String, Object>> all = location.getGeoJsons();
+        assertEquals(2, all.size());
+        assertSame(city, all.get("CITY"));
+
+        // no shapes requested
+        assertTrue(new BreinLocationResult((JsonObject) null).getGeoJsons().isEmpty());
+    }
+
+    @Test
+    public void testMapAndTreeResultsAreEqual() {
+        final BreinResult tree = new BreinResult(TEMPORAL_DATA_RESPONSE);
+        final Map<String, Object> map = new Gson().fromJson(TEMPORAL_DATA_RESPONSE, Map.class);
+
+        // the values are converted as if the response was parsed into a map
+        assertEquals(map.get("weather"), tree.get("weather"));
+        assertEquals(18.4, tree.<Double>getNestedValue("weather", "temperature"), 0.0001);
+        assertTrue(tree.hasNestedValue("location", "geojson", "CITY"));
+        assertFalse(tree.hasNestedValue("location", "geojson", "STATE"));
+        assertEquals(map, tree.getMap());
+
+        final BreinTemporalDataResult fromMap = new BreinTemporalDataResult(map);
+        final BreinTemporalDataResult fromTree = new BreinTemporalDataResult(tree);
+        assertEquals(fromMap.getWeather().getDescription(), fromTree.getWeather().getDescription());
+        assertEquals(fromMap.getWeather().getLastMeasured(), fromTree.getWeather().getLastMeasured());
+        assertEquals(fromMap.getLocation().getGeoJsons(), fromTree.getLocation().getGeoJsons());
+    }
+
+    @Test
+    public void testRecommendationResult() {
+        final BreinRecommendationResult result =
+                new BreinRecommendationResult(new BreinResult(RECOMMENDATION_RESPONSE));
+
+        assertEquals(Integer.valueOf(200), result.getStatusCode());
+        assertEquals("success", result.getMessage());
+
+        final List<BreinRecommendationItem> items = result.getRecommendations();
+        assertEquals(2, items.size());
+        assertSame(items, result.getRecommendations());
+        assertEquals("product-1", items.get(0).getDataIdExternal());
+        assertEquals(0.9, items.get(0).getWeight(), 0.0001);
+        assertEquals("shoe", items.get(0).getAdditionalData().get("name"));
+        assertEquals(Collections.emptyMap(), items.get(1).getAdditionalData());
+    }
+
+    @Test
+    public void testLookupResult() {
+        final BreinLookupResult result = new BreinLookupResult(
+                new BreinResult("{\"email\":{\"result\":\"toni.tester@mail.net\"},\"visits\":{\"result\":3}}"));
+
+        assertEquals(2, result.getDimensions().size());
+        assertEquals("toni.tester@mail.net", result.getResult("email"));
+        assertEquals(3.0, result.<Double>getResult("visits"), 0.0001);
+        assertNull(result.getResult("lastName"));
+    }
+
+    @Test
+    public void testAdapters() {
+        final Gson gson = new GsonBuilder()
+                .registerTypeAdapter(BreinTemporalDataResult.class, BreinTemporalDataResult.ADAPTER)
+                .registerTypeAdapter(BreinRecommendationResult.class, BreinRecommendationResult.ADAPTER)
+                .create();
+
+        final BreinTemporalDataResult temporalData = gson.fromJson(TEMPORAL_DATA_RESPONSE,
+                BreinTemporalDataResult.class);
+        assertEquals("San Francisco", temporalData.getLocation().getCity());
+
+        final BreinTemporalDataResult copy = gson.fromJson(gson.toJson(temporalData), BreinTemporalDataResult.class);
+        assertEquals(temporalData.getJson(), copy.getJson());
+
+        final BreinRecommendationResult recommendation = gson.fromJson(RECOMMENDATION_RESPONSE,
+                BreinRecommendationResult.class);
+        assertEquals(2, recommendation.getRecommendations().size());
+        assertNull(gson.fromJson("null", BreinRecommendationResult.class));
+    }
+}
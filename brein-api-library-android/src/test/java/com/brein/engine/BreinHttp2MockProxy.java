@@ -0,0 +1,388 @@
+package com.brein.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/2 server (plain, i.e., without TLS) used by the tests of the
+ * HTTP/2 engine. Each stream is forwarded as HTTP/1.1 request to the target
+ * (e.g., the BreinMockServer), its response is sent back. The proxy counts the
+ * connections and streams, so that the multiplexing can be verified.
+ */
+public class BreinHttp2MockProxy {
+
+    private final String targetBaseUrl;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger streams = new AtomicInteger();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger maxActiveStreams = new AtomicInteger();
+    private final AtomicInteger refuseNext = new AtomicInteger();
+    private final List<Integer> headerBlockSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    private volatile int maxConcurrentStreams = 100;
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    /**
+     * creates the proxy
+     *
+     * @param targetBaseUrl String the base url the streams are forwarded to
+     */
+    public BreinHttp2MockProxy(final String targetBaseUrl) {
+        this.targetBaseUrl = targetBaseUrl;
+    }
+
+    public BreinHttp2MockProxy start() throws IOException {
+        return start(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+    }
+
+    /**
+     * starts the proxy accepting the connections of the given socket, e.g., a socket using TLS
+     *
+     * @param socket ServerSocket the bound socket
+     * @return BreinHttp2MockProxy the proxy itself
+     */
+    public BreinHttp2MockProxy start(final ServerSocket socket) {
+        this.serverSocket = socket;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "breinify-http2-proxy");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket accepted = serverSocket.accept();
+                        connections.incrementAndGet();
+                        executor.execute(new Connection(accepted));
+                    } catch (final IOException e) {
+                        // the proxy was stopped
+                    }
+                }
+            }
+        });
+
+        return this;
+    }
+
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            // nothing to do
+        }
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * sets the limit of concurrent streams announced to new connections
+     *
+     * @param maxConcurrentStreams int the limit
+     */
+    public void setMaxConcurrentStreams(final int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    /**
+     * the next streams are refused (without forwarding them)
+     *
+     * @param count int the number of streams to refuse
+     */
+    public void refuseNext(final int count) {
+        refuseNext.set(count);
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getStreamCount() {
+        return streams.get();
+    }
+
+    /**
+     * retrieves the maximum number of streams forwarded at the same time
+     *
+     * @return int the maximum number of concurrent streams
+     */
+    public int getMaxActiveStreams() {
+        return maxActiveStreams.get();
+    }
+
+    /**
+     * retrieves the sizes of the received header blocks, in the order received
+     *
+     * @return List the sizes in bytes
+     */
+    public List<Integer> getHeaderBlockSizes() {
+        synchronized (headerBlockSizes) {
+            return new ArrayList<>(headerBlockSizes);
+        }
+    }
+
+    /**
+     * a connection of a client, the frames are read by one thread and the streams forwarded by others
+     */
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final DataInputStream in;
+        private final BreinHpack.Encoder encoder = new BreinHpack.Encoder();
+        private final BreinHpack.Decoder decoder = new BreinHpack.Decoder(64 * 1024);
+        private final Map<Integer, Map<String, String>> headers = new HashMap<>();
+        private final Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+        private final Set<Integer> withoutBody = new HashSet<>();
+
+        private Connection(final Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        @Override
+        public void run() {
+            try {
+                final byte[] preface = new byte[BreinHttp2Session.PREFACE.length];
+                in.readFully(preface);
+                if (!Arrays.equals(preface, BreinHttp2Session.PREFACE)) {
+                    return;
+                }
+
+                final byte[] settings = new byte[6];
+                settings[1] = BreinHttp2Session.SETTINGS_MAX_CONCURRENT_STREAMS;
+                writeInt(settings, 2, maxConcurrentStreams);
+                writeFrame(BreinHttp2Session.TYPE_SETTINGS, 0, 0, settings, settings.length, true);
+
+                ByteArrayOutputStream block = null;
+                while (true) {
+                    final int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                    final int type = in.readUnsignedByte();
+                    final int flags = in.readUnsignedByte();
+                    final int streamId = in.readInt() & 0x7fffffff;
+                    final byte[] payload = new byte[length];
+                    in.readFully(payload);
+
+                    switch (type) {
+                        case BreinHttp2Session.TYPE_SETTINGS:
+                            if ((flags & BreinHttp2Session.FLAG_ACK) == 0) {
+                                writeFrame(BreinHttp2Session.TYPE_SETTINGS, BreinHttp2Session.FLAG_ACK, 0,
+                                        new byte[0], 0, true);
+                            }
+                            break;
+                        case BreinHttp2Session.TYPE_PING:
+                            if ((flags & BreinHttp2Session.FLAG_ACK) == 0) {
+                                writeFrame(BreinHttp2Session.TYPE_PING, BreinHttp2Session.FLAG_ACK, 0,
+                                        payload, length, true);
+                            }
+                            break;
+                        case BreinHttp2Session.TYPE_HEADERS:
+                        case BreinHttp2Session.TYPE_CONTINUATION:
+                            if (type == BreinHttp2Session.TYPE_HEADERS) {
+                                block = new ByteArrayOutputStream();
+                                bodies.put(streamId, new ByteArrayOutputStream());
+                                if ((flags & BreinHttp2Session.FLAG_END_STREAM) != 0) {
+                                    withoutBody.add(streamId);
+                                }
+                            }
+                            block.write(payload, 0, length);
+
+                            if ((flags & BreinHttp2Session.FLAG_END_HEADERS) != 0) {
+                                final byte[] blockBytes = block.toByteArray();
+                                headerBlockSizes.add(blockBytes.length);
+                                headers.put(streamId, decoder.decode(blockBytes, 0, blockBytes.length));
+                                if (withoutBody.remove(streamId)) {
+                                    dispatch(streamId);
+                                }
+                            }
+                            break;
+                        case BreinHttp2Session.TYPE_DATA:
+                            final ByteArrayOutputStream body = bodies.get(streamId);
+                            if (body != null) {
+                                body.write(payload, 0, length);
+                            }
+                            if (length > 0) {
+                                final byte[] increment = new byte[4];
+                                writeInt(increment, 0, length);
+                                writeFrame(BreinHttp2Session.TYPE_WINDOW_UPDATE, 0, 0, increment, 4, false);
+                                writeFrame(BreinHttp2Session.TYPE_WINDOW_UPDATE, 0, streamId, increment, 4, true);
+                            }
+                            if ((flags & BreinHttp2Session.FLAG_END_STREAM) != 0 && body != null) {
+                                dispatch(streamId);
+                            }
+                            break;
+                        case BreinHttp2Session.TYPE_RST_STREAM:
+                            headers.remove(streamId);
+                            bodies.remove(streamId);
+                            break;
+                        case BreinHttp2Session.TYPE_GOAWAY:
+                            return;
+                        default:
+                            break;
+                    }
+                }
+            } catch (final EOFException e) {
+                // the client closed the connection
+            } catch (final IOException e) {
+                // the connection failed or the proxy was stopped
+            } finally {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // nothing to do
+                }
+            }
+        }
+
+        private void dispatch(final int streamId) throws IOException {
+            final Map<String, String> requestHeaders = headers.remove(streamId);
+            final byte[] body = bodies.remove(streamId).toByteArray();
+            streams.incrementAndGet();
+
+            if (refuseNext.getAndDecrement() > 0) {
+                final byte[] errorCode = new byte[4];
+                writeInt(errorCode, 0, BreinHttp2Session.ERROR_REFUSED_STREAM);
+                writeFrame(BreinHttp2Session.TYPE_RST_STREAM, 0, streamId, errorCode, 4, true);
+                return;
+            }
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final int active = activeStreams.incrementAndGet();
+                    int max;
+                    while ((max = maxActiveStreams.get()) < active && !maxActiveStreams.compareAndSet(max, active)) {
+                        // try again
+                    }
+
+                    try {
+                        forward(streamId, requestHeaders, body);
+                    } catch (final IOException e) {
+                        // the connection was closed
+                    } finally {
+                        activeStreams.decrementAndGet();
+                    }
+                }
+            });
+        }
+
+        private void forward(final int streamId, final Map<String, String> requestHeaders, final byte[] body)
+                throws IOException {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(targetBaseUrl +
+                    requestHeaders.get(":path")).openConnection();
+            connection.setRequestMethod(requestHeaders.get(":method"));
+            connection.setDoOutput(true);
+            for (final String name : new String[]{"content-type", "content-encoding", "accept-encoding"}) {
+                if (requestHeaders.containsKey(name)) {
+                    connection.setRequestProperty(name, requestHeaders.get(name));
+                }
+            }
+
+            final OutputStream requestBody = connection.getOutputStream();
+            requestBody.write(body);
+            requestBody.close();
+
+            final int status = connection.getResponseCode();
+            final InputStream responseBody = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            if (responseBody != null) {
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = responseBody.read(buffer)) != -1) {
+                    response.write(buffer, 0, read);
+                }
+                responseBody.close();
+            }
+
+            final byte[] responseBytes = response.toByteArray();
+            synchronized (this) {
+                final ByteArrayOutputStream block = new ByteArrayOutputStream();
+                encoder.encode(":status", String.valueOf(status), true, block);
+                for (final String name : new String[]{"Content-Type", "Content-Encoding", "Retry-After"}) {
+                    final String value = connection.getHeaderField(name);
+                    if (value != null) {
+                        encoder.encode(name.toLowerCase(), value, true, block);
+                    }
+                }
+                encoder.encode("content-length", String.valueOf(responseBytes.length), false, block);
+
+                final byte[] blockBytes = block.toByteArray();
+                writeFrame(BreinHttp2Session.TYPE_HEADERS, BreinHttp2Session.FLAG_END_HEADERS |
+                                (responseBytes.length == 0 ? BreinHttp2Session.FLAG_END_STREAM : 0),
+                        streamId, blockBytes, blockBytes.length, false);
+
+                int pos = 0;
+                while (pos < responseBytes.length) {
+                    final int size = Math.min(BreinHttp2Session.DEFAULT_FRAME_SIZE, responseBytes.length - pos);
+                    final boolean last = pos + size == responseBytes.length;
+                    writeFrame(BreinHttp2Session.TYPE_DATA, last ? BreinHttp2Session.FLAG_END_STREAM : 0,
+                            streamId, Arrays.copyOfRange(responseBytes, pos, pos + size), size, false);
+                    pos += size;
+                }
+                out.flush();
+            }
+        }
+
+        private synchronized void writeFrame(final int type,
+                                             final int flags,
+                                             final int streamId,
+                                             final byte[] payload,
+                                             final int length,
+                                             final boolean flush) throws IOException {
+            final byte[] header = new byte[BreinHttp2Session.FRAME_HEADER_SIZE];
+            header[0] = (byte) (length >>> 16);
+            header[1] = (byte) (length >>> 8);
+            header[2] = (byte) length;
+            header[3] = (byte) type;
+            header[4] = (byte) flags;
+            writeInt(header, 5, streamId);
+
+            out.write(header);
+            out.write(payload, 0, length);
+            if (flush) {
+                out.flush();
+            }
+        }
+    }
+
+    private static void writeInt(final byte[] data, final int offset, final int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
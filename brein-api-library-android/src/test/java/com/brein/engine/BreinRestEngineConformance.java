@@ -0,0 +1,527 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinException;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinLookup;
+import com.brein.api.BreinRecommendation;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinDimension;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Conformance tests every rest engine must pass. The engine is selected through
+ * its BreinEngineType, i.e., the tests also verify that the engine is created
+ * by the factory registered for the type. Each engine has a test class
+ * extending this class.
+ */
+public abstract class BreinRestEngineConformance {
+
+    protected static final String API_KEY = "TEST-API-KEY";
+    protected static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    /**
+     * the number of requests sent while testing the rejection policies
+     */
+    private static final int REJECTION_REQUESTS = 6;
+
+    protected BreinMockServer server;
+
+    /**
+     * the type of the engine to be tested
+     *
+     * @return BreinEngineType the type
+     */
+    protected abstract BreinEngineType getEngineType();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    /**
+     * creates the configuration using the tested engine, engines may override
+     * this to adapt the configuration (e.g., to use the mock server)
+     *
+     * @return BreinConfig the configuration
+     */
+    protected BreinConfig createConfig() {
+        return new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setRestEngineType(getEngineType());
+    }
+
+    @Test
+    public void testEngineIsSelected() {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        assertEquals(getEngineType(), brein.getEngine().getRestEngineType());
+
+        final IRestEngine restEngine = brein.getEngine().getRestEngine();
+        assertEquals(getEngineType(), restEngine.getRestEngineType(getEngineType()));
+        assertSame(restEngine, restEngine.getRestEngine(getEngineType()));
+    }
+
+    @Test
+    public void testActivityIsSent() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        brein.activity(createActivity(), future);
+
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+        assertEquals(0, server.getRejectedCount());
+    }
+
+    @Test
+    public void testResponsesAreRead() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinResult temporalData = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS);
+        assertEquals("San Francisco", temporalData.getNestedValue("location", "city"));
+
+        final BreinResult recommendation = brein.recommendation(new BreinRecommendation()
+                .setUser(new BreinUser("toni.tester@mail.net"))).get(5, TimeUnit.SECONDS);
+        assertEquals("success", recommendation.getMessage());
+
+        final BreinLookup breinLookup = new BreinLookup().setBreinDimension(new BreinDimension("email"));
+        breinLookup.setUser(new BreinUser("toni.tester@mail.net"));
+        final BreinResult lookup = brein.lookup(breinLookup).get(5, TimeUnit.SECONDS);
+        assertEquals("toni.tester@mail.net", lookup.getNestedValue("email", "result"));
+    }
+
+    @Test
+    public void testFailedRequestIsReported() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig().setSecret("h5HRhGRwWlRs9pscyHhQWN=="));
+
+        try {
+            brein.temporalData(new BreinTemporalData()
+                    .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS);
+            fail("the request should fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof BreinException);
+        }
+        assertEquals(1, server.getRejectedCount());
+    }
+
+    @Test
+    public void testFailedRequestIsRetried() throws Exception {
+        server.failNext(1);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setRetryMaxAttempts(3)
+                .setRetryBaseDelay(10));
+
+        final BreinResult temporalData = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS);
+        assertEquals("San Francisco", temporalData.getNestedValue("location", "city"));
+        assertEquals(2, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(1, server.getFailedCount());
+    }
+
+    @Test
+    public void testAnySuccessfulStatusIsAccepted() throws Exception {
+        server.setErrorStatus(202).failNext(1);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final StatusFuture future = new StatusFuture();
+        brein.activity(createActivity(), future);
+
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+        assertEquals(202, future.status);
+    }
+
+    @Test
+    public void testRefusedRequestIsReportedWithStatus() throws Exception {
+        server.setErrorStatus(400).failNext(1);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setRetryMaxAttempts(3)
+                .setRetryBaseDelay(10));
+
+        final StatusFuture future = new StatusFuture();
+        brein.activity(createActivity(), future);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("the request should fail");
+        } catch (final ExecutionException e) {
+            // expected
+        }
+
+        // a refused request is not retried
+        assertEquals(400, future.status);
+        assertEquals(1, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    @Test
+    public void testConcurrentRequestsAreSent() throws Exception {
+        server.setLatency(20);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+        for (final BreinFuture<BreinResult> future : futures) {
+            assertEquals("San Francisco", future.get(10, TimeUnit.SECONDS).getNestedValue("location", "city"));
+        }
+
+        assertEquals(50, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testCompressedRequestIsAccepted() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setRequestCompression(true)
+                .setRequestCompressionThreshold(0));
+
+        final BreinFuture<BreinResult> future = new BreinFuture<>();
+        brein.activity(createActivity(), future);
+
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+        assertEquals(0, server.getRejectedCount());
+    }
+
+    @Test
+    public void testCancelledRequestIsReportedOnce() throws Exception {
+        server.setLatency(2000);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final AtomicInteger informed = new AtomicInteger();
+        final BreinFuture<BreinResult> future = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"))
+                .addCallback(new ICallback<BreinResult>() {
+                    @Override
+                    public void callback(final BreinResult data) {
+                        informed.incrementAndGet();
+                    }
+                });
+
+        try {
+            future.getOrCancel(100, TimeUnit.MILLISECONDS);
+            fail("the request should time out");
+        } catch (final TimeoutException e) {
+            // expected
+        }
+
+        try {
+            future.get();
+            fail("the request should be cancelled");
+        } catch (final CancellationException e) {
+            // expected
+        }
+        assertEquals(1, informed.get());
+    }
+
+    @Test
+    public void testMetricsAreRecorded() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+        final BreinMetrics metrics = brein.getEngine().getMetrics();
+
+        brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS);
+
+        final String endpoint = brein.getConfig().getTemporalDataEndpoint();
+        final long deadline = System.currentTimeMillis() + 2000L;
+        while ((metrics.getEndpoint(endpoint) == null || metrics.getEndpoint(endpoint).getSucceededCount() == 0) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        final BreinEndpointMetrics endpointMetrics = metrics.getEndpoint(endpoint);
+        assertEquals(1, endpointMetrics.getSucceededCount());
+        assertTrue(endpointMetrics.getBytesIn() > 0);
+        assertTrue(endpointMetrics.getBytesOut() > 0);
+    }
+
+    @Test
+    public void testInteractiveRequestIsNotQueuedBehindBulk() throws Exception {
+        server.setLatency(200);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setDispatchBulkConcurrency(1));
+
+        final List<BreinFuture<BreinResult>> activities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final BreinFuture<BreinResult> future = new BreinFuture<>();
+            brein.activity(createActivity(), future);
+            activities.add(future);
+        }
+
+        // the bulk lane sends one activity after the other, the temporal data does not wait for them
+        final long start = System.nanoTime();
+        assertNotNull(brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT) < 10);
+
+        for (final BreinFuture<BreinResult> future : activities) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(10, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    @Test
+    public void testBulkIsDeferredWhileInteractiveIsPending() throws Exception {
+        server.setLatency(300);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinFuture<BreinResult> temporalData = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        final BreinFuture<BreinResult> activity = new BreinFuture<>();
+        brein.activity(createActivity(), activity);
+
+        Thread.sleep(150);
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(0, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+
+        assertNotNull(temporalData.get(5, TimeUnit.SECONDS));
+        assertNotNull(activity.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    @Test
+    public void testBulkIsNotStarved() throws Exception {
+        server.setLatency(600);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setDispatchBulkMaxDelay(100));
+
+        final BreinFuture<BreinResult> temporalData = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        final BreinFuture<BreinResult> activity = new BreinFuture<>();
+        brein.activity(createActivity(), activity);
+
+        // the activity is sent after the maximum delay, although the temporal data is still pending
+        Thread.sleep(400);
+        assertEquals(1, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+        assertFalse(temporalData.isDone());
+
+        assertNotNull(temporalData.get(5, TimeUnit.SECONDS));
+        assertNotNull(activity.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectedRequestIsAborted() throws Exception {
+        final RejectionResult result = sendWhileQueueIsFull(BreinRejectionPolicy.ABORT);
+
+        // the aborted requests are reported by the exception, the others are sent
+        assertTrue(result.rejected > 0);
+        assertEquals(0, result.failed);
+        assertEquals(REJECTION_REQUESTS - result.rejected, result.succeeded);
+    }
+
+    @Test
+    public void testRejectedRequestRunsInCaller() throws Exception {
+        final RejectionResult result = sendWhileQueueIsFull(BreinRejectionPolicy.CALLER_RUNS);
+
+        assertEquals(0, result.rejected);
+        assertEquals(REJECTION_REQUESTS, result.succeeded);
+    }
+
+    @Test
+    public void testDiscardedRequestIsReported() throws Exception {
+        final RejectionResult result = sendWhileQueueIsFull(BreinRejectionPolicy.DISCARD);
+
+        assertEquals(0, result.rejected);
+        assertTrue(result.failed > 0);
+        assertEquals(REJECTION_REQUESTS, result.succeeded + result.failed);
+    }
+
+    @Test
+    public void testDiscardedOldestRequestIsReported() throws Exception {
+        final RejectionResult result = sendWhileQueueIsFull(BreinRejectionPolicy.DISCARD_OLDEST);
+
+        assertEquals(0, result.rejected);
+        assertTrue(result.failed > 0);
+        assertEquals(REJECTION_REQUESTS, result.succeeded + result.failed);
+    }
+
+    @Test
+    public void testQueuedRequestsAreReportedOnTerminate() throws Exception {
+        server.setLatency(1000);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setDispatchCorePoolSize(1)
+                .setDispatchMaxPoolSize(1)
+                .setConnectionMaxActive(1)
+                .setDispatchTerminationTimeout(50));
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+        Thread.sleep(100);
+        final long start = System.nanoTime();
+        brein.getEngine().terminate();
+
+        // the queued requests are informed instead of being sent one after the other
+        for (final BreinFuture<BreinResult> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (final ExecutionException e) {
+                // expected for the dropped requests
+            }
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2500);
+    }
+
+    @Test
+    public void testScheduledRetryIsReportedOnTerminate() throws Exception {
+
+        // the retry is delayed by the Retry-After header, the backoff would be randomized
+        server.setRetryAfter("10").failNext(1);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setRetryMaxAttempts(3)
+                .setRetryMaxDelay(10000));
+
+        final BreinFuture<BreinResult> future = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (server.getFailedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        brein.getEngine().terminate();
+
+        // the retry waiting for its delay is informed instead of being forgotten
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("the retry should be dropped");
+        } catch (final ExecutionException e) {
+            // expected
+        }
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testLookupIsBoundedByTimeouts() throws Exception {
+        server.setErrorStatus(503).setErrorRate(1.0);
+        final BreinConfig config = createConfig()
+                .setRetryMaxAttempts(2)
+                .setRetryMaxDelay(200);
+        config.setConnectionTimeout(200);
+        config.setSocketTimeout(300);
+        final Brein brein = Breinify.setConfig(config);
+
+        // every attempt fails, the caller gives up after the maximum request time at the latest
+        final long start = System.nanoTime();
+        assertNull(brein.getEngine().getRestEngine().doLookup(createLookup()));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                <= BreinRetryPolicy.getMaxRequestTime(config) + 500);
+    }
+
+    @Test
+    public void testLookupWaitsForRetries() throws Exception {
+        server.setRetryAfter("1").failNext(1);
+        final BreinConfig config = createConfig()
+                .setRetryMaxAttempts(3)
+                .setRetryMaxDelay(10000);
+        config.setConnectionTimeout(200);
+        config.setSocketTimeout(300);
+        final Brein brein = Breinify.setConfig(config);
+
+        // the retry is sent after a second, i.e., after the connection and socket timeout elapsed
+        final BreinResult result = brein.getEngine().getRestEngine().doLookup(createLookup());
+        assertNotNull(result);
+        assertEquals(2, server.getRequestCount(BreinMockServer.LOOKUP_ENDPOINT));
+    }
+
+    private BreinLookup createLookup() {
+        final BreinLookup breinLookup = new BreinLookup().setBreinDimension(new BreinDimension("email"));
+        breinLookup.setUser(new BreinUser("toni.tester@mail.net"));
+        return breinLookup;
+    }
+
+    protected BreinActivity createActivity() {
+        return new BreinActivity()
+                .setUser(new BreinUser("toni.tester@mail.net"))
+                .setActivityType("login");
+    }
+
+    /**
+     * Sends the requests while only one request can be sent and one can wait,
+     * every request must either be rejected by an exception or be completed.
+     */
+    private RejectionResult sendWhileQueueIsFull(final BreinRejectionPolicy policy) throws Exception {
+        server.setLatency(300);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setDispatchCorePoolSize(1)
+                .setDispatchMaxPoolSize(1)
+                .setDispatchQueueCapacity(1)
+                .setConnectionMaxActive(1)
+                .setDispatchRejectionPolicy(policy));
+
+        final RejectionResult result = new RejectionResult();
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < REJECTION_REQUESTS; i++) {
+            try {
+                futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+            } catch (final BreinException e) {
+                result.rejected++;
+            }
+        }
+
+        for (final BreinFuture<BreinResult> future : futures) {
+            try {
+                assertNotNull(future.get(10, TimeUnit.SECONDS));
+                result.succeeded++;
+            } catch (final ExecutionException e) {
+                result.failed++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * counts how the requests sent by {@link #sendWhileQueueIsFull(BreinRejectionPolicy)} ended
+     */
+    private static class RejectionResult {
+        private int rejected = 0;
+        private int succeeded = 0;
+        private int failed = 0;
+    }
+
+    /**
+     * future recording the status the request was answered with
+     */
+    private static class StatusFuture extends BreinFuture<BreinResult> implements IStatusListener {
+        private volatile int status = -1;
+
+        @Override
+        public void onStatus(final int status) {
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.brein.engine;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinActivityBatch;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinLookup;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the batching of activities, no requests are sent
+ */
+public class TestActivityBatcher {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinConfig config;
+    private RecordingRestEngine restEngine;
+    private BreinActivityBatcher batcher;
+
+    @Before
+    public void setUp() {
+        config = new BreinConfig(API_KEY, SECRET)
+                .setActivityBatching(true)
+                .setActivityBatchSize(3)
+                .setActivityBatchInterval(100);
+        Breinify.setConfig(config);
+
+        restEngine = new RecordingRestEngine();
+        batcher = new BreinActivityBatcher(restEngine);
+    }
+
+    @Test
+    public void testBatchIsSentWhenFull() {
+        for (int i = 0; i < 7; i++) {
+            batcher.add(config, createActivity(), null);
+        }
+
+        assertEquals(2, restEngine.batches.size());
+        assertEquals(3, restEngine.batches.get(0).size());
+        assertEquals(1, batcher.getPendingCount());
+
+        final String body = restEngine.batches.get(0).prepareRequestData(config);
+        assertTrue(body.startsWith("[{"));
+        assertTrue(body.endsWith("}]"));
+    }
+
+    @Test
+    public void testBatchIsSentAfterInterval() throws InterruptedException {
+        batcher.add(config, createActivity(), null);
+        assertEquals(0, restEngine.batches.size());
+
+        Thread.sleep(500);
+        assertEquals(1, restEngine.batches.size());
+        assertEquals(0, batcher.getPendingCount());
+    }
+
+    @Test
+    public void testTerminateFlushesAndInformsCallbacks() {
+        final List<BreinResult> results = new ArrayList<>();
+        final ICallback<BreinResult> callback = new ICallback<BreinResult>() {
+            @Override
+            public void callback(final BreinResult data) {
+                results.add(data);
+            }
+        };
+
+        batcher.add(config, createActivity(), callback);
+        batcher.add(config, createActivity(), callback);
+        batcher.terminate();
+
+        assertEquals(1, restEngine.batches.size());
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    public void testCallbacksAreInformedWhenBatchIsRejected() {
+        final List<BreinResult> results = new ArrayList<>();
+        final ICallback<BreinResult> callback = new ICallback<BreinResult>() {
+            @Override
+            public void callback(final BreinResult data) {
+                results.add(data);
+            }
+        };
+
+        restEngine.reject = true;
+        for (int i = 0; i < 3; i++) {
+            batcher.add(config, createActivity(), callback);
+        }
+
+        assertEquals(0, restEngine.batches.size());
+        assertEquals(0, batcher.getPendingCount());
+        assertEquals(3, results.size());
+        assertNull(results.get(0));
+    }
+
+    private BreinActivity createActivity() {
+        return new BreinActivity()
+                .setUser(new BreinUser("toni.tester@mail.net"))
+                .setActivityType("login")
+                .setDescription("batched");
+    }
+
+    /**
+     * Engine which just records the batches
+     */
+    private static class RecordingRestEngine implements IRestEngine {
+        private final List<BreinActivityBatch> batches =
+                Collections.synchronizedList(new ArrayList<BreinActivityBatch>());
+        private volatile boolean reject = false;
+
+        @Override
+        public void configure(final BreinConfig breinConfig) {
+        }
+
+        @Override
+        public void doRequest(final BreinActivity breinActivity) {
+        }
+
+        @Override
+        public BreinResult doLookup(final BreinLookup breinLookup) {
+            return null;
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public IRestEngine getRestEngine(final BreinEngineType engine) {
+            return this;
+        }
+
+        @Override
+        public BreinEngineType getRestEngineType(final BreinEngineType engine) {
+            return BreinEngineType.NO_ENGINE;
+        }
+
+        @Override
+        public void invokeRequest(final BreinConfig config,
+                                  final BreinBase data,
+                                  final ICallback<BreinResult> callback) {
+            if (reject) {
+                throw new RejectedExecutionException("rejected");
+            }
+            batches.add((BreinActivityBatch) data);
+            callback.callback(null);
+        }
+
+        @Override
+        public BreinConnectionStats getConnectionStats() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.brein.engine;
+
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bounded activity buffer and its overflow policies
+ */
+public class TestActivityBuffer {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("breinify", ".spill");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.DROP_OLDEST, sender, null);
+        final AtomicInteger dropped = new AtomicInteger();
+
+        // the first activity is in flight, the next ones fill the buffer
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(null, String.valueOf(i), new DropCounter(dropped));
+        }
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(2, dropped.get());
+        assertEquals(2, buffer.getDepth());
+        assertEquals(2, buffer.getPeakDepth());
+
+        sender.complete(2);
+        sender.awaitSent(3);
+        assertEquals(Arrays.asList("0", "3", "4"), sender.getSent());
+        buffer.terminate();
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.DROP_NEWEST, sender, null);
+        final AtomicInteger dropped = new AtomicInteger();
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(null, String.valueOf(i), new DropCounter(dropped));
+        }
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(2, dropped.get());
+
+        sender.complete(2);
+        sender.awaitSent(3);
+        assertEquals(Arrays.asList("0", "1", "2"), sender.getSent());
+        buffer.terminate();
+    }
+
+    @Test
+    public void testBlockWaitsForRoom() throws InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.BLOCK, sender, null);
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        buffer.add(null, "1", null);
+        buffer.add(null, "2", null);
+
+        // the buffer is full, the caller is blocked until the timeout elapsed
+        final long start = System.currentTimeMillis();
+        buffer.add(null, "3", null);
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        assertEquals(1, buffer.getDroppedCount());
+
+        // room is made while the caller waits
+        final Thread completer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    sender.complete(1);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        completer.start();
+        buffer.add(null, "4", null);
+        completer.join();
+
+        assertEquals(1, buffer.getDroppedCount());
+        sender.complete(2);
+        sender.awaitSent(4);
+        assertEquals(Arrays.asList("0", "1", "2", "4"), sender.getSent());
+        buffer.terminate();
+    }
+
+    @Test
+    public void testSpillKeepsOrderAndSurvivesRestart() throws IOException, InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.SPILL_TO_DISK, sender,
+                new BreinActivitySpill(file));
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 6; i++) {
+            buffer.add(null, String.valueOf(i), null);
+        }
+
+        assertEquals(0, buffer.getDroppedCount());
+        assertEquals(4, buffer.getSpilledCount());
+        assertEquals(6, buffer.getDepth());
+        assertTrue(file.length() > 0);
+
+        // the buffered activities are sent before the spilled ones
+        sender.complete(3);
+        sender.awaitSent(4);
+        assertEquals(Arrays.asList("0", "1", "2", "3"), sender.getSent());
+        buffer.terminate();
+
+        // the spilled activities are sent by the next run
+        final RecordingSender next = new RecordingSender();
+        final BreinActivityBuffer reopened = createBuffer(BreinOverflowPolicy.SPILL_TO_DISK, next,
+                new BreinActivitySpill(file));
+        reopened.add(null, "7", null);
+        next.complete(3);
+        next.awaitSent(4);
+        assertEquals(Arrays.asList("4", "5", "6", "7"), next.getSent());
+        assertEquals(0, reopened.getDepth());
+
+        // only the header is left
+        assertEquals(8, file.length());
+        reopened.terminate();
+    }
+
+    @Test
+    public void testFullSpillDropsOldestSpilled() throws IOException, InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.SPILL_TO_DISK, sender,
+                new BreinActivitySpill(file), 3);
+        final AtomicInteger dropped = new AtomicInteger();
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 7; i++) {
+            buffer.add(null, String.valueOf(i), new DropCounter(dropped));
+        }
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(2, dropped.get());
+        assertEquals(5, buffer.getDepth());
+
+        sender.complete(5);
+        sender.awaitSent(6);
+        assertEquals(Arrays.asList("0", "1", "2", "5", "6", "7"), sender.getSent());
+        buffer.terminate();
+    }
+
+    @Test
+    public void testDroppedCallbacksAreInvokedWithoutLock() throws IOException, InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.SPILL_TO_DISK, sender,
+                new BreinActivitySpill(file), 1);
+        final List<Boolean> locked = Collections.synchronizedList(new ArrayList<Boolean>());
+        final ICallback<BreinResult> callback = new ICallback<BreinResult>() {
+            @Override
+            public void callback(final BreinResult data) {
+                locked.add(Thread.holdsLock(buffer));
+            }
+        };
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(null, String.valueOf(i), callback);
+        }
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(Arrays.asList(false, false), locked);
+        buffer.terminate();
+    }
+
+    @Test
+    public void testSpillFileIsCompacted() throws IOException {
+        final char[] chars = new char[1024];
+        Arrays.fill(chars, 'x');
+        final String payload = new String(chars);
+
+        final BreinActivitySpill spill = new BreinActivitySpill(file);
+        int next = 0;
+        for (int i = 0; i < 1000; i++) {
+            spill.append(i + payload);
+            if (spill.size() > 10) {
+                assertEquals(next++ + payload, spill.poll());
+            }
+        }
+
+        // the read records do not pile up within the file
+        assertTrue(spill.length() < 128L * 1024L);
+        spill.close();
+
+        final BreinActivitySpill reopened = new BreinActivitySpill(file);
+        assertEquals(10, reopened.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(next++ + payload, reopened.poll());
+        }
+        assertEquals(8, reopened.length());
+        reopened.close();
+    }
+
+    @Test
+    public void testJournaledSpillDiscardsPreviousRun() throws IOException {
+        final BreinActivitySpill spill = new BreinActivitySpill(file);
+        spill.append("0");
+        spill.append("1");
+        spill.close();
+
+        // the journal sends these activities again, thus they are not read from the spill file
+        final BreinActivitySpill reopened = new BreinActivitySpill(file, false);
+        assertEquals(0, reopened.size());
+        assertEquals(0, reopened.getLoadedCount());
+        assertEquals(8, reopened.length());
+        reopened.close();
+    }
+
+    @Test
+    public void testSpillWithoutFileDropsOldest() throws InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.SPILL_TO_DISK, sender, null);
+        assertEquals(BreinOverflowPolicy.DROP_OLDEST, buffer.getOverflowPolicy());
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        for (int i = 1; i <= 3; i++) {
+            buffer.add(null, String.valueOf(i), null);
+        }
+
+        assertEquals(1, buffer.getDroppedCount());
+        buffer.terminate();
+    }
+
+    @Test
+    public void testTerminateSendsBufferedActivities() throws InterruptedException {
+        final RecordingSender sender = new RecordingSender();
+        final BreinActivityBuffer buffer = createBuffer(BreinOverflowPolicy.DROP_OLDEST, sender, null);
+
+        buffer.add(null, "0", null);
+        sender.awaitSent(1);
+        buffer.add(null, "1", null);
+        buffer.add(null, "2", null);
+        buffer.terminate();
+
+        assertEquals(Arrays.asList("0", "1", "2"), sender.getSent());
+        assertEquals(0, buffer.getDepth());
+    }
+
+    private BreinActivityBuffer createBuffer(final BreinOverflowPolicy policy,
+                                             final RecordingSender sender,
+                                             final BreinActivitySpill spill) {
+        return createBuffer(policy, sender, spill, 1000);
+    }
+
+    private BreinActivityBuffer createBuffer(final BreinOverflowPolicy policy,
+                                             final RecordingSender sender,
+                                             final BreinActivitySpill spill,
+                                             final int spillCapacity) {
+        final BreinConfig config = new BreinConfig()
+                .setActivityBufferCapacity(2)
+                .setActivityBufferOverflowPolicy(policy)
+                .setActivityBufferBlockTimeout(200)
+                .setActivityBufferSpillCapacity(spillCapacity);
+
+        return new BreinActivityBuffer(config, sender, 1, spill);
+    }
+
+    /**
+     * counts the callbacks of dropped activities
+     */
+    private static class DropCounter implements ICallback<BreinResult> {
+        private final AtomicInteger dropped;
+
+        DropCounter(final AtomicInteger dropped) {
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void callback(final BreinResult data) {
+            if (data == null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * keeps the sent activities in flight until they are completed by the test
+     */
+    private static class RecordingSender implements BreinActivityBuffer.ISender {
+        private final List<String> sent = new ArrayList<>();
+        private final List<ICallback<BreinResult>> inFlight = new ArrayList<>();
+
+        @Override
+        public synchronized void send(final BreinConfig config,
+                                      final String preparedActivity,
+                                      final ICallback<BreinResult> callback) {
+            sent.add(preparedActivity);
+            if (callback != null) {
+                inFlight.add(callback);
+            }
+            notifyAll();
+        }
+
+        synchronized List<String> getSent() {
+            return new ArrayList<>(sent);
+        }
+
+        synchronized void awaitSent(final int count) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (sent.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            assertEquals(count, sent.size());
+        }
+
+        /**
+         * completes the given number of activities in the order they were sent
+         */
+        void complete(final int count) throws InterruptedException {
+            for (int i = 0; i < count; i++) {
+                final ICallback<BreinResult> callback;
+                synchronized (this) {
+                    final long deadline = System.currentTimeMillis() + 5000;
+                    while (inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+                        wait(100);
+                    }
+                    callback = inFlight.remove(0);
+                }
+                callback.callback(new BreinResult(Collections.<String, Object>emptyMap()));
+            }
+        }
+    }
+}
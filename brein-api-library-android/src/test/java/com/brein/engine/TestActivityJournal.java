@@ -0,0 +1,246 @@
+package com.brein.engine;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinFuture;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the activity journal, which keeps not sent activities on disk
+ */
+public class TestActivityJournal {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("breinify", ".journal");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void testNotAcknowledgedActivitiesAreReplayedAfterRestart() throws IOException {
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        final long first = journal.append("{\"activity\":1}");
+        journal.append("{\"activity\":2}");
+        final long third = journal.append("{\"activity\":3}");
+
+        journal.acknowledge(first);
+        journal.release(third);
+
+        // in flight activities are not part of a replay
+        final Map<Long, String> replayed = journal.replay();
+        assertEquals(1, replayed.size());
+        assertEquals("{\"activity\":3}", replayed.get(third));
+        journal.close();
+
+        final BreinActivityJournal reopened = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        assertEquals(2, reopened.getPendingCount());
+        assertEquals("{\"activity\":2}", reopened.replay().values().iterator().next());
+
+        // new ids must not collide with the loaded ones
+        assertTrue(reopened.append("{\"activity\":4}") > third);
+        reopened.close();
+    }
+
+    @Test
+    public void testTruncatedRecordIsDropped() throws IOException {
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        journal.append("{\"activity\":1}");
+        journal.append("{\"activity\":2}");
+        journal.close();
+
+        // simulate a crash while the last record was written
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        final BreinActivityJournal reopened = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        assertEquals(1, reopened.getPendingCount());
+        assertEquals("{\"activity\":1}", reopened.replay().values().iterator().next());
+        reopened.close();
+    }
+
+    @Test
+    public void testOldestActivitiesAreEvicted() throws IOException {
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 40, 1000);
+        for (int i = 0; i < 5; i++) {
+            journal.append("{\"activity\":" + i + "}");
+        }
+
+        // each activity has 14 characters, so only two fit
+        assertEquals(2, journal.getPendingCount());
+        journal.close();
+
+        final BreinActivityJournal reopened = new BreinActivityJournal(file, 40, 1000);
+        final Map<Long, String> replayed = reopened.replay();
+        assertEquals(2, replayed.size());
+        assertEquals("{\"activity\":3}", replayed.values().iterator().next());
+        reopened.close();
+    }
+
+    @Test
+    public void testSizeIsCountedInBytes() throws IOException {
+
+        // each activity has 16 characters, but 17 bytes, so only one fits
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 33, 1000);
+        journal.append("{\"activity\":\"\u00fc\"}");
+        journal.append("{\"activity\":\"\u00fc\"}");
+
+        assertEquals(1, journal.getPendingCount());
+        journal.close();
+    }
+
+    @Test
+    public void testRecordsAreWrittenInBackground() throws IOException {
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 60000);
+        journal.append("{\"activity\":1}");
+
+        // sync waits for the writer, afterwards the record is on the disk
+        journal.sync();
+        assertTrue(file.length() > 0);
+
+        final BreinActivityJournal reopened = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        assertEquals(1, reopened.getPendingCount());
+        reopened.close();
+        journal.close();
+    }
+
+    @Test
+    public void testAcknowledgedActivitiesAreCompacted() throws IOException {
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        final StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            payload.append('x');
+        }
+
+        for (int i = 0; i < 200; i++) {
+            journal.acknowledge(journal.append("{\"activity\":\"" + payload + "\"}"));
+        }
+        journal.append("{\"activity\":\"last\"}");
+        journal.close();
+
+        assertTrue(file.length() < 64 * 1024);
+
+        final BreinActivityJournal reopened = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        assertEquals(1, reopened.getPendingCount());
+        reopened.close();
+    }
+
+    @Test
+    public void testFailedCompactionKeepsJournalWritable() throws IOException {
+
+        // the compacted file cannot be created, because a (not empty) directory is in the way
+        final File compacted = new File(file.getPath() + ".tmp");
+        final File blocker = new File(compacted, "blocker");
+        assertTrue(compacted.mkdir());
+        assertTrue(blocker.createNewFile());
+
+        try {
+            final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 1000);
+            final StringBuilder payload = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                payload.append('x');
+            }
+
+            for (int i = 0; i < 100; i++) {
+                journal.acknowledge(journal.append("{\"activity\":\"" + payload + "\"}"));
+            }
+            journal.append("{\"activity\":\"last\"}");
+            journal.close();
+
+            // the journal was not compacted, but the later records were still written
+            assertTrue(file.length() > 64 * 1024);
+
+            final BreinActivityJournal reopened = new BreinActivityJournal(file, 1024 * 1024, 1000);
+            assertEquals(1, reopened.getPendingCount());
+            assertEquals("{\"activity\":\"last\"}", reopened.replay().values().iterator().next());
+            reopened.close();
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            blocker.delete();
+            //noinspection ResultOfMethodCallIgnored
+            compacted.delete();
+        }
+    }
+
+    @Test
+    public void testRefusedActivityIsRemoved() throws Exception {
+        assertEquals(0, sendJournaled(400));
+    }
+
+    @Test
+    public void testFailedActivityIsKept() throws Exception {
+        assertEquals(1, sendJournaled(500));
+    }
+
+    /**
+     * sends one journaled activity, which is answered with the status
+     *
+     * @return int the number of activities pending within the journal afterwards
+     */
+    private int sendJournaled(final int status) throws Exception {
+        final BreinMockServer server = new BreinMockServer(SECRET).start();
+        final BreinActivityJournal journal = new BreinActivityJournal(file, 1024 * 1024, 1000);
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setActivityJournaling(true)
+                .setRetryMaxAttempts(1);
+        Breinify.setConfig(config);
+
+        final BreinEngine engine = new BreinEngine(BreinEngineType.HTTP_URL_CONNECTION_ENGINE) {
+            @Override
+            protected BreinActivityJournal getActivityJournal(final BreinConfig config) {
+                return journal;
+            }
+        };
+        engine.configure(config);
+        try {
+            server.setErrorStatus(status).failNext(1);
+
+            final BreinFuture<BreinResult> future = new BreinFuture<>();
+            engine.invoke(config, new BreinActivity()
+                    .setUser(new BreinUser("toni.tester@mail.net"))
+                    .setActivityType("login"), future);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("the request should fail");
+            } catch (final ExecutionException e) {
+                // expected
+            }
+
+            return journal.getPendingCount();
+        } finally {
+            engine.terminate();
+            journal.close();
+            Breinify.shutdown();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinException;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the selection of the rest engines through the registry
+ */
+public class TestEngineRegistry {
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        BreinEngineRegistry.registerDefaults();
+    }
+
+    @Test
+    public void testDefaultEngines() {
+        final BreinMetrics metrics = new BreinMetrics();
+
+        assertTrue(BreinEngineRegistry.create(null, metrics) instanceof HttpUrlRestEngine);
+        assertTrue(BreinEngineRegistry.create(BreinEngineType.HTTP_URL_CONNECTION_ENGINE, metrics)
+                instanceof HttpUrlRestEngine);
+        assertTrue(BreinEngineRegistry.create(BreinEngineType.NO_ENGINE, metrics) instanceof NoRestEngine);
+
+        for (final BreinEngineType type : BreinEngineType.values()) {
+            assertTrue(BreinEngineRegistry.isRegistered(type));
+        }
+    }
+
+    @Test
+    public void testRegisteredEngineIsUsed() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final IRestEngine testEngine = new NoRestEngine();
+        final IRestEngineFactory previous = BreinEngineRegistry.register(BreinEngineType.HTTP_URL_CONNECTION_ENGINE,
+                new IRestEngineFactory() {
+                    @Override
+                    public IRestEngine create(final BreinMetrics metrics) {
+                        assertNotNull(metrics);
+                        created.incrementAndGet();
+                        return testEngine;
+                    }
+                });
+        assertNotNull(previous);
+
+        final Brein brein = Breinify.setConfig(new BreinConfig("TEST-API-KEY"));
+        assertSame(testEngine, brein.getEngine().getRestEngine());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testNoEngineFailsRequests() throws Exception {
+        final Brein brein = Breinify.setConfig(new BreinConfig("TEST-API-KEY")
+                .setRestEngineType(BreinEngineType.NO_ENGINE));
+        assertEquals(BreinEngineType.NO_ENGINE, brein.getEngine().getRestEngineType());
+
+        // the deprecated variant delegates to the type of the created engine
+        assertEquals(BreinEngineType.NO_ENGINE,
+                brein.getEngine().getRestEngineType(BreinEngineType.HTTP_URL_CONNECTION_ENGINE));
+
+        final BreinFuture<BreinResult> future = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58"));
+        assertTrue(future.isDone());
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("no request is sent");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof BreinException);
+        }
+    }
+
+    @Test
+    public void testUnregisteredEngineCannotBeCreated() {
+        assertNotNull(BreinEngineRegistry.unregister(BreinEngineType.NO_ENGINE));
+        assertFalse(BreinEngineRegistry.isRegistered(BreinEngineType.NO_ENGINE));
+
+        try {
+            BreinEngineRegistry.create(BreinEngineType.NO_ENGINE, new BreinMetrics());
+            fail("no engine is registered");
+        } catch (final BreinException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.brein.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the header compression of the HTTP/2 engine, using the examples of RFC 7541 (appendix C.4)
+ */
+public class TestHpack {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String[][] REQUESTS = {
+            {":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"},
+            {":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                    "cache-control", "no-cache"},
+            {":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                    "custom-key", "custom-value"}
+    };
+
+    private static final String[] ENCODED = {
+            "828684418cf1e3c2e5f23a6ba0ab90f4ff",
+            "828684be5886a8eb10649cbf",
+            "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"
+    };
+
+    @Test
+    public void testRequestsAreEncoded() {
+        final BreinHpack.Encoder encoder = new BreinHpack.Encoder();
+
+        for (int i = 0; i < REQUESTS.length; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int k = 0; k < REQUESTS[i].length; k += 2) {
+                encoder.encode(REQUESTS[i][k], REQUESTS[i][k + 1], true, out);
+            }
+            assertEquals(ENCODED[i], toHex(out.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testRequestsAreDecoded() throws IOException {
+        final BreinHpack.Decoder decoder = new BreinHpack.Decoder(64 * 1024);
+
+        for (int i = 0; i < REQUESTS.length; i++) {
+            final byte[] block = fromHex(ENCODED[i]);
+            final Map<String, String> expected = new LinkedHashMap<>();
+            for (int k = 0; k < REQUESTS[i].length; k += 2) {
+                expected.put(REQUESTS[i][k], REQUESTS[i][k + 1]);
+            }
+            assertEquals(expected, decoder.decode(block, 0, block.length));
+        }
+    }
+
+    @Test
+    public void testRepeatedHeadersAreIndexed() throws IOException {
+        final BreinHpack.Encoder encoder = new BreinHpack.Encoder();
+        final BreinHpack.Decoder decoder = new BreinHpack.Decoder(64 * 1024);
+
+        int firstSize = 0;
+        for (int i = 0; i < 3; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoder.encode(":path", "/api/v1.0/web/temporaldata", true, out);
+            encoder.encode("user-agent", "breinify-android", true, out);
+            encoder.encode("content-length", String.valueOf(100 + i), false, out);
+            final byte[] block = out.toByteArray();
+
+            final Map<String, String> headers = decoder.decode(block, 0, block.length);
+            assertEquals("/api/v1.0/web/temporaldata", headers.get(":path"));
+            assertEquals("breinify-android", headers.get("user-agent"));
+            assertEquals(String.valueOf(100 + i), headers.get("content-length"));
+
+            if (i == 0) {
+                firstSize = block.length;
+            } else {
+                assertTrue(block.length + " vs. " + firstSize, block.length * 3 < firstSize);
+            }
+        }
+    }
+
+    @Test
+    public void testHuffmanCodeIsReversible() throws IOException {
+        final byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BreinHuffman.encode(data, out);
+        final byte[] encoded = out.toByteArray();
+
+        assertEquals(BreinHuffman.encodedLength(data), encoded.length);
+        assertArrayEquals(data, BreinHuffman.decode(encoded, 0, encoded.length));
+        assertEquals("no-cache", new String(BreinHuffman.decode(fromHex("a8eb10649cbf"), 0, 6), UTF8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidPaddingFails() throws IOException {
+
+        // the code of 'a' (00011) padded with zeros instead of ones
+        BreinHuffman.decode(new byte[]{0x18}, 0, 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownIndexFails() throws IOException {
+        new BreinHpack.Decoder(64 * 1024).decode(new byte[]{(byte) 0xff, 0x00}, 0, 2);
+    }
+
+    private String toHex(final byte[] data) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : data) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+
+        return sb.toString();
+    }
+
+    private byte[] fromHex(final String hex) {
+        final byte[] data = new byte[hex.length() / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,132 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the conformance tests against the HTTP/2 engine, the requests are sent
+ * to the mock server through a proxy speaking HTTP/2
+ */
+public class TestHttp2RestEngine extends BreinRestEngineConformance {
+
+    private BreinHttp2MockProxy proxy;
+
+    @Override
+    protected BreinEngineType getEngineType() {
+        return BreinEngineType.HTTP2_ENGINE;
+    }
+
+    @Before
+    public void setUpProxy() throws Exception {
+        proxy = new BreinHttp2MockProxy(server.getBaseUrl()).start();
+    }
+
+    @After
+    public void tearDownProxy() {
+        proxy.stop();
+    }
+
+    @Override
+    protected BreinConfig createConfig() {
+        return super.createConfig()
+                .setBaseUrl(proxy.getBaseUrl());
+    }
+
+    @Test
+    public void testRequestsAreMultiplexed() throws Exception {
+        server.setLatency(50);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+        for (final BreinFuture<BreinResult> future : futures) {
+            assertEquals("San Francisco", future.get(10, TimeUnit.SECONDS).getNestedValue("location", "city"));
+        }
+
+        // all requests share one connection, and are sent at the same time
+        assertEquals(1, proxy.getConnectionCount());
+        assertEquals(20, proxy.getStreamCount());
+        assertTrue(String.valueOf(proxy.getMaxActiveStreams()), proxy.getMaxActiveStreams() > 1);
+        assertEquals(20, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(1, brein.getEngine().getConnectionStats().getConnectionCount());
+    }
+
+    @Test
+    public void testHeadersAreCompressed() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        for (int i = 0; i < 3; i++) {
+            brein.temporalData(new BreinTemporalData()
+                    .setLookUpIpAddress("74.115.209." + i)).get(5, TimeUnit.SECONDS);
+        }
+
+        // only the content length is sent again, all other headers are indexed
+        final List<Integer> sizes = proxy.getHeaderBlockSizes();
+        assertEquals(3, sizes.size());
+        assertTrue(sizes.toString(), sizes.get(1) * 4 < sizes.get(0));
+        assertTrue(sizes.toString(), sizes.get(2) * 4 < sizes.get(0));
+    }
+
+    @Test
+    public void testStreamLimitIsRespected() throws Exception {
+        server.setLatency(50);
+        proxy.setMaxConcurrentStreams(3);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+        for (final BreinFuture<BreinResult> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, proxy.getConnectionCount());
+        assertTrue(String.valueOf(proxy.getMaxActiveStreams()), proxy.getMaxActiveStreams() <= 3);
+    }
+
+    @Test
+    public void testRefusedStreamIsResent() throws Exception {
+        proxy.refuseNext(1);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinResult result = brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("San Francisco", result.getNestedValue("location", "city"));
+        assertEquals(2, proxy.getStreamCount());
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testServerWithoutHttp2IsUsedWithHttp1() throws Exception {
+        final Brein brein = Breinify.setConfig(super.createConfig());
+
+        for (int i = 0; i < 3; i++) {
+            final BreinResult result = brein.temporalData(new BreinTemporalData()
+                    .setLookUpIpAddress("74.115.209." + i)).get(5, TimeUnit.SECONDS);
+            assertEquals("San Francisco", result.getNestedValue("location", "city"));
+        }
+
+        assertEquals(0, proxy.getConnectionCount());
+        assertEquals(3, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+}
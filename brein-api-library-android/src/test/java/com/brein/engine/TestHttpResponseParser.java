@@ -0,0 +1,191 @@
+package com.brein.engine;
+
+import com.brein.api.BreinException;
+import com.brein.util.BreinGzip;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the incremental parsing of the responses received by the non-blocking engine
+ */
+public class TestHttpResponseParser {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAX_BODY_SIZE = 1024L;
+
+    @Test
+    public void testContentLengthResponseIsParsed() throws IOException {
+        final String response = "HTTP/1.1 200 OK\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: 14\r\n" +
+                "\r\n" +
+                "{\"city\":\"SF\"}\n";
+
+        final BreinHttpResponseParser parser = createParser();
+        assertTrue(parser.parse(ByteBuffer.wrap(response.getBytes(UTF8))));
+        assertEquals(200, parser.getStatus());
+        assertEquals("application/json", parser.getHeader("content-type"));
+        assertEquals(14, parser.getBodySize());
+        assertEquals(response.length(), parser.getBytesRead());
+        assertTrue(parser.isKeepAlive());
+        assertEquals("{\"city\":\"SF\"}\n", read(parser.getBody()));
+    }
+
+    @Test
+    public void testResponseSplitAtAnyPositionIsParsed() throws IOException {
+        final String response = "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "5;name=value\r\n" +
+                "hello\r\n" +
+                "7\r\n" +
+                ", world\r\n" +
+                "0\r\n" +
+                "Trailer: value\r\n" +
+                "\r\n";
+        final byte[] bytes = response.getBytes(UTF8);
+
+        // pass the bytes one by one, using a direct buffer like the engine does
+        final BreinHttpResponseParser parser = createParser();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+        for (int i = 0; i < bytes.length; i++) {
+            assertFalse(parser.isDone());
+
+            buffer.clear();
+            buffer.put(bytes[i]);
+            buffer.flip();
+            assertEquals(i == bytes.length - 1, parser.parse(buffer));
+        }
+
+        assertEquals("hello, world", read(parser.getBody()));
+    }
+
+    @Test
+    public void testBytesOfTheNextResponseAreKept() throws IOException {
+        final String response = "HTTP/1.1 204 No Content\r\n\r\n";
+        final ByteBuffer buffer = ByteBuffer.wrap((response + response).getBytes(UTF8));
+
+        final BreinHttpResponseParser parser = createParser();
+        assertTrue(parser.parse(buffer));
+        assertEquals(204, parser.getStatus());
+        assertEquals(response.length(), buffer.remaining());
+
+        parser.reset(MAX_BODY_SIZE);
+        assertTrue(parser.parse(buffer));
+        assertEquals(204, parser.getStatus());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testBodyUntilCloseIsParsed() throws IOException {
+        final String response = "HTTP/1.0 200 OK\r\n" +
+                "\r\n" +
+                "body";
+
+        final BreinHttpResponseParser parser = createParser();
+        assertFalse(parser.parse(ByteBuffer.wrap(response.getBytes(UTF8))));
+        assertTrue(parser.parseEnd());
+        assertEquals("body", read(parser.getBody()));
+        assertFalse(parser.isKeepAlive());
+    }
+
+    @Test(expected = IOException.class)
+    public void testIncompleteResponseFails() throws IOException {
+        final String response = "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 10\r\n" +
+                "\r\n" +
+                "body";
+
+        final BreinHttpResponseParser parser = createParser();
+        assertFalse(parser.parse(ByteBuffer.wrap(response.getBytes(UTF8))));
+        parser.parseEnd();
+    }
+
+    @Test
+    public void testInformationalResponseIsSkipped() throws IOException {
+        final String response = "HTTP/1.1 100 Continue\r\n" +
+                "\r\n" +
+                "HTTP/1.1 403 Forbidden\r\n" +
+                "Content-Length: 6\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                "denied";
+
+        final BreinHttpResponseParser parser = createParser();
+        assertTrue(parser.parse(ByteBuffer.wrap(response.getBytes(UTF8))));
+        assertEquals(403, parser.getStatus());
+        assertEquals("denied", read(parser.getBody()));
+        assertFalse(parser.isKeepAlive());
+    }
+
+    @Test
+    public void testCompressedBodyIsDecompressed() throws IOException {
+        final byte[] body = BreinGzip.compress("{\"city\":\"San Francisco\"}".getBytes(UTF8));
+        final String headers = "HTTP/1.1 200 OK\r\n" +
+                "Content-Encoding: gzip\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "\r\n";
+
+        final ByteBuffer buffer = ByteBuffer.allocate(headers.length() + body.length);
+        buffer.put(headers.getBytes(UTF8)).put(body).flip();
+
+        final BreinHttpResponseParser parser = createParser();
+        assertTrue(parser.parse(buffer));
+        assertEquals(body.length, parser.getBodySize());
+        assertEquals("{\"city\":\"San Francisco\"}", read(parser.getBody()));
+    }
+
+    @Test
+    public void testTooLargeBodyIsRejected() throws IOException {
+        final String contentLength = "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: " + (MAX_BODY_SIZE + 1) + "\r\n" +
+                "\r\n";
+        final String chunked = "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                Long.toHexString(MAX_BODY_SIZE + 1) + "\r\n";
+
+        for (final String response : new String[]{contentLength, chunked}) {
+            try {
+                createParser().parse(ByteBuffer.wrap(response.getBytes(UTF8)));
+                fail("the response should be rejected");
+            } catch (final BreinException e) {
+                assertEquals(BreinException.RESPONSE_TOO_LARGE, e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedResponseFails() throws IOException {
+        createParser().parse(ByteBuffer.wrap("<html>\r\n".getBytes(UTF8)));
+    }
+
+    private BreinHttpResponseParser createParser() {
+        final BreinHttpResponseParser parser = new BreinHttpResponseParser();
+        parser.reset(MAX_BODY_SIZE);
+
+        return parser;
+    }
+
+    private String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return new String(out.toByteArray(), UTF8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the conformance tests against the HttpURLConnection based engine
+ */
+public class TestHttpUrlRestEngine extends BreinRestEngineConformance {
+
+    @Override
+    protected BreinEngineType getEngineType() {
+        return BreinEngineType.HTTP_URL_CONNECTION_ENGINE;
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        final BreinConnectionStats stats = sendWithHttps(true, 5);
+
+        assertEquals(5, stats.getRequestCount());
+        assertTrue(stats.toString(), stats.getRequestCount() > stats.getConnectionCount());
+        assertTrue(stats.toString(), stats.getReusedCount() > 0);
+
+        // the settings are applied to the connection pool of the platform
+        assertEquals("true", System.getProperty("http.keepAlive"));
+        assertEquals("3", System.getProperty("http.maxConnections"));
+    }
+
+    @Test
+    public void testConnectionSettingsOfAppAreKept() throws Exception {
+        final String maxConnections = System.getProperty("http.maxConnections");
+        System.setProperty("http.maxConnections", "7");
+        try {
+            Breinify.setConfig(createConfig()
+                    .setConnectionKeepAlive(true)
+                    .setConnectionPoolSize(3));
+
+            assertEquals("7", System.getProperty("http.maxConnections"));
+            assertEquals("true", System.getProperty("http.keepAlive"));
+        } finally {
+            if (maxConnections == null) {
+                System.clearProperty("http.maxConnections");
+            } else {
+                System.setProperty("http.maxConnections", maxConnections);
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionIsClosedWithoutKeepAlive() throws Exception {
+        final BreinConnectionStats stats = sendWithHttps(false, 3);
+
+        assertEquals(3, stats.getRequestCount());
+        assertEquals(3, stats.getConnectionCount());
+        assertEquals(0, stats.getReusedCount());
+    }
+
+    /**
+     * sends the requests one after another to a server using HTTPS, new connections are only observable with HTTPS
+     */
+    private BreinConnectionStats sendWithHttps(final boolean keepAlive, final int requests) throws Exception {
+        server.stop();
+        server = new BreinMockServer(SECRET).setHttps(true).start();
+
+        final SSLSocketFactory defaultFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(BreinMockServer.createSslContext().getSocketFactory());
+        try {
+            final Brein brein = Breinify.setConfig(createConfig()
+                    .setConnectionKeepAlive(keepAlive)
+                    .setConnectionPoolSize(3));
+
+            for (int i = 0; i < requests; i++) {
+                brein.temporalData(new BreinTemporalData()
+                        .setLookUpIpAddress("74.115.209." + i)).get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(requests, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+            return brein.getEngine().getConnectionStats();
+        } finally {
+            HttpsURLConnection.setDefaultSSLSocketFactory(defaultFactory);
+        }
+    }
+}
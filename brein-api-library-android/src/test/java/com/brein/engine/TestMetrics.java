@@ -0,0 +1,164 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinActivity;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the counters, histograms and the recording of the request metrics
+ */
+public class TestMetrics {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testStripedCounterIsExactAcrossThreads() throws InterruptedException {
+        final BreinStripedCounter counter = new BreinStripedCounter();
+
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, counter.sum());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        final BreinHistogram histogram = new BreinHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+
+        // 50 is within the bucket [32, 64)
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void testRequestsAreRecordedPerEndpoint() throws InterruptedException {
+        server.setErrorRate(0.5);
+
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl());
+        final Brein brein = Breinify.setConfig(config);
+
+        final List<BreinRequestMetrics> recorded = new CopyOnWriteArrayList<>();
+        final BreinMetrics metrics = brein.getEngine().getMetrics();
+        metrics.addListener(new IMetricsListener() {
+            @Override
+            public void onRequest(final BreinRequestMetrics requestMetrics) {
+                recorded.add(requestMetrics);
+            }
+        });
+
+        final CountDownLatch latch = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            brein.activity(new BreinActivity()
+                    .setUser(new BreinUser("toni.tester@mail.net"))
+                    .setActivityType("login"), new ICallback<BreinResult>() {
+                @Override
+                public void callback(final BreinResult data) {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        brein.shutdown();
+
+        final BreinEndpointMetrics activityMetrics = metrics.getEndpoint(config.getActivityEndpoint());
+        assertEquals(20, activityMetrics.getSentCount());
+        assertEquals(server.getFailedCount(), activityMetrics.getFailedCount());
+        assertEquals(20 - server.getFailedCount(), activityMetrics.getSucceededCount());
+        assertEquals(0, activityMetrics.getDroppedCount());
+        assertEquals(20, activityMetrics.getTotalLatency().getCount());
+        assertTrue(activityMetrics.getBytesOut() > 0);
+        assertTrue(activityMetrics.getBytesIn() > 0);
+
+        assertEquals(20, recorded.size());
+        for (final BreinRequestMetrics requestMetrics : recorded) {
+            assertTrue(requestMetrics.getTotalLatency() >= requestMetrics.getTimeToFirstByte());
+            assertTrue(requestMetrics.getStatus() == 200 || requestMetrics.getStatus() == 500);
+        }
+    }
+
+    @Test
+    public void testCompressedRequestsAreAccepted() throws InterruptedException {
+        final BreinConfig config = new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setRequestCompression(true)
+                .setRequestCompressionThreshold(0);
+        final Brein brein = Breinify.setConfig(config);
+        final BreinMetrics metrics = brein.getEngine().getMetrics();
+
+        final CountDownLatch latch = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            brein.activity(new BreinActivity()
+                    .setUser(new BreinUser("toni.tester@mail.net"))
+                    .setActivityType("checkOut")
+                    .setDescription("a description which is repeated, repeated, repeated and repeated"),
+                    new ICallback<BreinResult>() {
+                        @Override
+                        public void callback(final BreinResult data) {
+                            latch.countDown();
+                        }
+                    });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        brein.shutdown();
+
+        assertEquals(5, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+        assertEquals(0, server.getRejectedCount());
+
+        final BreinEndpointMetrics activityMetrics = metrics.getEndpoint(config.getActivityEndpoint());
+        assertEquals(5, activityMetrics.getSucceededCount());
+        assertTrue(activityMetrics.getUncompressedBytesOut() > 0);
+        assertTrue(activityMetrics.getCompressionRatio() > 1.0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinException;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinResult;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the conformance tests against the non-blocking engine
+ */
+public class TestNioRestEngine extends BreinRestEngineConformance {
+
+    @Override
+    protected BreinEngineType getEngineType() {
+        return BreinEngineType.NIO_ENGINE;
+    }
+
+    @Test
+    public void testConnectionsAreBounded() throws Exception {
+        server.setLatency(20);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setConnectionMaxActive(2));
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+        for (final BreinFuture<BreinResult> future : futures) {
+            assertEquals("San Francisco", future.get(10, TimeUnit.SECONDS).getNestedValue("location", "city"));
+        }
+
+        final BreinConnectionStats stats = brein.getEngine().getConnectionStats();
+        assertEquals(20, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(20, stats.getRequestCount());
+        assertTrue(stats.toString(), stats.getConnectionCount() <= 2);
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        for (int i = 0; i < 5; i++) {
+            brein.temporalData(new BreinTemporalData()
+                    .setLookUpIpAddress("74.115.209." + i)).get(5, TimeUnit.SECONDS);
+        }
+
+        final BreinConnectionStats stats = brein.getEngine().getConnectionStats();
+        assertEquals(1, stats.getConnectionCount());
+        assertEquals(4, stats.getReusedCount());
+    }
+
+    @Test
+    public void testConnectionIsClosedWithoutKeepAlive() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setConnectionKeepAlive(false));
+
+        for (int i = 0; i < 3; i++) {
+            brein.temporalData(new BreinTemporalData()
+                    .setLookUpIpAddress("74.115.209." + i)).get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(3, brein.getEngine().getConnectionStats().getConnectionCount());
+    }
+
+    @Test
+    public void testFullQueueIsRejected() throws Exception {
+        server.setLatency(500);
+        final Brein brein = Breinify.setConfig(createConfig()
+                .setConnectionMaxActive(1)
+                .setDispatchQueueCapacity(1)
+                .setDispatchRejectionPolicy(BreinRejectionPolicy.ABORT));
+
+        // one request is sent, one is waiting, any further one has to be rejected
+        try {
+            for (int i = 0; i < 10; i++) {
+                brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i));
+            }
+            fail("the queue should be full");
+        } catch (final BreinException e) {
+            assertEquals(BreinException.REQUEST_REJECTED, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeadSelectorThreadIsReplaced() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+        assertNotNull(brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS));
+
+        // let the selector thread fail, as it does on an unexpected exception
+        final Object dispatcher = getField(brein.getEngine().getRestEngine(), "dispatcher");
+        final Thread thread = (Thread) getField(dispatcher, "thread");
+        ((Selector) getField(dispatcher, "selector")).close();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+
+        // the next request is sent by a new selector thread
+        assertNotNull(brein.temporalData(new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")).get(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    private static Object getField(final Object target, final String name) throws Exception {
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+}
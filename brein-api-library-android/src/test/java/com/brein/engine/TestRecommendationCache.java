@@ -0,0 +1,243 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinRecommendation;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.mock.BreinMockServer;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the caching (stale-while-revalidate) and persisting of recommendation results
+ */
+public class TestRecommendationCache {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testCachedResultIsReturnedAndRefreshed() throws Exception {
+        server.setLatency(300);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        assertNotNull(brein.recommendation(createRequest("shoes")).get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount(BreinMockServer.RECOMMENDATION_ENDPOINT));
+
+        // the cached result is available without waiting for the endpoint
+        final BreinFuture<BreinResult> cached = brein.recommendation(createRequest("shoes"));
+        assertTrue(cached.isDone());
+        assertNotNull(cached.get().get("result"));
+
+        // the result is refreshed in the background
+        final BreinRecommendationCache cache = brein.getEngine().getRecommendationCache(brein.getConfig());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getRefreshCount());
+        waitForRequests(2);
+        assertEquals(2, server.getRequestCount(BreinMockServer.RECOMMENDATION_ENDPOINT));
+
+        // another category is not cached
+        assertFalse(brein.recommendation(createRequest("shirts")).isDone());
+    }
+
+    @Test
+    public void testTooOldResultIsNotUsed() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig().setRecommendationCacheMaxAge(50));
+
+        brein.recommendation(createRequest("shoes")).get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        brein.recommendation(createRequest("shoes")).get(5, TimeUnit.SECONDS);
+
+        final BreinRecommendationCache cache = brein.getEngine().getRecommendationCache(brein.getConfig());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, server.getRequestCount(BreinMockServer.RECOMMENDATION_ENDPOINT));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsResult() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+        brein.recommendation(createRequest("shoes")).get(5, TimeUnit.SECONDS);
+
+        server.failNext(1);
+        assertTrue(brein.recommendation(createRequest("shoes")).isDone());
+        waitForRequests(2);
+        Thread.sleep(50);
+
+        final BreinFuture<BreinResult> cached = brein.recommendation(createRequest("shoes"));
+        assertTrue(cached.isDone());
+        assertNotNull(cached.get());
+    }
+
+    @Test
+    public void testResultsArePersisted() throws Exception {
+        final File file = File.createTempFile("breinify-recommendations", ".cache");
+        assertTrue(file.delete());
+
+        final BreinConfig config = createConfig();
+        Breinify.setConfig(config);
+        final HttpUrlRestEngine restEngine = new HttpUrlRestEngine();
+        restEngine.configure(config);
+        try {
+            final BreinFuture<BreinResult> first = new BreinFuture<>();
+            final BreinRecommendationCache cache = new BreinRecommendationCache(restEngine, file);
+            cache.invoke(config, createRequest("shoes"), first);
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+
+            // closing the cache writes the results not written so far
+            cache.close();
+            assertTrue(file.exists());
+
+            // the identity of the user is not written in plain text
+            final String persisted = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+            assertFalse(persisted.contains("toni.tester@mail.net"));
+
+            // a new cache (e.g., after a restart) reads the result from the file in the background
+            server.setLatency(300);
+            final BreinRecommendationCache reopened = new BreinRecommendationCache(restEngine, file);
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (!reopened.isLoaded() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            final BreinFuture<BreinResult> second = new BreinFuture<>();
+            reopened.invoke(config, createRequest("shoes"), second);
+            assertTrue(second.isDone());
+            assertNotNull(second.get().get("result"));
+        } finally {
+            restEngine.terminate();
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testResultsArePersistedAtOnce() throws Exception {
+        final File file = File.createTempFile("breinify-recommendations", ".cache");
+        assertTrue(file.delete());
+
+        final BreinConfig config = createConfig();
+        Breinify.setConfig(config);
+        final HttpUrlRestEngine restEngine = new HttpUrlRestEngine();
+        restEngine.configure(config);
+        try {
+            final BreinRecommendationCache cache = new BreinRecommendationCache(restEngine, file);
+            final long start = System.currentTimeMillis();
+            for (final String category : new String[]{"shoes", "shirts", "hats"}) {
+                final BreinFuture<BreinResult> future = new BreinFuture<>();
+                cache.invoke(config, createRequest(category), future);
+                assertNotNull(future.get(5, TimeUnit.SECONDS));
+            }
+
+            // the file is written once, after the delay
+            if (System.currentTimeMillis() - start < BreinRecommendationCache.PERSIST_DELAY) {
+                assertFalse(file.exists());
+            }
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (!file.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            final String persisted = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+            assertEquals(3, persisted.split("\"key\"").length - 1);
+            cache.close();
+        } finally {
+            restEngine.terminate();
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testRequestWithoutResponseIsSentAgain() throws Exception {
+        final SilentRestEngine restEngine = new SilentRestEngine();
+        final BreinRecommendationCache cache = new BreinRecommendationCache(restEngine, null);
+        final BreinConfig config = createConfig().setRetryMaxAttempts(1);
+        config.setConnectionTimeout(20);
+        config.setSocketTimeout(30);
+
+        final BreinFuture<BreinResult> first = new BreinFuture<>();
+        cache.invoke(config, createRequest("shoes"), first);
+        cache.invoke(config, createRequest("shoes"), new BreinFuture<BreinResult>());
+        assertEquals(1, restEngine.getCallbacks().size());
+
+        // the request takes longer than the timeouts allow, thus it is not shared anymore
+        Thread.sleep(100);
+        final BreinFuture<BreinResult> second = new BreinFuture<>();
+        cache.invoke(config, createRequest("shoes"), second);
+        assertEquals(2, restEngine.getCallbacks().size());
+
+        // the callbacks waiting for the first request are informed by the second one
+        restEngine.getCallbacks().get(1).callback(new BreinResult(new JsonObject()));
+        assertNotNull(first.get(1, TimeUnit.SECONDS));
+        assertNotNull(second.get(1, TimeUnit.SECONDS));
+    }
+
+    private void waitForRequests(final long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (server.getRequestCount(BreinMockServer.RECOMMENDATION_ENDPOINT) < count &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private BreinConfig createConfig() {
+        return new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setRecommendationCaching(true);
+    }
+
+    private BreinRecommendation createRequest(final String category) {
+        return new BreinRecommendation()
+                .setUser(new BreinUser("toni.tester@mail.net"))
+                .setCategory(category)
+                .setNumberOfRecommendations(2);
+    }
+
+    /**
+     * keeps the callbacks of the requests instead of sending them, i.e., no response is received
+     */
+    private static class SilentRestEngine extends HttpUrlRestEngine {
+        private final List<ICallback<BreinResult>> callbacks = new ArrayList<>();
+
+        @Override
+        public synchronized void invokeRequest(final BreinConfig config,
+                                               final BreinBase data,
+                                               final ICallback<BreinResult> callback) {
+            callbacks.add(callback);
+        }
+
+        synchronized List<ICallback<BreinResult>> getCallbacks() {
+            return new ArrayList<>(callbacks);
+        }
+    }
+}
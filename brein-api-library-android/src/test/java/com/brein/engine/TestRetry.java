@@ -0,0 +1,226 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinActivity;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.mock.BreinMockServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the retry policy and the circuit breaker
+ */
+public class TestRetry {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+    private Brein brein;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).setErrorStatus(503).start();
+    }
+
+    @After
+    public void tearDown() {
+        if (brein != null) {
+            brein.shutdown();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testBackoffIsExponentialWithJitter() {
+        final BreinRetryPolicy policy = new BreinRetryPolicy(5, 100, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.getDelay(1, -1) <= 100);
+            assertTrue(policy.getDelay(3, -1) <= 400);
+            assertTrue(policy.getDelay(10, -1) <= 1000);
+            assertTrue(policy.getDelay(100, -1) >= 0);
+        }
+
+        // the server's delay is honored, but limited
+        assertEquals(300, policy.getDelay(1, 300));
+        assertEquals(1000, policy.getDelay(1, 5000));
+
+        assertTrue(policy.canRetry(4));
+        assertFalse(policy.canRetry(5));
+        assertTrue(policy.isRetryable(503));
+        assertTrue(policy.isRetryable(429));
+        assertFalse(policy.isRetryable(400));
+    }
+
+    @Test
+    public void testRetryAfterIsParsed() {
+        assertEquals(120000, BreinRetryPolicy.parseRetryAfter("120", 0));
+        assertEquals(5000, BreinRetryPolicy.parseRetryAfter("Thu, 01 Jan 1970 00:00:10 GMT", 5000));
+        assertEquals(-1, BreinRetryPolicy.parseRetryAfter("soon", 0));
+        assertEquals(-1, BreinRetryPolicy.parseRetryAfter(null, 0));
+    }
+
+    @Test
+    public void testCircuitBreakerStates() throws InterruptedException {
+        final BreinCircuitBreaker<String> breaker = new BreinCircuitBreaker<>(2, 50, 2);
+
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertEquals(BreinCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        assertNull(breaker.buffer("a"));
+        assertNull(breaker.buffer("b"));
+        assertEquals("a", breaker.buffer("c"));
+
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertEquals(BreinCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        assertEquals(2, breaker.onSuccess().size());
+        assertEquals(BreinCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals("d", breaker.buffer("d"));
+    }
+
+    @Test
+    public void testCircuitBreakerProbeIsClaimedOnce() {
+        final BreinCircuitBreaker<String> breaker = new BreinCircuitBreaker<>(1, 50, 2);
+        assertFalse(breaker.claimProbe());
+
+        assertTrue(breaker.onFailure());
+        assertTrue(breaker.claimProbe());
+        assertFalse(breaker.claimProbe());
+
+        assertNull(breaker.buffer("a"));
+        assertEquals("a", breaker.pollProbe());
+        assertTrue(breaker.claimProbe());
+
+        breaker.onSuccess();
+        assertEquals(BreinCircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.claimProbe());
+    }
+
+    @Test
+    public void testFailedRequestIsRetried() throws InterruptedException {
+        server.failNext(2).setRetryAfter("0");
+        brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setRetryMaxAttempts(3)
+                .setRetryBaseDelay(10));
+
+        final List<BreinResult> results = sendActivities(1);
+
+        assertNotNull(results.get(0));
+        assertEquals(3, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+
+        final BreinEndpointMetrics metrics = brein.getEngine().getMetrics().getEndpoint("/activity");
+        assertEquals(2, metrics.getRetriedCount());
+        assertEquals(1, metrics.getSucceededCount());
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() throws InterruptedException {
+        server.setErrorStatus(400).failNext(1);
+        brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setRetryMaxAttempts(3)
+                .setRetryBaseDelay(10));
+
+        final List<BreinResult> results = sendActivities(1);
+
+        assertNull(results.get(0));
+        assertEquals(1, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    @Test
+    public void testOpenCircuitBreakerBuffersRequests() throws InterruptedException {
+        server.failNext(2);
+        brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setCircuitBreaking(true)
+                .setCircuitBreakerThreshold(2)
+                .setCircuitBreakerOpenTime(300));
+
+        // the failing requests open the breaker
+        assertNull(sendActivities(1).get(0));
+        assertNull(sendActivities(1).get(0));
+
+        final BreinCircuitBreaker<?> breaker = ((HttpUrlRestEngine) brein.getEngine().getRestEngine())
+                .getCircuitBreaker("/activity");
+        assertEquals(BreinCircuitBreaker.State.OPEN, breaker.getState());
+
+        // the requests are kept back until the probe succeeded
+        final List<BreinResult> results = sendActivities(3);
+        assertEquals(3, results.size());
+        for (final BreinResult result : results) {
+            assertNotNull(result);
+        }
+
+        assertEquals(BreinCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(5, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    @Test
+    public void testClientErrorOfProbeClosesCircuitBreaker() throws InterruptedException {
+        server.failNext(2);
+        brein = Breinify.setConfig(new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setCircuitBreaking(true)
+                .setCircuitBreakerThreshold(2)
+                .setCircuitBreakerOpenTime(300));
+
+        assertNull(sendActivities(1).get(0));
+        assertNull(sendActivities(1).get(0));
+
+        final BreinCircuitBreaker<?> breaker = ((HttpUrlRestEngine) brein.getEngine().getRestEngine())
+                .getCircuitBreaker("/activity");
+        assertEquals(BreinCircuitBreaker.State.OPEN, breaker.getState());
+
+        // the endpoint answers the probe, even if it is not successful
+        server.setErrorStatus(400).failNext(1);
+        assertNull(sendActivities(1).get(0));
+        assertEquals(BreinCircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertNotNull(sendActivities(1).get(0));
+        assertEquals(4, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+    }
+
+    private List<BreinResult> sendActivities(final int count) throws InterruptedException {
+        final List<BreinResult> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            brein.activity(new BreinActivity()
+                    .setUser(new BreinUser("toni.tester@mail.net"))
+                    .setActivityType("login"), new ICallback<BreinResult>() {
+                @Override
+                public void callback(final BreinResult data) {
+                    results.add(data);
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return results;
+    }
+}
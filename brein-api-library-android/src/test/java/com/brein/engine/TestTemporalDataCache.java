@@ -0,0 +1,246 @@
+package com.brein.engine;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinBase;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinIpInfo;
+import com.brein.domain.BreinResult;
+import com.brein.mock.BreinMockServer;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the caching and sharing of temporal data responses
+ */
+public class TestTemporalDataCache {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testCacheKey() {
+        final String key = new BreinTemporalData()
+                .setLatitude(37.7609)
+                .setLongitude(-122.4350)
+                .addShapeTypes("CITY", "NEIGHBORHOOD")
+                .getCacheKey(0.01);
+
+        // the same cell and shape-types, the local time is not relevant
+        assertEquals(key, new BreinTemporalData()
+                .setLocalDateTime()
+                .setLatitude(37.7651)
+                .setLongitude(-122.4301)
+                .addShapeTypes("NEIGHBORHOOD", "CITY")
+                .getCacheKey(0.01));
+
+        assertNotEquals(key, new BreinTemporalData()
+                .setLatitude(37.7709)
+                .setLongitude(-122.4350)
+                .addShapeTypes("CITY", "NEIGHBORHOOD")
+                .getCacheKey(0.01));
+        assertNotEquals(key, new BreinTemporalData()
+                .setLatitude(37.7609)
+                .setLongitude(-122.4350)
+                .getCacheKey(0.01));
+
+        assertEquals("ip:74.115.209.58", new BreinTemporalData()
+                .setLookUpIpAddress("74.115.209.58")
+                .getCacheKey(0.01));
+    }
+
+    @Test
+    public void testCacheKeyChangesWithNetwork() {
+        final String key = new BreinTemporalData().getCacheKey(0.01);
+        assertTrue(key, key.startsWith("ip:"));
+        assertEquals(key, new BreinTemporalData().getCacheKey(0.01));
+
+        // the ip-address resolved by the server may change with the network
+        BreinIpInfo.getInstance().invalidate();
+        assertNotEquals(key, new BreinTemporalData().getCacheKey(0.01));
+    }
+
+    @Test
+    public void testResponseIsCached() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinResult first = brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        final BreinResult second = brein.temporalData(createRequest(37.7611)).get(5, TimeUnit.SECONDS);
+
+        assertEquals("San Francisco", first.getNestedValue("location", "city"));
+        assertEquals("San Francisco", second.getNestedValue("location", "city"));
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+
+        final BreinTemporalDataCache cache = brein.getEngine().getTemporalDataCache();
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testCachedResponseIsCopied() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final BreinResult first = brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        first.getJson().getAsJsonObject("location").addProperty("city", "Oakland");
+
+        final BreinResult second = brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        assertEquals("San Francisco", second.getNestedValue("location", "city"));
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        server.setLatency(200);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(brein.temporalData(createRequest(37.7609)));
+        }
+        for (final BreinFuture<BreinResult> future : futures) {
+            assertEquals("San Francisco", future.get(5, TimeUnit.SECONDS).getNestedValue("location", "city"));
+        }
+
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(9, brein.getEngine().getTemporalDataCache().getCoalescedCount());
+    }
+
+    @Test
+    public void testResponseExpiresWithFirstSection() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig().setTemporalDataCacheTtl("weather", 50));
+
+        brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+
+        Thread.sleep(100);
+        brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        assertEquals(2, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResponseIsRemoved() throws Exception {
+        final Brein brein = Breinify.setConfig(createConfig().setTemporalDataCacheSize(2));
+
+        brein.temporalData(createRequest(37.76)).get(5, TimeUnit.SECONDS);
+        brein.temporalData(createRequest(38.76)).get(5, TimeUnit.SECONDS);
+        brein.temporalData(createRequest(37.76)).get(5, TimeUnit.SECONDS);
+        brein.temporalData(createRequest(39.76)).get(5, TimeUnit.SECONDS);
+        assertEquals(3, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(2, brein.getEngine().getTemporalDataCache().size());
+
+        // the second cell was used least recently
+        brein.temporalData(createRequest(37.76)).get(5, TimeUnit.SECONDS);
+        assertEquals(3, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        brein.temporalData(createRequest(38.76)).get(5, TimeUnit.SECONDS);
+        assertEquals(4, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+    }
+
+    @Test
+    public void testFailedResponseIsNotCached() throws Exception {
+        server.failNext(1);
+        final Brein brein = Breinify.setConfig(createConfig());
+
+        try {
+            brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+            fail("the request should fail");
+        } catch (final ExecutionException e) {
+            // expected
+        }
+
+        final BreinResult result = brein.temporalData(createRequest(37.7609)).get(5, TimeUnit.SECONDS);
+        assertEquals("San Francisco", result.getNestedValue("location", "city"));
+        assertEquals(2, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertTrue(brein.getEngine().getTemporalDataCache().size() == 1);
+    }
+
+    @Test
+    public void testRequestWithoutResponseIsSentAgain() throws Exception {
+        final SilentRestEngine restEngine = new SilentRestEngine();
+        final BreinTemporalDataCache cache = new BreinTemporalDataCache(restEngine);
+        final BreinConfig config = createConfig().setRetryMaxAttempts(1);
+        config.setConnectionTimeout(20);
+        config.setSocketTimeout(30);
+
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(new BreinFuture<BreinResult>());
+            cache.invoke(config, createRequest(37.7609), futures.get(i));
+        }
+        assertEquals(1, restEngine.getCallbacks().size());
+
+        // the request takes longer than the timeouts allow, thus it is not shared anymore
+        Thread.sleep(100);
+        futures.add(new BreinFuture<BreinResult>());
+        cache.invoke(config, createRequest(37.7609), futures.get(2));
+        assertEquals(2, restEngine.getCallbacks().size());
+
+        // the callbacks waiting for the first request are informed by the second one
+        restEngine.getCallbacks().get(1).callback(new BreinResult(new JsonObject()));
+        for (final BreinFuture<BreinResult> future : futures) {
+            assertNotNull(future.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, cache.getCoalescedCount());
+    }
+
+    private BreinConfig createConfig() {
+        return new BreinConfig(API_KEY, SECRET)
+                .setBaseUrl(server.getBaseUrl())
+                .setTemporalDataCaching(true);
+    }
+
+    private BreinTemporalData createRequest(final double latitude) {
+        return new BreinTemporalData()
+                .setLocalDateTime()
+                .setLatitude(latitude)
+                .setLongitude(-122.4350);
+    }
+
+    /**
+     * keeps the callbacks of the requests instead of sending them, i.e., no response is received
+     */
+    private static class SilentRestEngine extends HttpUrlRestEngine {
+        private final List<ICallback<BreinResult>> callbacks = new ArrayList<>();
+
+        @Override
+        public synchronized void invokeRequest(final BreinConfig config,
+                                               final BreinBase data,
+                                               final ICallback<BreinResult> callback) {
+            callbacks.add(callback);
+        }
+
+        synchronized List<ICallback<BreinResult>> getCallbacks() {
+            return new ArrayList<>(callbacks);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.brein.mock;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests with a constant rate and measures the latency until the callback is invoked. The latency is
+ * measured from the time the request was scheduled to be sent, so a client which falls behind the target rate is
+ * not hiding its delays (coordinated omission).
+ */
+public class BreinLoadGenerator {
+
+    /**
+     * a request sent by the generator
+     */
+    public interface IRequest {
+
+        /**
+         * sends the request
+         *
+         * @param index    int the index of the request
+         * @param callback ICallback to be invoked with the result, {@code null} means the request failed
+         */
+        void send(final int index, final ICallback<BreinResult> callback);
+    }
+
+    /**
+     * the requests sent per second
+     */
+    private final int targetRps;
+
+    /**
+     * time in ms to wait for outstanding callbacks after the last request was sent
+     */
+    private final long completionTimeout;
+
+    /**
+     * creates a generator for the rate
+     *
+     * @param targetRps         int the requests sent per second
+     * @param completionTimeout long time in ms to wait for the outstanding requests
+     */
+    public BreinLoadGenerator(final int targetRps, final long completionTimeout) {
+        this.targetRps = Math.max(1, targetRps);
+        this.completionTimeout = completionTimeout;
+    }
+
+    /**
+     * creates the request sending the activity through {@link Breinify#activity(BreinActivity, ICallback)}
+     *
+     * @return IRequest sending an activity
+     */
+    public static IRequest activityRequest() {
+        final BreinUser user = new BreinUser("toni.tester@mail.net")
+                .setFirstName("Toni")
+                .setLastName("Tester");
+
+        return new IRequest() {
+            @Override
+            public void send(final int index, final ICallback<BreinResult> callback) {
+                final BreinActivity activity = new BreinActivity()
+                        .setUser(user.snapshot())
+                        .setActivityType("checkOut")
+                        .setCategory("home")
+                        .setTag("productIds", new String[]{"product-" + index});
+
+                Breinify.activity(activity, callback);
+            }
+        };
+    }
+
+    /**
+     * sends the requests with the target rate and waits for the outstanding callbacks
+     *
+     * @param count   int the number of requests to send
+     * @param request IRequest the request to send
+     *
+     * @return Report the measured latencies and errors
+     */
+    public Report run(final int count, final IRequest request) {
+        final long[] latencies = new long[count];
+        Arrays.fill(latencies, -1L);
+
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(count);
+        final AtomicLong lastAnswer = new AtomicLong();
+
+        final long interval = TimeUnit.SECONDS.toNanos(1) / targetRps;
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final long scheduled = start + i * interval;
+            final long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            final int index = i;
+            final ICallback<BreinResult> callback = new ICallback<BreinResult>() {
+                @Override
+                public void callback(final BreinResult result) {
+                    final long now = System.nanoTime();
+                    latencies[index] = now - scheduled;
+                    updateMax(lastAnswer, now);
+                    if (result == null) {
+                        failed.incrementAndGet();
+                    } else {
+                        succeeded.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            };
+
+            try {
+                request.send(i, callback);
+            } catch (final RuntimeException e) {
+                callback.callback(null);
+            }
+        }
+
+        try {
+            latch.await(completionTimeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the throughput is measured until the last answer, not including the time waited for timed out requests
+        final long end = lastAnswer.get();
+        final long elapsed = end == 0L ? 0L : end - start;
+
+        return new Report(count, succeeded.get(), failed.get(), elapsed, latencies);
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Runs the generator against an in-process mock server, i.e., measures the overhead of the library itself.
+     * Usage: {@code BreinLoadGenerator [rps] [count] [latency in ms]}.
+     *
+     * @param args String[] the optional rate, number of requests and latency of the server
+     *
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(final String[] args) throws Exception {
+        final int rps = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int count = args.length > 1 ? Integer.parseInt(args[1]) : 10 * rps;
+        final long latency = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+
+        final String secret = "lmcoj4k27hbbszzyiqamhg==";
+        final BreinMockServer server = new BreinMockServer(secret).setLatency(latency).start();
+        try {
+            Breinify.setConfig(new BreinConfig("TEST-API-KEY", secret).setBaseUrl(server.getBaseUrl()));
+
+            final Report report = new BreinLoadGenerator(rps, 30000).run(count, activityRequest());
+            System.out.println(report);
+        } finally {
+            Breinify.shutdown();
+            server.stop();
+        }
+    }
+
+    /**
+     * the result of a run
+     */
+    public static class Report {
+        private final int sent;
+        private final int succeeded;
+        private final int failed;
+        private final long elapsed;
+        private final long[] latencies;
+
+        private Report(final int sent,
+                       final int succeeded,
+                       final int failed,
+                       final long elapsed,
+                       final long[] latencies) {
+            this.sent = sent;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.elapsed = elapsed;
+
+            // only the answered requests have a latency, late callbacks may still write into the array
+            final long[] answeredLatencies = new long[latencies.length];
+            int answered = 0;
+            for (final long latency : latencies) {
+                if (latency >= 0) {
+                    answeredLatencies[answered++] = latency;
+                }
+            }
+            this.latencies = Arrays.copyOf(answeredLatencies, answered);
+            Arrays.sort(this.latencies);
+        }
+
+        public int getSent() {
+            return sent;
+        }
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * retrieves the number of requests which were not answered within the completion timeout
+         *
+         * @return int number of timed out requests
+         */
+        public int getTimedOut() {
+            return sent - succeeded - failed;
+        }
+
+        /**
+         * retrieves the answered requests per second
+         *
+         * @return double the throughput
+         */
+        public double getThroughput() {
+            return elapsed == 0 ? 0.0 : (succeeded + failed) * 1e9 / elapsed;
+        }
+
+        /**
+         * retrieves the latency of the percentile
+         *
+         * @param percentile double the percentile, e.g., 0.99
+         *
+         * @return double the latency in ms, or -1 if no request was answered
+         */
+        public double getLatency(final double percentile) {
+            if (latencies.length == 0) {
+                return -1.0;
+            }
+
+            final int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "sent: %d, succeeded: %d, failed: %d, timed out: %d, " +
+                            "throughput: %.1f req/s, p50: %.2f ms, p99: %.2f ms",
+                    sent, succeeded, failed, getTimedOut(), getThroughput(), getLatency(0.5), getLatency(0.99));
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.brein.mock;
+
+import com.brein.api.BreinBase;
+import com.brein.domain.BreinUser;
+import com.brein.util.BreinMapUtil;
+import com.brein.util.BreinUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * In-process stand-in of the Breinify API, used to test the library (e.g., its throughput) without network. The
+ * server answers the activity, bulk activity, lookup, temporal data and recommendation endpoints with static
+ * responses. The latency and the rate of failing requests can be configured. If a secret is set, the signatures of
+ * the requests are verified and requests with an invalid signature are answered with 403.
+ */
+public class BreinMockServer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * self-signed certificate (and key) of 127.0.0.1 and localhost used if the server is started with HTTPS
+     */
+    private static final String KEYSTORE = "breinify-mock.p12";
+    private static final char[] KEYSTORE_PASSWORD = "breinify".toCharArray();
+
+    public static final String ACTIVITY_ENDPOINT = "/activity";
+    public static final String ACTIVITY_BULK_ENDPOINT = "/activity/bulk";
+    public static final String LOOKUP_ENDPOINT = "/lookup";
+    public static final String TEMPORALDATA_ENDPOINT = "/temporaldata";
+    public static final String RECOMMENDATION_ENDPOINT = "/recommendation";
+    public static final String IP_INFO_ENDPOINT = "/json";
+
+    private static final String ACTIVITY_RESPONSE = "{}";
+    private static final String LOOKUP_RESPONSE = "{\"email\":{\"result\":\"toni.tester@mail.net\"}}";
+    private static final String TEMPORALDATA_RESPONSE = "{" +
+            "\"time\":{\"timezone\":\"America/Los_Angeles\",\"localDay\":\"Monday\"}," +
+            "\"weather\":{\"description\":\"clear sky\",\"temperatureC\":18.4}," +
+            "\"location\":{\"city\":\"San Francisco\",\"state\":\"CA\",\"country\":\"US\"," +
+            "\"lat\":37.7749,\"lon\":-122.4194}}";
+    private static final String IP_INFO_RESPONSE = "{\"status\":\"success\",\"query\":\"74.115.209.58\"," +
+            "\"timezone\":\"America/Los_Angeles\"}";
+    private static final String RECOMMENDATION_RESPONSE = "{\"statusCode\":200,\"message\":\"success\"," +
+            "\"result\":[{\"dataIdExternal\":\"product-1\",\"weight\":0.9}," +
+            "{\"dataIdExternal\":\"product-2\",\"weight\":0.7}]}";
+
+    private final Gson gson = new Gson();
+    private final Random random = new Random(42);
+
+    /**
+     * number of received requests per endpoint
+     */
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * the secret used to verify the signatures, {@code null} if not verified
+     */
+    private final String secret;
+
+    private volatile long latency = 0;
+    private volatile double errorRate = 0.0;
+    private volatile int errorStatus = 500;
+    private volatile String retryAfter = null;
+
+    /**
+     * number of the next requests which fail in any case
+     */
+    private final AtomicLong pendingFailures = new AtomicLong();
+
+    private boolean https = false;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * creates a server, which does not verify any signatures
+     */
+    public BreinMockServer() {
+        this(null);
+    }
+
+    /**
+     * creates a server, which verifies the signatures of the requests
+     *
+     * @param secret String the secret used to sign the requests, {@code null} to accept any request
+     */
+    public BreinMockServer(final String secret) {
+        this.secret = secret;
+    }
+
+    /**
+     * starts the server on a free port of the loopback interface
+     *
+     * @return {@code this}
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public BreinMockServer start() throws IOException {
+
+        // headers and body are written separately, without this each response waits for the delayed ack (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        if (https) {
+            final HttpsServer httpsServer = HttpsServer.create(address, 0);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(createSslContext()));
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(address, 0);
+        }
+
+        for (final String endpoint : new String[]{ACTIVITY_ENDPOINT, ACTIVITY_BULK_ENDPOINT, LOOKUP_ENDPOINT,
+                TEMPORALDATA_ENDPOINT, RECOMMENDATION_ENDPOINT, IP_INFO_ENDPOINT}) {
+            requestCounts.put(endpoint, new AtomicLong());
+            server.createContext(endpoint, new EndpointHandler(endpoint));
+        }
+
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "breinify-mock-server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+
+        return this;
+    }
+
+    /**
+     * stops the server
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * retrieves the url to be used as base url of the configuration
+     *
+     * @return String the base url, e.g., http://127.0.0.1:4711
+     */
+    public String getBaseUrl() {
+        return (https ? "https://" : "http://") +
+                server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Enables HTTPS, must be called before the server is started. The server
+     * uses a self-signed certificate, clients have to trust the context
+     * returned by {@link #createSslContext()}.
+     *
+     * @param https boolean true to use HTTPS
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer setHttps(final boolean https) {
+        this.https = https;
+        return this;
+    }
+
+    /**
+     * creates a context using (and trusting) the certificate of the server
+     *
+     * @return SSLContext the context
+     *
+     * @throws IOException if the certificate cannot be loaded
+     */
+    public static SSLContext createSslContext() throws IOException {
+        final InputStream in = BreinMockServer.class.getResourceAsStream(KEYSTORE);
+        if (in == null) {
+            throw new IOException("unable to find the keystore " + KEYSTORE);
+        }
+
+        try {
+            final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, KEYSTORE_PASSWORD);
+
+            final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(
+                    KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, KEYSTORE_PASSWORD);
+            final TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            trustManagers.init(keyStore);
+
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+            return context;
+        } catch (final GeneralSecurityException e) {
+            throw new IOException("unable to load the keystore " + KEYSTORE, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * sets the time in ms each request is delayed before it is answered
+     *
+     * @param latency long the delay in ms
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer setLatency(final long latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * sets the rate of requests which are answered with the error status
+     *
+     * @param errorRate double the rate between 0.0 (no errors) and 1.0 (all requests fail)
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * sets the status used to answer failing requests
+     *
+     * @param errorStatus int the http status, default is 500
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer setErrorStatus(final int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * lets the next requests fail with the error status, independent of the error rate
+     *
+     * @param count int number of requests to fail
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer failNext(final int count) {
+        this.pendingFailures.set(count);
+        return this;
+    }
+
+    /**
+     * sets the value of the Retry-After header sent with failing requests
+     *
+     * @param retryAfter String the value of the header, {@code null} to not send the header
+     *
+     * @return {@code this}
+     */
+    public BreinMockServer setRetryAfter(final String retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * retrieves the number of requests received by the endpoint
+     *
+     * @param endpoint String the endpoint, e.g., {@link #ACTIVITY_ENDPOINT}
+     *
+     * @return long number of received requests
+     */
+    public long getRequestCount(final String endpoint) {
+        final AtomicLong count = requestCounts.get(endpoint);
+        return count == null ? 0L : count.get();
+    }
+
+    /**
+     * retrieves the number of requests rejected because of an invalid signature or body
+     *
+     * @return long number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * retrieves the number of requests answered with the error status
+     *
+     * @return long number of failed requests
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Verifies the signature of the request the same way the backend does. Lookups are not signed by the library and
+     * the ip information is not requested from the backend, so only the other endpoints are verified.
+     *
+     * @param endpoint String the endpoint the request was sent to
+     * @param body     String the body of the request
+     *
+     * @return boolean {@code true} if the request is valid, otherwise {@code false}
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean verify(final String endpoint, final String body) {
+        if (secret == null || LOOKUP_ENDPOINT.equals(endpoint) || IP_INFO_ENDPOINT.equals(endpoint)) {
+            return true;
+        } else if (ACTIVITY_BULK_ENDPOINT.equals(endpoint)) {
+            final List<Map<String, Object>> activities = gson.fromJson(body, List.class);
+            if (activities == null || activities.isEmpty()) {
+                return false;
+            }
+
+            for (final Map<String, Object> activity : activities) {
+                if (!verifySignature(ACTIVITY_ENDPOINT, activity)) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            return verifySignature(endpoint, gson.fromJson(body, Map.class));
+        }
+    }
+
+    private boolean verifySignature(final String endpoint, final Map<String, Object> request) {
+        if (request == null) {
+            return false;
+        }
+
+        final String signature = BreinMapUtil.getNestedValue(request, BreinBase.SIGNATURE_FIELD);
+        final Number timestamp = BreinMapUtil.getNestedValue(request, BreinBase.UNIX_TIMESTAMP_FIELD);
+        if (signature == null || timestamp == null) {
+            return false;
+        }
+        final long unixTimestamp = timestamp.longValue();
+
+        final String message;
+        if (ACTIVITY_ENDPOINT.equals(endpoint)) {
+            final String type = BreinMapUtil.getNestedValue(request, "activity", "type");
+            message = (type == null ? "" : type) + unixTimestamp + 1;
+        } else if (TEMPORALDATA_ENDPOINT.equals(endpoint)) {
+            final String localDateTime = BreinMapUtil.getNestedValue(request,
+                    BreinUser.USER_FIELD, BreinUser.ADDITIONAL_FIELD, "localDateTime");
+            final String timezone = BreinMapUtil.getNestedValue(request,
+                    BreinUser.USER_FIELD, BreinUser.ADDITIONAL_FIELD, "timezone");
+            message = unixTimestamp + "-" + (localDateTime == null ? "" : localDateTime) + "-" +
+                    (timezone == null ? "" : timezone);
+        } else {
+            message = String.valueOf(unixTimestamp);
+        }
+
+        return signature.equals(BreinUtil.generateSignature(message, secret));
+    }
+
+    private boolean takePendingFailure() {
+        long pending = pendingFailures.get();
+        while (pending > 0) {
+            if (pendingFailures.compareAndSet(pending, pending - 1)) {
+                return true;
+            }
+            pending = pendingFailures.get();
+        }
+
+        return false;
+    }
+
+    private String getResponse(final String endpoint) {
+        if (LOOKUP_ENDPOINT.equals(endpoint)) {
+            return LOOKUP_RESPONSE;
+        } else if (TEMPORALDATA_ENDPOINT.equals(endpoint)) {
+            return TEMPORALDATA_RESPONSE;
+        } else if (RECOMMENDATION_ENDPOINT.equals(endpoint)) {
+            return RECOMMENDATION_RESPONSE;
+        } else if (IP_INFO_ENDPOINT.equals(endpoint)) {
+            return IP_INFO_RESPONSE;
+        } else {
+            return ACTIVITY_RESPONSE;
+        }
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return new String(out.toByteArray(), UTF8);
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        final OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private class EndpointHandler implements HttpHandler {
+        private final String endpoint;
+
+        private EndpointHandler(final String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                // the context matches any path with the prefix, e.g., /activity/bulk for /activity
+                if (!endpoint.equals(exchange.getRequestURI().getPath())) {
+                    send(exchange, 404, "{\"error\":\"unknown endpoint\"}");
+                    return;
+                }
+
+                final InputStream in = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                        ? new GZIPInputStream(exchange.getRequestBody())
+                        : exchange.getRequestBody();
+                final String body = read(in);
+                requestCounts.get(endpoint).incrementAndGet();
+
+                if (latency > 0) {
+                    try {
+                        Thread.sleep(latency);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                if (takePendingFailure() || (errorRate > 0.0 && random.nextDouble() < errorRate)) {
+                    failedCount.incrementAndGet();
+                    if (retryAfter != null) {
+                        exchange.getResponseHeaders().set("Retry-After", retryAfter);
+                    }
+                    send(exchange, errorStatus, "{\"error\":\"injected error\"}");
+                    return;
+                }
+
+                boolean valid;
+                try {
+                    valid = verify(endpoint, body);
+                } catch (final JsonParseException e) {
+                    valid = false;
+                }
+
+                if (valid) {
+                    send(exchange, 200, getResponse(endpoint));
+                } else {
+                    rejectedCount.incrementAndGet();
+                    send(exchange, 403, "{\"error\":\"invalid signature\"}");
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
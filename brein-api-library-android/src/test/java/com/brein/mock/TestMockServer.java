@@ -0,0 +1,109 @@
+package com.brein.mock;
+
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.api.ICallback;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the library against the in-process mock server, i.e., without network
+ */
+public class TestMockServer {
+
+    private static final String API_KEY = "TEST-API-KEY";
+    private static final String SECRET = "lmcoj4k27hbbszzyiqamhg==";
+
+    private BreinMockServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BreinMockServer(SECRET).start();
+    }
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testActivitiesAreVerifiedAndAnswered() {
+        Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+
+        final BreinLoadGenerator.Report report = new BreinLoadGenerator(500, 10000)
+                .run(200, BreinLoadGenerator.activityRequest());
+        System.out.println(report);
+
+        assertEquals(200, report.getSucceeded());
+        assertEquals(0, report.getFailed());
+        assertEquals(200, server.getRequestCount(BreinMockServer.ACTIVITY_ENDPOINT));
+        assertEquals(0, server.getRejectedCount());
+        assertTrue(report.getLatency(0.99) >= report.getLatency(0.5));
+    }
+
+    @Test
+    public void testInvalidSignatureIsRejected() throws InterruptedException {
+        Breinify.setConfig(new BreinConfig(API_KEY, "h5HRhGRwWlRs9pscyHhQWN==").setBaseUrl(server.getBaseUrl()));
+
+        final BreinResult result = requestTemporalData();
+
+        assertNull(result);
+        assertEquals(1, server.getRequestCount(BreinMockServer.TEMPORALDATA_ENDPOINT));
+        assertEquals(1, server.getRejectedCount());
+    }
+
+    @Test
+    public void testTemporalDataIsAnswered() throws InterruptedException {
+        Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+
+        final BreinResult result = requestTemporalData();
+
+        assertNotNull(result);
+        assertEquals("San Francisco", result.getNestedValue("location", "city"));
+    }
+
+    @Test
+    public void testInjectedErrorsAreReported() {
+        server.setErrorRate(1.0).setLatency(5);
+        Breinify.setConfig(new BreinConfig(API_KEY, SECRET).setBaseUrl(server.getBaseUrl()));
+
+        final BreinLoadGenerator.Report report = new BreinLoadGenerator(200, 10000)
+                .run(20, BreinLoadGenerator.activityRequest());
+
+        assertEquals(0, report.getSucceeded());
+        assertEquals(20, report.getFailed());
+        assertEquals(20, server.getFailedCount());
+    }
+
+    private BreinResult requestTemporalData() throws InterruptedException {
+        final AtomicReference<BreinResult> result = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Breinify.temporalData(new BreinTemporalData()
+                .setLocalDateTime()
+                .setLookUpIpAddress("74.115.209.58"), new ICallback<BreinResult>() {
+            @Override
+            public void callback(final BreinResult data) {
+                result.set(data);
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return result.get();
+    }
+}
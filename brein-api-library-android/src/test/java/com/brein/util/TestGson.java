@@ -0,0 +1,165 @@
+package com.brein.util;
+
+import com.brein.api.BreinActivity;
+import com.brein.api.BreinException;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinResult;
+import com.brein.domain.BreinUser;
+import com.brein.domain.results.BreinTemporalDataResult;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the shared Gson instance and its type adapters
+ */
+public class TestGson {
+
+    @After
+    public void tearDown() {
+        Breinify.shutdown();
+    }
+
+    @Test
+    public void testWrittenJsonEqualsGson() {
+        final Gson gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE)
+                .disableHtmlEscaping()
+                .create();
+
+        final JsonObject location = new JsonObject();
+        location.addProperty("latitude", 37.7609);
+        location.addProperty("accuracy", 20);
+
+        final List<Object> list = new ArrayList<>();
+        list.add("a=b");
+        list.add(1.5);
+        list.add(null);
+        list.add(Arrays.asList(1, 2L, 3.0f));
+
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("empty", null);
+        nested.put("location", location);
+        nested.put("type", BreinTestType.VALUE);
+        nested.put("pojo", new BreinTestPojo());
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("text", "<tag> & \"quoted\"\n");
+        map.put("number", 42);
+        map.put("double", 0.1);
+        map.put("flag", true);
+        map.put("list", list);
+        map.put("nested", nested);
+
+        assertEquals(gson.toJson(map), BreinGson.toJson(map));
+    }
+
+    @Test
+    public void testOutputIsCompact() {
+        Breinify.setConfig(new BreinConfig("TEST-API-KEY", "lmcoj4k27hbbszzyiqamhg=="));
+        final String json = new BreinActivity()
+                .setUser(new BreinUser("toni.tester@mail.net"))
+                .setActivityType("login")
+                .prepareRequestData(Breinify.getConfig());
+
+        // the signature is padded with '=', which is not escaped
+        assertTrue(json.contains("\"signature\":\""));
+        assertFalse(json.contains("\\u003d"));
+        assertFalse(json.contains("\n"));
+    }
+
+    @Test
+    public void testRequestAdapters() {
+        Breinify.setConfig(new BreinConfig("TEST-API-KEY"));
+
+        final BreinUser user = new BreinUser("toni.tester@mail.net").setFirstName("Toni");
+        final BreinActivity activity = new BreinActivity()
+                .setUser(user)
+                .setActivityType("login")
+                .setTag("productIds", Arrays.asList("product-1", "product-2"));
+        activity.setUnixTimestamp(1508174142L);
+
+        final Map<?, ?> written = BreinGson.GSON.fromJson(BreinGson.GSON.toJson(activity), Map.class);
+        final Map<?, ?> prepared = BreinGson.GSON.fromJson(activity.prepareRequestData(Breinify.getConfig()),
+                Map.class);
+        assertEquals(prepared, written);
+
+        final Map<?, ?> writtenUser = BreinGson.GSON.fromJson(BreinGson.GSON.toJson(user), Map.class);
+        assertEquals("toni.tester@mail.net", writtenUser.get("email"));
+        assertEquals("Toni", writtenUser.get("firstName"));
+
+        try {
+            BreinGson.GSON.fromJson("{}", BreinActivity.class);
+            fail("requests cannot be read");
+        } catch (final BreinException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testResultAdapters() {
+        final String json = "{\"location\":{\"city\":\"San Francisco\"}}";
+
+        final BreinTemporalDataResult result = BreinGson.GSON.fromJson(json, BreinTemporalDataResult.class);
+        assertEquals("San Francisco", result.getLocation().getCity());
+        assertEquals(json, BreinGson.GSON.toJson(result));
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("message", "success");
+        assertEquals("{\"message\":\"success\"}", BreinGson.GSON.toJson(new BreinResult(map)));
+    }
+
+    @Test
+    public void testOverriddenGsonIsUsed() throws IOException {
+        Breinify.setConfig(new BreinConfig("TEST-API-KEY"));
+        final Gson pretty = new GsonBuilder().setPrettyPrinting().create();
+        final BreinActivity activity = new BreinActivity() {
+            @Override
+            public Gson getGson() {
+                return pretty;
+            }
+        }.setUser(new BreinUser("toni.tester@mail.net")).setActivityType("login");
+
+        final Map<String, Object> requestData = activity.prepareRequestMap(Breinify.getConfig());
+        final StringWriter writer = new StringWriter();
+        activity.writeRequestData(requestData, writer);
+
+        assertTrue(activity.prepareRequestData(Breinify.getConfig()).contains("\n"));
+        assertEquals(pretty.toJson(requestData), writer.toString());
+    }
+
+    @Test
+    public void testInstanceIsShared() {
+        assertSame(BreinGson.GSON, new BreinActivity().getGson());
+    }
+
+    private enum BreinTestType {
+        VALUE
+    }
+
+    @SuppressWarnings("unused")
+    private static class BreinTestPojo {
+        private final String name = "pojo";
+        private final int size = 3;
+    }
+}
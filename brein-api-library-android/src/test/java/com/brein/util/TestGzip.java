@@ -0,0 +1,115 @@
+package com.brein.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the compression of request bodies
+ */
+public class TestGzip {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testCompressedDataCanBeDecompressed() throws IOException {
+        final String body = createBatch(1);
+        assertEquals(body, decompress(BreinGzip.compress(body.getBytes(UTF8))));
+
+        // an empty body is valid gzip as well
+        assertEquals("", decompress(BreinGzip.compress(new byte[0])));
+    }
+
+    @Test
+    public void testDeflaterIsReusedOnTheSameThread() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            final String body = createBatch(i % 10 + 1) + i;
+            assertEquals(body, decompress(BreinGzip.compress(body.getBytes(UTF8))));
+        }
+    }
+
+    @Test
+    public void testStreamedDataCanBeDecompressed() throws IOException {
+        final String body = createBatch(50);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Writer writer = new OutputStreamWriter(BreinGzip.wrap(out), UTF8);
+        for (int i = 0; i < body.length(); i += 100) {
+            writer.write(body, i, Math.min(100, body.length() - i));
+        }
+        writer.close();
+
+        assertEquals(body, decompress(out.toByteArray()));
+    }
+
+    @Test
+    public void testPoolIsBoundedAndCleared() throws IOException {
+        final List<OutputStream> streams = new ArrayList<>();
+        for (int i = 0; i < BreinGzip.POOL_SIZE + 3; i++) {
+            streams.add(BreinGzip.wrap(new ByteArrayOutputStream()));
+        }
+        for (final OutputStream stream : streams) {
+            stream.write(1);
+            stream.close();
+        }
+
+        // the instances exceeding the pool are ended
+        assertEquals(BreinGzip.POOL_SIZE, BreinGzip.getPooledCount());
+
+        BreinGzip.clear();
+        assertEquals(0, BreinGzip.getPooledCount());
+
+        final String body = createBatch(2);
+        assertEquals(body, decompress(BreinGzip.compress(body.getBytes(UTF8))));
+        assertEquals(1, BreinGzip.getPooledCount());
+    }
+
+    @Test
+    public void testBatchesAreCompressed() {
+        final byte[] body = createBatch(100).getBytes(UTF8);
+        final byte[] compressed = BreinGzip.compress(body);
+
+        assertTrue((double) body.length / compressed.length > 5.0);
+    }
+
+    private static String createBatch(final int size) {
+        final StringBuilder sb = new StringBuilder("{\"activities\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"user\":{\"email\":\"toni.tester@mail.net\",\"sessionId\":\"966542c6-2399-11e7\"},")
+                    .append("\"activity\":{\"type\":\"checkOut\",\"category\":\"apparel\",")
+                    .append("\"description\":\"item ").append(i).append("\"},")
+                    .append("\"apiKey\":\"TEST-API-KEY\",\"unixTimestamp\":").append(1492000000 + i).append('}');
+        }
+
+        return sb.append("]}").toString();
+    }
+
+    private static String decompress(final byte[] data) throws IOException {
+        final InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+
+        return new String(out.toByteArray(), UTF8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.brein.util;
+
+import com.brein.api.BreinException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the reading of response bodies
+ */
+public class TestResponseReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testMultiByteCharactersAreDecoded() throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            expected.append("M\u00fcnchen \u20ac ");
+        }
+
+        // the stream returns one byte per read, i.e., characters are split between reads
+        final InputStream in = new SlowInputStream(expected.toString().getBytes(UTF8));
+        assertEquals(expected.toString(), BreinResponseReader.readString(in, Long.MAX_VALUE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJsonIsParsedFromStream() throws IOException {
+        final String json = "{\"city\":\"K\u00f6ln\",\"coordinates\":[[6.9,50.9],[7.0,51.0]]}";
+
+        final Map<String, Object> result = BreinResponseReader.readJson(
+                new ByteArrayInputStream(json.getBytes(UTF8)), 1024, Map.class);
+        assertEquals("K\u00f6ln", result.get("city"));
+        assertEquals(2, ((List<Object>) result.get("coordinates")).size());
+    }
+
+    @Test
+    public void testMaximumSizeIsEnforced() throws IOException {
+        final byte[] body = "{\"value\":\"0123456789012345678901234567890123456789\"}".getBytes(UTF8);
+
+        try {
+            BreinResponseReader.readString(new ByteArrayInputStream(body), 10);
+            fail("expected the response to be rejected");
+        } catch (final BreinException e) {
+            assertEquals(BreinException.RESPONSE_TOO_LARGE, e.getMessage());
+        }
+
+        try {
+            BreinResponseReader.readJson(new ByteArrayInputStream(body), 10, Map.class);
+            fail("expected the response to be rejected");
+        } catch (final BreinException e) {
+            assertEquals(BreinException.RESPONSE_TOO_LARGE, e.getMessage());
+        }
+    }
+
+    /**
+     * returns at most one byte per read
+     */
+    private static class SlowInputStream extends ByteArrayInputStream {
+
+        private SlowInputStream(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(final byte[] buffer, final int offset, final int length) {
+            return super.read(buffer, offset, Math.min(1, length));
+        }
+    }
+}
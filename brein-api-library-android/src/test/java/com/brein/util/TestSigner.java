@@ -0,0 +1,85 @@
+package com.brein.util;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the signing of requests
+ */
+public class TestSigner {
+
+    private static final int THREADS = 16;
+    private static final int SIGNATURES_PER_THREAD = 2000;
+
+    private static final String[] SECRETS = {
+            "lmcoj4k27hbbszzyiqamhg==",
+            "p3ba6o1ydrq5vxj4cf7bkq==",
+            "9kq0w2cz5nxp1r8tyg3hmd=="
+    };
+
+    @Test
+    public void testKnownSignature() {
+        assertEquals("h5HRhGRwWlRs9pscyHhQWNc7pxnDOwDZBIAnnhEQbrU=",
+                BreinUtil.generateSignature("apiKey", "secretkey"));
+    }
+
+    @Test
+    public void testConcurrentSignaturesAreCorrect() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+
+                        int correct = 0;
+                        for (int i = 0; i < SIGNATURES_PER_THREAD; i++) {
+
+                            // switch secrets, so that the keys of the threads are re-initialized as well
+                            final String secret = SECRETS[(thread + i) % SECRETS.length];
+                            final String message = "login" + (1450000000L + i) + thread;
+
+                            if (expectedSignature(message, secret).equals(BreinUtil.generateSignature(message, secret))) {
+                                correct++;
+                            }
+                        }
+                        return correct;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (final Future<Integer> result : results) {
+                assertEquals(SIGNATURES_PER_THREAD, result.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String expectedSignature(final String message, final String secret) throws Exception {
+        final Charset utf8 = Charset.forName("UTF-8");
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(utf8), "HmacSHA256"));
+
+        return Base64.encodeBytes(mac.doFinal(message.getBytes(utf8)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.brein.benchmark;
+
+import com.brein.api.BreinActivity;
+import com.brein.domain.BreinConfig;
+import com.brein.domain.BreinUser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the payloads used by the benchmarks, the sizes are chosen to be similar to real requests and responses.
+ */
+public class BenchmarkData {
+
+    public static final String API_KEY = "938D-3120-64DD-413F-BB55-6573-90CE-473A";
+    public static final String SECRET = "utakxp7sm6weo5gvk7cytw==";
+
+    private BenchmarkData() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    public static BreinConfig createConfig() {
+        return new BreinConfig(API_KEY, SECRET);
+    }
+
+    /**
+     * creates an activity with the specified number of tags and additional user values
+     *
+     * @param size int the number of tags and additional values
+     * @return BreinActivity the created activity
+     */
+    public static BreinActivity createActivity(final int size) {
+        final BreinUser user = new BreinUser("toni.tester@mail.net")
+                .setFirstName("Toni")
+                .setLastName("Tester")
+                .setSessionId("966542c6-2399-11e7-93ae-92361f002671")
+                .setUserId("41b2f48c156a409ab465317fa0b4e0e8")
+                .setTimezone("America/Los_Angeles")
+                .setLocalDateTime("Mon Oct 16 2017 10:15:42 GMT-0700 (PDT)")
+                .setReferrer("https://www.breinify.com/products?category=home&page=3");
+
+        final BreinActivity activity = new BreinActivity()
+                .setUser(user)
+                .setActivityType("checkOut")
+                .setCategory("home")
+                .setDescription("checked out the cart with " + size + " products");
+
+        final List<Object> productIds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            productIds.add("product-" + i);
+            activity.setTag("tag" + i, i % 2 == 0 ? "value-" + i : Double.valueOf(i * 1.5));
+
+            final Map<String, Object> campaign = new HashMap<>();
+            campaign.put("id", "campaign-" + i);
+            campaign.put("position", i);
+            user.setAdditional("campaign" + i, campaign);
+        }
+        activity.setTag("productIds", productIds);
+
+        return activity;
+    }
+
+    /**
+     * creates a temporal data response containing a shape with the specified number of coordinates
+     *
+     * @param coordinates int the number of coordinates of the shape
+     * @return String the JSON of the response
+     */
+    public static String createTemporalDataResponse(final int coordinates) {
+        final StringBuilder sb = new StringBuilder(64 * coordinates + 1024);
+        sb.append("{\"time\":{\"epochFormatted\":\"Mon Oct 16 2017 10:15:42 GMT-0700 (PDT)\",")
+                .append("\"timezone\":\"America/Los_Angeles\",\"localDay\":\"Monday\",\"localMonth\":\"October\"},")
+                .append("\"weather\":{\"description\":\"clear sky\",\"temperatureC\":18.4,\"humidity\":61,")
+                .append("\"windStrength\":2.6,\"cloudCover\":0},")
+                .append("\"location\":{\"city\":\"San Francisco\",\"state\":\"CA\",\"country\":\"US\",")
+                .append("\"lat\":37.7749,\"lon\":-122.4194},")
+                .append("\"holidays\":[{\"holiday\":\"Columbus Day\",\"types\":[\"PUBLIC_OBSERVANCE\"]}],")
+                .append("\"locationShapes\":{\"CITY\":{\"type\":\"Feature\",\"properties\":{\"name\":\"San Francisco\"},")
+                .append("\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+
+        for (int i = 0; i < coordinates; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            final double angle = 2 * Math.PI * i / coordinates;
+            sb.append('[')
+                    .append(-122.4194 + 0.1 * Math.cos(angle))
+                    .append(',')
+                    .append(37.7749 + 0.1 * Math.sin(angle))
+                    .append(']');
+        }
+        sb.append("]]}}}}");
+
+        return sb.toString();
+    }
+}
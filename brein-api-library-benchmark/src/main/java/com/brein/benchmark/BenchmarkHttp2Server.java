@@ -0,0 +1,195 @@
+package com.brein.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP/2 server (plain, i.e., with prior knowledge) used by the benchmark of the HTTP/2 engine. Like the
+ * {@link BenchmarkServer}, every request is answered with the static temporal data response. The requests are not
+ * decoded, the response headers are a precomputed header block, i.e., the server only measures the engine.
+ */
+public class BenchmarkHttp2Server {
+
+    private static final int PREFACE_SIZE = 24;
+
+    private static final int TYPE_DATA = 0x0;
+    private static final int TYPE_HEADERS = 0x1;
+    private static final int TYPE_SETTINGS = 0x4;
+    private static final int TYPE_PING = 0x6;
+    private static final int TYPE_GOAWAY = 0x7;
+    private static final int TYPE_WINDOW_UPDATE = 0x8;
+    private static final int TYPE_CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+
+    private static final byte[] RESPONSE = BenchmarkServer.RESPONSE;
+    private static final byte[] RESPONSE_HEADERS = createResponseHeaders();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public BenchmarkHttp2Server start() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        socket.setTcpNoDelay(true);
+                        executor.execute(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                handle(socket);
+                            }
+                        });
+                    } catch (final IOException e) {
+                        // the server was stopped
+                    }
+                }
+            }
+        });
+
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            // nothing to do
+        }
+        executor.shutdownNow();
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            in.readFully(new byte[PREFACE_SIZE]);
+
+            writeFrame(out, TYPE_SETTINGS, 0, 0, new byte[0]);
+            out.flush();
+
+            int endedStream = 0;
+            while (true) {
+                final int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                final int type = in.readUnsignedByte();
+                final int flags = in.readUnsignedByte();
+                final int streamId = in.readInt() & 0x7fffffff;
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                if (type == TYPE_SETTINGS && (flags & FLAG_ACK) == 0) {
+                    writeFrame(out, TYPE_SETTINGS, FLAG_ACK, 0, new byte[0]);
+                } else if (type == TYPE_PING && (flags & FLAG_ACK) == 0) {
+                    writeFrame(out, TYPE_PING, FLAG_ACK, 0, payload);
+                } else if (type == TYPE_GOAWAY) {
+                    break;
+                } else if (type == TYPE_HEADERS && (flags & FLAG_END_STREAM) != 0) {
+                    endedStream = streamId;
+                } else if (type == TYPE_DATA && length > 0) {
+
+                    // the request bodies are small, only the window of the connection has to be updated
+                    final byte[] increment = new byte[4];
+                    writeInt(increment, 0, length);
+                    writeFrame(out, TYPE_WINDOW_UPDATE, 0, 0, increment);
+                }
+
+                if (type == TYPE_DATA && (flags & FLAG_END_STREAM) != 0) {
+                    respond(out, streamId);
+                } else if ((type == TYPE_HEADERS || type == TYPE_CONTINUATION) &&
+                        (flags & FLAG_END_HEADERS) != 0 && endedStream == streamId) {
+                    endedStream = 0;
+                    respond(out, streamId);
+                }
+
+                // responses are only written once all received frames are handled
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (final IOException e) {
+            // the connection was closed
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    private void respond(final OutputStream out, final int streamId) throws IOException {
+        writeFrame(out, TYPE_HEADERS, FLAG_END_HEADERS, streamId, RESPONSE_HEADERS);
+        writeFrame(out, TYPE_DATA, FLAG_END_STREAM, streamId, RESPONSE);
+    }
+
+    private void writeFrame(final OutputStream out,
+                            final int type,
+                            final int flags,
+                            final int streamId,
+                            final byte[] payload) throws IOException {
+        final byte[] header = new byte[9];
+        header[0] = (byte) (payload.length >>> 16);
+        header[1] = (byte) (payload.length >>> 8);
+        header[2] = (byte) payload.length;
+        header[3] = (byte) type;
+        header[4] = (byte) flags;
+        writeInt(header, 5, streamId);
+
+        out.write(header);
+        out.write(payload);
+    }
+
+    private static void writeInt(final byte[] data, final int offset, final int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Creates the header block of the responses, i.e., ":status: 200" (index 8 of the static table) and the
+     * content-type (index 31) and content-length (index 28) as literals without indexing (RFC 7541).
+     *
+     * @return byte[] the header block
+     */
+    private static byte[] createResponseHeaders() {
+        final Charset ascii = Charset.forName("US-ASCII");
+        final byte[] contentType = "application/json".getBytes(ascii);
+        final byte[] contentLength = String.valueOf(RESPONSE.length).getBytes(ascii);
+
+        final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.write(0x88);
+        block.write(0x0f);
+        block.write(31 - 15);
+        block.write(contentType.length);
+        block.write(contentType, 0, contentType.length);
+        block.write(0x0f);
+        block.write(28 - 15);
+        block.write(contentLength.length);
+        block.write(contentLength, 0, contentLength.length);
+
+        return block.toByteArray();
+    }
+}
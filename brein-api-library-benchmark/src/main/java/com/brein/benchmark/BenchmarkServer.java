@@ -0,0 +1,74 @@
+package com.brein.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local server used by the benchmarks of the rest engines, i.e., the engines are measured without network. Every
+ * request is answered with a static temporal data response, the signatures are not verified.
+ */
+public class BenchmarkServer {
+
+    static final byte[] RESPONSE = ("{" +
+            "\"time\":{\"timezone\":\"America/Los_Angeles\",\"localDay\":\"Monday\"}," +
+            "\"weather\":{\"description\":\"clear sky\",\"temperatureC\":18.4}," +
+            "\"location\":{\"city\":\"San Francisco\",\"state\":\"CA\",\"country\":\"US\"," +
+            "\"lat\":37.7749,\"lon\":-122.4194}}").getBytes(Charset.forName("UTF-8"));
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public BenchmarkServer start() throws IOException {
+
+        // otherwise each response waits for the delayed ack, which would be measured instead of the engine
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final byte[] buffer = new byte[4096];
+                final InputStream in = exchange.getRequestBody();
+                //noinspection StatementWithEmptyBody
+                while (in.read(buffer) != -1) {
+                    // the request is not needed
+                }
+                in.close();
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(RESPONSE);
+                out.close();
+            }
+        });
+
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
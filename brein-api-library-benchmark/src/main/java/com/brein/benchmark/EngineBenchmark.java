@@ -0,0 +1,89 @@
+package com.brein.benchmark;
+
+import com.brein.api.Brein;
+import com.brein.api.BreinFuture;
+import com.brein.api.BreinTemporalData;
+import com.brein.api.Breinify;
+import com.brein.domain.BreinResult;
+import com.brein.engine.BreinEngineType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rest engines selectable through {@link BreinEngineType}, by sending a number of concurrent temporal
+ * data requests to a local server and waiting for all responses. The caching of the temporal data is disabled,
+ * i.e., every request is sent. The HTTP/2 engine sends its requests to a local HTTP/2 server instead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    @Param({"HTTP_URL_CONNECTION_ENGINE", "NIO_ENGINE", "HTTP2_ENGINE"})
+    public BreinEngineType engineType;
+
+    /**
+     * number of concurrent requests per invocation
+     */
+    @Param({"1", "50"})
+    public int requests;
+
+    private BenchmarkServer server;
+    private BenchmarkHttp2Server http2Server;
+    private Brein brein;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new BenchmarkServer().start();
+        http2Server = new BenchmarkHttp2Server().start();
+        final String baseUrl = engineType == BreinEngineType.HTTP2_ENGINE
+                ? http2Server.getBaseUrl()
+                : server.getBaseUrl();
+        brein = Breinify.setConfig(BenchmarkData.createConfig()
+                .setBaseUrl(baseUrl)
+                .setRestEngineType(engineType)
+                .setTemporalDataCaching(false));
+    }
+
+    @TearDown
+    public void tearDown() {
+        Breinify.shutdown();
+        server.stop();
+        http2Server.stop();
+    }
+
+    @Benchmark
+    public int sendTemporalData() throws Exception {
+        final List<BreinFuture<BreinResult>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            futures.add(brein.temporalData(new BreinTemporalData().setLookUpIpAddress("74.115.209." + i)));
+        }
+
+        int received = 0;
+        for (final BreinFuture<BreinResult> future : futures) {
+            if (future.get(10, TimeUnit.SECONDS) != null) {
+                received++;
+            }
+        }
+
+        return received;
+    }
+}
@@ -0,0 +1,69 @@
+package com.brein.benchmark;
+
+import com.brein.api.BreinActivity;
+import com.brein.domain.BreinConfig;
+import com.brein.util.BreinMapUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of request bodies, i.e., the work done on the calling thread for each activity.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestPreparationBenchmark {
+
+    /**
+     * number of tags and additional user values of the activity
+     */
+    @Param({"1", "20", "100"})
+    public int size;
+
+    private BreinConfig config;
+    private BreinActivity activity;
+    private Map<String, Object> requestData;
+
+    @Setup
+    public void setUp() {
+        config = BenchmarkData.createConfig();
+        activity = BenchmarkData.createActivity(size);
+        requestData = activity.prepareRequestMap(config);
+    }
+
+    @Benchmark
+    public String prepareRequestData() {
+        return activity.prepareRequestData(config);
+    }
+
+    @Benchmark
+    public Map<String, Object> prepareRequestMap() {
+        return activity.prepareRequestMap(config);
+    }
+
+    @Benchmark
+    public String createSignature() {
+        return activity.createSignature(config, requestData);
+    }
+
+    @Benchmark
+    public Map<String, Object> copyMap() {
+        return BreinMapUtil.copyMap(requestData);
+    }
+}
@@ -0,0 +1,88 @@
+package com.brein.benchmark;
+
+import com.brein.domain.BreinResult;
+import com.brein.domain.results.BreinTemporalDataResult;
+import com.brein.util.BreinResponseReader;
+import com.google.gson.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of temporal data responses, from a String and directly from the received bytes, into a map,
+ * into a json tree, and into the typed result.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultParsingBenchmark {
+
+    /**
+     * number of coordinates of the shape within the response, 0 means no shape is requested
+     */
+    @Param({"0", "500", "5000"})
+    public int coordinates;
+
+    private String json;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.createTemporalDataResponse(coordinates);
+        body = json.getBytes(Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public BreinResult parseString() {
+        return new BreinResult(json);
+    }
+
+    @Benchmark
+    public BreinResult readString() throws IOException {
+        return new BreinResult(BreinResponseReader.readString(new ByteArrayInputStream(body), Long.MAX_VALUE));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public BreinResult readJson() throws IOException {
+        final Map<String, Object> map = BreinResponseReader.readJson(
+                new ByteArrayInputStream(body), Long.MAX_VALUE, Map.class);
+        return new BreinResult(map);
+    }
+
+    @Benchmark
+    public BreinResult readTree() throws IOException {
+        final JsonObject json = BreinResponseReader.readJson(
+                new ByteArrayInputStream(body), Long.MAX_VALUE, JsonObject.class);
+        return new BreinResult(json);
+    }
+
+    /**
+     * reads the typed sections, the shape is not converted as it is not accessed
+     */
+    @Benchmark
+    public String readTyped() throws IOException {
+        final JsonObject json = BreinResponseReader.readJson(
+                new ByteArrayInputStream(body), Long.MAX_VALUE, JsonObject.class);
+        final BreinTemporalDataResult result = new BreinTemporalDataResult(json);
+        return result.getWeather().getDescription() + result.getLocation().getCity();
+    }
+}
@@ -0,0 +1,80 @@
+package com.brein.benchmark;
+
+import com.brein.domain.BreinConfig;
+import com.brein.util.BreinGson;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Gson instances used before with the shared instance of {@link BreinGson}. Request bodies were written
+ * by the static instance of BreinBase (UPPER_CAMEL_CASE, html escaping), responses were read by a Gson instance
+ * created per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final String LOOKUP_RESPONSE = "{\"email\":{\"result\":\"toni.tester@mail.net\"}}";
+
+    /**
+     * the instance BreinBase used to write the request bodies
+     */
+    private static final Gson BASELINE_GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE)
+            .create();
+
+    /**
+     * number of tags and additional user values of the activity
+     */
+    @Param({"1", "20", "100"})
+    public int size;
+
+    private Map<String, Object> requestData;
+
+    @Setup
+    public void setUp() {
+        final BreinConfig config = BenchmarkData.createConfig();
+        requestData = BenchmarkData.createActivity(size).prepareRequestMap(config);
+    }
+
+    @Benchmark
+    public String writeWithBaselineGson() {
+        return BASELINE_GSON.toJson(requestData);
+    }
+
+    @Benchmark
+    public String writeWithBreinGson() {
+        return BreinGson.GSON.toJson(requestData);
+    }
+
+    @Benchmark
+    public JsonObject readWithNewGson() {
+        return new Gson().fromJson(LOOKUP_RESPONSE, JsonObject.class);
+    }
+
+    @Benchmark
+    public JsonObject readWithSharedGson() {
+        return BreinGson.GSON.fromJson(LOOKUP_RESPONSE, JsonObject.class);
+    }
+}
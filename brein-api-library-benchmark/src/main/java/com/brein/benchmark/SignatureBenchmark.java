@@ -0,0 +1,65 @@
+package com.brein.benchmark;
+
+import com.brein.util.Base64;
+import com.brein.util.BreinUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the signing of messages and the encoding of the signatures.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+
+    /**
+     * number of bytes encoded, a signature has 32 bytes
+     */
+    @Param({"32", "1024"})
+    public int bytes;
+
+    private String message;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        message = "checkOut" + (System.currentTimeMillis() / 1000L) + 1;
+
+        data = new byte[bytes];
+        new Random(42).nextBytes(data);
+    }
+
+    @Benchmark
+    public String generateSignature() {
+        return BreinUtil.generateSignature(message, BenchmarkData.SECRET);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateSignatureConcurrently() {
+        return BreinUtil.generateSignature(message, BenchmarkData.SECRET);
+    }
+
+    @Benchmark
+    public String encodeBytes() {
+        return Base64.encodeBytes(data);
+    }
+}
@@ -0,0 +1,16 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.IBinder;
+
+public abstract class Service extends ContextWrapper {
+
+    public static final int START_STICKY = 1;
+
+    public abstract IBinder onBind(Intent intent);
+
+    public int onStartCommand(final Intent intent, final int flags, final int startId) {
+        return START_STICKY;
+    }
+}
@@ -0,0 +1,51 @@
+package android.content;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+
+import java.io.File;
+
+public abstract class Context {
+
+    public static final int MODE_PRIVATE = 0;
+
+    public static final String WIFI_SERVICE = "wifi";
+    public static final String LOCATION_SERVICE = "location";
+    public static final String NOTIFICATION_SERVICE = "notification";
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+
+    public Object getSystemService(final String name) {
+        return null;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public SharedPreferences getSharedPreferences(final String name, final int mode) {
+        return null;
+    }
+
+    public Intent registerReceiver(final BroadcastReceiver receiver, final IntentFilter filter) {
+        return null;
+    }
+
+    public void unregisterReceiver(final BroadcastReceiver receiver) {
+    }
+
+    public ApplicationInfo getApplicationInfo() {
+        return new ApplicationInfo();
+    }
+
+    public PackageManager getPackageManager() {
+        return null;
+    }
+
+    public File getFilesDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public File getCacheDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+}
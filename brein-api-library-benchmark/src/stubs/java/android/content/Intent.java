@@ -0,0 +1,29 @@
+package android.content;
+
+import android.os.Bundle;
+
+public class Intent {
+
+    public static final int FLAG_ACTIVITY_CLEAR_TOP = 0x04000000;
+
+    public Intent() {
+    }
+
+    public Intent(final String action) {
+    }
+
+    public Intent(final Context context, final Class<?> cls) {
+    }
+
+    public Intent addFlags(final int flags) {
+        return this;
+    }
+
+    public Bundle getExtras() {
+        return null;
+    }
+
+    public String getAction() {
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package android.content;
+
+public class IntentFilter {
+
+    public IntentFilter() {
+    }
+
+    public IntentFilter(final String action) {
+    }
+
+    public void addAction(final String action) {
+    }
+}
@@ -0,0 +1,8 @@
+package android.content.pm;
+
+public class ApplicationInfo {
+
+    public CharSequence loadLabel(final PackageManager pm) {
+        return "benchmark";
+    }
+}
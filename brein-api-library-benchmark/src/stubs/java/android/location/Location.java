@@ -0,0 +1,24 @@
+package android.location;
+
+public class Location {
+
+    public float getAccuracy() {
+        return 0f;
+    }
+
+    public float getSpeed() {
+        return 0f;
+    }
+
+    public double getLatitude() {
+        return 0d;
+    }
+
+    public double getLongitude() {
+        return 0d;
+    }
+
+    public long getTime() {
+        return 0L;
+    }
+}
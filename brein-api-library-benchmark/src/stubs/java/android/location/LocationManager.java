@@ -0,0 +1,26 @@
+package android.location;
+
+import java.util.Collections;
+import java.util.List;
+
+public class LocationManager {
+
+    public static final String PASSIVE_PROVIDER = "passive";
+
+    public List<String> getAllProviders() {
+        return Collections.emptyList();
+    }
+
+    public Location getLastKnownLocation(final String provider) {
+        return null;
+    }
+
+    public void requestLocationUpdates(final String provider,
+                                       final long minTime,
+                                       final float minDistance,
+                                       final LocationListener listener) {
+    }
+
+    public void removeUpdates(final LocationListener listener) {
+    }
+}
@@ -0,0 +1,16 @@
+package android.net;
+
+public class NetworkInfo {
+
+    public boolean isConnected() {
+        return false;
+    }
+
+    public int getType() {
+        return 0;
+    }
+
+    public String getTypeName() {
+        return "";
+    }
+}
@@ -0,0 +1,6 @@
+package android.net.wifi;
+
+public enum SupplicantState {
+    DISCONNECTED,
+    COMPLETED
+}
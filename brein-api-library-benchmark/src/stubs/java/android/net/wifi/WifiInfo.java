@@ -0,0 +1,36 @@
+package android.net.wifi;
+
+public class WifiInfo {
+
+    public String getSSID() {
+        return "";
+    }
+
+    public String getBSSID() {
+        return null;
+    }
+
+    public int getIpAddress() {
+        return 0;
+    }
+
+    public int getLinkSpeed() {
+        return 0;
+    }
+
+    public String getMacAddress() {
+        return null;
+    }
+
+    public int getRssi() {
+        return 0;
+    }
+
+    public int getNetworkId() {
+        return 0;
+    }
+
+    public SupplicantState getSupplicantState() {
+        return SupplicantState.DISCONNECTED;
+    }
+}
@@ -0,0 +1,8 @@
+package android.net.wifi;
+
+public class WifiManager {
+
+    public WifiInfo getConnectionInfo() {
+        return null;
+    }
+}
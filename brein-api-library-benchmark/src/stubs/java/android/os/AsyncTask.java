@@ -0,0 +1,16 @@
+package android.os;
+
+public abstract class AsyncTask<Params, Progress, Result> {
+
+    @SuppressWarnings("unchecked")
+    protected abstract Result doInBackground(Params... params);
+
+    protected void onPostExecute(final Result result) {
+    }
+
+    @SafeVarargs
+    public final AsyncTask<Params, Progress, Result> execute(final Params... params) {
+        onPostExecute(doInBackground(params));
+        return this;
+    }
+}
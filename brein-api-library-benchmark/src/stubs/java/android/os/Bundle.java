@@ -0,0 +1,15 @@
+package android.os;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class Bundle {
+
+    public Set<String> keySet() {
+        return Collections.emptySet();
+    }
+
+    public Object get(final String key) {
+        return null;
+    }
+}
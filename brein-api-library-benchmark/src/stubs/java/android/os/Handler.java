@@ -0,0 +1,15 @@
+package android.os;
+
+public class Handler {
+
+    public boolean post(final Runnable runnable) {
+        return true;
+    }
+
+    public boolean postDelayed(final Runnable runnable, final long delayMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(final Runnable runnable) {
+    }
+}
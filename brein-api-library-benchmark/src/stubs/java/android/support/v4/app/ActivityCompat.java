@@ -0,0 +1,11 @@
+package android.support.v4.app;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+public class ActivityCompat {
+
+    public static int checkSelfPermission(final Context context, final String permission) {
+        return PackageManager.PERMISSION_DENIED;
+    }
+}
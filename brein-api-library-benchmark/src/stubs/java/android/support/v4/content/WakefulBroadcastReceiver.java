@@ -0,0 +1,6 @@
+package android.support.v4.content;
+
+import android.content.BroadcastReceiver;
+
+public abstract class WakefulBroadcastReceiver extends BroadcastReceiver {
+}
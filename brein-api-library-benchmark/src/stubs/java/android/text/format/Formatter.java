@@ -0,0 +1,9 @@
+package android.text.format;
+
+public class Formatter {
+
+    public static String formatIpAddress(final int ipv4Address) {
+        return (ipv4Address & 0xff) + "." + (ipv4Address >> 8 & 0xff) + "."
+                + (ipv4Address >> 16 & 0xff) + "." + (ipv4Address >> 24 & 0xff);
+    }
+}